@@ -1,19 +1,80 @@
 package bg.example;
 
+import bg.example.capture.CaptureDisplay;
+import bg.example.capture.FrameEncoder;
+import bg.example.capture.GifEncoder;
+import bg.example.capture.RawFrameEncoder;
 import bg.example.chip.Chip8;
+import bg.example.chip.QuirkProfile;
+import bg.example.chip.Quirks;
 import bg.example.config.ProjectConfig;
+import bg.example.debug.DebugServer;
+import bg.example.debug.Debugger;
+import bg.example.display.ConsoleDisplay;
+import bg.example.clock.FrameClock;
+import bg.example.display.DisplayPipeline;
+import bg.example.display.GridDisplay;
+import bg.example.display.StreamingDisplay;
+import bg.example.governor.GovernorSettings;
+import bg.example.governor.SpeedCache;
+import bg.example.governor.SpeedGovernor;
+import bg.example.hash.Hashing;
+import bg.example.headless.HeadlessChip8;
+import bg.example.input.InputScript;
+import bg.example.input.KeyMap;
+import bg.example.input.NetworkInputSource;
+import bg.example.input.ReplayInputSource;
+import bg.example.input.SampledKeyboard;
+import bg.example.input.StreamInputSource;
+import bg.example.keyboard.Keyboard;
+import bg.example.keyboard.KeyboardProxy;
+import bg.example.reload.ReloadMode;
+import bg.example.reload.RomReloader;
+import bg.example.shared.SharedMachineState;
+import bg.example.stream.FrameStreamServer;
 
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.scene.Group;
+import javafx.scene.Scene;
 import javafx.scene.control.TextInputDialog;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 
 public class Main extends Application {
 
+    private static final String DEBUG_PORT_PROPERTY = "chip8.debug.port";
+    private static final String QUIRKS_PROPERTY = "chip8.quirks";
+    private static final String CONSOLE_PROPERTY = "chip8.console";
+    private static final String SHARED_STATE_PROPERTY = "chip8.shared-state";
+    private static final String HOT_RELOAD_PROPERTY = "chip8.hot-reload";
+    private static final String GOVERNOR_PROPERTY = "chip8.governor";
+    private static final String SPEED_CACHE_PROPERTY = "chip8.speed-cache";
+    private static final String STDIN_INPUT_PROPERTY = "chip8.input.stdin";
+    private static final String NETWORK_INPUT_PROPERTY = "chip8.input.port";
+    private static final String SCRIPT_INPUT_PROPERTY = "chip8.input.script";
+    private static final String GRID_PROPERTY = "chip8.grid";
+    private static final String CAPTURE_PROPERTY = "chip8.capture";
+    private static final String STREAM_PORT_PROPERTY = "chip8.stream.port";
+
+    private static final int GRID_PIXEL_SIZE = 3;
+
+    private static final Path DEFAULT_SPEED_CACHE = Path.of(System.getProperty("user.home"), ".chip8", "speeds.properties");
+
+    private AnnotationConfigApplicationContext ctx;
+    private CaptureDisplay capture;
+    private FrameStreamServer streamServer;
+
     @Override
     public void start(Stage stage) {
 
@@ -24,22 +85,343 @@ public class Main extends Application {
             return;
         }
 
-        try (var ctx = new AnnotationConfigApplicationContext()) {
-            ctx.registerBean("stage", Stage.class, () -> stage);
-            ctx.registerBean("programLocation", String.class, () -> chipProgramLocation);
-            ctx.register(ProjectConfig.class);
-            ctx.refresh();
+        // Closed when the application stops, closing it earlier would stop the renderers and inputs
+        ctx = new AnnotationConfigApplicationContext();
+        ctx.registerBean("stage", Stage.class, () -> stage);
+        ctx.registerBean("programLocation", String.class, () -> chipProgramLocation);
+        ctx.registerBean("quirks", Quirks.class, Main::getQuirks);
+        registerSharedState(ctx);
+        ctx.register(ProjectConfig.class);
+        ctx.refresh();
+
+        if (Boolean.getBoolean(CONSOLE_PROPERTY)) {
+            ctx.getBean(DisplayPipeline.class).addRenderer("console", new ConsoleDisplay(Chip8.DISPLAY_WIDTH));
+        }
+
+        startCapture(ctx.getBean(DisplayPipeline.class));
+        startStreamServer(ctx);
+
+        Debugger debugger = ctx.getBean(Debugger.class);
+
+        startReloader(ctx, Path.of(chipProgramLocation), debugger);
+        startGovernor(ctx, Path.of(chipProgramLocation), stage);
+        startInputSources(ctx, stage);
+        startGrid(Path.of(chipProgramLocation), ctx.getBean(Quirks.class));
+
+        var thread = new Thread(debugger);
+
+        thread.setDaemon(true);
+        thread.start();
+
+        startDebugServer(debugger);
+
+        stage.setOnCloseRequest(e -> Platform.exit());
+        stage.show();
+    }
+
+    @Override
+    public void stop() {
+        if (ctx != null) {
+            ctx.close();
+        }
+
+        if (streamServer != null) {
+            try {
+                streamServer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // After the context stopped the renderers, so that no frame is captured while finishing
+        if (capture != null) {
+            try {
+                System.out.println("Capture: " + capture.close());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
-            Chip8 chip = ctx.getBean(Chip8.class, stage);
+    /**
+     * Records every published frame, as an animated GIF if the file name ends with .gif and as
+     * raw frames with an index next to them otherwise
+     *
+     * @see #CAPTURE_PROPERTY the file to write
+     */
+    private void startCapture(DisplayPipeline pipeline) {
+        String file = System.getProperty(CAPTURE_PROPERTY);
 
-            var thread = new Thread(chip);
+        if (file == null) {
+            return;
+        }
+
+        Path path = Path.of(file);
+        FrameEncoder encoder = file.toLowerCase(Locale.ROOT).endsWith(".gif")
+            ? new GifEncoder(path)
+            : new RawFrameEncoder(path, Path.of(file + ".idx"));
+
+        try {
+            capture = new CaptureDisplay(encoder, Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT);
+            pipeline.addRenderer("capture", capture);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void startDebugServer(Debugger debugger) {
+        String port = System.getProperty(DEBUG_PORT_PROPERTY);
+
+        if (port == null) {
+            return;
+        }
+
+        try {
+            var server = new DebugServer(debugger, Integer.parseInt(port));
+            var thread = new Thread(server);
 
             thread.setDaemon(true);
             thread.start();
+
+            System.out.println("Debugger listening on port " + server.getPort());
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+    }
 
-        stage.setOnCloseRequest(e -> Platform.exit());
-        stage.show();
+    /**
+     * Streams the published frames to remote viewers, whose keys reach the instance next to the window
+     */
+    private void startStreamServer(AnnotationConfigApplicationContext ctx) {
+        String port = System.getProperty(STREAM_PORT_PROPERTY);
+
+        if (port == null) {
+            return;
+        }
+
+        // Viewers send the keys of the instance, which need no remapping
+        var viewerKeys = new KeyboardProxy(KeyMap.fromRemapping(Map.of()));
+
+        try {
+            streamServer = new FrameStreamServer(viewerKeys, Integer.parseInt(port));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        ctx.getBean(SampledKeyboard.class).addSource(viewerKeys);
+        ctx.getBean(DisplayPipeline.class).addRenderer("stream", new StreamingDisplay(streamServer, Chip8.DISPLAY_HEIGHT));
+
+        var thread = new Thread(streamServer, "stream-server");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        System.out.println("Streaming on port " + streamServer.getPort());
+    }
+
+    /**
+     * Patches changes of the program file into the running instance, before it starts so that
+     * a restart goes back to the freshly loaded state
+     */
+    private void startReloader(AnnotationConfigApplicationContext ctx, Path rom, Debugger debugger) {
+        String mode = System.getProperty(HOT_RELOAD_PROPERTY);
+
+        if (mode == null) {
+            return;
+        }
+
+        try {
+            var reloader = new RomReloader(
+                rom,
+                ctx.getBean(Chip8.class),
+                ReloadMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)),
+                debugger
+            );
+
+            reloader.addListener(patches -> System.out.println("Reloaded " + patches.size() + " changed ranges"));
+            reloader.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts at the speed learned for the program on an earlier launch and keeps tuning it,
+     * remembering the learned speed when the window closes
+     */
+    private void startGovernor(AnnotationConfigApplicationContext ctx, Path rom, Stage stage) {
+        if (!Boolean.getBoolean(GOVERNOR_PROPERTY)) {
+            return;
+        }
+
+        try {
+            SpeedCache cache = SpeedCache.open(
+                Path.of(System.getProperty(SPEED_CACHE_PROPERTY, DEFAULT_SPEED_CACHE.toString()))
+            );
+            long programHash = Hashing.hash(Files.readAllBytes(rom));
+
+            FrameClock clock = ctx.getBean(FrameClock.class);
+            Chip8 chip = ctx.getBean(Chip8.class);
+
+            cache.get(programHash).ifPresent(clock::setInstructionsPerFrame);
+
+            SpeedGovernor governor = new SpeedGovernor(clock, GovernorSettings.DEFAULT);
+
+            governor.setSettledListener(instructionsPerFrame -> cache.put(programHash, instructionsPerFrame));
+            chip.setDrawListener(governor::recordDraw);
+            chip.addKeyWaitListener(governor::recordKeyWait);
+            clock.addFrameListener(governor);
+
+            stage.addEventHandler(WindowEvent.WINDOW_CLOSE_REQUEST, e -> {
+                try {
+                    cache.save();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds the input sources asked for next to the window, reporting the input latency on close
+     */
+    private void startInputSources(AnnotationConfigApplicationContext ctx, Stage stage) {
+        SampledKeyboard keyboard = ctx.getBean(SampledKeyboard.class);
+
+        try {
+            if (Boolean.getBoolean(STDIN_INPUT_PROPERTY)) {
+                keyboard.addSource(new StreamInputSource(System.in, "stdin-input"));
+            }
+
+            String port = System.getProperty(NETWORK_INPUT_PROPERTY);
+
+            if (port != null) {
+                var source = new NetworkInputSource(Integer.parseInt(port));
+
+                keyboard.addSource(source);
+                System.out.println("Input listening on port " + source.getPort());
+            }
+
+            String script = System.getProperty(SCRIPT_INPUT_PROPERTY);
+
+            if (script != null) {
+                keyboard.addSource(new ReplayInputSource(ctx.getBean(FrameClock.class), InputScript.load(Path.of(script))));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // The sources are closed with the application context
+        stage.addEventHandler(
+            WindowEvent.WINDOW_CLOSE_REQUEST,
+            e -> System.out.println("Input latency: " + keyboard.getLatency())
+        );
+    }
+
+    /**
+     * Runs more copies of the program with different random seeds, as tiles of one window
+     *
+     * @see #GRID_PROPERTY columns and rows such as 4x3
+     */
+    private void startGrid(Path rom, Quirks quirks) {
+        String size = System.getProperty(GRID_PROPERTY);
+
+        if (size == null) {
+            return;
+        }
+
+        String[] parts = size.toLowerCase(Locale.ROOT).split("x");
+        int columns = Integer.parseInt(parts[0].trim());
+        int rows = Integer.parseInt(parts[1].trim());
+
+        byte[] program;
+
+        try {
+            program = Files.readAllBytes(rom);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        var grid = new GridDisplay(columns, rows, Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT, GRID_PIXEL_SIZE);
+        var machines = new HeadlessChip8[columns * rows];
+
+        for (int i = 0; i < machines.length; i++) {
+            machines[i] = new HeadlessChip8(
+                program,
+                i,
+                Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME,
+                quirks,
+                grid.createTile(),
+                new Keyboard()
+            );
+        }
+
+        var thread = new Thread(() -> runGrid(machines), "grid");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        var gridStage = new Stage();
+
+        gridStage.setTitle("Chip-8-Emulator grid");
+        gridStage.setScene(new Scene(new Group(grid.getView())));
+        gridStage.show();
+        grid.start();
+    }
+
+    /**
+     * Runs every machine one frame per sixtieth of a second, a machine which crashed stays on its last frame
+     */
+    private static void runGrid(HeadlessChip8[] machines) {
+        long frameNanos = 1_000_000_000L / Chip8.TIMER_FREQUENCY;
+        long deadline = System.nanoTime();
+        boolean[] crashed = new boolean[machines.length];
+
+        while (true) {
+            for (int i = 0; i < machines.length; i++) {
+                if (crashed[i]) {
+                    continue;
+                }
+
+                try {
+                    machines[i].runFrame();
+                } catch (RuntimeException e) {
+                    crashed[i] = true;
+                }
+            }
+
+            deadline += frameNanos;
+            LockSupport.parkNanos(deadline - System.nanoTime());
+        }
+    }
+
+    /**
+     * Keeps the state of the instance in a memory-mapped file which other processes can read
+     */
+    private static void registerSharedState(AnnotationConfigApplicationContext ctx) {
+        String file = System.getProperty(SHARED_STATE_PROPERTY);
+
+        if (file == null) {
+            return;
+        }
+
+        ctx.registerBean("sharedMachineState", SharedMachineState.class, () -> {
+            try {
+                return SharedMachineState.create(Path.of(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Quirks getQuirks() {
+        return QuirkProfile.fromName(
+            System.getProperty(QUIRKS_PROPERTY, QuirkProfile.MODERN.name())
+        ).quirks();
     }
 
     private String getUserInput() {
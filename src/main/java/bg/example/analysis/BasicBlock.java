@@ -0,0 +1,16 @@
+package bg.example.analysis;
+
+/**
+ * Straight run of instructions entered only at its first one
+ *
+ * @param start address of the first instruction
+ * @param end address after the last instruction
+ * @param successors addresses of the blocks control may continue at. A call lists the subroutine
+ *                   followed by the return address, a return has none
+ */
+public record BasicBlock(int start, int end, int[] successors) {
+
+    public int instructionCount() {
+        return (end - start) / 2;
+    }
+}
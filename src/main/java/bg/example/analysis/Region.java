@@ -0,0 +1,29 @@
+package bg.example.analysis;
+
+/**
+ * Range of ROM bytes of one kind
+ *
+ * @param start first address of the range
+ * @param end address after the range
+ */
+public record Region(int start, int end, Kind kind) {
+
+    public enum Kind {
+        /**
+         * Reachable instructions
+         */
+        CODE,
+        /**
+         * Bytes no traced path reaches
+         */
+        DATA,
+        /**
+         * Bytes an indirect jump may reach, for example entries of a jump table
+         */
+        UNKNOWN
+    }
+
+    public int size() {
+        return end - start;
+    }
+}
@@ -0,0 +1,113 @@
+package bg.example.analysis;
+
+import java.util.List;
+
+/**
+ * Result of the static analysis of a ROM. A BNNN jump is only followed to its base NNN, the target
+ * with V0 equal to 0. Its other targets depend on V0, so the bytes from the base up to the last
+ * instruction V0 can reach are unknown rather than data, unless they are reachable code anyway
+ */
+public class RomAnalysis {
+
+    private static final int ADDRESS_SHIFT = 6;
+
+    private final long[] instructions;
+    private final long[] codeBytes;
+    private final long[] unknownBytes;
+    private final List<BasicBlock> blocks;
+    private final List<Region> regions;
+    private final List<SelfModifyingStore> selfModifyingStores;
+    private final List<Integer> unresolvedStores;
+    private final List<Integer> indirectJumps;
+
+    RomAnalysis(
+        long[] instructions,
+        long[] codeBytes,
+        long[] unknownBytes,
+        List<BasicBlock> blocks,
+        List<Region> regions,
+        List<SelfModifyingStore> selfModifyingStores,
+        List<Integer> unresolvedStores,
+        List<Integer> indirectJumps
+    ) {
+        this.instructions = instructions;
+        this.codeBytes = codeBytes;
+        this.unknownBytes = unknownBytes;
+        this.blocks = blocks;
+        this.regions = regions;
+        this.selfModifyingStores = selfModifyingStores;
+        this.unresolvedStores = unresolvedStores;
+        this.indirectJumps = indirectJumps;
+    }
+
+    /**
+     * @return true if a reachable instruction starts at the address
+     */
+    public boolean isInstruction(int address) {
+        return contains(instructions, address);
+    }
+
+    /**
+     * @return true if the byte at the address belongs to a reachable instruction
+     */
+    public boolean isCode(int address) {
+        return contains(codeBytes, address);
+    }
+
+    /**
+     * @return true if the byte at the address may be reached by an indirect jump
+     *         but does not belong to a reachable instruction
+     */
+    public boolean isUnknown(int address) {
+        return contains(unknownBytes, address);
+    }
+
+    /**
+     * @return basic blocks of the control-flow graph ordered by address
+     */
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return code, data and unknown ranges covering the whole ROM, ordered by address
+     */
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    /**
+     * @return stores whose index register is known and which write over reachable or unknown bytes
+     */
+    public List<SelfModifyingStore> getSelfModifyingStores() {
+        return selfModifyingStores;
+    }
+
+    /**
+     * @return addresses of FX55 and FX33 instructions whose target could not be determined,
+     * so they may modify code as well
+     */
+    public List<Integer> getUnresolvedStores() {
+        return unresolvedStores;
+    }
+
+    /**
+     * @return addresses of BNNN jumps, only their base is followed
+     */
+    public List<Integer> getIndirectJumps() {
+        return indirectJumps;
+    }
+
+    /**
+     * @return true if no store may change reachable code, so the code can be decoded once
+     */
+    public boolean isCodeImmutable() {
+        return selfModifyingStores.isEmpty() && unresolvedStores.isEmpty();
+    }
+
+    private static boolean contains(long[] set, int address) {
+        int index = address >>> ADDRESS_SHIFT;
+
+        return address >= 0 && index < set.length && (set[index] & (1L << address)) != 0;
+    }
+}
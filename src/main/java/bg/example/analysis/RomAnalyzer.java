@@ -0,0 +1,443 @@
+package bg.example.analysis;
+
+import bg.example.chip.Chip8;
+import bg.example.loader.rom.ROMLoader;
+import bg.example.memory.SimpleMemory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the reachable code of a ROM without running it. Instructions are traced from the entry
+ * point along jumps, calls, returns and skips, split into basic blocks and the value of the index
+ * register is propagated between blocks, so that stores writing over code can be found.
+ * <p>
+ * All sets are bitsets and the work lists are plain arrays, so a full ROM takes a few microseconds
+ */
+public class RomAnalyzer {
+
+    private static final int MEMORY_SIZE = Chip8.CHIP8_MEMORY_SIZE;
+    private static final int ADDRESS_SHIFT = 6;
+
+    private static final int FALLTHROUGH = 0;
+    private static final int JUMP = 1;
+    private static final int CALL = 2;
+    private static final int RETURN = 3;
+    private static final int SKIP = 4;
+    private static final int INDIRECT_JUMP = 5;
+
+    /**
+     * Largest offset V0 adds to the base of an indirect jump
+     */
+    private static final int MAX_INDIRECT_OFFSET = 0xFF;
+
+    private static final int UNKNOWN = -1;
+    private static final int UNVISITED = -2;
+
+    private static final int[] NO_SUCCESSORS = new int[0];
+
+    private final ROMLoader loader;
+
+    public RomAnalyzer(ROMLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Loads the ROM at the program start and analyzes it
+     */
+    public RomAnalysis analyze(Path rom) throws IOException {
+        int size = (int) Math.min(Files.size(rom), MEMORY_SIZE - Chip8.FIRST_INSTRUCTION_OFFSET);
+        int[] memory = new int[MEMORY_SIZE];
+
+        loader.load(rom, new SimpleMemory(memory), Chip8.FIRST_INSTRUCTION_OFFSET);
+
+        return analyze(memory, Chip8.FIRST_INSTRUCTION_OFFSET, Chip8.FIRST_INSTRUCTION_OFFSET + size);
+    }
+
+    /**
+     * @param memory the whole memory
+     * @param start entry point and first address of the ROM
+     * @param end address after the ROM
+     */
+    public static RomAnalysis analyze(int[] memory, int start, int end) {
+        long[] instructions = new long[MEMORY_SIZE >>> ADDRESS_SHIFT];
+        long[] codeBytes = new long[MEMORY_SIZE >>> ADDRESS_SHIFT];
+        long[] leaders = new long[MEMORY_SIZE >>> ADDRESS_SHIFT];
+        List<Integer> indirectJumps = new ArrayList<>();
+
+        trace(memory, start, end, instructions, codeBytes, leaders, indirectJumps);
+
+        long[] unknownBytes = unknownBytes(memory, start, end, codeBytes, indirectJumps);
+
+        int[] blockAt = new int[MEMORY_SIZE];
+        List<BasicBlock> blocks = split(memory, start, end, instructions, leaders, blockAt);
+        int[] entryIndex = propagateIndex(memory, start, blocks, blockAt);
+
+        List<SelfModifyingStore> selfModifyingStores = new ArrayList<>();
+        List<Integer> unresolvedStores = new ArrayList<>();
+
+        for (int i = 0; i < blocks.size(); i++) {
+            findStores(
+                memory,
+                blocks.get(i),
+                entryIndex[i],
+                codeBytes,
+                unknownBytes,
+                selfModifyingStores,
+                unresolvedStores
+            );
+        }
+
+        return new RomAnalysis(
+            instructions,
+            codeBytes,
+            unknownBytes,
+            blocks,
+            regions(start, end, codeBytes, unknownBytes),
+            selfModifyingStores,
+            unresolvedStores,
+            indirectJumps
+        );
+    }
+
+    private static void trace(
+        int[] memory,
+        int start,
+        int end,
+        long[] instructions,
+        long[] codeBytes,
+        long[] leaders,
+        List<Integer> indirectJumps
+    ) {
+        // Every address is pushed at most once per traced instruction
+        int[] pending = new int[MEMORY_SIZE + 1];
+        int count = 0;
+
+        add(leaders, start);
+        pending[count++] = start;
+
+        while (count > 0) {
+            int address = pending[--count];
+
+            while (address >= start && address + 1 < end && !contains(instructions, address)) {
+                int instruction = instructionAt(memory, address);
+
+                if (!isValid(instruction)) {
+                    break;
+                }
+
+                add(instructions, address);
+                add(codeBytes, address);
+                add(codeBytes, address + 1);
+
+                int kind = kindOf(instruction);
+                int next = address + 2;
+                int target = instruction & 0xFFF;
+
+                if (kind == JUMP || kind == CALL || kind == INDIRECT_JUMP) {
+                    add(leaders, target);
+                    pending[count++] = target;
+                }
+
+                if (kind == CALL) {
+                    add(leaders, next);
+                } else if (kind == SKIP) {
+                    add(leaders, next);
+                    add(leaders, next + 2);
+                    pending[count++] = next + 2;
+                } else if (kind == INDIRECT_JUMP) {
+                    indirectJumps.add(address);
+                }
+
+                if (kind == JUMP || kind == RETURN || kind == INDIRECT_JUMP) {
+                    break;
+                }
+
+                address = next;
+            }
+        }
+    }
+
+    /**
+     * Marks the bytes every indirect jump may reach with V0 above 0 which are not code
+     */
+    private static long[] unknownBytes(int[] memory, int start, int end, long[] codeBytes, List<Integer> indirectJumps) {
+        long[] unknownBytes = new long[MEMORY_SIZE >>> ADDRESS_SHIFT];
+
+        for (int jump : indirectJumps) {
+            int base = instructionAt(memory, jump) & 0xFFF;
+            // The last reachable instruction starts at the base plus the largest offset
+            int last = Math.min(base + MAX_INDIRECT_OFFSET + 2, end);
+
+            for (int address = Math.max(base, start); address < last; address++) {
+                if (!contains(codeBytes, address)) {
+                    add(unknownBytes, address);
+                }
+            }
+        }
+
+        return unknownBytes;
+    }
+
+    private static List<BasicBlock> split(
+        int[] memory,
+        int start,
+        int end,
+        long[] instructions,
+        long[] leaders,
+        int[] blockAt
+    ) {
+        List<BasicBlock> blocks = new ArrayList<>();
+
+        Arrays.fill(blockAt, -1);
+
+        for (int address = start; address < end; address++) {
+            if (!contains(leaders, address) || !contains(instructions, address)) {
+                continue;
+            }
+
+            int last;
+            int blockEnd = address;
+
+            do {
+                last = blockEnd;
+                blockEnd += 2;
+            } while (
+                kindOf(instructionAt(memory, last)) == FALLTHROUGH
+                    && contains(instructions, blockEnd)
+                    && !contains(leaders, blockEnd)
+            );
+
+            blockAt[address] = blocks.size();
+            blocks.add(new BasicBlock(address, blockEnd, successors(memory, last, blockEnd, instructions)));
+        }
+
+        return blocks;
+    }
+
+    private static int[] successors(int[] memory, int last, int next, long[] instructions) {
+        int instruction = instructionAt(memory, last);
+        int target = instruction & 0xFFF;
+
+        int[] successors = switch (kindOf(instruction)) {
+            case JUMP, INDIRECT_JUMP -> new int[] {target};
+            case CALL -> new int[] {target, next};
+            case SKIP -> new int[] {next, next + 2};
+            case RETURN -> NO_SUCCESSORS;
+            default -> new int[] {next};
+        };
+
+        // Control leaving the ROM or running into data has no block to continue at
+        int count = 0;
+
+        for (int successor : successors) {
+            if (contains(instructions, successor)) {
+                successors[count++] = successor;
+            }
+        }
+
+        return count == successors.length ? successors : Arrays.copyOf(successors, count);
+    }
+
+    /**
+     * Finds the value of the index register when every block is entered, or UNKNOWN if it
+     * depends on the path. A subroutine may change the register, so it is unknown after a call
+     */
+    private static int[] propagateIndex(int[] memory, int start, List<BasicBlock> blocks, int[] blockAt) {
+        int[] entryIndex = new int[blocks.size()];
+
+        Arrays.fill(entryIndex, UNVISITED);
+
+        if (blockAt[start] < 0) {
+            return entryIndex;
+        }
+
+        int[] queue = new int[blocks.size()];
+        boolean[] queued = new boolean[blocks.size()];
+        int head = 0;
+        int size = 0;
+
+        entryIndex[blockAt[start]] = UNKNOWN;
+        queue[0] = blockAt[start];
+        queued[blockAt[start]] = true;
+        size++;
+
+        while (size > 0) {
+            int current = queue[head];
+
+            head = (head + 1) % queue.length;
+            size--;
+            queued[current] = false;
+
+            BasicBlock block = blocks.get(current);
+            int exitIndex = transfer(memory, block, entryIndex[current]);
+            boolean call = kindOf(instructionAt(memory, block.end() - 2)) == CALL;
+
+            for (int i = 0; i < block.successors().length; i++) {
+                int successor = blockAt[block.successors()[i]];
+                int index = call && i == 1 ? UNKNOWN : exitIndex;
+                int previous = entryIndex[successor];
+                int merged = previous == UNVISITED || previous == index ? index : UNKNOWN;
+
+                if (merged != previous) {
+                    entryIndex[successor] = merged;
+
+                    if (!queued[successor]) {
+                        queue[(head + size) % queue.length] = successor;
+                        queued[successor] = true;
+                        size++;
+                    }
+                }
+            }
+        }
+
+        return entryIndex;
+    }
+
+    private static int transfer(int[] memory, BasicBlock block, int index) {
+        for (int address = block.start(); address < block.end(); address += 2) {
+            index = indexAfter(instructionAt(memory, address), index);
+        }
+
+        return index;
+    }
+
+    private static void findStores(
+        int[] memory,
+        BasicBlock block,
+        int index,
+        long[] codeBytes,
+        long[] unknownBytes,
+        List<SelfModifyingStore> selfModifyingStores,
+        List<Integer> unresolvedStores
+    ) {
+        for (int address = block.start(); address < block.end(); address += 2) {
+            int instruction = instructionAt(memory, address);
+            int length = storeLength(instruction);
+
+            if (length > 0) {
+                if (index < 0) {
+                    unresolvedStores.add(address);
+                } else if (overlaps(codeBytes, index, length) || overlaps(unknownBytes, index, length)) {
+                    selfModifyingStores.add(new SelfModifyingStore(address, instruction, index, length));
+                }
+            }
+
+            index = indexAfter(instruction, index);
+        }
+    }
+
+    private static List<Region> regions(int start, int end, long[] codeBytes, long[] unknownBytes) {
+        List<Region> regions = new ArrayList<>();
+        int regionStart = start;
+
+        for (int address = start + 1; address <= end; address++) {
+            Region.Kind kind = kindAt(regionStart, codeBytes, unknownBytes);
+
+            if (address == end || kindAt(address, codeBytes, unknownBytes) != kind) {
+                regions.add(new Region(regionStart, address, kind));
+                regionStart = address;
+            }
+        }
+
+        return regions;
+    }
+
+    private static Region.Kind kindAt(int address, long[] codeBytes, long[] unknownBytes) {
+        if (contains(codeBytes, address)) {
+            return Region.Kind.CODE;
+        }
+
+        return contains(unknownBytes, address) ? Region.Kind.UNKNOWN : Region.Kind.DATA;
+    }
+
+    /**
+     * @return number of bytes written by FX55 or FX33, 0 for other instructions
+     */
+    private static int storeLength(int instruction) {
+        if (instruction >>> 12 != 0xF) {
+            return 0;
+        }
+
+        return switch (instruction & 0xFF) {
+            case 0x55 -> ((instruction >>> 8) & 0xF) + 1;
+            case 0x33 -> 3;
+            default -> 0;
+        };
+    }
+
+    private static int indexAfter(int instruction, int index) {
+        if (instruction >>> 12 == 0xA) {
+            return instruction & 0xFFF;
+        }
+
+        if (instruction >>> 12 != 0xF) {
+            return index;
+        }
+
+        // Loads and stores move the register or not depending on the quirks
+        return switch (instruction & 0xFF) {
+            case 0x1E, 0x29, 0x55, 0x65 -> UNKNOWN;
+            default -> index;
+        };
+    }
+
+    private static int kindOf(int instruction) {
+        return switch (instruction >>> 12) {
+            case 0x0 -> instruction == 0x00EE ? RETURN : FALLTHROUGH;
+            case 0x1 -> JUMP;
+            case 0x2 -> CALL;
+            case 0x3, 0x4, 0x5, 0x9, 0xE -> SKIP;
+            case 0xB -> INDIRECT_JUMP;
+            default -> FALLTHROUGH;
+        };
+    }
+
+    /**
+     * @return false for encodings the disassembler shows as data
+     */
+    private static boolean isValid(int instruction) {
+        int n = instruction & 0xF;
+        int nn = instruction & 0xFF;
+
+        return switch (instruction >>> 12) {
+            case 0x0 -> instruction == 0x00E0 || instruction == 0x00EE;
+            case 0x5, 0x9 -> n == 0;
+            case 0x8 -> n <= 0x7 || n == 0xE;
+            case 0xE -> nn == 0x9E || nn == 0xA1;
+            case 0xF -> switch (nn) {
+                case 0x07, 0x0A, 0x15, 0x18, 0x1E, 0x29, 0x33, 0x55, 0x65 -> true;
+                default -> false;
+            };
+            default -> true;
+        };
+    }
+
+    private static boolean overlaps(long[] set, int start, int length) {
+        for (int address = start; address < start + length; address++) {
+            if (contains(set, address)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int instructionAt(int[] memory, int address) {
+        return memory[address] << 8 | memory[address + 1];
+    }
+
+    private static void add(long[] set, int address) {
+        if (address < MEMORY_SIZE) {
+            set[address >>> ADDRESS_SHIFT] |= 1L << address;
+        }
+    }
+
+    private static boolean contains(long[] set, int address) {
+        return address < MEMORY_SIZE && (set[address >>> ADDRESS_SHIFT] & (1L << address)) != 0;
+    }
+}
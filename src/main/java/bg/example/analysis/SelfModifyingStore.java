@@ -0,0 +1,11 @@
+package bg.example.analysis;
+
+/**
+ * FX55 or FX33 instruction writing over reachable code, or over bytes an indirect jump may reach
+ *
+ * @param address address of the storing instruction
+ * @param instruction the storing instruction
+ * @param target first address written
+ * @param length number of bytes written
+ */
+public record SelfModifyingStore(int address, int instruction, int target, int length) { }
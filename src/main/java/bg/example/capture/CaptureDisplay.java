@@ -0,0 +1,146 @@
+package bg.example.capture;
+
+import bg.example.display.DisplayPipeline;
+import bg.example.display.FrameRenderer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Renderer recording every changed frame published by a {@link DisplayPipeline}, so only whole
+ * frames are captured, cleared screens included. Frames are copied into a ring of buffers
+ * allocated up front and written by a background encoder thread. When the ring is full the frame
+ * is dropped and counted, so a slow encoder never holds back the renderer
+ */
+public class CaptureDisplay implements FrameRenderer {
+
+    public static final int DEFAULT_RING_SIZE = 256;
+
+    private static final long IDLE_PARK_NANOS = 10_000_000;
+
+    /**
+     * @param captured frames put into the ring
+     * @param encoded frames written by the encoder
+     * @param dropped frames lost because the ring was full
+     */
+    public record Report(long captured, long encoded, long dropped) { }
+
+    private final FrameEncoder encoder;
+
+    private final long[][] ring;
+    private final long[] times;
+    private final long[] lastCaptured;
+
+    private final Thread encoderThread;
+
+    private volatile long head;
+    private volatile long tail;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private volatile long dropped;
+    private boolean hasCaptured;
+
+    public CaptureDisplay(FrameEncoder encoder, int width, int height) throws IOException {
+        this(encoder, width, height, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param width width of the screen in pixels
+     * @param height height of the screen in pixels
+     * @param ringSize number of frames which may wait for the encoder
+     */
+    public CaptureDisplay(FrameEncoder encoder, int width, int height, int ringSize) throws IOException {
+        this.encoder = encoder;
+
+        ring = new long[ringSize][height];
+        times = new long[ringSize];
+        lastCaptured = new long[height];
+
+        encoder.start(width, height);
+
+        encoderThread = new Thread(this::encode, "capture-encoder");
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+    }
+
+    /**
+     * Captures the frame unless it is the same as the last captured one
+     */
+    @Override
+    public void render(long[] rows, long frame) {
+        if (hasCaptured && Arrays.equals(rows, lastCaptured)) {
+            return;
+        }
+
+        long next = head;
+
+        if (next - tail == ring.length) {
+            dropped++;
+            return;
+        }
+
+        int index = (int) (next % ring.length);
+
+        System.arraycopy(rows, 0, ring[index], 0, rows.length);
+        System.arraycopy(rows, 0, lastCaptured, 0, rows.length);
+        times[index] = System.nanoTime();
+        hasCaptured = true;
+
+        head = next + 1;
+        LockSupport.unpark(encoderThread);
+    }
+
+    /**
+     * Lets the encoder write every captured frame and closes the output, called after
+     * the renderer was stopped
+     */
+    public Report close() throws IOException {
+        closed = true;
+        LockSupport.unpark(encoderThread);
+
+        try {
+            encoderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        encoder.finish();
+
+        return new Report(head, tail, dropped);
+    }
+
+    /**
+     * @return frames lost so far because the encoder fell behind
+     */
+    public long getDroppedFrames() {
+        return dropped;
+    }
+
+    private void encode() {
+        try {
+            while (true) {
+                long next = tail;
+
+                if (next < head) {
+                    int index = (int) (next % ring.length);
+
+                    encoder.encode(ring[index], times[index]);
+                    tail = next + 1;
+                } else if (closed) {
+                    return;
+                } else {
+                    // Bounded, since an encoder which parks itself may swallow a wake up
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
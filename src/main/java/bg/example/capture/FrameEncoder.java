@@ -0,0 +1,24 @@
+package bg.example.capture;
+
+import java.io.IOException;
+
+/**
+ * Writes captured frames to a file, called only by the encoder thread of a {@link CaptureDisplay}
+ */
+public interface FrameEncoder {
+
+    /**
+     * @param width width of the screen in pixels
+     * @param height height of the screen in pixels
+     */
+    void start(int width, int height) throws IOException;
+
+    /**
+     * @param rows the frame packed one word per row, valid only during the call
+     * @param nanos capture time of the frame, comparable only to other frames
+     */
+    void encode(long[] rows, long nanos) throws IOException;
+
+    void finish() throws IOException;
+
+}
@@ -0,0 +1,237 @@
+package bg.example.capture;
+
+import bg.example.display.WindowDisplay;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes frames as a looping black and white animated GIF, every pixel scaled to a block
+ * the size of a window pixel. A frame shown for less than the shortest delay players
+ * respect is replaced by the next one
+ */
+public class GifEncoder implements FrameEncoder {
+
+    private static final int NANOS_PER_CENTISECOND = 10_000_000;
+    private static final int MIN_DELAY = 2;
+    private static final int LAST_FRAME_DELAY = 100;
+
+    private static final int MIN_CODE_SIZE = 2;
+    private static final int CLEAR_CODE = 1 << MIN_CODE_SIZE;
+    private static final int END_CODE = CLEAR_CODE + 1;
+    private static final int MAX_CODE_SIZE = 12;
+    private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+    private static final int MAX_SUB_BLOCK_SIZE = 255;
+
+    private final Path file;
+    private final int pixelWidth;
+    private final int pixelHeight;
+
+    private OutputStream out;
+    private int width;
+    private int height;
+
+    private long[] pending;
+    private boolean hasPending;
+    private long pendingCentiseconds;
+    private long firstNanos;
+
+    // Code of the string made of a prefix code followed by a pixel, at prefix * 2 + pixel
+    private final int[] codes;
+
+    private final byte[] block;
+    private int blockSize;
+    private int bitBuffer;
+    private int bitCount;
+
+    public GifEncoder(Path file) {
+        this(file, WindowDisplay.PIXEL_WIDTH, WindowDisplay.PIXEL_HEIGHT);
+    }
+
+    /**
+     * @param pixelWidth width of the block drawn for every pixel
+     * @param pixelHeight height of the block drawn for every pixel
+     */
+    public GifEncoder(Path file, int pixelWidth, int pixelHeight) {
+        this.file = file;
+        this.pixelWidth = pixelWidth;
+        this.pixelHeight = pixelHeight;
+
+        codes = new int[MAX_CODES * 2];
+        block = new byte[MAX_SUB_BLOCK_SIZE];
+    }
+
+    @Override
+    public void start(int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+
+        pending = new long[height];
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile()));
+
+        out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+        writeShort(width * pixelWidth);
+        writeShort(height * pixelHeight);
+
+        // Global color table of two colors: white and black
+        out.write(0x80);
+        out.write(0);
+        out.write(0);
+        out.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0});
+
+        // Loop forever
+        out.write(new byte[] {0x21, (byte) 0xFF, 0x0B});
+        out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+        out.write(new byte[] {0x03, 0x01, 0x00, 0x00, 0x00});
+    }
+
+    @Override
+    public void encode(long[] rows, long nanos) throws IOException {
+        if (!hasPending) {
+            firstNanos = nanos;
+        }
+
+        long centiseconds = (nanos - firstNanos) / NANOS_PER_CENTISECOND;
+
+        if (hasPending && centiseconds - pendingCentiseconds >= MIN_DELAY) {
+            writeFrame(pending, (int) Math.min(centiseconds - pendingCentiseconds, 0xFFFF));
+            pendingCentiseconds = centiseconds;
+        } else if (!hasPending) {
+            pendingCentiseconds = centiseconds;
+        }
+
+        System.arraycopy(rows, 0, pending, 0, height);
+        hasPending = true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (hasPending) {
+            writeFrame(pending, LAST_FRAME_DELAY);
+        }
+
+        out.write(0x3B);
+        out.close();
+    }
+
+    private void writeFrame(long[] rows, int delay) throws IOException {
+        // Graphic control extension: keep the previous frame, no transparency
+        out.write(new byte[] {0x21, (byte) 0xF9, 0x04, 0x04});
+        writeShort(delay);
+        out.write(new byte[] {0x00, 0x00});
+
+        // Image descriptor covering the whole screen
+        out.write(0x2C);
+        writeShort(0);
+        writeShort(0);
+        writeShort(width * pixelWidth);
+        writeShort(height * pixelHeight);
+        out.write(0);
+
+        out.write(MIN_CODE_SIZE);
+        compress(rows);
+        out.write(0);
+    }
+
+    /**
+     * LZW compression of the scaled pixels. With only two colors every string code
+     * has at most two extensions, so the dictionary is a flat array instead of a hash table
+     */
+    private void compress(long[] rows) throws IOException {
+        int codeSize = MIN_CODE_SIZE + 1;
+        int nextCode = END_CODE + 1;
+
+        Arrays.fill(codes, 0);
+        writeCode(CLEAR_CODE, codeSize);
+
+        int prefix = -1;
+
+        for (int y = 0; y < height * pixelHeight; y++) {
+            long row = rows[y / pixelHeight];
+
+            for (int x = 0; x < width * pixelWidth; x++) {
+                int pixel = (int) (row >>> (Long.SIZE - 1 - x / pixelWidth)) & 1;
+
+                if (prefix < 0) {
+                    prefix = pixel;
+                    continue;
+                }
+
+                int extended = codes[prefix * 2 + pixel];
+
+                if (extended != 0) {
+                    prefix = extended;
+                    continue;
+                }
+
+                writeCode(prefix, codeSize);
+
+                codes[prefix * 2 + pixel] = nextCode++;
+
+                if (nextCode > 1 << codeSize && codeSize < MAX_CODE_SIZE) {
+                    codeSize++;
+                }
+
+                if (nextCode == MAX_CODES) {
+                    writeCode(CLEAR_CODE, codeSize);
+
+                    Arrays.fill(codes, 0);
+                    codeSize = MIN_CODE_SIZE + 1;
+                    nextCode = END_CODE + 1;
+                }
+
+                prefix = pixel;
+            }
+        }
+
+        writeCode(prefix, codeSize);
+        writeCode(END_CODE, codeSize);
+
+        if (bitCount > 0) {
+            writeByte(bitBuffer);
+            bitBuffer = 0;
+            bitCount = 0;
+        }
+
+        flushBlock();
+    }
+
+    private void writeCode(int code, int codeSize) throws IOException {
+        bitBuffer |= code << bitCount;
+        bitCount += codeSize;
+
+        while (bitCount >= Byte.SIZE) {
+            writeByte(bitBuffer);
+            bitBuffer >>>= Byte.SIZE;
+            bitCount -= Byte.SIZE;
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        block[blockSize++] = (byte) value;
+
+        if (blockSize == MAX_SUB_BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockSize == 0) {
+            return;
+        }
+
+        out.write(blockSize);
+        out.write(block, 0, blockSize);
+        blockSize = 0;
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write(value >>> 8 & 0xFF);
+    }
+}
@@ -0,0 +1,57 @@
+package bg.example.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes frames unchanged, packed one big-endian word per row, after a header holding
+ * the width and the height. A separate index holds the capture time and the offset of every frame
+ */
+public class RawFrameEncoder implements FrameEncoder {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Path frameFile;
+    private final Path indexFile;
+
+    private DataOutputStream frames;
+    private DataOutputStream index;
+    private long offset;
+
+    public RawFrameEncoder(Path frameFile, Path indexFile) {
+        this.frameFile = frameFile;
+        this.indexFile = indexFile;
+    }
+
+    @Override
+    public void start(int width, int height) throws IOException {
+        frames = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(frameFile.toFile())));
+        index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile.toFile())));
+
+        frames.writeInt(width);
+        frames.writeInt(height);
+
+        offset = HEADER_SIZE;
+    }
+
+    @Override
+    public void encode(long[] rows, long nanos) throws IOException {
+        index.writeLong(nanos);
+        index.writeLong(offset);
+
+        for (long row : rows) {
+            frames.writeLong(row);
+        }
+
+        offset += (long) rows.length * Long.BYTES;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        frames.close();
+        index.close();
+    }
+}
@@ -0,0 +1,645 @@
+package bg.example.chip;
+
+import bg.example.display.FrameBuffers;
+import bg.example.loader.font.BasicFontLoader;
+import bg.example.memory.SimpleMemory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many headless instances ("lanes") kept as a structure of arrays instead of one object graph each.
+ * Registers, program counters, index registers, timers and stacks of all lanes live in primitive
+ * arrays indexed by lane, memory and screens in one slab each, so stepping a batch walks contiguous
+ * memory without pointer chasing. Lanes behave exactly like {@link bg.example.headless.HeadlessChip8}
+ * with the same instructions per frame and quirks, including the random numbers of a seed.
+ * <p>
+ * A lane which throws stops running and keeps its exception, an {@link UnknownInstructionFault} or
+ * a {@link MemoryFault} where {@link Chip8} fails inside its opcode table or memory. Stack faults always
+ * halt at the faulting instruction. Lanes only share the arrays, so ranges of lanes can be stepped on
+ * different threads
+ */
+public class BatchChip8 {
+
+    /**
+     * Lanes below which a range is not split further between threads
+     */
+    public static final int PARTITION_LANES = 64;
+
+    private static final int STACK_DEPTH = Chip8.DEFAULT_STACK_DEPTH;
+    private static final int MEMORY_MASK = ~(Chip8.CHIP8_MEMORY_SIZE - 1);
+    private static final int NO_KEY = -1;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int count;
+    private final int instructionsPerFrame;
+    private final Quirks quirks;
+
+    private final byte[] registers;
+    private final byte[] memory;
+    private final long[] screens;
+    private final int[] stacks;
+
+    private final int[] stackSizes;
+    private final int[] programCounters;
+    private final int[] indexRegisters;
+    private final int[] delayTimers;
+    private final int[] soundTimers;
+    private final int[] instructionsInFrame;
+    private final long[] randomStates;
+
+    private final int[] keys;
+    private final byte[] lastPressedKeys;
+    private final boolean[] waitingForKey;
+    private final byte[] keyWaitStarts;
+    private final byte[] keyWaitPresses;
+
+    private final RuntimeException[] faults;
+
+    public BatchChip8(int count, int instructionsPerFrame, Quirks quirks) {
+        this.count = count;
+        this.instructionsPerFrame = instructionsPerFrame;
+        this.quirks = quirks;
+
+        registers = new byte[count * Chip8.NORMAL_REGISTERS_COUNT];
+        memory = new byte[count * Chip8.CHIP8_MEMORY_SIZE];
+        screens = new long[count * Chip8.DISPLAY_HEIGHT];
+        stacks = new int[count * STACK_DEPTH];
+
+        stackSizes = new int[count];
+        programCounters = new int[count];
+        indexRegisters = new int[count];
+        delayTimers = new int[count];
+        soundTimers = new int[count];
+        instructionsInFrame = new int[count];
+        randomStates = new long[count];
+
+        keys = new int[count];
+        lastPressedKeys = new byte[count];
+        waitingForKey = new boolean[count];
+        keyWaitStarts = new byte[count];
+        keyWaitPresses = new byte[count];
+
+        faults = new RuntimeException[count];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Loads the program into every lane, lane N seeded with the seed plus N
+     */
+    public void load(byte[] rom, long seed) {
+        for (int lane = 0; lane < count; lane++) {
+            load(lane, rom, seed + lane);
+        }
+    }
+
+    /**
+     * Restarts a lane with a program, clearing everything else including its fault
+     */
+    public void load(int lane, byte[] rom, long seed) {
+        int[] image = new int[Chip8.CHIP8_MEMORY_SIZE];
+
+        new BasicFontLoader().load(new SimpleMemory(image), Chip8.FONT_OFFSET);
+
+        for (int i = 0; i < rom.length; i++) {
+            image[Chip8.FIRST_INSTRUCTION_OFFSET + i] = rom[i] & 0xFF;
+        }
+
+        int base = lane * Chip8.CHIP8_MEMORY_SIZE;
+
+        for (int address = 0; address < image.length; address++) {
+            memory[base + address] = (byte) image[address];
+        }
+
+        for (int i = 0; i < Chip8.NORMAL_REGISTERS_COUNT; i++) {
+            registers[lane * Chip8.NORMAL_REGISTERS_COUNT + i] = 0;
+        }
+
+        FrameBuffers.clear(screens, lane * Chip8.DISPLAY_HEIGHT, Chip8.DISPLAY_HEIGHT);
+
+        stackSizes[lane] = 0;
+        programCounters[lane] = Chip8.FIRST_INSTRUCTION_OFFSET;
+        indexRegisters[lane] = 0;
+        delayTimers[lane] = 0;
+        soundTimers[lane] = 0;
+        instructionsInFrame[lane] = 0;
+        randomStates[lane] = seed;
+
+        keys[lane] = 0;
+        lastPressedKeys[lane] = NO_KEY;
+        waitingForKey[lane] = false;
+        keyWaitStarts[lane] = NO_KEY;
+        keyWaitPresses[lane] = NO_KEY;
+
+        faults[lane] = null;
+    }
+
+    /**
+     * Holds exactly the given keys, pressing new ones in the order of their numbers like
+     * {@link bg.example.headless.HeadlessChip8#applyKeys(int)}
+     *
+     * @param keys bit mask of the keys to hold, bit N for key N
+     */
+    public void setKeys(int lane, int keys) {
+        int pressed = keys & ~this.keys[lane] & 0xFFFF;
+
+        if (pressed != 0) {
+            lastPressedKeys[lane] = (byte) (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pressed));
+        }
+
+        this.keys[lane] = keys & 0xFFFF;
+    }
+
+    /**
+     * Runs one instruction on every lane which has not faulted
+     */
+    public void step() {
+        for (int lane = 0; lane < count; lane++) {
+            if (faults[lane] == null) {
+                try {
+                    step(lane);
+                } catch (RuntimeException e) {
+                    faults[lane] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs frames on every lane on the calling thread
+     */
+    public void runFrames(int frames) {
+        runFrames(frames, 0, count);
+    }
+
+    /**
+     * Runs frames on every lane, ranges of lanes in parallel
+     */
+    public void runFrames(int frames, ForkJoinPool pool) {
+        pool.invoke(new Partition(frames, 0, count));
+    }
+
+    /**
+     * Runs frames on a range of lanes. Every lane runs all its frames before the next one
+     * starts, which keeps its memory in cache
+     *
+     * @param from first lane
+     * @param to lane after the last one
+     */
+    public void runFrames(int frames, int from, int to) {
+        for (int lane = from; lane < to; lane++) {
+            if (faults[lane] != null) {
+                continue;
+            }
+
+            try {
+                for (int frame = 0; frame < frames; frame++) {
+                    do {
+                        step(lane);
+                    } while (instructionsInFrame[lane] != 0);
+                }
+            } catch (RuntimeException e) {
+                faults[lane] = e;
+            }
+        }
+    }
+
+    /**
+     * @return exception which stopped the lane, null while it runs
+     */
+    public RuntimeException getFault(int lane) {
+        return faults[lane];
+    }
+
+    public int getProgramCounter(int lane) {
+        return programCounters[lane];
+    }
+
+    public int getRegister(int lane, int index) {
+        return registers[lane * Chip8.NORMAL_REGISTERS_COUNT + index] & 0xFF;
+    }
+
+    public int getMemory(int lane, int address) {
+        return memory[lane * Chip8.CHIP8_MEMORY_SIZE + address] & 0xFF;
+    }
+
+    public long getScreenRow(int lane, int y) {
+        return screens[lane * Chip8.DISPLAY_HEIGHT + y];
+    }
+
+    /**
+     * Copies the screen of a lane, packed the same way as by {@link bg.example.display.Display#copyRows(long[])}
+     *
+     * @param offset index of the word receiving the first row
+     */
+    public void copyScreen(int lane, long[] destination, int offset) {
+        System.arraycopy(screens, lane * Chip8.DISPLAY_HEIGHT, destination, offset, Chip8.DISPLAY_HEIGHT);
+    }
+
+    /**
+     * @return view of a single lane, stepping it on its own. Exceptions are thrown to the caller
+     *         and also kept as the fault of the lane
+     */
+    public ExecutionCore lane(int lane) {
+        return new Lane(lane);
+    }
+
+    /**
+     * Runs a single instruction of a lane, decrementing its timers if it was the last one of the frame.
+     * Waiting for a key takes one step, the wait ends after a newly pressed key is released
+     */
+    private void step(int lane) {
+        if (isWaitingForKey(lane)) {
+            waitForKey(lane);
+        } else {
+            execute(lane);
+        }
+
+        if (++instructionsInFrame[lane] < instructionsPerFrame) {
+            return;
+        }
+
+        instructionsInFrame[lane] = 0;
+
+        if (delayTimers[lane] > 0) {
+            delayTimers[lane]--;
+        }
+
+        if (soundTimers[lane] > 0) {
+            soundTimers[lane]--;
+        }
+    }
+
+    private void execute(int lane) {
+        int address = programCounters[lane];
+        int instruction = read(lane, address) << Chip8.BYTE_SIZE | read(lane, address + 1);
+
+        programCounters[lane] = address + 2;
+
+        int v = lane * Chip8.NORMAL_REGISTERS_COUNT;
+        int x = instruction >>> 8 & 0xF;
+        int y = instruction >>> 4 & 0xF;
+        int n = instruction & 0xF;
+        int nn = instruction & 0xFF;
+        int nnn = instruction & 0xFFF;
+
+        switch (instruction >>> 12) {
+            case 0x0 -> {
+                if (n == 0) {
+                    clearScreen(lane);
+                } else {
+                    subroutineEnd(lane, address, instruction);
+                }
+            }
+            case 0x1 -> programCounters[lane] = nnn;
+            case 0x2 -> subroutineCall(lane, address, instruction, nnn);
+            case 0x3 -> skipIf(lane, get(v, x) == nn);
+            case 0x4 -> skipIf(lane, get(v, x) != nn);
+            case 0x5 -> skipIf(lane, get(v, x) == get(v, y));
+            case 0x6 -> set(v, x, nn);
+            case 0x7 -> set(v, x, get(v, x) + nn);
+            case 0x8 -> executeArithmetic(v, x, y, n, instruction);
+            case 0x9 -> skipIf(lane, get(v, x) != get(v, y));
+            case 0xA -> indexRegisters[lane] = nnn;
+            case 0xB -> programCounters[lane] = get(v, quirks.jumpUsesVx() ? x : 0) + nnn;
+            case 0xC -> set(v, x, nextInt(lane) & nn);
+            case 0xD -> draw(lane, get(v, x), get(v, y), n);
+            case 0xE -> executeKey(lane, get(v, x), n);
+            default -> executeMiscellaneous(lane, v, x, y, n, instruction);
+        }
+    }
+
+    private void executeArithmetic(int v, int x, int y, int n, int instruction) {
+        int vx = get(v, x);
+        int vy = get(v, y);
+
+        switch (n) {
+            case 0x0 -> set(v, x, vy);
+            case 0x1 -> set(v, x, vx | vy);
+            case 0x2 -> set(v, x, vx & vy);
+            case 0x3 -> set(v, x, vx ^ vy);
+            case 0x4 -> {
+                set(v, x, vx + vy);
+                set(v, Chip8.VF_REGISTER_INDEX, vx + vy > 0xFF ? 1 : 0);
+            }
+            case 0x5 -> {
+                set(v, x, vx - vy);
+                set(v, Chip8.VF_REGISTER_INDEX, vx < vy ? 0 : 1);
+            }
+            case 0x6 -> {
+                int shifted = quirks.shiftUsesVy() ? vy : vx;
+
+                set(v, x, shifted >> 1);
+                set(v, Chip8.VF_REGISTER_INDEX, shifted & 1);
+            }
+            case 0x7 -> {
+                set(v, x, vy - vx);
+                set(v, Chip8.VF_REGISTER_INDEX, vy < vx ? 0 : 1);
+            }
+            case 0xE -> {
+                int shifted = quirks.shiftUsesVy() ? vy : vx;
+
+                set(v, x, shifted << 1);
+                set(v, Chip8.VF_REGISTER_INDEX, shifted >>> 7 & 1);
+            }
+            default -> throw unknownInstruction(instruction);
+        }
+    }
+
+    private void executeKey(int lane, int key, int n) {
+        if (key >= Chip8.LEGAL_KEYS.size()) {
+            // Same as converting the register to a key code
+            throw new IllegalStateException("Unexpected value: " + key);
+        }
+
+        boolean pressed = (keys[lane] & 1 << key) != 0;
+
+        if (n == 0xE) {
+            skipIf(lane, pressed);
+        } else if (n == 0x1) {
+            skipIf(lane, !pressed);
+        }
+    }
+
+    private void executeMiscellaneous(int lane, int v, int x, int y, int n, int instruction) {
+        int vx = get(v, x);
+        int index = indexRegisters[lane];
+
+        // FXNN instructions are selected by their last nibble only
+        switch (n) {
+            case 0x3 -> {
+                write(lane, index, vx / 100);
+                write(lane, index + 1, vx % 100 / 10);
+                write(lane, index + 2, vx % 10);
+            }
+            case 0x7 -> set(v, x, delayTimers[lane]);
+            case 0x8 -> soundTimers[lane] = vx;
+            case 0x9 -> indexRegisters[lane] = vx & 0xF;
+            case 0xE -> {
+                indexRegisters[lane] = index + vx & 0xFFFF;
+
+                if (quirks.indexOverflowSetsVf() && index + vx > 0xFFF) {
+                    set(v, Chip8.VF_REGISTER_INDEX, 1);
+                }
+            }
+            case 0x5 -> {
+                if (y == 0x1) {
+                    delayTimers[lane] = vx;
+                    return;
+                }
+
+                for (int i = 0; i <= x; i++) {
+                    if (y == 0x5) {
+                        write(lane, index + i, get(v, i));
+                    } else {
+                        set(v, i, read(lane, index + i));
+                    }
+                }
+
+                if (quirks.loadStoreIncrementsIndex()) {
+                    indexRegisters[lane] = index + x + 1 & 0xFFFF;
+                }
+            }
+            default -> throw unknownInstruction(instruction);
+        }
+    }
+
+    /**
+     * Draws the sprite one whole row at a time: bit N of a sprite byte lands N + 1 pixels
+     * left of the right end of the sprite, the same pixels {@link Chip8} flips one by one
+     */
+    private void draw(int lane, int vx, int vy, int height) {
+        int xCoord = vx % Chip8.DISPLAY_WIDTH;
+        int yCoord = vy % Chip8.DISPLAY_HEIGHT;
+        int index = indexRegisters[lane];
+        int screen = lane * Chip8.DISPLAY_HEIGHT;
+
+        boolean wrap = quirks.spritesWrap();
+        long collision = 0;
+
+        for (int row = 0; row < height; row++) {
+            int y = yCoord + row;
+
+            if (y >= Chip8.DISPLAY_HEIGHT) {
+                if (!wrap) {
+                    break;
+                }
+
+                y -= Chip8.DISPLAY_HEIGHT;
+            }
+
+            long sprite = (long) read(lane, index + row) << (Long.SIZE - 1 - Chip8.BYTE_SIZE);
+            long bits = wrap
+                ? Long.rotateRight(sprite, xCoord)
+                : sprite >>> xCoord;
+
+            collision |= screens[screen + y] & bits;
+            screens[screen + y] ^= bits;
+        }
+
+        set(lane * Chip8.NORMAL_REGISTERS_COUNT, Chip8.VF_REGISTER_INDEX, collision != 0 ? 1 : 0);
+    }
+
+    private void clearScreen(int lane) {
+        FrameBuffers.clear(screens, lane * Chip8.DISPLAY_HEIGHT, Chip8.DISPLAY_HEIGHT);
+    }
+
+    private void subroutineCall(int lane, int address, int instruction, int target) {
+        if (stackSizes[lane] == STACK_DEPTH) {
+            throw stackFault(lane, StackFault.Kind.OVERFLOW, address, instruction);
+        }
+
+        stacks[lane * STACK_DEPTH + stackSizes[lane]++] = programCounters[lane];
+        programCounters[lane] = target;
+    }
+
+    private void subroutineEnd(int lane, int address, int instruction) {
+        if (stackSizes[lane] == 0) {
+            throw stackFault(lane, StackFault.Kind.UNDERFLOW, address, instruction);
+        }
+
+        programCounters[lane] = stacks[lane * STACK_DEPTH + --stackSizes[lane]];
+    }
+
+    private StackFault stackFault(int lane, StackFault.Kind kind, int address, int instruction) {
+        programCounters[lane] = address;
+        return new StackFault(kind, address, instruction);
+    }
+
+    private boolean isWaitingForKey(int lane) {
+        int address = programCounters[lane];
+
+        if (address < 0 || address + 1 >= Chip8.CHIP8_MEMORY_SIZE) {
+            return false;
+        }
+
+        return (read(lane, address) & 0xF0) == 0xF0 && (read(lane, address + 1) & 0x0F) == 0x0A;
+    }
+
+    /**
+     * Same as the key wait of {@link bg.example.headless.HeadlessChip8}, on the key masks of the lane
+     */
+    private void waitForKey(int lane) {
+        byte lastPressed = lastPressedKeys[lane];
+
+        if (!waitingForKey[lane]) {
+            waitingForKey[lane] = true;
+            keyWaitStarts[lane] = lastPressed;
+            keyWaitPresses[lane] = NO_KEY;
+            return;
+        }
+
+        if (keyWaitPresses[lane] == NO_KEY) {
+            if (lastPressed == NO_KEY || lastPressed == keyWaitStarts[lane]) {
+                return;
+            }
+
+            keyWaitPresses[lane] = lastPressed;
+        }
+
+        int key = keyWaitPresses[lane];
+
+        if ((keys[lane] & 1 << key) == 0) {
+            int x = read(lane, programCounters[lane]) & 0xF;
+
+            waitingForKey[lane] = false;
+            set(lane * Chip8.NORMAL_REGISTERS_COUNT, x, key);
+            programCounters[lane] += 2;
+        }
+    }
+
+    private void skipIf(int lane, boolean condition) {
+        if (condition) {
+            programCounters[lane] += 2;
+        }
+    }
+
+    private int get(int v, int index) {
+        return registers[v + index] & 0xFF;
+    }
+
+    private void set(int v, int index, int value) {
+        registers[v + index] = (byte) value;
+    }
+
+    private int read(int lane, int address) {
+        checkAddress(address);
+        return memory[lane * Chip8.CHIP8_MEMORY_SIZE + address] & 0xFF;
+    }
+
+    private void write(int lane, int address, int value) {
+        checkAddress(address);
+        memory[lane * Chip8.CHIP8_MEMORY_SIZE + address] = (byte) value;
+    }
+
+    /**
+     * Keeps a lane from reaching into the memory of its neighbour
+     */
+    private static void checkAddress(int address) {
+        if ((address & MEMORY_MASK) != 0) {
+            throw new MemoryFault(address);
+        }
+    }
+
+    private static RuntimeException unknownInstruction(int instruction) {
+        return new UnknownInstructionFault(instruction);
+    }
+
+    /**
+     * Same sequence as the seeded generator of {@link bg.example.headless.HeadlessChip8}
+     */
+    private int nextInt(int lane) {
+        long z = randomStates[lane] += GOLDEN_GAMMA;
+
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    private final class Partition extends RecursiveAction {
+
+        private final int frames;
+        private final int from;
+        private final int to;
+
+        private Partition(int frames, int from, int to) {
+            this.frames = frames;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARTITION_LANES) {
+                runFrames(frames, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new Partition(frames, from, middle), new Partition(frames, middle, to));
+        }
+    }
+
+    private final class Lane implements ExecutionCore {
+
+        private final int lane;
+
+        private Lane(int lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void step() {
+            try {
+                BatchChip8.this.step(lane);
+            } catch (RuntimeException e) {
+                faults[lane] = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void saveState(Chip8State state) {
+            saveRegisters(state);
+
+            for (int address = 0; address < Chip8.CHIP8_MEMORY_SIZE; address++) {
+                state.memory[address] = getMemory(lane, address);
+            }
+
+            copyScreen(lane, state.screen, 0);
+        }
+
+        @Override
+        public void saveRegisters(Chip8State state) {
+            for (int i = 0; i < Chip8.NORMAL_REGISTERS_COUNT; i++) {
+                state.registers[i] = getRegister(lane, i);
+            }
+
+            state.indexRegister = indexRegisters[lane];
+            state.programCounter = programCounters[lane];
+            state.delayTimer = delayTimers[lane];
+            state.soundTimer = soundTimers[lane];
+
+            state.stackSize = 0;
+
+            for (int depth = 0; depth < stackSizes[lane]; depth++) {
+                state.pushStackEntry(stacks[lane * STACK_DEPTH + depth]);
+            }
+        }
+
+        @Override
+        public boolean isWaitingForKey() {
+            return BatchChip8.this.isWaitingForKey(lane);
+        }
+
+        @Override
+        public int getProgramCounter() {
+            return programCounters[lane];
+        }
+    }
+}
@@ -9,16 +9,15 @@ import bg.example.loader.program.ProgramLoader;
 import bg.example.memory.Memory;
 import bg.example.register.Register;
 import bg.example.loader.rom.ROMLoader;
+import bg.example.trace.TraceLog;
 import javafx.scene.input.KeyCode;
 
 import java.nio.file.Path;
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 public class Chip8 implements Runnable {
 
@@ -36,10 +35,15 @@ public class Chip8 implements Runnable {
 
     public static final int TIMER_FREQUENCY = 60;
 
+    // Shared by the windowed and the headless instances, so both run the same program at the same speed
+    public static final int DEFAULT_INSTRUCTIONS_PER_FRAME = 15;
+
     public static final int FIRST_INSTRUCTION_OFFSET = 0x200;
     public static final int CHIP8_MEMORY_SIZE = 4096;
     public static final int FONT_OFFSET = 0;
 
+    public static final int DEFAULT_STACK_DEPTH = 16;
+
     public static final Set<KeyCode> LEGAL_KEYS;
 
     static {
@@ -68,7 +72,13 @@ public class Chip8 implements Runnable {
     private final Counter delayCounter;
     private final Counter soundCounter;
 
-    private final Deque<Integer> programStack;
+    private final int[] stack;
+    private int stackSize;
+    private StackFaultPolicy stackFaultPolicy;
+    private Consumer<StackFault> stackFaultListener;
+    private Runnable drawListener;
+    private Runnable keyWaitListener;
+
     private final Clock clock;
     private final Memory memory;
 
@@ -80,10 +90,15 @@ public class Chip8 implements Runnable {
     private final Register[] registers;
     private final Register indexRegister;
 
+    private final RandomGenerator random;
+    private final Quirks quirks;
+
     private final Map<Integer, Consumer<int[]>> opcodes;
     private final Map<Integer, Consumer<int[]>> opcodes8xyn;
     private final Map<Integer, Consumer<int[]>> opcodesFxnn;
 
+    private TraceLog traceLog;
+
     public Chip8(Chip8Properties properties) {
         this.programCounter = properties.programCounter();
         this.delayCounter = properties.delayCounter();
@@ -95,8 +110,15 @@ public class Chip8 implements Runnable {
         this.keyboardInformation = properties.keyboardInformation();
         this.registers = properties.registers();
         this.indexRegister = properties.indexRegister();
+        this.random = properties.random();
+        this.quirks = properties.quirks();
+
+        stack = new int[properties.stackDepth()];
+        stackFaultPolicy = StackFaultPolicy.HALT;
+        stackFaultListener = fault -> { };
+        drawListener = () -> { };
+        keyWaitListener = () -> { };
 
-        programStack = new ArrayDeque<>();
         opcodes = new HashMap<>();
         opcodes8xyn = new HashMap<>();
         opcodesFxnn = new HashMap<>();
@@ -120,9 +142,9 @@ public class Chip8 implements Runnable {
         opcodes.put(0x8, this::opcode_8XYN);
         opcodes.put(0x9, this::opcode_9XY0);
         opcodes.put(0xA, this::opcode_ANNN);
-        opcodes.put(0xB, this::opcode_BNNN);
+        opcodes.put(0xB, quirks.jumpUsesVx() ? this::opcode_BXNN : this::opcode_BNNN);
         opcodes.put(0xC, this::opcode_CXNN);
-        opcodes.put(0xD, this::opcode_DXYN);
+        opcodes.put(0xD, quirks.spritesWrap() ? this::opcode_DXYN_wrapping : this::opcode_DXYN);
         opcodes.put(0xE, this::opcode_EXNN);
         opcodes.put(0xF, this::opcode_FXNN);
     }
@@ -134,9 +156,9 @@ public class Chip8 implements Runnable {
         opcodes8xyn.put(0x3, this::opcode_8XY3);
         opcodes8xyn.put(0x4, this::opcode_8XY4);
         opcodes8xyn.put(0x5, this::opcode_8XY5);
-        opcodes8xyn.put(0x6, this::opcode_8XY6);
+        opcodes8xyn.put(0x6, quirks.shiftUsesVy() ? this::opcode_8XY6 : this::opcode_8XY6_inPlace);
         opcodes8xyn.put(0x7, this::opcode_8XY7);
-        opcodes8xyn.put(0xE, this::opcode_8XYE);
+        opcodes8xyn.put(0xE, quirks.shiftUsesVy() ? this::opcode_8XYE : this::opcode_8XYE_inPlace);
     }
 
     private void initOpcodesFxnnMap() {
@@ -145,16 +167,19 @@ public class Chip8 implements Runnable {
         opcodesFxnn.put(0x8, this::opcode_FX18);
         opcodesFxnn.put(0x9, this::opcode_FX29);
         opcodesFxnn.put(0xA, this::opcode_FX0A);
-        opcodesFxnn.put(0xE, this::opcode_FX1E);
+        opcodesFxnn.put(0xE, quirks.indexOverflowSetsVf() ? this::opcode_FX1E : this::opcode_FX1E_noFlag);
+
+        Consumer<int[]> store = quirks.loadStoreIncrementsIndex() ? this::opcode_FX55_incrementing : this::opcode_FX55;
+        Consumer<int[]> load = quirks.loadStoreIncrementsIndex() ? this::opcode_FX65_incrementing : this::opcode_FX65;
 
         opcodesFxnn.put(0x5,
             nibbles -> {
                 if (nibbles[2] == 0x1) {
                     opcode_FX15(nibbles);
                 } else if (nibbles[2] == 0x5) {
-                    opcode_FX55(nibbles);
+                    store.accept(nibbles);
                 } else {
-                    opcode_FX65(nibbles);
+                    load.accept(nibbles);
                 }
             }
         );
@@ -360,6 +385,17 @@ public class Chip8 implements Runnable {
         registers[VF_REGISTER_INDEX].set(Yvalue & 1);
     }
 
+    /**
+     * VX is shifted right in place. VF is set to dropped bit
+     */
+    private void opcode_8XY6_inPlace(int[] nibbles) {
+        int Xvalue = registers[nibbles[1]].get();
+
+        registers[nibbles[1]].set(Xvalue >> 1);
+
+        registers[VF_REGISTER_INDEX].set(Xvalue & 1);
+    }
+
     /**
      * VX is set to the value of VY - VX
      */
@@ -390,6 +426,17 @@ public class Chip8 implements Runnable {
         }
     }
 
+    /**
+     * VX is shifted left in place. VF is set to dropped bit
+     */
+    private void opcode_8XYE_inPlace(int[] nibbles) {
+        int Xvalue = registers[nibbles[1]].get();
+
+        registers[nibbles[1]].set((Xvalue << 1) % 256);
+
+        registers[VF_REGISTER_INDEX].set((Xvalue & 128) != 0 ? 1 : 0);
+    }
+
     /**
      * Skips one instruction if the value at register X is not equal to the value at register Y
      */
@@ -428,16 +475,30 @@ public class Chip8 implements Runnable {
         jump(address);
     }
 
+    /**
+     * Jumps to address XNN + the value at register VX
+     */
+    private void opcode_BXNN(int[] nibbles) {
+        int address = registers[nibbles[1]].get();
+
+        address += combine(
+            nibbles[1],
+            nibbles[2],
+            nibbles[3]
+        );
+
+        jump(address);
+    }
+
     /**
      * Generates a random number between 0 and NN and puts it in register VX
      */
     private void opcode_CXNN(int[] nibbles) {
-        int random = ThreadLocalRandom.current()
-                                      .nextInt();
+        int value = random.nextInt();
 
-        random &= combine(nibbles[2], nibbles[3]);
+        value &= combine(nibbles[2], nibbles[3]);
 
-        registers[nibbles[1]].set(random);
+        registers[nibbles[1]].set(value);
     }
 
     /**
@@ -452,6 +513,18 @@ public class Chip8 implements Runnable {
         );
     }
 
+    /**
+     * Same as DXYN, but parts of the sprite going past an edge of the screen
+     * are drawn at the opposite edge
+     */
+    private void opcode_DXYN_wrapping(int[] nibbles) {
+        drawWrappingSprite(
+            nibbles[1],
+            nibbles[2],
+            nibbles[3]
+        );
+    }
+
     /**
      * Instructions related to key presses
      */
@@ -518,10 +591,21 @@ public class Chip8 implements Runnable {
         }
     }
 
+    /**
+     * Add the value of VX to the index register. VF is not changed
+     */
+    private void opcode_FX1E_noFlag(int[] nibbles) {
+        indexRegister.set(
+            indexRegister.get() + registers[nibbles[1]].get()
+        );
+    }
+
     /**
      * Block till key is pressed and released
      */
     private void opcode_FX0A(int[] nibbles) {
+        keyWaitListener.run();
+
         KeyCode lastPressed = keyboardInformation.getLastPressedKey();
         KeyCode newestPressed = lastPressed;
 
@@ -595,6 +679,24 @@ public class Chip8 implements Runnable {
         }
     }
 
+    /**
+     * Same as FX55, but the index register is left after the last stored address
+     */
+    private void opcode_FX55_incrementing(int[] nibbles) {
+        opcode_FX55(nibbles);
+
+        indexRegister.set(indexRegister.get() + nibbles[1] + 1);
+    }
+
+    /**
+     * Same as FX65, but the index register is left after the last loaded address
+     */
+    private void opcode_FX65_incrementing(int[] nibbles) {
+        opcode_FX65(nibbles);
+
+        indexRegister.set(indexRegister.get() + nibbles[1] + 1);
+    }
+
     private int combine(int firstNibble, int secondNibble) {
         int result = firstNibble << NIBBLE_SHIFT_OFFSET;
         result += secondNibble;
@@ -613,13 +715,41 @@ public class Chip8 implements Runnable {
     }
 
     private void subroutineCall(int address) {
-        programStack.push(programCounter.get());
+        if (stackSize == stack.length) {
+            stackFault(StackFault.Kind.OVERFLOW);
+            return;
+        }
+
+        stack[stackSize++] = programCounter.get();
         programCounter.set(address);
     }
 
     private void subroutineEnd() {
-        int returnAddress = programStack.pop();
-        programCounter.set(returnAddress);
+        if (stackSize == 0) {
+            stackFault(StackFault.Kind.UNDERFLOW);
+            return;
+        }
+
+        programCounter.set(stack[--stackSize]);
+    }
+
+    /**
+     * Applies the stack fault policy to the instruction just fetched
+     */
+    private void stackFault(StackFault.Kind kind) {
+        int address = programCounter.get() - 2;
+        StackFault fault = new StackFault(kind, address, memory.get(address) << BYTE_SIZE | memory.get(address + 1));
+
+        stackFaultListener.accept(fault);
+
+        switch (stackFaultPolicy) {
+            case HALT -> {
+                programCounter.set(address);
+                throw fault;
+            }
+            case RESET -> reset();
+            case REPORT -> { }
+        }
     }
 
     private void drawSprite(int indexX, int indexY, int pixelCountHigh) {
@@ -657,6 +787,38 @@ public class Chip8 implements Runnable {
         }
 
         display.update();
+        drawListener.run();
+    }
+
+    private void drawWrappingSprite(int indexX, int indexY, int pixelCountHigh) {
+        int Xcoord = registers[indexX].get() % DISPLAY_WIDTH;
+        int Ycoord = registers[indexY].get() % DISPLAY_HEIGHT;
+
+        int spriteAddress = indexRegister.get();
+        boolean wasAnyPixelTurnedOff = false;
+
+        for (int row = 0; row < pixelCountHigh; row++) {
+            int y = (Ycoord + row) % DISPLAY_HEIGHT;
+            int currentPixelRow = memory.get(spriteAddress + row);
+
+            for (int bitOffset = 0; bitOffset <= BYTE_SIZE; bitOffset++) {
+                int x = (Xcoord + bitOffset) % DISPLAY_WIDTH;
+                int currentBit = (currentPixelRow & (1 << BYTE_SIZE - bitOffset)) >>> BYTE_SIZE - bitOffset;
+
+                if (currentBit == 1) {
+                    wasAnyPixelTurnedOff |= display.flipPixel(x, y);
+                }
+            }
+        }
+
+        if (wasAnyPixelTurnedOff) {
+            registers[VF_REGISTER_INDEX].set(1);
+        } else {
+            registers[VF_REGISTER_INDEX].set(0);
+        }
+
+        display.update();
+        drawListener.run();
     }
 
     private void skipIfEqual(int v1, int v2) {
@@ -681,7 +843,7 @@ public class Chip8 implements Runnable {
         programCounter.decrement();
     }
 
-    private KeyCode fromIntegerToKeyCode(int value) {
+    public static KeyCode fromIntegerToKeyCode(int value) {
         return switch (value) {
             case 0 -> KeyCode.DIGIT0;
             case 1 -> KeyCode.DIGIT1;
@@ -703,7 +865,7 @@ public class Chip8 implements Runnable {
         };
     }
 
-    private int fromKeyCodeToInteger(KeyCode key) {
+    public static int fromKeyCodeToInteger(KeyCode key) {
         return switch (key) {
             case DIGIT0 -> 0;
             case DIGIT1 -> 1;
@@ -725,11 +887,333 @@ public class Chip8 implements Runnable {
         };
     }
 
+    /**
+     * @return address of the next instruction
+     */
+    public int getProgramCounter() {
+        return programCounter.get();
+    }
+
+    /**
+     * @return whether the next instruction blocks until a key is pressed
+     */
+    public boolean isWaitingForKey() {
+        int address = programCounter.get();
+
+        if (address < 0 || address + 1 >= CHIP8_MEMORY_SIZE) {
+            return false;
+        }
+
+        int instruction = memory.get(address) << BYTE_SIZE | memory.get(address + 1);
+
+        // FXNN instructions are selected by their last nibble only
+        return (instruction & 0xF00F) == 0xF00A;
+    }
+
+    /**
+     * Finishes the key wait at the program counter without blocking, for callers which run
+     * every instruction on one thread and detect the key press themselves
+     *
+     * @param key the pressed key from 0 to F
+     */
+    public void completeKeyWait(int key) {
+        int x = memory.get(programCounter.get()) & 0xF;
+
+        registers[x].set(key);
+        skipInstruction();
+    }
+
+    /**
+     * Runs the key wait listeners, for callers which detect the key press themselves and
+     * finish the wait with {@link #completeKeyWait(int)}
+     */
+    public void startKeyWait() {
+        keyWaitListener.run();
+    }
+
+    /**
+     * Recognizes a delay loop around the program counter: FX07, 3XNN and a 1NNN jumping back
+     * to the FX07, spinning while the delay timer is not NN. The timer only changes between frames,
+     * so until then every pass of the loop does exactly the same
+     *
+     * @return whether the machine is inside a delay loop which does not exit before the timer changes.
+     * Always false while tracing, so that the trace holds every pass
+     */
+    public boolean isInDelayLoop() {
+        return traceLog == null && delayLoopStart() >= 0;
+    }
+
+    /**
+     * Leaves the machine as if the given number of instructions of the delay loop at the program
+     * counter ran, without ticking the clock. Only valid while {@link #isInDelayLoop()} holds and
+     * no timer changes within the skipped instructions
+     */
+    public void skipDelayLoop(int instructions) {
+        int start = delayLoopStart();
+
+        if (instructions <= 0 || start < 0 || traceLog != null) {
+            return;
+        }
+
+        int position = (programCounter.get() - start) / 2;
+
+        // Instructions until the FX07 runs next
+        if (instructions > (3 - position) % 3) {
+            registers[memory.get(start) & 0xF].set(delayCounter.get());
+        }
+
+        programCounter.set(start + 2 * ((position + instructions) % 3));
+    }
+
+    /**
+     * Skips the passes of a delay loop which would run before the clock next changes the timers,
+     * so the thread goes straight to waiting for the next frame
+     *
+     * @return number of skipped instructions
+     */
+    public int fastForwardDelayLoop() {
+        int instructions = clock.getIdleTicks();
+
+        if (instructions <= 0 || !isInDelayLoop()) {
+            return 0;
+        }
+
+        clock.skip(instructions);
+        skipDelayLoop(instructions);
+
+        return instructions;
+    }
+
+    /**
+     * @return address of the FX07 of the delay loop the program counter is in, or -1
+     */
+    private int delayLoopStart() {
+        int address = programCounter.get();
+
+        for (int start = address; start >= address - 4 && start >= 0; start -= 2) {
+            if (start + 5 >= CHIP8_MEMORY_SIZE) {
+                continue;
+            }
+
+            int read = memory.get(start) << BYTE_SIZE | memory.get(start + 1);
+
+            // FXNN instructions are selected by their last nibble only
+            if ((read & 0xF00F) != 0xF007) {
+                continue;
+            }
+
+            int skip = memory.get(start + 2) << BYTE_SIZE | memory.get(start + 3);
+            int jump = memory.get(start + 4) << BYTE_SIZE | memory.get(start + 5);
+            int x = read >>> BYTE_SIZE & 0xF;
+            int value = skip & 0xFF;
+
+            if ((skip & 0xFF00) != (0x3000 | x << BYTE_SIZE) || jump != (0x1000 | start)) {
+                continue;
+            }
+
+            // Between the FX07 and the 3XNN the register may still hold the timer of the last frame
+            boolean exitsAtSkip = start == address - 2 && registers[x].get() == value;
+
+            return delayCounter.get() != value && !exitsAtSkip ? start : -1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Copies the observable state of the machine
+     */
+    public void saveState(Chip8State state) {
+        saveRegisters(state);
+
+        memory.copyTo(state.memory);
+        display.copyRows(state.screen);
+    }
+
+    /**
+     * Copies the registers, timers and stack but not the memory and the screen
+     */
+    public void saveRegisters(Chip8State state) {
+        for (int i = 0; i < registers.length; i++) {
+            state.registers[i] = registers[i].get();
+        }
+
+        state.indexRegister = indexRegister.get();
+        state.programCounter = programCounter.get();
+        state.delayTimer = delayCounter.get();
+        state.soundTimer = soundCounter.get();
+
+        state.stackSize = 0;
+
+        for (int depth = 0; depth < stackSize; depth++) {
+            state.pushStackEntry(stack[depth]);
+        }
+    }
+
+    /**
+     * Replaces the whole state of the instance, the opposite of {@link #saveState(Chip8State)}.
+     * The screen is restored without updating the display
+     */
+    public void loadState(Chip8State state) {
+        // Checked before anything changes, a rejected state leaves the instance as it was
+        if (state.stackSize > stack.length) {
+            throw new IllegalArgumentException(
+                "Stack of " + state.stackSize + " entries does not fit in " + stack.length
+            );
+        }
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i].set(state.registers[i]);
+        }
+
+        indexRegister.set(state.indexRegister);
+        programCounter.set(state.programCounter);
+        delayCounter.set(state.delayTimer);
+        soundCounter.set(state.soundTimer);
+
+        System.arraycopy(state.stack, 0, stack, 0, state.stackSize);
+        stackSize = state.stackSize;
+
+        memory.copyFrom(state.memory);
+        display.restoreRows(state.screen);
+    }
+
+    /**
+     * Restarts the loaded program from a clean state: cleared memory, registers, timers, stack and screen
+     */
+    public void reset() {
+        for (Register register : registers) {
+            register.set(0);
+        }
+
+        indexRegister.set(0);
+        programCounter.set(FIRST_INSTRUCTION_OFFSET);
+        delayCounter.set(0);
+        soundCounter.set(0);
+        stackSize = 0;
+
+        memory.copyFrom(new int[CHIP8_MEMORY_SIZE]);
+        programLoader.load(memory);
+        display.clear();
+    }
+
+    /**
+     * @param policy what to do when a call overflows or a return underflows the stack, halting by default
+     */
+    public void setStackFaultPolicy(StackFaultPolicy policy) {
+        this.stackFaultPolicy = policy;
+    }
+
+    /**
+     * @param listener called on the emulation thread for every stack fault, before the policy applies
+     */
+    public void setStackFaultListener(Consumer<StackFault> listener) {
+        this.stackFaultListener = listener;
+    }
+
+    /**
+     * @param listener called on the emulation thread after every drawn sprite
+     */
+    public void setDrawListener(Runnable listener) {
+        this.drawListener = listener;
+    }
+
+    /**
+     * @param listener called on the emulation thread whenever the program starts waiting for a key,
+     *                 after the listeners added before it
+     */
+    public void addKeyWaitListener(Runnable listener) {
+        Runnable previous = keyWaitListener;
+
+        this.keyWaitListener = () -> {
+            previous.run();
+            listener.run();
+        };
+    }
+
+    /**
+     * @return memory the instance runs on, holding the loaded program
+     */
+    public Memory getMemory() {
+        return memory;
+    }
+
+    /**
+     * @return keyboard the program reads its keys from
+     */
+    public KeyboardInformation getKeyboardInformation() {
+        return keyboardInformation;
+    }
+
+    /**
+     * @return number of return addresses on the stack
+     */
+    public int getStackSize() {
+        return stackSize;
+    }
+
+    /**
+     * @param depth zero for the oldest return address
+     */
+    public int getStackEntry(int depth) {
+        if (depth >= stackSize) {
+            throw new IndexOutOfBoundsException("Stack depth " + depth + " of " + stackSize);
+        }
+
+        return stack[depth];
+    }
+
+    /**
+     * Runs one instruction and then ticks the clock, so the timers change after the last
+     * instruction of a frame, the same as in {@link bg.example.headless.HeadlessChip8}
+     */
     public void runOneCycle() {
-        clock.tick();
+        int address = programCounter.get();
         int instruction = fetch();
         int[] nibbles = splitIntoNibbles(instruction);
         execute(nibbles);
+
+        if (traceLog != null) {
+            trace(address, instruction);
+        }
+
+        clock.tick();
+    }
+
+    /**
+     * Records every executed instruction from now on, or stops recording when null.
+     * Called from the thread running the instance
+     */
+    public void setTraceLog(TraceLog traceLog) {
+        this.traceLog = traceLog;
+    }
+
+    /**
+     * Appends the instruction together with the register it wrote and the new value
+     */
+    private void trace(int address, int instruction) {
+        int x = (instruction >>> 8) & 0xF;
+        int register = switch (instruction >>> 12) {
+            case 0x6, 0x7, 0x8, 0xC -> x;
+            case 0xA -> TraceLog.INDEX_REGISTER;
+            case 0xF -> switch (instruction & 0xFF) {
+                case 0x07, 0x0A -> x;
+                case 0x1E, 0x29 -> TraceLog.INDEX_REGISTER;
+                // With the quirk both also move I, which is recorded instead of the loaded registers
+                case 0x55 -> quirks.loadStoreIncrementsIndex() ? TraceLog.INDEX_REGISTER : TraceLog.NO_REGISTER;
+                case 0x65 -> quirks.loadStoreIncrementsIndex() ? TraceLog.INDEX_REGISTER : x;
+                default -> TraceLog.NO_REGISTER;
+            };
+            default -> TraceLog.NO_REGISTER;
+        };
+
+        int value = switch (register) {
+            case TraceLog.NO_REGISTER -> 0;
+            case TraceLog.INDEX_REGISTER -> indexRegister.get();
+            default -> registers[register].get();
+        };
+
+        traceLog.append(address, instruction, register, value);
     }
 
     @Override
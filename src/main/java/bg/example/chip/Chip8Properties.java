@@ -8,6 +8,8 @@ import bg.example.loader.program.ProgramLoader;
 import bg.example.memory.Memory;
 import bg.example.register.Register;
 
+import java.util.random.RandomGenerator;
+
 public record Chip8Properties(
     Counter programCounter,
     Counter delayCounter,
@@ -18,5 +20,8 @@ public record Chip8Properties(
     Display display,
     KeyboardInformation keyboardInformation,
     Register[] registers,
-    Register indexRegister
+    Register indexRegister,
+    RandomGenerator random,
+    Quirks quirks,
+    int stackDepth
 ) { }
@@ -0,0 +1,221 @@
+package bg.example.chip;
+
+import bg.example.display.FrameBuffers;
+import bg.example.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Copy of the whole observable state of an instance. Instances are meant to be
+ * allocated once and filled repeatedly
+ */
+public class Chip8State {
+
+    final int[] registers;
+    final int[] memory;
+    final long[] screen;
+
+    int[] stack;
+    int stackSize;
+
+    int indexRegister;
+    int programCounter;
+    int delayTimer;
+    int soundTimer;
+
+    public Chip8State() {
+        registers = new int[Chip8.NORMAL_REGISTERS_COUNT];
+        memory = new int[Chip8.CHIP8_MEMORY_SIZE];
+        screen = new long[Chip8.DISPLAY_HEIGHT];
+        stack = new int[Chip8.NORMAL_REGISTERS_COUNT];
+    }
+
+    public int getRegister(int index) {
+        return registers[index];
+    }
+
+    public int getIndexRegister() {
+        return indexRegister;
+    }
+
+    public int getProgramCounter() {
+        return programCounter;
+    }
+
+    public int getDelayTimer() {
+        return delayTimer;
+    }
+
+    public int getSoundTimer() {
+        return soundTimer;
+    }
+
+    public int getStackSize() {
+        return stackSize;
+    }
+
+    /**
+     * @param depth zero for the oldest return address
+     */
+    public int getStackEntry(int depth) {
+        return stack[depth];
+    }
+
+    public int getMemory(int address) {
+        return memory[address];
+    }
+
+    public long getScreenRow(int y) {
+        return screen[y];
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTo(ByteBuffer)} with the current stack
+     */
+    public int getSerializedSize() {
+        return (registers.length + 5 + stackSize) * Integer.BYTES + memory.length + screen.length * Long.BYTES;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        for (int register : registers) {
+            buffer.putInt(register);
+        }
+
+        buffer.putInt(indexRegister);
+        buffer.putInt(programCounter);
+        buffer.putInt(delayTimer);
+        buffer.putInt(soundTimer);
+
+        buffer.putInt(stackSize);
+
+        for (int depth = 0; depth < stackSize; depth++) {
+            buffer.putInt(stack[depth]);
+        }
+
+        for (int value : memory) {
+            buffer.put((byte) value);
+        }
+
+        for (long row : screen) {
+            buffer.putLong(row);
+        }
+    }
+
+    public void readFrom(ByteBuffer buffer) {
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = buffer.getInt();
+        }
+
+        indexRegister = buffer.getInt();
+        programCounter = buffer.getInt();
+        delayTimer = buffer.getInt();
+        soundTimer = buffer.getInt();
+
+        int size = buffer.getInt();
+        stackSize = 0;
+
+        for (int depth = 0; depth < size; depth++) {
+            pushStackEntry(buffer.getInt());
+        }
+
+        for (int i = 0; i < memory.length; i++) {
+            memory[i] = buffer.get() & 0xFF;
+        }
+
+        for (int y = 0; y < screen.length; y++) {
+            screen[y] = buffer.getLong();
+        }
+    }
+
+    /**
+     * @return hash of the registers, timers, stack, memory and screen, equal for equal states
+     */
+    public long hash() {
+        long hash = Hashing.hash(memory);
+
+        hash = Hashing.combine(hash, FrameBuffers.hash(screen));
+        hash = Hashing.combine(hash, Hashing.hash(registers));
+        hash = Hashing.combine(hash, (long) indexRegister << 32 | programCounter);
+        hash = Hashing.combine(hash, (long) delayTimer << 32 | soundTimer);
+
+        for (int depth = 0; depth < stackSize; depth++) {
+            hash = Hashing.combine(hash, stack[depth]);
+        }
+
+        return Hashing.combine(hash, stackSize);
+    }
+
+    /**
+     * Finds the first part of the state which differs from another state
+     *
+     * @return description of the difference or null if the states are equal
+     */
+    public String findDifference(Chip8State other) {
+        String difference = findRegisterDifference(other);
+
+        if (difference != null) {
+            return difference;
+        }
+
+        int address = Arrays.mismatch(memory, other.memory);
+        if (address != -1) {
+            return difference("memory at " + Integer.toHexString(address), memory[address], other.memory[address]);
+        }
+
+        int row = Arrays.mismatch(screen, other.screen);
+        if (row != -1) {
+            return "screen row " + row + ": "
+                + Long.toHexString(screen[row]) + " != " + Long.toHexString(other.screen[row]);
+        }
+
+        return null;
+    }
+
+    /**
+     * Same as {@link #findDifference(Chip8State)} but ignores memory and the screen
+     */
+    public String findRegisterDifference(Chip8State other) {
+        if (programCounter != other.programCounter) {
+            return difference("PC", programCounter, other.programCounter);
+        }
+
+        if (indexRegister != other.indexRegister) {
+            return difference("I", indexRegister, other.indexRegister);
+        }
+
+        int register = Arrays.mismatch(registers, other.registers);
+        if (register != -1) {
+            return difference("V" + Integer.toHexString(register).toUpperCase(), registers[register], other.registers[register]);
+        }
+
+        if (delayTimer != other.delayTimer) {
+            return difference("delay timer", delayTimer, other.delayTimer);
+        }
+
+        if (soundTimer != other.soundTimer) {
+            return difference("sound timer", soundTimer, other.soundTimer);
+        }
+
+        int depth = Arrays.mismatch(stack, 0, stackSize, other.stack, 0, other.stackSize);
+        if (depth != -1) {
+            return "stack differs at depth " + depth
+                + ": " + Arrays.toString(Arrays.copyOf(stack, stackSize))
+                + " != " + Arrays.toString(Arrays.copyOf(other.stack, other.stackSize));
+        }
+
+        return null;
+    }
+
+    void pushStackEntry(int address) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+
+        stack[stackSize++] = address;
+    }
+
+    private static String difference(String name, int value, int otherValue) {
+        return name + ": " + Integer.toHexString(value) + " != " + Integer.toHexString(otherValue);
+    }
+}
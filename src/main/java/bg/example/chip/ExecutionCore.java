@@ -0,0 +1,33 @@
+package bg.example.chip;
+
+/**
+ * Engine executing instructions one at a time, used to compare different implementations
+ */
+public interface ExecutionCore {
+
+    /**
+     * Executes a single instruction
+     */
+    void step();
+
+    /**
+     * Copies the observable state of the machine
+     */
+    void saveState(Chip8State state);
+
+    /**
+     * Copies the registers, timers and stack but not the memory and the screen
+     */
+    void saveRegisters(Chip8State state);
+
+    /**
+     * @return whether the next instruction blocks until a key is pressed
+     */
+    boolean isWaitingForKey();
+
+    /**
+     * @return address of the next instruction
+     */
+    int getProgramCounter();
+
+}
@@ -0,0 +1,22 @@
+package bg.example.chip;
+
+/**
+ * Read or write outside of memory, thrown by cores which check the addresses themselves
+ */
+public class MemoryFault extends RuntimeException {
+
+    private final int address;
+
+    /**
+     * @param address the accessed address
+     */
+    public MemoryFault(int address) {
+        super(String.format("Memory access at %X", address));
+
+        this.address = address;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+}
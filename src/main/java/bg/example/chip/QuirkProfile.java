@@ -0,0 +1,31 @@
+package bg.example.chip;
+
+import java.util.Locale;
+
+/**
+ * Quirks of well known CHIP-8 implementations
+ */
+public enum QuirkProfile {
+
+    COSMAC_VIP(new Quirks(true, true, false, false, false)),
+    CHIP_48(new Quirks(false, true, true, false, false)),
+    SUPER_CHIP(new Quirks(false, false, true, false, false)),
+    MODERN(new Quirks(true, false, false, true, false));
+
+    private final Quirks quirks;
+
+    QuirkProfile(Quirks quirks) {
+        this.quirks = quirks;
+    }
+
+    public Quirks quirks() {
+        return quirks;
+    }
+
+    /**
+     * @param name profile name in any case, with dashes or underscores, for example "super-chip"
+     */
+    public static QuirkProfile fromName(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
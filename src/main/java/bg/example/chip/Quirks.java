@@ -0,0 +1,19 @@
+package bg.example.chip;
+
+/**
+ * Behaviours in which CHIP-8 implementations differ. They are applied once,
+ * when the opcode tables of an instance are built
+ *
+ * @param shiftUsesVy 8XY6 and 8XYE shift VY into VX instead of shifting VX in place
+ * @param loadStoreIncrementsIndex FX55 and FX65 leave I after the last accessed address
+ * @param jumpUsesVx BNNN jumps to XNN plus VX instead of NNN plus V0
+ * @param indexOverflowSetsVf FX1E sets VF when I goes past 0xFFF
+ * @param spritesWrap DXYN wraps sprites around the edges of the screen instead of clipping them
+ */
+public record Quirks(
+    boolean shiftUsesVy,
+    boolean loadStoreIncrementsIndex,
+    boolean jumpUsesVx,
+    boolean indexOverflowSetsVf,
+    boolean spritesWrap
+) { }
@@ -0,0 +1,39 @@
+package bg.example.chip;
+
+/**
+ * Call with a full stack or return with an empty one
+ */
+public class StackFault extends RuntimeException {
+
+    public enum Kind {
+        OVERFLOW,
+        UNDERFLOW
+    }
+
+    private final Kind kind;
+    private final int address;
+    private final int instruction;
+
+    /**
+     * @param address address of the faulting instruction
+     */
+    public StackFault(Kind kind, int address, int instruction) {
+        super(String.format("Stack %s at %03X (%04X)", kind.name().toLowerCase(), address, instruction));
+
+        this.kind = kind;
+        this.address = address;
+        this.instruction = instruction;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+
+    public int getInstruction() {
+        return instruction;
+    }
+}
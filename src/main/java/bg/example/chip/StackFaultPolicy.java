@@ -0,0 +1,24 @@
+package bg.example.chip;
+
+/**
+ * What an instance does when a call finds the stack full or a return finds it empty.
+ * The fault listener is told in every case
+ */
+public enum StackFaultPolicy {
+
+    /**
+     * Leaves the program counter at the faulting instruction and throws the {@link StackFault}
+     */
+    HALT,
+
+    /**
+     * Restarts the program from a clean state
+     */
+    RESET,
+
+    /**
+     * Ignores the faulting instruction and continues with the next one
+     */
+    REPORT
+
+}
@@ -0,0 +1,19 @@
+package bg.example.chip;
+
+/**
+ * Instruction with no implementation, thrown by cores which decode instructions themselves
+ */
+public class UnknownInstructionFault extends RuntimeException {
+
+    private final int instruction;
+
+    public UnknownInstructionFault(int instruction) {
+        super(String.format("No opcode for %04X", instruction));
+
+        this.instruction = instruction;
+    }
+
+    public int getInstruction() {
+        return instruction;
+    }
+}
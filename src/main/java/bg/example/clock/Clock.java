@@ -5,4 +5,20 @@ public interface Clock {
 
     void tick();
 
+    /**
+     * @return number of following ticks which neither wait nor change the timers
+     */
+    default int getIdleTicks() {
+        return 0;
+    }
+
+    /**
+     * Advances by ticks known to be idle, at most {@link #getIdleTicks()}
+     */
+    default void skip(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
 }
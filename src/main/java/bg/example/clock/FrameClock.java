@@ -0,0 +1,172 @@
+package bg.example.clock;
+
+import bg.example.chip.Chip8;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clock measuring time in emulated frames of a fixed number of instructions. Frame listeners,
+ * such as the timers, run at the end of every emulated frame, so they keep their meaning at any speed.
+ * A frame runs {@link Chip8#DEFAULT_INSTRUCTIONS_PER_FRAME} instructions by default and the instance
+ * ticks after every instruction, so the timers change after the last instruction of a frame, the same
+ * as in {@link bg.example.headless.HeadlessChip8}.
+ * The clock sleeps only at frame boundaries to keep emulated frames in step with real ones
+ * multiplied by the speed. An infinite speed does not sleep at all
+ */
+public class FrameClock implements Clock {
+
+    private static final long FRAME_NANOS = 1_000_000_000L / Chip8.TIMER_FREQUENCY;
+
+    // Falling further behind, for example after a debugger pause, restarts pacing instead of catching up
+    private static final int MAX_FRAMES_BEHIND = 5;
+
+    private final List<Runnable> frameListeners;
+
+    private volatile double speed;
+    private volatile boolean speedChanged;
+    private volatile int requestedInstructionsPerFrame;
+
+    private int instructionsPerFrame;
+    private int instructionInFrame;
+    private int skippedInFrame;
+    private long frame;
+
+    private long anchorNanos;
+    private long anchorFrame;
+
+    public FrameClock() {
+        this(Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME);
+    }
+
+    public FrameClock(int instructionsPerFrame) {
+        this.instructionsPerFrame = instructionsPerFrame;
+        this.requestedInstructionsPerFrame = instructionsPerFrame;
+        this.frameListeners = new CopyOnWriteArrayList<>();
+        this.speed = 1;
+        this.speedChanged = true;
+    }
+
+    /**
+     * @param listener called by the emulation thread at the end of every emulated frame
+     */
+    public void addFrameListener(Runnable listener) {
+        frameListeners.add(listener);
+    }
+
+    /**
+     * Changes the speed from any thread, taking effect at the next frame boundary
+     *
+     * @param speed multiple of the normal speed, {@link Double#POSITIVE_INFINITY} to run unthrottled
+     */
+    public void setSpeed(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive but was " + speed);
+        }
+
+        this.speed = speed;
+        this.speedChanged = true;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Changes the length of a frame from any thread, taking effect at the next frame boundary
+     */
+    public void setInstructionsPerFrame(int instructionsPerFrame) {
+        if (instructionsPerFrame <= 0) {
+            throw new IllegalArgumentException("Instructions per frame must be positive but was " + instructionsPerFrame);
+        }
+
+        this.requestedInstructionsPerFrame = instructionsPerFrame;
+    }
+
+    /**
+     * @return instructions of the current frame
+     */
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    /**
+     * @return ticks of the current frame skipped as idle. Frame listeners see the frame which just ended
+     */
+    public int getSkippedTicks() {
+        return skippedInFrame;
+    }
+
+    /**
+     * @return number of emulated frames completed so far
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    @Override
+    public void tick() {
+        if (++instructionInFrame < instructionsPerFrame) {
+            return;
+        }
+
+        instructionInFrame = 0;
+        frame++;
+
+        for (Runnable listener : frameListeners) {
+            listener.run();
+        }
+
+        skippedInFrame = 0;
+        instructionsPerFrame = requestedInstructionsPerFrame;
+
+        pace();
+    }
+
+    /**
+     * @return number of ticks before the one ending the current frame, which is the tick
+     *         after its last instruction
+     */
+    @Override
+    public int getIdleTicks() {
+        return instructionsPerFrame - instructionInFrame - 1;
+    }
+
+    @Override
+    public void skip(int ticks) {
+        int skipped = Math.min(ticks, getIdleTicks());
+
+        instructionInFrame += skipped;
+        skippedInFrame += skipped;
+    }
+
+    private void pace() {
+        double currentSpeed = speed;
+        long now = System.nanoTime();
+
+        if (speedChanged) {
+            speedChanged = false;
+            anchor(now);
+            return;
+        }
+
+        if (Double.isInfinite(currentSpeed)) {
+            return;
+        }
+
+        long deadline = anchorNanos + (long) ((frame - anchorFrame) * FRAME_NANOS / currentSpeed);
+        long remaining = deadline - now;
+
+        if (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+        } else if (-remaining > MAX_FRAMES_BEHIND * FRAME_NANOS / currentSpeed) {
+            anchor(now);
+        }
+    }
+
+    private void anchor(long now) {
+        anchorNanos = now;
+        anchorFrame = frame;
+    }
+}
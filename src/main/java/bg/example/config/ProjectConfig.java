@@ -2,17 +2,22 @@ package bg.example.config;
 
 import bg.example.chip.Chip8;
 import bg.example.chip.Chip8Properties;
-import bg.example.clock.Clock;
-import bg.example.clock.SimpleClock;
+import bg.example.chip.Quirks;
+import bg.example.clock.FrameClock;
+import bg.example.counter.BufferCounter;
 import bg.example.counter.Counter;
-import bg.example.counter.ReducingCounter;
+import bg.example.counter.FrameCounter;
 import bg.example.counter.SimpleCounter;
-import bg.example.display.Display;
+import bg.example.debug.Debugger;
+import bg.example.debug.WatchedMemory;
+import bg.example.display.DisplayPipeline;
 import bg.example.display.WindowDisplay;
+import bg.example.input.KeyMap;
+import bg.example.input.SampledKeyboard;
 import bg.example.loader.font.BasicFontLoader;
 import bg.example.loader.font.FontLoader;
 import bg.example.keyboard.Keyboard;
-import bg.example.keyboard.KeyboardProxy;
+import bg.example.keyboard.FastForwardKeyboard;
 import bg.example.loader.program.ProgramLoader;
 import bg.example.memory.Memory;
 import bg.example.memory.SimpleMemory;
@@ -20,8 +25,10 @@ import bg.example.register.Register;
 import bg.example.register.SimpleRegister;
 import bg.example.loader.rom.BasicROMLoader;
 import bg.example.loader.rom.ROMLoader;
+import bg.example.shared.SharedMachineState;
 import javafx.scene.input.KeyCode;
 import javafx.stage.Stage;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -29,13 +36,17 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 @Configuration
 @ComponentScan("bg.example")
 public class ProjectConfig {
 
+    private static final double TURBO_SPEED = 10;
+
     private static final Map<KeyCode, KeyCode> KEY_REMAPPING =
         Map.ofEntries(
             Map.entry(KeyCode.DIGIT1, KeyCode.DIGIT1),
@@ -56,10 +67,19 @@ public class ProjectConfig {
             Map.entry(KeyCode.V, KeyCode.F)
         );
 
+    private final SharedMachineState sharedState;
+
+    /**
+     * @param sharedState state outside of the heap replacing the memory, registers, timers
+     *                    and screen of the instance, if one is registered
+     */
+    public ProjectConfig(ObjectProvider<SharedMachineState> sharedState) {
+        this.sharedState = sharedState.getIfAvailable();
+    }
+
     @Bean
-    @Scope("prototype")
-    public Clock clock() {
-        return new SimpleClock();
+    public FrameClock clock() {
+        return new FrameClock();
     }
 
     @Bean
@@ -71,17 +91,28 @@ public class ProjectConfig {
 
     @Bean
     @Scope("prototype")
-    @Qualifier("reducingTimer")
-    public Counter reducingCounter() {
-        return new ReducingCounter(Chip8.FIRST_INSTRUCTION_OFFSET, Chip8.TIMER_FREQUENCY);
+    @Qualifier("frameTimer")
+    public FrameCounter frameCounter() {
+        FrameCounter counter = new FrameCounter(0);
+        clock().addFrameListener(counter::tick);
+        return counter;
     }
 
     @Bean
     @Scope("prototype")
     public Memory memory() {
+        if (sharedState != null) {
+            return sharedState.memory();
+        }
+
         return new SimpleMemory(new int[Chip8.CHIP8_MEMORY_SIZE]);
     }
 
+    @Bean
+    public WatchedMemory watchedMemory() {
+        return new WatchedMemory(memory());
+    }
+
     @Bean
     @Scope("prototype")
     public FontLoader fontLoader() {
@@ -104,18 +135,48 @@ public class ProjectConfig {
     }
 
     @Bean
-    public Display windowDisplay(Stage stage) {
+    public DisplayPipeline displayPipeline() {
+        DisplayPipeline pipeline = new DisplayPipeline(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]);
+        clock().addFrameListener(pipeline::publish);
+        return pipeline;
+    }
+
+    @Bean
+    public WindowDisplay windowDisplay(Stage stage, Keyboard keyboard) {
         return new WindowDisplay(
-            new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH],
+            displayPipeline().subscribe(),
+            Chip8.DISPLAY_WIDTH,
+            Chip8.DISPLAY_HEIGHT,
             stage,
-            keyboard(),
+            keyboard,
             "Chip-8-Emulator"
         );
     }
 
+    /**
+     * The default remapping, overridden by a key map file next to the program
+     */
+    @Bean
+    public KeyMap keyMap(String programLocation) throws IOException {
+        return KeyMap.forProgram(Path.of(programLocation), KeyMap.fromRemapping(KEY_REMAPPING));
+    }
+
     @Bean
-    public Keyboard keyboard() {
-        return new KeyboardProxy(KEY_REMAPPING);
+    public FastForwardKeyboard keyboard(KeyMap keyMap) {
+        return new FastForwardKeyboard(keyMap, clock(), TURBO_SPEED);
+    }
+
+    /**
+     * Keys seen by the instance, merged from the window and any further input source
+     */
+    @Bean
+    public SampledKeyboard sampledKeyboard(FastForwardKeyboard keyboard) {
+        SampledKeyboard sampledKeyboard = new SampledKeyboard();
+
+        clock().addFrameListener(sampledKeyboard);
+        sampledKeyboard.addSource(keyboard);
+
+        return sampledKeyboard;
     }
 
     @Bean
@@ -130,8 +191,22 @@ public class ProjectConfig {
         return new SimpleRegister(Chip8.INDEX_REGISTER_BITS);
     }
 
+    /**
+     * The screen is also published when a key wait starts, since no frame ends while waiting
+     */
     @Bean
-    public Chip8 chip8(ProgramLoader loader, Stage stage) {
+    public Chip8 chip8(ProgramLoader loader, Quirks quirks, SampledKeyboard keyboard) {
+        Chip8 chip = sharedState != null
+            ? sharedChip8(loader, quirks, keyboard)
+            : localChip8(loader, quirks, keyboard);
+
+        chip.addKeyWaitListener(displayPipeline()::publish);
+
+        return chip;
+    }
+
+    private Chip8 localChip8(ProgramLoader loader, Quirks quirks, SampledKeyboard keyboard) {
+
         Register[] registers = new Register[Chip8.NORMAL_REGISTERS_COUNT];
 
         for (int i = 0; i < registers.length; i++) {
@@ -141,16 +216,50 @@ public class ProjectConfig {
         return new Chip8(
             new Chip8Properties(
                 simpleCounter(),
-                reducingCounter(),
-                reducingCounter(),
+                frameCounter(),
+                frameCounter(),
                 clock(),
-                memory(),
+                watchedMemory(),
                 loader,
-                windowDisplay(stage),
-                keyboard(),
+                displayPipeline(),
+                keyboard,
                 registers,
-                indexRegister()
+                indexRegister(),
+                new SplittableRandom(),
+                quirks,
+                Chip8.DEFAULT_STACK_DEPTH
             )
         );
     }
+
+    private Chip8 sharedChip8(ProgramLoader loader, Quirks quirks, SampledKeyboard keyboard) {
+        BufferCounter delayTimer = sharedState.delayTimer();
+        BufferCounter soundTimer = sharedState.soundTimer();
+
+        clock().addFrameListener(delayTimer::tick);
+        clock().addFrameListener(soundTimer::tick);
+
+        return new Chip8(
+            new Chip8Properties(
+                sharedState.programCounter(),
+                delayTimer,
+                soundTimer,
+                clock(),
+                watchedMemory(),
+                loader,
+                sharedState.display(displayPipeline()),
+                keyboard,
+                sharedState.registers(),
+                sharedState.indexRegister(),
+                new SplittableRandom(),
+                quirks,
+                Chip8.DEFAULT_STACK_DEPTH
+            )
+        );
+    }
+
+    @Bean
+    public Debugger debugger(Chip8 chip8) {
+        return new Debugger(chip8, watchedMemory());
+    }
 }
@@ -0,0 +1,49 @@
+package bg.example.counter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counter kept as an int in a buffer outside of the heap. Used as a timer it counts
+ * down once per emulated frame like {@link FrameCounter}
+ */
+public class BufferCounter implements Counter {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+
+    public BufferCounter(ByteBuffer buffer, int offset, int value) {
+        this.buffer = buffer;
+        this.offset = offset;
+
+        set(value);
+    }
+
+    @Override
+    public void set(int value) {
+        buffer.putInt(offset, value);
+    }
+
+    @Override
+    public int get() {
+        return buffer.getInt(offset);
+    }
+
+    @Override
+    public void increment() {
+        set(get() + 1);
+    }
+
+    @Override
+    public void decrement() {
+        set(get() - 1);
+    }
+
+    /**
+     * Decrements the counter unless it has already reached zero
+     */
+    public void tick() {
+        if (get() > 0) {
+            decrement();
+        }
+    }
+}
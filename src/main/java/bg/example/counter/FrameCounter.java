@@ -0,0 +1,20 @@
+package bg.example.counter;
+
+/**
+ * Timer counting down once per emulated frame instead of by wall clock time
+ */
+public class FrameCounter extends SimpleCounter {
+
+    public FrameCounter(int value) {
+        super(value);
+    }
+
+    /**
+     * Decrements the counter unless it has already reached zero
+     */
+    public void tick() {
+        if (get() > 0) {
+            decrement();
+        }
+    }
+}
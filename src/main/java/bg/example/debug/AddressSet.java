@@ -0,0 +1,58 @@
+package bg.example.debug;
+
+import bg.example.chip.Chip8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of memory addresses stored as a bitset, so a lookup is a single word test.
+ * Safe to modify from one thread while another one queries it
+ */
+public class AddressSet {
+
+    private static final int ADDRESS_SHIFT = 6;
+
+    private final AtomicLongArray words;
+    private final AtomicInteger size;
+
+    public AddressSet() {
+        words = new AtomicLongArray(Chip8.CHIP8_MEMORY_SIZE >>> ADDRESS_SHIFT);
+        size = new AtomicInteger();
+    }
+
+    /**
+     * @return whether no address is held, a single read
+     */
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public boolean contains(int address) {
+        int index = address >>> ADDRESS_SHIFT;
+
+        return index < words.length() && (words.get(index) & (1L << address)) != 0;
+    }
+
+    public void add(int address) {
+        long bit = 1L << address;
+
+        if ((words.getAndAccumulate(address >>> ADDRESS_SHIFT, bit, (word, added) -> word | added) & bit) == 0) {
+            size.incrementAndGet();
+        }
+    }
+
+    public void remove(int address) {
+        long bit = 1L << address;
+
+        if ((words.getAndAccumulate(address >>> ADDRESS_SHIFT, ~bit, (word, mask) -> word & mask) & bit) != 0) {
+            size.decrementAndGet();
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            size.addAndGet(-Long.bitCount(words.getAndSet(i, 0)));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package bg.example.debug;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Remote control of a {@link Debugger} over a local socket. Clients send one command per line
+ * and receive the output followed by a line holding either "ok" or "error: " and a message.
+ * Pauses are announced asynchronously with a line starting with "paused: ".
+ *
+ * <pre>
+ * break ADDR / unbreak ADDR     add or remove a breakpoint
+ * watch ADDR / unwatch ADDR     add or remove a memory write watchpoint
+ * when VX [VALUE]               pause when VX changes, optionally only to VALUE
+ * unwhen                        remove all register conditions
+ * pause / continue              pause or resume execution
+ * step / over                   run one instruction, stepping over subroutine calls with over
+ * regs / stack                  show the registers or the call stack
+ * dis [ADDR] [COUNT]            disassemble, by default from the program counter
+ * mem ADDR [COUNT]              show memory
+ * </pre>
+ *
+ * Addresses and values are hexadecimal
+ */
+public class DebugServer implements Runnable {
+
+    private static final int DEFAULT_DISASSEMBLY_LENGTH = 10;
+    private static final int DEFAULT_MEMORY_LENGTH = 16;
+
+    private final Debugger debugger;
+    private final ServerSocket serverSocket;
+    private final Chip8State state;
+
+    private volatile PrintWriter client;
+
+    public DebugServer(Debugger debugger, int port) throws IOException {
+        this.debugger = debugger;
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        this.state = new Chip8State();
+
+        debugger.setOnPause(this::announcePause);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                serve(socket);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void serve(Socket socket) throws IOException {
+        var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        var out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+        client = out;
+
+        try {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                synchronized (out) {
+                    try {
+                        execute(line.trim().split("\\s+"), out);
+                        out.println("ok");
+                    } catch (RuntimeException e) {
+                        out.println("error: " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            client = null;
+        }
+    }
+
+    private void execute(String[] command, PrintWriter out) {
+        switch (command[0]) {
+            case "break" -> debugger.getBreakpoints().add(hex(command, 1));
+            case "unbreak" -> debugger.getBreakpoints().remove(hex(command, 1));
+            case "watch" -> debugger.getWatchpoints().add(hex(command, 1));
+            case "unwatch" -> debugger.getWatchpoints().remove(hex(command, 1));
+            case "when" -> debugger.addCondition(
+                new Debugger.RegisterCondition(
+                    register(command),
+                    command.length > 2 ? hex(command, 2) : -1
+                )
+            );
+            case "unwhen" -> debugger.clearConditions();
+            case "pause" -> debugger.pause();
+            case "continue" -> debugger.resume();
+            case "step" -> debugger.step();
+            case "over" -> debugger.stepOver();
+            case "regs" -> printRegisters(out);
+            case "stack" -> printStack(out);
+            case "dis" -> {
+                requirePaused();
+                debugger.saveState(state);
+
+                int address = command.length > 1 ? hex(command, 1) : state.getProgramCounter();
+                int count = command.length > 2 ? hex(command, 2) : DEFAULT_DISASSEMBLY_LENGTH;
+
+                print(out, debugger.disassemble(address, count));
+            }
+            case "mem" -> printMemory(
+                out,
+                hex(command, 1),
+                command.length > 2 ? hex(command, 2) : DEFAULT_MEMORY_LENGTH
+            );
+            default -> throw new IllegalArgumentException("unknown command " + command[0]);
+        }
+    }
+
+    private void printRegisters(PrintWriter out) {
+        requirePaused();
+        debugger.saveState(state);
+
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < Chip8.NORMAL_REGISTERS_COUNT; i++) {
+            line.append(String.format("V%X=%02X ", i, state.getRegister(i)));
+        }
+
+        out.println(line.toString().trim());
+        out.printf(
+            "PC=%03X I=%03X DT=%02X ST=%02X%n",
+            state.getProgramCounter(),
+            state.getIndexRegister(),
+            state.getDelayTimer(),
+            state.getSoundTimer()
+        );
+    }
+
+    private void printStack(PrintWriter out) {
+        requirePaused();
+        debugger.saveState(state);
+
+        for (int depth = state.getStackSize() - 1; depth >= 0; depth--) {
+            out.printf("#%d %03X%n", depth, state.getStackEntry(depth));
+        }
+    }
+
+    private void printMemory(PrintWriter out, int address, int count) {
+        requirePaused();
+        debugger.saveState(state);
+
+        StringBuilder line = new StringBuilder(String.format("%03X ", address));
+
+        for (int i = address; i < Math.min(address + count, Chip8.CHIP8_MEMORY_SIZE); i++) {
+            line.append(String.format(" %02X", state.getMemory(i)));
+        }
+
+        out.println(line);
+    }
+
+    private void announcePause(String reason) {
+        PrintWriter out = client;
+
+        if (out != null) {
+            synchronized (out) {
+                out.println("paused: " + reason);
+            }
+        }
+    }
+
+    private void requirePaused() {
+        if (!debugger.isPaused()) {
+            throw new IllegalStateException("not paused");
+        }
+    }
+
+    private static void print(PrintWriter out, List<String> lines) {
+        lines.forEach(out::println);
+    }
+
+    private static int register(String[] command) {
+        String name = argument(command, 1);
+
+        int register = name.length() == 2 && Character.toUpperCase(name.charAt(0)) == 'V'
+            ? Character.digit(name.charAt(1), 16)
+            : -1;
+
+        if (register < 0) {
+            throw new IllegalArgumentException("expected a register but got " + name);
+        }
+
+        return register;
+    }
+
+    private static int hex(String[] command, int index) {
+        return Integer.parseInt(argument(command, index), 16);
+    }
+
+    private static String argument(String[] command, int index) {
+        if (index >= command.length) {
+            throw new IllegalArgumentException(command[0] + " expects " + index + " argument(s)");
+        }
+
+        return command[index];
+    }
+}
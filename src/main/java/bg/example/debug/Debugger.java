@@ -0,0 +1,402 @@
+package bg.example.debug;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8State;
+import bg.example.keyboard.KeyboardInformation;
+import javafx.scene.input.KeyCode;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Runs an instance and pauses it on breakpoints, watched memory writes and register conditions.
+ * Without a pause request, breakpoints or conditions the work per instruction is a few flag reads
+ * and a look at the first byte of the instruction, remembering where an FX07 was run. Skipping
+ * a delay loop is only tried at such an address or right after it. Tasks which change the instance run on the
+ * emulation thread between two instructions. A wait for a key does not block inside the instruction,
+ * the keyboard is polled between the tasks and pause requests until the wait is completed
+ */
+public class Debugger implements Runnable, Executor {
+
+    private static final int CALL_OPCODE = 0x2;
+    private static final int REGISTER_OPCODE = 0xF;
+
+    // FXNN instructions are selected by their last nibble only
+    private static final int READ_DELAY_TIMER = 0x7;
+    private static final int WAIT_FOR_KEY = 0xA;
+
+    /**
+     * Pauses after the value of a register changes
+     *
+     * @param register index of the register
+     * @param value the value which pauses, or a negative number to pause on any change
+     */
+    public record RegisterCondition(int register, int value) { }
+
+    private final Chip8 chip;
+    private final WatchedMemory memory;
+
+    private final AddressSet breakpoints;
+    private final List<RegisterCondition> conditions;
+
+    private final Chip8State before;
+    private final Chip8State after;
+
+    private final Object lock;
+    private final Queue<Runnable> tasks;
+
+    private volatile boolean pauseRequested;
+    private volatile boolean hasConditions;
+    private volatile boolean hasTasks;
+    private volatile String pauseReason;
+    private volatile Consumer<String> onPause;
+
+    private boolean paused;
+    private boolean stepping;
+
+    private int stepOverAddress;
+    private int stepOverDepth;
+    private boolean stepOverAddressIsBreakpoint;
+
+    // Address of the last FX07 run, where a delay loop may start
+    private int delayReadAddress;
+
+    private int keyWaitAddress;
+    private KeyCode keyWaitStart;
+    private KeyCode keyWaitPressed;
+
+    public Debugger(Chip8 chip, WatchedMemory memory) {
+        this.chip = chip;
+        this.memory = memory;
+
+        breakpoints = new AddressSet();
+        conditions = new CopyOnWriteArrayList<>();
+
+        before = new Chip8State();
+        after = new Chip8State();
+
+        lock = new Object();
+        tasks = new ArrayDeque<>();
+        onPause = reason -> { };
+        stepOverAddress = -1;
+        delayReadAddress = -1;
+        keyWaitAddress = -1;
+
+        memory.setOnWatchedWrite(address -> requestPause("write to " + Integer.toHexString(address)));
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (hasTasks) {
+                runTasks();
+            }
+
+            int address = chip.getProgramCounter();
+
+            // A breakpoint on a key wait pauses once when the wait starts
+            if (pauseRequested || address != keyWaitAddress && !breakpoints.isEmpty() && breakpoints.contains(address)) {
+                pauseAt(address);
+
+                // Tasks run while paused may have moved it
+                address = chip.getProgramCounter();
+            }
+
+            int operation = registerOperation(address);
+
+            if (operation == WAIT_FOR_KEY) {
+                waitForKey(address);
+                continue;
+            }
+
+            keyWaitAddress = -1;
+
+            if (hasConditions) {
+                chip.saveRegisters(before);
+                chip.runOneCycle();
+                checkConditions();
+            } else {
+                // A single step or a breakpoint inside a delay loop must see every pass of it
+                if ((address == delayReadAddress || address == delayReadAddress + 2)
+                    && !pauseRequested
+                    && !hasBreakpointInDelayLoop(address)
+                    && chip.fastForwardDelayLoop() > 0) {
+                    continue;
+                }
+
+                if (operation == READ_DELAY_TIMER) {
+                    delayReadAddress = address;
+                }
+
+                chip.runOneCycle();
+            }
+        }
+    }
+
+    public AddressSet getBreakpoints() {
+        return breakpoints;
+    }
+
+    public AddressSet getWatchpoints() {
+        return memory.getWatchpoints();
+    }
+
+    public void addCondition(RegisterCondition condition) {
+        conditions.add(condition);
+        hasConditions = true;
+    }
+
+    public void clearConditions() {
+        conditions.clear();
+        hasConditions = false;
+    }
+
+    /**
+     * @param onPause called from the emulation thread with the reason every time it pauses
+     */
+    public void setOnPause(Consumer<String> onPause) {
+        this.onPause = onPause;
+    }
+
+    public void pause() {
+        requestPause("pause");
+    }
+
+    public void resume() {
+        synchronized (lock) {
+            pauseRequested = false;
+            paused = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Runs a single instruction and pauses again
+     */
+    public void step() {
+        synchronized (lock) {
+            if (!paused) {
+                return;
+            }
+
+            stepping = true;
+            paused = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Same as {@link #step()}, except that a subroutine call runs until the subroutine returns
+     */
+    public void stepOver() {
+        synchronized (lock) {
+            if (!paused) {
+                return;
+            }
+
+            int address = chip.getProgramCounter();
+
+            if (memory.get(address) >>> Chip8.NIBBLE_SHIFT_OFFSET != CALL_OPCODE) {
+                step();
+                return;
+            }
+
+            chip.saveRegisters(before);
+
+            stepOverAddress = address + 2;
+            stepOverDepth = before.getStackSize();
+            stepOverAddressIsBreakpoint = breakpoints.contains(stepOverAddress);
+            breakpoints.add(stepOverAddress);
+
+            resume();
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    /**
+     * Runs the task on the emulation thread before the next instruction, or right away
+     * on the calling thread while paused
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (lock) {
+            if (paused) {
+                task.run();
+                return;
+            }
+
+            tasks.add(task);
+            hasTasks = true;
+        }
+    }
+
+    /**
+     * Copies the state of the instance, which is only consistent while paused
+     */
+    public void saveState(Chip8State state) {
+        synchronized (lock) {
+            chip.saveState(state);
+        }
+    }
+
+    public List<String> disassemble(int address, int count) {
+        return Disassembler.disassemble(memory, address, count);
+    }
+
+    public String getPauseReason() {
+        return pauseReason;
+    }
+
+    private void requestPause(String reason) {
+        pauseReason = reason;
+        pauseRequested = true;
+    }
+
+    private void pauseAt(int address) {
+        String reason = pauseRequested ? pauseReason : "breakpoint";
+
+        if (address == stepOverAddress) {
+            chip.saveRegisters(after);
+
+            if (after.getStackSize() <= stepOverDepth) {
+                endStepOver();
+
+                if (!pauseRequested) {
+                    reason = "step over";
+                }
+            } else if (!pauseRequested && !stepOverAddressIsBreakpoint) {
+                // The return address was reached by a deeper recursive call
+                return;
+            }
+        }
+
+        synchronized (lock) {
+            paused = true;
+            pauseRequested = false;
+            stepping = false;
+        }
+
+        // Called without holding the lock, the listener may query the debugger
+        onPause.accept(reason + " at " + Integer.toHexString(address));
+
+        synchronized (lock) {
+            // Tasks queued just before the pause would otherwise wait for the resume
+            runTasks();
+
+            while (paused) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            if (stepping) {
+                requestPause("step");
+            }
+        }
+    }
+
+    private void runTasks() {
+        synchronized (lock) {
+            hasTasks = false;
+
+            for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Polls the keyboard once, the wait ends after a key pressed since it started is released
+     */
+    private void waitForKey(int address) {
+        KeyboardInformation keyboard = chip.getKeyboardInformation();
+        KeyCode lastPressed = keyboard.getLastPressedKey();
+
+        if (address != keyWaitAddress) {
+            keyWaitAddress = address;
+            keyWaitStart = lastPressed;
+            keyWaitPressed = null;
+            chip.startKeyWait();
+            return;
+        }
+
+        if (keyWaitPressed == null) {
+            if (lastPressed == null || lastPressed == keyWaitStart || !Chip8.LEGAL_KEYS.contains(lastPressed)) {
+                Thread.yield();
+                return;
+            }
+
+            keyWaitPressed = lastPressed;
+        }
+
+        if (keyboard.isPressed(keyWaitPressed)) {
+            Thread.yield();
+            return;
+        }
+
+        keyWaitAddress = -1;
+        chip.completeKeyWait(Chip8.fromKeyCodeToInteger(keyWaitPressed));
+    }
+
+    /**
+     * @return last nibble of the FXNN instruction at the address, or -1 for any other instruction,
+     * reading the second byte only for FXNN instructions
+     */
+    private int registerOperation(int address) {
+        if (address < 0 || address + 1 >= Chip8.CHIP8_MEMORY_SIZE
+            || memory.get(address) >>> Chip8.NIBBLE_SHIFT_OFFSET != REGISTER_OPCODE) {
+            return -1;
+        }
+
+        return memory.get(address + 1) & 0xF;
+    }
+
+    private boolean hasBreakpointInDelayLoop(int address) {
+        if (breakpoints.isEmpty()) {
+            return false;
+        }
+
+        // The loop is three instructions long and the program counter may be at any of them
+        for (int loopAddress = Math.max(address - 4, 0); loopAddress <= address + 4; loopAddress += 2) {
+            if (breakpoints.contains(loopAddress)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void endStepOver() {
+        if (!stepOverAddressIsBreakpoint) {
+            breakpoints.remove(stepOverAddress);
+        }
+
+        stepOverAddress = -1;
+    }
+
+    private void checkConditions() {
+        chip.saveRegisters(after);
+
+        for (RegisterCondition condition : conditions) {
+            int oldValue = before.getRegister(condition.register());
+            int newValue = after.getRegister(condition.register());
+
+            if (oldValue != newValue && (condition.value() < 0 || condition.value() == newValue)) {
+                requestPause("V" + Integer.toHexString(condition.register()).toUpperCase() + " = " + newValue);
+                return;
+            }
+        }
+    }
+}
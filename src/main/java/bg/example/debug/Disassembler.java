@@ -0,0 +1,93 @@
+package bg.example.debug;
+
+import bg.example.chip.Chip8;
+import bg.example.memory.Memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts instructions to their assembly mnemonics
+ */
+public final class Disassembler {
+
+    private Disassembler() { }
+
+    /**
+     * Disassembles consecutive instructions
+     *
+     * @return one line per instruction holding its address, encoding and mnemonic
+     */
+    public static List<String> disassemble(Memory memory, int address, int count) {
+        List<String> lines = new ArrayList<>(count);
+
+        for (int i = 0; i < count && address + 1 < Chip8.CHIP8_MEMORY_SIZE; i++, address += 2) {
+            int instruction = memory.get(address) << 8 | memory.get(address + 1);
+
+            lines.add(String.format("%03X  %04X  %s", address, instruction, disassemble(instruction)));
+        }
+
+        return lines;
+    }
+
+    public static String disassemble(int instruction) {
+        int x = (instruction >>> 8) & 0xF;
+        int y = (instruction >>> 4) & 0xF;
+        int n = instruction & 0xF;
+        int nn = instruction & 0xFF;
+        int nnn = instruction & 0xFFF;
+
+        return switch (instruction >>> 12) {
+            case 0x0 -> switch (instruction) {
+                case 0x00E0 -> "CLS";
+                case 0x00EE -> "RET";
+                default -> String.format("SYS %03X", nnn);
+            };
+            case 0x1 -> String.format("JP %03X", nnn);
+            case 0x2 -> String.format("CALL %03X", nnn);
+            case 0x3 -> String.format("SE V%X, %02X", x, nn);
+            case 0x4 -> String.format("SNE V%X, %02X", x, nn);
+            case 0x5 -> n == 0 ? String.format("SE V%X, V%X", x, y) : data(instruction);
+            case 0x6 -> String.format("LD V%X, %02X", x, nn);
+            case 0x7 -> String.format("ADD V%X, %02X", x, nn);
+            case 0x8 -> switch (n) {
+                case 0x0 -> String.format("LD V%X, V%X", x, y);
+                case 0x1 -> String.format("OR V%X, V%X", x, y);
+                case 0x2 -> String.format("AND V%X, V%X", x, y);
+                case 0x3 -> String.format("XOR V%X, V%X", x, y);
+                case 0x4 -> String.format("ADD V%X, V%X", x, y);
+                case 0x5 -> String.format("SUB V%X, V%X", x, y);
+                case 0x6 -> String.format("SHR V%X, V%X", x, y);
+                case 0x7 -> String.format("SUBN V%X, V%X", x, y);
+                case 0xE -> String.format("SHL V%X, V%X", x, y);
+                default -> data(instruction);
+            };
+            case 0x9 -> n == 0 ? String.format("SNE V%X, V%X", x, y) : data(instruction);
+            case 0xA -> String.format("LD I, %03X", nnn);
+            case 0xB -> String.format("JP V0, %03X", nnn);
+            case 0xC -> String.format("RND V%X, %02X", x, nn);
+            case 0xD -> String.format("DRW V%X, V%X, %X", x, y, n);
+            case 0xE -> switch (nn) {
+                case 0x9E -> String.format("SKP V%X", x);
+                case 0xA1 -> String.format("SKNP V%X", x);
+                default -> data(instruction);
+            };
+            default -> switch (nn) {
+                case 0x07 -> String.format("LD V%X, DT", x);
+                case 0x0A -> String.format("LD V%X, K", x);
+                case 0x15 -> String.format("LD DT, V%X", x);
+                case 0x18 -> String.format("LD ST, V%X", x);
+                case 0x1E -> String.format("ADD I, V%X", x);
+                case 0x29 -> String.format("LD F, V%X", x);
+                case 0x33 -> String.format("LD B, V%X", x);
+                case 0x55 -> String.format("LD [I], V%X", x);
+                case 0x65 -> String.format("LD V%X, [I]", x);
+                default -> data(instruction);
+            };
+        };
+    }
+
+    private static String data(int instruction) {
+        return String.format("DW %04X", instruction);
+    }
+}
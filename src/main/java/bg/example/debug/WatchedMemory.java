@@ -0,0 +1,60 @@
+package bg.example.debug;
+
+import bg.example.memory.Memory;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Memory decorator reporting writes to watched addresses
+ */
+public class WatchedMemory implements Memory {
+
+    private final Memory memory;
+    private final AddressSet watchpoints;
+
+    private volatile IntConsumer onWatchedWrite;
+
+    public WatchedMemory(Memory memory) {
+        this.memory = memory;
+        this.watchpoints = new AddressSet();
+        this.onWatchedWrite = address -> { };
+    }
+
+    @Override
+    public void set(int address, int value) {
+        memory.set(address, value);
+
+        if (watchpoints.contains(address)) {
+            onWatchedWrite.accept(address);
+        }
+    }
+
+    @Override
+    public int get(int address) {
+        return memory.get(address);
+    }
+
+    @Override
+    public void copyTo(int[] target) {
+        memory.copyTo(target);
+    }
+
+    /**
+     * Restores the memory without reporting watched writes
+     */
+    @Override
+    public void copyFrom(int[] source) {
+        memory.copyFrom(source);
+    }
+
+    public AddressSet getWatchpoints() {
+        return watchpoints;
+    }
+
+    /**
+     * @param onWatchedWrite called with the address after every write to a watched address
+     */
+    public void setOnWatchedWrite(IntConsumer onWatchedWrite) {
+        this.onWatchedWrite = onWatchedWrite;
+    }
+}
@@ -1,5 +1,7 @@
 package bg.example.display;
 
+import java.util.Arrays;
+
 public abstract class BaseDisplay implements Display {
 
     protected boolean[][] pixels;
@@ -10,10 +12,8 @@ public abstract class BaseDisplay implements Display {
 
     @Override
     public void clear() {
-        for (int y = 0; y < pixels.length; y++) {
-            for (int x = 0; x < pixels[0].length; x++) {
-                pixels[y][x] = false;
-            }
+        for (boolean[] row : pixels) {
+            Arrays.fill(row, false);
         }
     }
 
@@ -25,4 +25,45 @@ public abstract class BaseDisplay implements Display {
 
         return wasPixelOn;
     }
+
+    /**
+     * Packs every row of the screen into a single word. The leftmost pixel
+     * is stored in the most significant bit, so rows wider than 64 pixels are not supported
+     *
+     * @param rows destination holding at least one word per row
+     */
+    @Override
+    public void copyRows(long[] rows) {
+        for (int y = 0; y < pixels.length; y++) {
+            boolean[] row = pixels[y];
+            long word = 0;
+
+            for (int x = 0; x < row.length; x++) {
+                if (row[x]) {
+                    word |= 1L << (Long.SIZE - 1 - x);
+                }
+            }
+
+            rows[y] = word;
+        }
+    }
+
+    @Override
+    public void restoreRows(long[] rows) {
+        for (int y = 0; y < pixels.length; y++) {
+            boolean[] row = pixels[y];
+
+            for (int x = 0; x < row.length; x++) {
+                row[x] = (rows[y] & 1L << (Long.SIZE - 1 - x)) != 0;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return pixels[0].length;
+    }
+
+    public int getHeight() {
+        return pixels.length;
+    }
 }
@@ -0,0 +1,81 @@
+package bg.example.display;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Display keeping every row packed into a long of a buffer outside of the heap, the leftmost pixel
+ * in the most significant bit. Readers of the buffer see the screen as it is drawn. Every change may
+ * also be passed on to another display, which then renders the same screen
+ */
+public class BufferDisplay implements Display {
+
+    private final ByteBuffer buffer;
+    private final int height;
+    private final Display display;
+
+    /**
+     * @param buffer rows from position zero, one long each
+     */
+    public BufferDisplay(ByteBuffer buffer, int height) {
+        this(buffer, height, null);
+    }
+
+    /**
+     * @param display receives every change as well, null for none
+     */
+    public BufferDisplay(ByteBuffer buffer, int height, Display display) {
+        this.buffer = buffer;
+        this.height = height;
+        this.display = display;
+    }
+
+    @Override
+    public void clear() {
+        for (int y = 0; y < height; y++) {
+            buffer.putLong(y * Long.BYTES, 0);
+        }
+
+        if (display != null) {
+            display.clear();
+        }
+    }
+
+    @Override
+    public void update() {
+        if (display != null) {
+            display.update();
+        }
+    }
+
+    @Override
+    public boolean flipPixel(int x, int y) {
+        long row = buffer.getLong(y * Long.BYTES);
+        long bit = 1L << (Long.SIZE - 1 - x);
+
+        buffer.putLong(y * Long.BYTES, row ^ bit);
+
+        if (display != null) {
+            display.flipPixel(x, y);
+        }
+
+        return (row & bit) != 0;
+    }
+
+    @Override
+    public void copyRows(long[] rows) {
+        for (int y = 0; y < height; y++) {
+            rows[y] = buffer.getLong(y * Long.BYTES);
+        }
+    }
+
+    @Override
+    public void restoreRows(long[] rows) {
+        for (int y = 0; y < height; y++) {
+            buffer.putLong(y * Long.BYTES, rows[y]);
+        }
+
+        if (display != null) {
+            display.restoreRows(rows);
+        }
+    }
+}
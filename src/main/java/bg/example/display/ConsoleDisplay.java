@@ -1,33 +1,135 @@
 package bg.example.display;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
 /**
- * Test class provided for debugging
+ * Renderer drawing frames in an ANSI terminal. Every character cell shows two rows of pixels
+ * with half block glyphs. Only the cells which changed since the previous frame are written,
+ * using cursor moves, and every frame is sent with a single write of a pre-allocated buffer
  */
-public class ConsoleDisplay extends BaseDisplay {
+public class ConsoleDisplay implements FrameRenderer {
+
+    private static final byte[] CLEAR_SCREEN = "\u001B[?25l\u001B[2J".getBytes(StandardCharsets.US_ASCII);
+
+    // Indexed by the top pixel in bit 1 and the bottom pixel in bit 0
+    private static final byte[][] GLYPHS = {
+        " ".getBytes(StandardCharsets.UTF_8),
+        "▄".getBytes(StandardCharsets.UTF_8),
+        "▀".getBytes(StandardCharsets.UTF_8),
+        "█".getBytes(StandardCharsets.UTF_8)
+    };
+
+    private static final int MAX_GLYPH_SIZE = 3;
+
+    // ESC [ row ; column H
+    private static final int MAX_CURSOR_MOVE_SIZE = 10;
 
-    private static final char ON_PIXEL = 'X';
-    private static final char OFF_PIXEL = ' ';
+    private final int width;
+    private final OutputStream out;
 
-    public ConsoleDisplay(boolean[][] pixels) {
-        super(pixels);
+    private byte[] buffer;
+    private long[] previous;
+
+    public ConsoleDisplay(int width) {
+        this(width, System.out);
     }
 
-    @Override
-    public void clear() {
-        super.clear();
+    public ConsoleDisplay(int width, OutputStream out) {
+        this.width = width;
+        this.out = out;
     }
 
     @Override
-    public void update() {
-        for (int y = 0; y < pixels.length; y++) {
-            for (int x = 0; x < pixels[0].length; x++) {
-                if (pixels[y][x]) {
-                    System.out.print(ON_PIXEL);
-                } else {
-                    System.out.print(OFF_PIXEL);
+    public void render(long[] rows, long frame) {
+        boolean firstFrame = previous == null;
+
+        if (firstFrame) {
+            int cells = width * cellRows(rows.length);
+
+            buffer = new byte[CLEAR_SCREEN.length + cells * (MAX_CURSOR_MOVE_SIZE + MAX_GLYPH_SIZE)];
+            previous = new long[rows.length];
+        }
+
+        int length = 0;
+
+        if (firstFrame) {
+            System.arraycopy(CLEAR_SCREEN, 0, buffer, 0, CLEAR_SCREEN.length);
+            length = CLEAR_SCREEN.length;
+        }
+
+        long visible = width == Long.SIZE ? -1L : -1L << (Long.SIZE - width);
+
+        for (int cellRow = 0; cellRow < cellRows(rows.length); cellRow++) {
+            int top = cellRow * 2;
+            int bottom = top + 1;
+
+            long topRow = rows[top];
+            long bottomRow = bottom < rows.length ? rows[bottom] : 0;
+
+            long changed = firstFrame
+                ? visible
+                : ((topRow ^ previous[top]) | (bottomRow ^ (bottom < rows.length ? previous[bottom] : 0))) & visible;
+
+            int cursor = -1;
+
+            while (changed != 0) {
+                int x = Long.numberOfLeadingZeros(changed);
+                long bit = 1L << (Long.SIZE - 1 - x);
+
+                changed &= ~bit;
+
+                if (x != cursor) {
+                    length = writeCursorMove(cellRow + 1, x + 1, length);
                 }
+
+                int glyph = ((topRow & bit) != 0 ? 2 : 0) | ((bottomRow & bit) != 0 ? 1 : 0);
+
+                System.arraycopy(GLYPHS[glyph], 0, buffer, length, GLYPHS[glyph].length);
+                length += GLYPHS[glyph].length;
+
+                cursor = x + 1;
             }
-            System.out.println();
         }
+
+        System.arraycopy(rows, 0, previous, 0, rows.length);
+
+        if (length == 0) {
+            return;
+        }
+
+        try {
+            out.write(buffer, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int writeCursorMove(int row, int column, int offset) {
+        buffer[offset++] = 0x1B;
+        buffer[offset++] = '[';
+        offset = writeNumber(row, offset);
+        buffer[offset++] = ';';
+        offset = writeNumber(column, offset);
+        buffer[offset++] = 'H';
+
+        return offset;
+    }
+
+    private int writeNumber(int value, int offset) {
+        if (value >= 10) {
+            offset = writeNumber(value / 10, offset);
+        }
+
+        buffer[offset] = (byte) ('0' + value % 10);
+
+        return offset + 1;
+    }
+
+    private static int cellRows(int pixelRows) {
+        return (pixelRows + 1) / 2;
     }
 }
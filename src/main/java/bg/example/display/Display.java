@@ -22,4 +22,18 @@ public interface Display {
      */
     boolean flipPixel(int x, int y);
 
+    /**
+     * Packs every row of the screen into a single word
+     *
+     * @param rows destination holding at least one word per row
+     */
+    void copyRows(long[] rows);
+
+    /**
+     * Replaces the screen with rows packed the same way as by {@link #copyRows(long[])}
+     *
+     * @param rows source holding at least one word per row
+     */
+    void restoreRows(long[] rows);
+
 }
@@ -0,0 +1,118 @@
+package bg.example.display;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Display the emulator draws into, which publishes the screen only at frame boundaries.
+ * Drawing and updates touch only the back buffer, and {@link #publish()} hands the finished
+ * frame to every consumer with one swap each. Renderers run on their own threads,
+ * so a slow renderer skips frames instead of slowing down the emulator
+ */
+public class DisplayPipeline extends BaseDisplay {
+
+    private record Consumer(FrameBuffer buffer, Thread thread) { }
+
+    private final List<Consumer> consumers;
+    private final long[] frame;
+
+    private volatile boolean dirty;
+    private long sequence;
+
+    public DisplayPipeline(boolean[][] pixels) {
+        super(pixels);
+        this.consumers = new CopyOnWriteArrayList<>();
+        this.frame = new long[pixels.length];
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        dirty = true;
+    }
+
+    /**
+     * Only marks the frame as changed, it is published at the end of the emulated frame
+     */
+    @Override
+    public void update() {
+        dirty = true;
+    }
+
+    /**
+     * Publishes the screen if it changed since the last call. Called by the emulation thread
+     * at the end of every emulated frame
+     */
+    public void publish() {
+        if (!dirty) {
+            return;
+        }
+
+        dirty = false;
+        sequence++;
+
+        copyRows(frame);
+
+        for (Consumer consumer : consumers) {
+            System.arraycopy(frame, 0, consumer.buffer().back(), 0, frame.length);
+            consumer.buffer().publish(sequence);
+
+            if (consumer.thread() != null) {
+                LockSupport.unpark(consumer.thread());
+            }
+        }
+    }
+
+    /**
+     * Adds a consumer which polls for frames itself, for example once per screen refresh.
+     * It receives the current screen with the next publication
+     */
+    public FrameBuffer subscribe() {
+        FrameBuffer buffer = new FrameBuffer(frame.length);
+
+        consumers.add(new Consumer(buffer, null));
+        dirty = true;
+
+        return buffer;
+    }
+
+    /**
+     * Runs the renderer on a new daemon thread for every newest frame
+     */
+    public void addRenderer(String name, FrameRenderer renderer) {
+        FrameBuffer buffer = new FrameBuffer(frame.length);
+
+        Thread thread = new Thread(
+            () -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (buffer.acquire()) {
+                        renderer.render(buffer.front(), buffer.frontSequence());
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+            },
+            name
+        );
+
+        thread.setDaemon(true);
+        consumers.add(new Consumer(buffer, thread));
+        dirty = true;
+
+        thread.start();
+    }
+
+    /**
+     * Stops the threads of all renderers
+     */
+    public void close() {
+        for (Consumer consumer : consumers) {
+            if (consumer.thread() != null) {
+                consumer.thread().interrupt();
+            }
+        }
+
+        consumers.clear();
+    }
+}
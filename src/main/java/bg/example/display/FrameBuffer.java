@@ -0,0 +1,75 @@
+package bg.example.display;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Triple buffer passing frames from one producer to one consumer without locks.
+ * The producer fills the back buffer and publishes it with a single swap, and the consumer
+ * swaps in the newest published frame, skipping any it did not take in time
+ */
+public class FrameBuffer {
+
+    private static final class Frame {
+
+        private final long[] rows;
+        private long sequence;
+
+        private Frame(int height) {
+            this.rows = new long[height];
+        }
+    }
+
+    private final AtomicReference<Frame> ready;
+
+    private Frame back;
+    private Frame front;
+
+    public FrameBuffer(int height) {
+        ready = new AtomicReference<>(new Frame(height));
+        back = new Frame(height);
+        front = new Frame(height);
+    }
+
+    /**
+     * @return rows the producer fills before publishing
+     */
+    public long[] back() {
+        return back.rows;
+    }
+
+    /**
+     * Makes the back buffer the newest frame
+     *
+     * @param sequence number of the frame, greater than that of every previous frame
+     */
+    public void publish(long sequence) {
+        back.sequence = sequence;
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Takes the newest published frame if the consumer has not seen it yet
+     *
+     * @return whether {@link #front()} now holds a new frame
+     */
+    public boolean acquire() {
+        if (ready.get().sequence <= front.sequence) {
+            return false;
+        }
+
+        front = ready.getAndSet(front);
+
+        return true;
+    }
+
+    /**
+     * @return rows of the last acquired frame, owned by the consumer until the next acquire
+     */
+    public long[] front() {
+        return front.rows;
+    }
+
+    public long frontSequence() {
+        return front.sequence;
+    }
+}
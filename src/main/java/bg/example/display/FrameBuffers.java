@@ -0,0 +1,160 @@
+package bg.example.display;
+
+import bg.example.hash.Hashing;
+
+import java.util.Arrays;
+
+/**
+ * Operations on screens packed one word per row, the leftmost pixel in the most significant bit,
+ * as produced by {@link Display#copyRows(long[])}. Every method takes an offset and a height,
+ * so a screen may be a slice of a slab holding many of them.
+ * <p>
+ * A word holds a whole row, so every operation is one instruction per row instead of one per pixel.
+ * Copies, fills and comparisons go through the array intrinsics of the JDK, which use vector
+ * instructions where the processor has them
+ */
+public final class FrameBuffers {
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final int HASH_LANES = 4;
+
+    private FrameBuffers() { }
+
+    public static void clear(long[] rows, int offset, int height) {
+        Arrays.fill(rows, offset, offset + height, 0);
+    }
+
+    /**
+     * @return whether both screens have the same pixels
+     */
+    public static boolean equals(long[] first, int firstOffset, long[] second, int secondOffset, int height) {
+        return Arrays.equals(first, firstOffset, firstOffset + height, second, secondOffset, secondOffset + height);
+    }
+
+    /**
+     * Writes the pixels which differ between two screens
+     *
+     * @param difference receives the exclusive or of the screens, may be one of them
+     * @return number of differing pixels
+     */
+    public static int xor(
+        long[] first,
+        int firstOffset,
+        long[] second,
+        int secondOffset,
+        long[] difference,
+        int differenceOffset,
+        int height
+    ) {
+        int count = 0;
+
+        for (int y = 0; y < height; y++) {
+            long row = first[firstOffset + y] ^ second[secondOffset + y];
+
+            difference[differenceOffset + y] = row;
+            count += Long.bitCount(row);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return number of pixels which differ between two screens, without writing the difference
+     */
+    public static int countDifferences(long[] first, int firstOffset, long[] second, int secondOffset, int height) {
+        int count = 0;
+
+        for (int y = 0; y < height; y++) {
+            count += Long.bitCount(first[firstOffset + y] ^ second[secondOffset + y]);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return number of pixels which are on
+     */
+    public static int countPixels(long[] rows, int offset, int height) {
+        int count = 0;
+
+        for (int y = 0; y < height; y++) {
+            count += Long.bitCount(rows[offset + y]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Moves the screen down, clearing the lines at the top
+     */
+    public static void scrollDown(long[] rows, int offset, int height, int lines) {
+        int moved = Math.max(height - lines, 0);
+
+        System.arraycopy(rows, offset, rows, offset + height - moved, moved);
+        clear(rows, offset, height - moved);
+    }
+
+    /**
+     * Moves the screen up, clearing the lines at the bottom
+     */
+    public static void scrollUp(long[] rows, int offset, int height, int lines) {
+        int moved = Math.max(height - lines, 0);
+
+        System.arraycopy(rows, offset + height - moved, rows, offset, moved);
+        clear(rows, offset + moved, height - moved);
+    }
+
+    /**
+     * Moves the screen right, pixels leaving a screen of the given width are dropped
+     */
+    public static void scrollRight(long[] rows, int offset, int height, int pixels, int width) {
+        long visible = width == Long.SIZE ? -1L : -1L << (Long.SIZE - width);
+
+        for (int y = offset; y < offset + height; y++) {
+            rows[y] = pixels >= Long.SIZE ? 0 : (rows[y] >>> pixels) & visible;
+        }
+    }
+
+    /**
+     * Moves the screen left, clearing the columns at the right edge
+     */
+    public static void scrollLeft(long[] rows, int offset, int height, int pixels) {
+        for (int y = offset; y < offset + height; y++) {
+            rows[y] = pixels >= Long.SIZE ? 0 : rows[y] << pixels;
+        }
+    }
+
+    /**
+     * Hashes the rows in four independent chains, combined at the end, so that the
+     * multiplications of neighbouring rows overlap instead of waiting for each other.
+     * Not the same value as {@link Hashing#hash(long[])}
+     */
+    public static long hash(long[] rows, int offset, int height) {
+        long first = SEED;
+        long second = SEED + 1;
+        long third = SEED + 2;
+        long fourth = SEED + 3;
+
+        int y = offset;
+        int end = offset + height;
+
+        for (; y + HASH_LANES <= end; y += HASH_LANES) {
+            first = Hashing.combine(first, rows[y]);
+            second = Hashing.combine(second, rows[y + 1]);
+            third = Hashing.combine(third, rows[y + 2]);
+            fourth = Hashing.combine(fourth, rows[y + 3]);
+        }
+
+        for (; y < end; y++) {
+            first = Hashing.combine(first, rows[y]);
+        }
+
+        long hash = first ^ Long.rotateLeft(second, 16) ^ Long.rotateLeft(third, 32) ^ Long.rotateLeft(fourth, 48);
+
+        return Hashing.combine(hash, height);
+    }
+
+    public static long hash(long[] rows) {
+        return hash(rows, 0, rows.length);
+    }
+}
@@ -0,0 +1,15 @@
+package bg.example.display;
+
+/**
+ * Consumer of published frames, called on its own thread
+ */
+@FunctionalInterface
+public interface FrameRenderer {
+
+    /**
+     * @param rows the frame packed one word per row, valid only during the call
+     * @param frame number of the frame, increasing with every published frame
+     */
+    void render(long[] rows, long frame);
+
+}
@@ -0,0 +1,81 @@
+package bg.example.display;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Renders the screens of many instances as tiles of a single image.
+ * Tiles are composited by a {@link TileGrid} once per JavaFX pulse and only if their frame
+ * has changed, then only the changed rows of the image are written
+ */
+public class GridDisplay {
+
+    private final TileGrid grid;
+
+    private final WritableImage image;
+    private final PixelWriter writer;
+    private final ImageView view;
+
+    private final AnimationTimer timer;
+
+    public GridDisplay(int columns, int rows, int screenWidth, int screenHeight, int pixelSize) {
+        grid = new TileGrid(columns, rows, screenWidth, screenHeight, pixelSize);
+
+        image = new WritableImage(grid.getWidth(), grid.getHeight());
+        writer = image.getPixelWriter();
+        view = new ImageView(image);
+
+        writeRows(0, grid.getHeight());
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (grid.composite()) {
+                    writeRows(grid.getChangedTop(), grid.getChangedBottom());
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates the display for the next free tile
+     *
+     * @return display to be passed to a single instance
+     */
+    public TileDisplay createTile() {
+        return grid.createTile();
+    }
+
+    /**
+     * @return the single node holding all tiles
+     */
+    public ImageView getView() {
+        return view;
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    private void writeRows(int top, int bottom) {
+        int width = grid.getWidth();
+
+        writer.setPixels(
+            0,
+            top,
+            width,
+            bottom - top,
+            PixelFormat.getIntArgbPreInstance(),
+            grid.getPixels(),
+            top * width,
+            width
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package bg.example.display;
+
+/**
+ * Display keeping the screen only in memory
+ */
+public class HeadlessDisplay extends BaseDisplay {
+
+    public HeadlessDisplay(boolean[][] pixels) {
+        super(pixels);
+    }
+
+    @Override
+    public void update() { }
+}
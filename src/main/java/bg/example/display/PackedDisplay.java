@@ -0,0 +1,56 @@
+package bg.example.display;
+
+/**
+ * Display keeping every row packed into a single word, the leftmost pixel in the most
+ * significant bit. Copying the screen out is a plain array copy instead of packing pixels
+ */
+public class PackedDisplay implements Display {
+
+    private final long[] rows;
+
+    /**
+     * @param width width of the screen, at most 64 pixels
+     */
+    public PackedDisplay(int width, int height) {
+        if (width > Long.SIZE) {
+            throw new IllegalArgumentException("Rows wider than " + Long.SIZE + " pixels are not supported");
+        }
+
+        rows = new long[height];
+    }
+
+    @Override
+    public void clear() {
+        FrameBuffers.clear(rows, 0, rows.length);
+    }
+
+    @Override
+    public void update() { }
+
+    @Override
+    public boolean flipPixel(int x, int y) {
+        long bit = 1L << (Long.SIZE - 1 - x);
+        boolean wasPixelOn = (rows[y] & bit) != 0;
+
+        rows[y] ^= bit;
+
+        return wasPixelOn;
+    }
+
+    @Override
+    public void copyRows(long[] rows) {
+        copyRows(rows, 0);
+    }
+
+    /**
+     * @param offset index of the word receiving the first row
+     */
+    public void copyRows(long[] destination, int offset) {
+        System.arraycopy(rows, 0, destination, offset, rows.length);
+    }
+
+    @Override
+    public void restoreRows(long[] rows) {
+        System.arraycopy(rows, 0, this.rows, 0, this.rows.length);
+    }
+}
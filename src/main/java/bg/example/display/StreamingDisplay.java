@@ -0,0 +1,39 @@
+package bg.example.display;
+
+import bg.example.stream.FrameStreamServer;
+
+import java.util.Arrays;
+
+/**
+ * Renderer sending every changed frame of a {@link DisplayPipeline} to the viewers of
+ * a {@link FrameStreamServer}. Frames equal to the previous one are not sent, so an idle
+ * instance uses no bandwidth
+ */
+public class StreamingDisplay implements FrameRenderer {
+
+    private final FrameStreamServer server;
+
+    private final long[] previous;
+
+    private int sequence;
+
+    /**
+     * @param height height of the screen in pixels
+     */
+    public StreamingDisplay(FrameStreamServer server, int height) {
+        this.server = server;
+        this.previous = new long[height];
+    }
+
+    @Override
+    public void render(long[] rows, long frame) {
+        if (Arrays.equals(previous, rows)) {
+            return;
+        }
+
+        sequence++;
+        server.publish(sequence, previous, rows);
+
+        System.arraycopy(rows, 0, previous, 0, previous.length);
+    }
+}
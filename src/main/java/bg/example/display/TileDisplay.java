@@ -0,0 +1,53 @@
+package bg.example.display;
+
+/**
+ * Display of a single instance shown as one tile of a {@link TileGrid}
+ */
+public class TileDisplay extends BaseDisplay {
+
+    private final long[] frame;
+    private volatile boolean dirty;
+
+    public TileDisplay(boolean[][] pixels) {
+        super(pixels);
+        this.frame = new long[pixels.length];
+    }
+
+    /**
+     * Clearing is not followed by an update, so the cleared frame is published right away
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        update();
+    }
+
+    @Override
+    public void update() {
+        synchronized (frame) {
+            copyRows(frame);
+        }
+
+        dirty = true;
+    }
+
+    /**
+     * Copies the last updated frame if it has changed since the previous call
+     *
+     * @param rows destination holding one word per row
+     * @return whether there was a new frame to copy
+     */
+    boolean takeFrame(long[] rows) {
+        if (!dirty) {
+            return false;
+        }
+
+        dirty = false;
+
+        synchronized (frame) {
+            System.arraycopy(frame, 0, rows, 0, frame.length);
+        }
+
+        return true;
+    }
+}
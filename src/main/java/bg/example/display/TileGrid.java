@@ -0,0 +1,143 @@
+package bg.example.display;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Screens of many instances composited as tiles into one buffer of ARGB pixels.
+ * Only tiles with a new frame are composited, and within them only the rows which changed,
+ * so the buffer region to present is usually a few rows
+ */
+public class TileGrid {
+
+    public static final int ON_COLOR = 0xFF000000;
+    public static final int OFF_COLOR = 0xFFFFFFFF;
+
+    private final int columns;
+    private final int rows;
+    private final int screenWidth;
+    private final int screenHeight;
+    private final int pixelSize;
+
+    private final int width;
+    private final int[] pixels;
+
+    private final List<TileDisplay> tiles;
+    private final List<long[]> drawnFrames;
+    private final long[] nextFrame;
+
+    private int changedTop;
+    private int changedBottom;
+
+    public TileGrid(int columns, int rows, int screenWidth, int screenHeight, int pixelSize) {
+        this.columns = columns;
+        this.rows = rows;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.pixelSize = pixelSize;
+
+        width = columns * screenWidth * pixelSize;
+        pixels = new int[width * rows * screenHeight * pixelSize];
+        Arrays.fill(pixels, OFF_COLOR);
+
+        tiles = new ArrayList<>();
+        drawnFrames = new ArrayList<>();
+        nextFrame = new long[screenHeight];
+    }
+
+    /**
+     * Creates the display for the next free tile
+     *
+     * @return display to be passed to a single instance
+     */
+    public synchronized TileDisplay createTile() {
+        if (tiles.size() == columns * rows) {
+            throw new IllegalStateException("All " + tiles.size() + " tiles are taken");
+        }
+
+        TileDisplay tile = new TileDisplay(new boolean[screenHeight][screenWidth]);
+
+        tiles.add(tile);
+        drawnFrames.add(new long[screenHeight]);
+
+        return tile;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return pixels.length / width;
+    }
+
+    /**
+     * @return pixels of the whole grid, row after row
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Draws the tiles which have a new frame
+     *
+     * @return whether any pixel changed, between {@link #getChangedTop()} and {@link #getChangedBottom()}
+     */
+    public synchronized boolean composite() {
+        changedTop = Integer.MAX_VALUE;
+        changedBottom = 0;
+
+        for (int i = 0; i < tiles.size(); i++) {
+            if (tiles.get(i).takeFrame(nextFrame)) {
+                drawTile(i, drawnFrames.get(i));
+            }
+        }
+
+        return changedBottom > 0;
+    }
+
+    /**
+     * @return first row of pixels changed by the last {@link #composite()}
+     */
+    public int getChangedTop() {
+        return changedTop;
+    }
+
+    /**
+     * @return row of pixels after the last one changed by the last {@link #composite()}
+     */
+    public int getChangedBottom() {
+        return changedBottom;
+    }
+
+    private void drawTile(int index, long[] drawn) {
+        int tileX = (index % columns) * screenWidth * pixelSize;
+        int tileY = (index / columns) * screenHeight * pixelSize;
+
+        for (int y = 0; y < screenHeight; y++) {
+            long row = nextFrame[y];
+
+            if (row == drawn[y]) {
+                continue;
+            }
+
+            drawn[y] = row;
+
+            int top = tileY + y * pixelSize;
+            int start = top * width + tileX;
+
+            for (int x = 0; x < screenWidth; x++) {
+                boolean isOn = (row & (1L << (Long.SIZE - 1 - x))) != 0;
+                Arrays.fill(pixels, start + x * pixelSize, start + (x + 1) * pixelSize, isOn ? ON_COLOR : OFF_COLOR);
+            }
+
+            for (int i = 1; i < pixelSize; i++) {
+                System.arraycopy(pixels, start, pixels, start + i * width, screenWidth * pixelSize);
+            }
+
+            changedTop = Math.min(changedTop, top);
+            changedBottom = Math.max(changedBottom, top + pixelSize);
+        }
+    }
+}
@@ -2,17 +2,22 @@ package bg.example.display;
 
 import bg.example.keyboard.Keyboard;
 
-import javafx.application.Platform;
+import javafx.animation.AnimationTimer;
 import javafx.scene.Group;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 
-public class WindowDisplay extends BaseDisplay {
+/**
+ * Window showing the frames published by a {@link DisplayPipeline}. The newest frame is taken
+ * once per screen refresh, so frames produced faster than that are dropped
+ */
+public class WindowDisplay {
 
-    private static final int PIXEL_HEIGHT = 10;
-    private static final int PIXEL_WIDTH = 10;
+    public static final int PIXEL_HEIGHT = 10;
+    public static final int PIXEL_WIDTH = 10;
 
     private static final int BORDER_SPACE_PIXEL_SIZE = 4;
 
@@ -23,26 +28,33 @@ public class WindowDisplay extends BaseDisplay {
     private final Stage stage;
     private final Keyboard keyboard;
 
-    public WindowDisplay(boolean[][] pixels, Stage stage, Keyboard keyboard, String title) {
-        super(pixels);
+    private final FrameBuffer frames;
+    private final int width;
+
+    /**
+     * Must be created on the JavaFX application thread
+     *
+     * @param frames frames to show, see {@link DisplayPipeline#subscribe()}
+     * @param width width of the screen in pixels
+     * @param height height of the screen in pixels
+     */
+    public WindowDisplay(FrameBuffer frames, int width, int height, Stage stage, Keyboard keyboard, String title) {
+        this.frames = frames;
+        this.width = width;
         this.stage = stage;
         this.keyboard = keyboard;
         this.title = title;
 
-        windowHeight = (pixels.length  + BORDER_SPACE_PIXEL_SIZE) * PIXEL_HEIGHT;
-        windowWidth = (pixels[0].length + BORDER_SPACE_PIXEL_SIZE) * PIXEL_WIDTH;
+        windowHeight = (height + BORDER_SPACE_PIXEL_SIZE) * PIXEL_HEIGHT;
+        windowWidth = (width + BORDER_SPACE_PIXEL_SIZE) * PIXEL_WIDTH;
 
         stage.setHeight(windowHeight);
         stage.setWidth(windowWidth);
         stage.setTitle(title);
         stage.resizableProperty().setValue(Boolean.FALSE);
-    }
-
-    @Override
-    public void update() {
 
-        Group group = new Group();
-        Scene scene = new Scene(group);
+        Canvas canvas = new Canvas(width * PIXEL_WIDTH, height * PIXEL_HEIGHT);
+        Scene scene = new Scene(new Group(canvas));
 
         scene.setOnKeyPressed(
             ke -> keyboard.press(ke.getCode())
@@ -52,27 +64,35 @@ public class WindowDisplay extends BaseDisplay {
             ke -> keyboard.release(ke.getCode())
         );
 
-        for (int y = 0; y < pixels.length; y++) {
-            for (int x = 0; x < pixels[0].length; x++) {
-                if (pixels[y][x]) {
-                    Rectangle rectangle = new Rectangle();
-                    rectangle.setWidth(PIXEL_WIDTH);
-                    rectangle.setHeight(PIXEL_HEIGHT);
+        stage.setScene(scene);
 
-                    rectangle.setX(x * PIXEL_WIDTH);
-                    rectangle.setY(y * PIXEL_HEIGHT);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
 
-                    rectangle.setFill(Color.BLACK);
-                    group.getChildren().add(rectangle);
-                }
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                present(graphics);
             }
+        }.start();
+    }
+
+    private void present(GraphicsContext graphics) {
+        if (!frames.acquire()) {
+            return;
         }
 
-        Platform.runLater(
-            () -> {
-                stage.setScene(scene);
-                stage.show();
+        long[] rows = frames.front();
+
+        graphics.setFill(Color.WHITE);
+        graphics.fillRect(0, 0, graphics.getCanvas().getWidth(), graphics.getCanvas().getHeight());
+        graphics.setFill(Color.BLACK);
+
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((rows[y] & 1L << (Long.SIZE - 1 - x)) != 0) {
+                    graphics.fillRect(x * PIXEL_WIDTH, y * PIXEL_HEIGHT, PIXEL_WIDTH, PIXEL_HEIGHT);
+                }
             }
-        );
+        }
     }
 }
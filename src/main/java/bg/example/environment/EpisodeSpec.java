@@ -0,0 +1,29 @@
+package bg.example.environment;
+
+/**
+ * Where a program keeps its score and how an episode ends
+ *
+ * @param scoreAddresses memory cells holding the score, most significant byte first.
+ *                       The reward of a step is the change of the score
+ * @param doneAddress memory cell which ends the episode when it holds the done value,
+ *                    {@link #NO_ADDRESS} to end episodes only by crashes and the frame limit
+ * @param maxEpisodeFrames frames after which an episode is truncated
+ */
+public record EpisodeSpec(int[] scoreAddresses, int doneAddress, int doneValue, long maxEpisodeFrames) {
+
+    public static final int NO_ADDRESS = -1;
+
+    public long readScore(int[] memory) {
+        long score = 0;
+
+        for (int address : scoreAddresses) {
+            score = score << Byte.SIZE | memory[address];
+        }
+
+        return score;
+    }
+
+    public boolean isDone(int[] memory) {
+        return doneAddress != NO_ADDRESS && memory[doneAddress] == doneValue;
+    }
+}
@@ -0,0 +1,199 @@
+package bg.example.environment;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.QuirkProfile;
+import bg.example.chip.Quirks;
+import bg.example.display.PackedDisplay;
+import bg.example.hash.Hashing;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+import bg.example.keyboard.Keyboard;
+
+/**
+ * Batch of headless instances of one program stepped together a frame at a time, as a training
+ * environment. Every step takes one key mask per instance and fills arrays allocated up front:
+ * the screens packed one word per row, one after the other, the rewards and the end flags.
+ * An instance whose episode ended is restored to its start state within the same step, so its
+ * observation is already the first one of the next episode. Every episode draws its own random
+ * numbers, seeded from the seed of the instance and the number of its episode, so a run is
+ * still reproducible.
+ * <p>
+ * Instances are stepped on the calling thread, more cores are used by running one environment per thread
+ */
+public class VectorEnvironment {
+
+    /**
+     * Words of every observation, one per row of the screen
+     */
+    public static final int OBSERVATION_WORDS = Chip8.DISPLAY_HEIGHT;
+
+    private final EpisodeSpec spec;
+    private final long seed;
+
+    private final HeadlessChip8[] machines;
+    private final PackedDisplay[] displays;
+    private final HeadlessState[] startStates;
+    private final long[] startScores;
+    private final long[] instanceEpisodes;
+
+    private final long[] observations;
+    private final float[] rewards;
+    private final boolean[] terminated;
+    private final boolean[] truncated;
+    private final long[] scores;
+
+    private long frames;
+    private long episodes;
+
+    public VectorEnvironment(byte[] rom, int count, long seed, EpisodeSpec spec) {
+        this(rom, count, seed, Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME, QuirkProfile.MODERN.quirks(), spec);
+    }
+
+    /**
+     * @param seed seed of the first instance, every further instance uses the next one
+     */
+    public VectorEnvironment(byte[] rom, int count, long seed, int instructionsPerFrame, Quirks quirks, EpisodeSpec spec) {
+        this.spec = spec;
+        this.seed = seed;
+
+        machines = new HeadlessChip8[count];
+        displays = new PackedDisplay[count];
+        startStates = new HeadlessState[count];
+        startScores = new long[count];
+        instanceEpisodes = new long[count];
+
+        observations = new long[count * OBSERVATION_WORDS];
+        rewards = new float[count];
+        terminated = new boolean[count];
+        truncated = new boolean[count];
+        scores = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            displays[i] = new PackedDisplay(Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT);
+            machines[i] = new HeadlessChip8(rom, seed + i, instructionsPerFrame, quirks, displays[i], new Keyboard());
+
+            startStates[i] = new HeadlessState();
+            machines[i].save(startStates[i]);
+            startScores[i] = spec.readScore(machines[i].getMemory());
+        }
+
+        reset();
+    }
+
+    public int getCount() {
+        return machines.length;
+    }
+
+    /**
+     * Restores every instance to its start state
+     */
+    public void reset() {
+        for (int i = 0; i < machines.length; i++) {
+            restart(i);
+            terminated[i] = false;
+            truncated[i] = false;
+            rewards[i] = 0;
+        }
+    }
+
+    /**
+     * Holds the keys of every instance for one frame
+     *
+     * @param actions key mask of every instance, bit N for key N
+     */
+    public void step(int[] actions) {
+        if (actions.length != machines.length) {
+            throw new IllegalArgumentException("Expected " + machines.length + " actions, got " + actions.length);
+        }
+
+        for (int i = 0; i < machines.length; i++) {
+            step(i, actions[i]);
+        }
+
+        frames += machines.length;
+    }
+
+    /**
+     * @return screens after the last step, {@link #OBSERVATION_WORDS} words per instance.
+     *         The same array is filled by every step
+     */
+    public long[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return change of the score of every instance in the last step
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * @return whether the episode of an instance ended in the last step by its done value or a crash
+     */
+    public boolean[] getTerminated() {
+        return terminated;
+    }
+
+    /**
+     * @return whether the episode of an instance was cut off in the last step by the frame limit
+     */
+    public boolean[] getTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return frames run by all instances together
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return episodes which ended, by any reason
+     */
+    public long getEpisodes() {
+        return episodes;
+    }
+
+    public HeadlessChip8 getMachine(int index) {
+        return machines[index];
+    }
+
+    private void step(int index, int keys) {
+        HeadlessChip8 machine = machines[index];
+        boolean crashed = false;
+
+        machine.applyKeys(keys);
+
+        try {
+            machine.runFrame();
+        } catch (RuntimeException e) {
+            crashed = true;
+        }
+
+        int[] memory = machine.getMemory();
+        long score = spec.readScore(memory);
+
+        rewards[index] = score - scores[index];
+        scores[index] = score;
+
+        terminated[index] = crashed || spec.isDone(memory);
+        truncated[index] = !terminated[index] && machine.getFrame() >= spec.maxEpisodeFrames();
+
+        if (terminated[index] || truncated[index]) {
+            episodes++;
+            restart(index);
+        } else {
+            displays[index].copyRows(observations, index * OBSERVATION_WORDS);
+        }
+    }
+
+    private void restart(int index) {
+        machines[index].restore(startStates[index]);
+        machines[index].reseed(Hashing.combine(seed + index, instanceEpisodes[index]++));
+        scores[index] = startScores[index];
+
+        displays[index].copyRows(observations, index * OBSERVATION_WORDS);
+    }
+}
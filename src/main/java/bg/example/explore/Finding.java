@@ -0,0 +1,30 @@
+package bg.example.explore;
+
+import java.util.Arrays;
+
+/**
+ * State of interest reached by the explorer
+ *
+ * @param inputs key mask held for every step from the start state, replayable with
+ *               {@link bg.example.headless.HeadlessChip8#applyKeys(int)}
+ * @param cause exception thrown by the instruction which crashed, null for a goal
+ */
+public record Finding(Kind kind, int[] inputs, RuntimeException cause) {
+
+    public enum Kind {
+        /**
+         * An instruction threw, for example an unknown instruction or a stack fault
+         */
+        CRASH,
+
+        /**
+         * The goal predicate matched, for example a game over screen
+         */
+        GOAL
+    }
+
+    @Override
+    public String toString() {
+        return kind + " after inputs " + Arrays.toString(inputs) + (cause == null ? "" : ": " + cause);
+    }
+}
@@ -0,0 +1,239 @@
+package bg.example.explore;
+
+import bg.example.chip.Chip8;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Explores the states a program can reach by branching on the keys at frame boundaries.
+ * Every state is forked once with no key held and once per key, each branch runs for a step of
+ * frames and continues only if its state was not visited before. The states are explored level
+ * by level, all states of one depth in parallel on a fork-join pool before the next depth, so
+ * a state is always first reached by one of its shortest paths and de-duplicating it by its hash
+ * in an off-heap {@link VisitedSet} never cuts off states within the maximum depth.
+ * <p>
+ * A fork is a {@link HeadlessChip8#restore(HeadlessState)} of the parent into a machine owned by
+ * the worker thread. Only branches reaching a new state allocate a state of their own
+ */
+public class StateExplorer {
+
+    public static final int DEFAULT_FRAMES_PER_STEP = 1;
+
+    /**
+     * No key and then every key on its own
+     */
+    public static final int BRANCHES = Chip8.LEGAL_KEYS.size() + 1;
+
+    private final Supplier<HeadlessChip8> machineFactory;
+    private final int framesPerStep;
+    private final int maxDepth;
+    private final long maxStates;
+
+    /**
+     * @param visited number of distinct states
+     * @param forks number of branches run
+     * @param duplicates branches which reached an already visited state
+     * @param complete whether every state up to the maximum depth was explored
+     */
+    public record Report(long visited, long forks, long duplicates, boolean complete, long nanos, List<Finding> findings) {
+
+        public double forksPerSecond() {
+            return forks * 1e9 / Math.max(nanos, 1);
+        }
+    }
+
+    private static final class Worker {
+
+        private final HeadlessChip8 machine;
+        private HeadlessState scratch;
+
+        private Worker(HeadlessChip8 machine) {
+            this.machine = machine;
+            scratch = new HeadlessState();
+        }
+    }
+
+    private final class Exploration {
+
+        private final Predicate<HeadlessState> goal;
+        private final VisitedSet visited;
+        private final ThreadLocal<Worker> workers;
+
+        private final LongAdder forks;
+        private final LongAdder duplicates;
+        private final Queue<Finding> findings;
+
+        private volatile boolean truncated;
+
+        private Exploration(Predicate<HeadlessState> goal) {
+            this.goal = goal;
+
+            visited = new VisitedSet(maxStates);
+            workers = ThreadLocal.withInitial(() -> new Worker(machineFactory.get()));
+
+            forks = new LongAdder();
+            duplicates = new LongAdder();
+            findings = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public StateExplorer(Supplier<HeadlessChip8> machineFactory, int maxDepth, long maxStates) {
+        this(machineFactory, DEFAULT_FRAMES_PER_STEP, maxDepth, maxStates);
+    }
+
+    /**
+     * @param machineFactory creates the machine of every worker thread, all must use the same
+     *                       instructions per frame and quirks as the explored one
+     * @param framesPerStep frames for which a key is held before branching again
+     * @param maxDepth number of steps after which a branch ends
+     * @param maxStates number of distinct states after which no more are explored
+     */
+    public StateExplorer(Supplier<HeadlessChip8> machineFactory, int framesPerStep, int maxDepth, long maxStates) {
+        this.machineFactory = machineFactory;
+        this.framesPerStep = framesPerStep;
+        this.maxDepth = maxDepth;
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Explores from a saved state until every branch reached the maximum depth, a visited state,
+     * a crash or the goal. Every depth is finished before the next one starts
+     *
+     * @param goal tested on every new state, matching states are reported and not explored further
+     */
+    public Report explore(HeadlessState start, Predicate<HeadlessState> goal, ForkJoinPool pool) {
+        Exploration exploration = new Exploration(goal);
+        long begin = System.nanoTime();
+
+        exploration.visited.add(start.hash());
+
+        List<Node> level = List.of(new Node(start, new int[0]));
+
+        for (int depth = 0; depth < maxDepth && !level.isEmpty(); depth++) {
+            Queue<Node> next = new ConcurrentLinkedQueue<>();
+
+            pool.invoke(new Expansion(exploration, level, 0, level.size(), next));
+            level = new ArrayList<>(next);
+        }
+
+        return new Report(
+            exploration.visited.size(),
+            exploration.forks.sum(),
+            exploration.duplicates.sum(),
+            !exploration.truncated,
+            System.nanoTime() - begin,
+            List.copyOf(exploration.findings)
+        );
+    }
+
+    /**
+     * State reached by the inputs, one key mask per step
+     */
+    private record Node(HeadlessState state, int[] inputs) { }
+
+    /**
+     * Forks every branch of a range of the states of one depth, adding the new states to the next depth
+     */
+    private final class Expansion extends RecursiveAction {
+
+        private final Exploration exploration;
+        private final List<Node> level;
+        private final int from;
+        private final int to;
+        private final Queue<Node> next;
+
+        private Expansion(Exploration exploration, List<Node> level, int from, int to, Queue<Node> next) {
+            this.exploration = exploration;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+
+                invokeAll(
+                    new Expansion(exploration, level, from, middle, next),
+                    new Expansion(exploration, level, middle, to, next)
+                );
+                return;
+            }
+
+            Node node = level.get(from);
+            Worker worker = exploration.workers.get();
+
+            for (int branch = 0; branch < BRANCHES; branch++) {
+                int keys = branch == 0 ? 0 : 1 << branch - 1;
+                HeadlessState child = fork(worker, node, keys);
+
+                if (child != null) {
+                    int[] childInputs = Arrays.copyOf(node.inputs(), node.inputs().length + 1);
+                    childInputs[node.inputs().length] = keys;
+
+                    if (exploration.goal.test(child)) {
+                        exploration.findings.add(new Finding(Finding.Kind.GOAL, childInputs, null));
+                    } else {
+                        next.add(new Node(child, childInputs));
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the state reached with the keys held, null if it crashed or was visited before
+         */
+        private HeadlessState fork(Worker worker, Node node, int keys) {
+            HeadlessChip8 machine = worker.machine;
+            int[] inputs = node.inputs();
+
+            exploration.forks.increment();
+
+            machine.restore(node.state());
+            machine.applyKeys(keys);
+
+            try {
+                for (int frame = 0; frame < framesPerStep; frame++) {
+                    machine.runFrame();
+                }
+            } catch (RuntimeException e) {
+                int[] crashInputs = Arrays.copyOf(inputs, inputs.length + 1);
+                crashInputs[inputs.length] = keys;
+
+                exploration.findings.add(new Finding(Finding.Kind.CRASH, crashInputs, e));
+                return null;
+            }
+
+            HeadlessState reached = worker.scratch;
+            machine.save(reached);
+
+            if (exploration.visited.size() >= maxStates) {
+                exploration.truncated = true;
+                return null;
+            }
+
+            if (!exploration.visited.add(reached.hash())) {
+                exploration.duplicates.increment();
+                return null;
+            }
+
+            // The scratch state now belongs to the child
+            worker.scratch = new HeadlessState();
+
+            return reached;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package bg.example.explore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Set of 64-bit state hashes in a direct buffer outside of the heap, eight bytes per slot.
+ * Open addressing with linear probing, slots are claimed with compare-and-set so that
+ * any number of threads can add without locks. Zero marks an empty slot and is stored as one
+ */
+public class VisitedSet {
+
+    /**
+     * Largest number of slots a single direct buffer can hold
+     */
+    public static final int MAX_CAPACITY = 1 << 27;
+
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer slots;
+    private final int mask;
+    private final long limit;
+    private final AtomicLong size;
+
+    /**
+     * @param expectedStates number of states the set must hold, the table is sized for a load of at most a half
+     */
+    public VisitedSet(long expectedStates) {
+        if (expectedStates < 1 || expectedStates > MAX_CAPACITY / 2) {
+            throw new IllegalArgumentException("Expected states must be between 1 and " + MAX_CAPACITY / 2);
+        }
+
+        int capacity = Integer.highestOneBit((int) expectedStates * 2 - 1) << 1;
+
+        // The view handle only allows compare-and-set on aligned slots
+        slots = ByteBuffer.allocateDirect(capacity * Long.BYTES + Long.BYTES)
+                          .alignedSlice(Long.BYTES)
+                          .order(ByteOrder.nativeOrder());
+        mask = capacity - 1;
+        limit = capacity - capacity / 4;
+        size = new AtomicLong();
+    }
+
+    /**
+     * @return false if the hash was already present
+     * @throws IllegalStateException if the set is three quarters full
+     */
+    public boolean add(long hash) {
+        long key = hash == 0 ? 1 : hash;
+        int slot = (int) (key ^ key >>> 32) & mask;
+
+        while (true) {
+            long current = (long) SLOTS.getVolatile(slots, slot * Long.BYTES);
+
+            if (current == key) {
+                return false;
+            }
+
+            if (current == 0) {
+                if (size.get() >= limit) {
+                    throw new IllegalStateException("Visited set is full with " + size.get() + " states");
+                }
+
+                if (SLOTS.compareAndSet(slots, slot * Long.BYTES, 0L, key)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+
+                // Another thread took the slot, it may have stored the same hash
+                continue;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public boolean contains(long hash) {
+        long key = hash == 0 ? 1 : hash;
+        int slot = (int) (key ^ key >>> 32) & mask;
+
+        while (true) {
+            long current = (long) SLOTS.getVolatile(slots, slot * Long.BYTES);
+
+            if (current == key) {
+                return true;
+            }
+
+            if (current == 0) {
+                return false;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
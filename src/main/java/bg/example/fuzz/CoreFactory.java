@@ -0,0 +1,16 @@
+package bg.example.fuzz;
+
+import bg.example.chip.ExecutionCore;
+
+@FunctionalInterface
+public interface CoreFactory {
+
+    /**
+     * Creates a core with the program loaded at the first instruction offset
+     *
+     * @param program instructions to load
+     * @param seed seed for the random number instruction
+     */
+    ExecutionCore create(byte[] program, long seed);
+
+}
@@ -0,0 +1,300 @@
+package bg.example.fuzz;
+
+import bg.example.chip.Chip8State;
+import bg.example.chip.ExecutionCore;
+import bg.example.supervisor.FaultKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs random programs on two cores in lock-step and compares their state.
+ * A run ends after a fixed number of steps, when both cores fault the same way, judged by the
+ * {@link FaultKind} of their exceptions, or when the next instruction waits for a key
+ */
+public class DifferentialFuzzer {
+
+    public static final int DEFAULT_STEPS_PER_PROGRAM = 1_000;
+    public static final int DEFAULT_PROGRAM_LENGTH = 64;
+    public static final int DEFAULT_FULL_COMPARE_INTERVAL = 16;
+
+    // 8000 copies V0 into itself
+    private static final int NO_OPERATION = 0x8000;
+
+    private final CoreFactory firstCore;
+    private final CoreFactory secondCore;
+    private final int stepsPerProgram;
+    private final int programLength;
+    private final int fullCompareInterval;
+
+    private final ProgramGenerator generator;
+
+    public record Report(long programs, long instructions, long nanos, List<Divergence> divergences) {
+
+        public double instructionsPerSecond() {
+            return instructions * 1e9 / Math.max(nanos, 1);
+        }
+    }
+
+    private record Run(long steps, Divergence divergence) { }
+
+    public DifferentialFuzzer(CoreFactory firstCore, CoreFactory secondCore) {
+        this(
+            firstCore,
+            secondCore,
+            DEFAULT_STEPS_PER_PROGRAM,
+            DEFAULT_PROGRAM_LENGTH,
+            DEFAULT_FULL_COMPARE_INTERVAL
+        );
+    }
+
+    /**
+     * @param stepsPerProgram maximum number of instructions to run per program
+     * @param programLength number of instructions in generated programs
+     * @param fullCompareInterval memory and the screen are compared only every this many steps,
+     *                            registers, timers and the stack are compared after every step
+     */
+    public DifferentialFuzzer(
+        CoreFactory firstCore,
+        CoreFactory secondCore,
+        int stepsPerProgram,
+        int programLength,
+        int fullCompareInterval
+    ) {
+        this.firstCore = firstCore;
+        this.secondCore = secondCore;
+        this.stepsPerProgram = stepsPerProgram;
+        this.programLength = programLength;
+        this.fullCompareInterval = fullCompareInterval;
+
+        generator = new ProgramGenerator();
+    }
+
+    /**
+     * Fuzzes on several threads. Half of the programs are freshly generated and
+     * the other half are mutations of the previous program of the same thread
+     *
+     * @param programs total number of programs to run
+     * @param seed seed from which all programs are derived
+     * @param threads number of threads to run on
+     * @return statistics and every divergence found, reduced to a minimal program
+     */
+    public Report fuzz(long programs, long seed, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        SplittableRandom master = new SplittableRandom(seed);
+        List<Future<Report>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            long share = programs / threads + (t < programs % threads ? 1 : 0);
+            SplittableRandom random = master.split();
+
+            futures.add(executor.submit(() -> fuzz(share, random)));
+        }
+
+        try {
+            long totalPrograms = 0;
+            long totalInstructions = 0;
+            List<Divergence> divergences = new ArrayList<>();
+
+            for (Future<Report> future : futures) {
+                Report report = future.get();
+
+                totalPrograms += report.programs();
+                totalInstructions += report.instructions();
+                divergences.addAll(report.divergences());
+            }
+
+            return new Report(totalPrograms, totalInstructions, System.nanoTime() - start, divergences);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a single program on both cores
+     *
+     * @return the first divergence, if any
+     */
+    public Optional<Divergence> check(byte[] program, long seed) {
+        return Optional.ofNullable(
+            run(program, seed, new Chip8State(), new Chip8State()).divergence()
+        );
+    }
+
+    /**
+     * Shrinks the program while the cores still diverge. Instructions are first replaced
+     * by a no-op, which keeps all jump targets valid, and then removed one at a time
+     *
+     * @return divergence of the smallest program found
+     */
+    public Divergence reduce(Divergence divergence) {
+        Chip8State firstState = new Chip8State();
+        Chip8State secondState = new Chip8State();
+
+        Divergence smallest = divergence;
+
+        for (int chunk = instructionCount(smallest.program()) / 2; chunk >= 1; chunk /= 2) {
+            for (int start = 0; start < instructionCount(smallest.program()); start += chunk) {
+                byte[] candidate = replaceWithNoOperation(smallest.program(), start, chunk);
+
+                if (!Arrays.equals(candidate, smallest.program())) {
+                    smallest = orSmaller(smallest, candidate, firstState, secondState);
+                }
+            }
+        }
+
+        for (int index = instructionCount(smallest.program()) - 1; index >= 0; index--) {
+            smallest = orSmaller(smallest, removeInstruction(smallest.program(), index), firstState, secondState);
+        }
+
+        return smallest;
+    }
+
+    private Report fuzz(long programs, SplittableRandom random) {
+        Chip8State firstState = new Chip8State();
+        Chip8State secondState = new Chip8State();
+
+        List<Divergence> divergences = new ArrayList<>();
+        long instructions = 0;
+        long start = System.nanoTime();
+
+        byte[] program = generator.generate(random, programLength);
+
+        for (long i = 0; i < programs; i++) {
+            program = random.nextBoolean()
+                ? generator.generate(random, programLength)
+                : generator.mutate(random, program);
+
+            Run run = run(program, random.nextLong(), firstState, secondState);
+            instructions += run.steps();
+
+            if (run.divergence() != null) {
+                divergences.add(reduce(run.divergence()));
+            }
+        }
+
+        return new Report(programs, instructions, System.nanoTime() - start, divergences);
+    }
+
+    private Run run(byte[] program, long seed, Chip8State firstState, Chip8State secondState) {
+        Run run = run(program, seed, firstState, secondState, fullCompareInterval);
+
+        if (run.divergence() == null || fullCompareInterval == 1) {
+            return run;
+        }
+
+        // Finds the exact instruction after which memory or the screen started to differ
+        return run(program, seed, firstState, secondState, 1);
+    }
+
+    private Run run(byte[] program, long seed, Chip8State firstState, Chip8State secondState, int compareInterval) {
+        ExecutionCore first = firstCore.create(program, seed);
+        ExecutionCore second = secondCore.create(program, seed);
+
+        for (long step = 0; step < stepsPerProgram; step++) {
+            if (first.isWaitingForKey() || second.isWaitingForKey()) {
+                if (first.isWaitingForKey() != second.isWaitingForKey()) {
+                    return new Run(step, new Divergence(program, seed, step, "only one core waits for a key"));
+                }
+
+                return new Run(step, null);
+            }
+
+            Throwable firstFault = stepCatching(first);
+            Throwable secondFault = stepCatching(second);
+
+            if (firstFault != null || secondFault != null) {
+                if (firstFault != null && secondFault != null && isSameFault(firstFault, secondFault)) {
+                    return new Run(step + 1, null);
+                }
+
+                String difference = "fault " + describe(firstFault) + " != " + describe(secondFault);
+                return new Run(step + 1, new Divergence(program, seed, step, difference));
+            }
+
+            String difference;
+
+            if ((step + 1) % compareInterval == 0 || step + 1 == stepsPerProgram) {
+                first.saveState(firstState);
+                second.saveState(secondState);
+
+                difference = firstState.findDifference(secondState);
+            } else {
+                first.saveRegisters(firstState);
+                second.saveRegisters(secondState);
+
+                difference = firstState.findRegisterDifference(secondState);
+            }
+
+            if (difference != null) {
+                return new Run(step + 1, new Divergence(program, seed, step, difference));
+            }
+        }
+
+        return new Run(stepsPerProgram, null);
+    }
+
+    private static Throwable stepCatching(ExecutionCore core) {
+        try {
+            core.step();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Cores may signal the same fault with different exceptions, any other crash must match exactly
+     */
+    private static boolean isSameFault(Throwable first, Throwable second) {
+        FaultKind kind = FaultKind.of(first);
+
+        return kind == FaultKind.of(second) && (kind != FaultKind.CRASH || first.getClass() == second.getClass());
+    }
+
+    private static String describe(Throwable fault) {
+        return fault == null ? "none" : fault.getClass().getSimpleName();
+    }
+
+    private Divergence orSmaller(Divergence current, byte[] candidate, Chip8State firstState, Chip8State secondState) {
+        Divergence result = run(candidate, current.seed(), firstState, secondState).divergence();
+        return result == null ? current : result;
+    }
+
+    private static int instructionCount(byte[] program) {
+        return program.length / 2;
+    }
+
+    private static byte[] replaceWithNoOperation(byte[] program, int start, int count) {
+        byte[] result = program.clone();
+
+        for (int i = start; i < Math.min(start + count, instructionCount(program)); i++) {
+            result[i * 2] = (byte) (NO_OPERATION >>> 8);
+            result[i * 2 + 1] = (byte) NO_OPERATION;
+        }
+
+        return result;
+    }
+
+    private static byte[] removeInstruction(byte[] program, int index) {
+        byte[] result = Arrays.copyOf(program, program.length - 2);
+
+        System.arraycopy(program, (index + 1) * 2, result, index * 2, program.length - (index + 1) * 2);
+
+        return result;
+    }
+}
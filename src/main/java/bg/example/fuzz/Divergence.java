@@ -0,0 +1,21 @@
+package bg.example.fuzz;
+
+import java.util.HexFormat;
+
+/**
+ * Program for which two cores ended up in different states
+ *
+ * @param program the instructions which were loaded
+ * @param seed seed for the random number instruction
+ * @param step index of the first instruction after which the states differed
+ * @param difference description of the first differing part of the state
+ */
+public record Divergence(byte[] program, long seed, long step, String difference) {
+
+    @Override
+    public String toString() {
+        return "after step " + step + ", " + difference
+            + ", seed " + seed
+            + ", program " + HexFormat.ofDelimiter(" ").formatHex(program);
+    }
+}
@@ -0,0 +1,84 @@
+package bg.example.fuzz;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates random and mutated instruction streams. Generated instructions are
+ * biased towards valid opcodes and never wait for a key
+ */
+public class ProgramGenerator {
+
+    private static final int[] FXNN_OPCODES = { 0x07, 0x15, 0x18, 0x1E, 0x29, 0x33, 0x55, 0x65 };
+    private static final int[] OPCODES_8XYN = { 0x0, 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0xE };
+
+    public byte[] generate(SplittableRandom random, int instructionCount) {
+        byte[] program = new byte[instructionCount * 2];
+
+        for (int i = 0; i < instructionCount; i++) {
+            setInstruction(program, i, randomInstruction(random));
+        }
+
+        return program;
+    }
+
+    /**
+     * @return a copy of the program with a few instructions replaced, changed, swapped or duplicated
+     */
+    public byte[] mutate(SplittableRandom random, byte[] program) {
+        byte[] mutated = program.clone();
+        int instructionCount = mutated.length / 2;
+
+        if (instructionCount == 0) {
+            return mutated;
+        }
+
+        int mutations = 1 + random.nextInt(4);
+
+        for (int m = 0; m < mutations; m++) {
+            int index = random.nextInt(instructionCount);
+
+            switch (random.nextInt(4)) {
+                case 0 -> setInstruction(mutated, index, randomInstruction(random));
+                case 1 -> setInstruction(mutated, index, getInstruction(mutated, index) ^ (1 << random.nextInt(12)));
+                case 2 -> {
+                    int other = random.nextInt(instructionCount);
+                    int instruction = getInstruction(mutated, index);
+
+                    setInstruction(mutated, index, getInstruction(mutated, other));
+                    setInstruction(mutated, other, instruction);
+                }
+                default -> setInstruction(mutated, random.nextInt(instructionCount), getInstruction(mutated, index));
+            }
+        }
+
+        return mutated;
+    }
+
+    private int randomInstruction(SplittableRandom random) {
+        int kind = random.nextInt(16);
+        int x = random.nextInt(16);
+        int y = random.nextInt(16);
+        int nn = random.nextInt(256);
+        int nnn = 0x200 + random.nextInt(0x100);
+
+        return switch (kind) {
+            case 0x0 -> random.nextBoolean() ? 0x00E0 : 0x00EE;
+            case 0x1, 0x2, 0xA, 0xB -> kind << 12 | nnn;
+            case 0x5, 0x9 -> kind << 12 | x << 8 | y << 4;
+            case 0x8 -> 0x8000 | x << 8 | y << 4 | OPCODES_8XYN[random.nextInt(OPCODES_8XYN.length)];
+            case 0xD -> 0xD000 | x << 8 | y << 4 | random.nextInt(16);
+            case 0xE -> 0xE000 | x << 8 | (random.nextBoolean() ? 0x9E : 0xA1);
+            case 0xF -> 0xF000 | x << 8 | FXNN_OPCODES[random.nextInt(FXNN_OPCODES.length)];
+            default -> kind << 12 | x << 8 | nn;
+        };
+    }
+
+    private static int getInstruction(byte[] program, int index) {
+        return (program[index * 2] & 0xFF) << 8 | (program[index * 2 + 1] & 0xFF);
+    }
+
+    private static void setInstruction(byte[] program, int index, int instruction) {
+        program[index * 2] = (byte) (instruction >>> 8);
+        program[index * 2 + 1] = (byte) instruction;
+    }
+}
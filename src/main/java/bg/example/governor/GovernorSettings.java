@@ -0,0 +1,48 @@
+package bg.example.governor;
+
+/**
+ * Bounds and targets of a {@link SpeedGovernor}
+ *
+ * @param minInstructionsPerFrame fewest instructions per frame the governor goes down to
+ * @param maxInstructionsPerFrame most instructions per frame the governor goes up to
+ * @param windowFrames frames observed before every adjustment, frames with a key wait are not counted
+ * @param settledWindows windows in a row without an adjustment after which the speed is learned
+ * @param minIdleShare share of the instructions a program pacing itself by the delay timer should
+ *                     spend waiting for it, less means it does not finish its work in time
+ * @param maxIdleShare share of waiting above which instructions are taken away
+ * @param minDrawsPerFrame sprites a program which does not wait for the timer should draw per frame
+ *                         at least, when it draws at all
+ * @param maxDrawsPerFrame sprites per frame above which such a program runs too fast
+ */
+public record GovernorSettings(
+    int minInstructionsPerFrame,
+    int maxInstructionsPerFrame,
+    int windowFrames,
+    int settledWindows,
+    double minIdleShare,
+    double maxIdleShare,
+    double minDrawsPerFrame,
+    double maxDrawsPerFrame
+) {
+
+    /**
+     * From about 300 to 2400 instructions per second
+     */
+    public static final GovernorSettings DEFAULT = new GovernorSettings(5, 40, 30, 4, 0.05, 0.5, 0.5, 8);
+
+    public GovernorSettings {
+        if (minInstructionsPerFrame <= 0 || maxInstructionsPerFrame < minInstructionsPerFrame) {
+            throw new IllegalArgumentException(
+                "Invalid instructions per frame bounds " + minInstructionsPerFrame + " to " + maxInstructionsPerFrame
+            );
+        }
+
+        if (windowFrames <= 0 || settledWindows <= 0) {
+            throw new IllegalArgumentException("Windows must be positive");
+        }
+    }
+
+    public int clamp(int instructionsPerFrame) {
+        return Math.max(minInstructionsPerFrame, Math.min(maxInstructionsPerFrame, instructionsPerFrame));
+    }
+}
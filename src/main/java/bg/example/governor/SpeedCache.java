@@ -0,0 +1,81 @@
+package bg.example.governor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.OptionalInt;
+import java.util.Properties;
+
+/**
+ * Instructions per frame learned for every program, kept in a small properties file
+ * keyed by the hash of the program, so the next launch starts at the learned speed
+ */
+public class SpeedCache {
+
+    private final Path file;
+    private final Properties speeds;
+
+    private SpeedCache(Path file, Properties speeds) {
+        this.file = file;
+        this.speeds = speeds;
+    }
+
+    /**
+     * Reads the cache, starting empty if the file does not exist yet
+     */
+    public static SpeedCache open(Path file) throws IOException {
+        Properties speeds = new Properties();
+
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                speeds.load(reader);
+            }
+        }
+
+        return new SpeedCache(file, speeds);
+    }
+
+    public OptionalInt get(long programHash) {
+        String value = speeds.getProperty(key(programHash));
+
+        if (value == null) {
+            return OptionalInt.empty();
+        }
+
+        try {
+            return OptionalInt.of(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Remembers a speed from any thread, written to the file by {@link #save()}
+     */
+    public void put(long programHash, int instructionsPerFrame) {
+        speeds.setProperty(key(programHash), Integer.toString(instructionsPerFrame));
+    }
+
+    /**
+     * Writes the cache next to the file and moves it over the file, so a crash never leaves half of it
+     */
+    public void save() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temporary)) {
+            speeds.store(writer, "Instructions per frame by program hash");
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(long programHash) {
+        return String.format("%016x", programHash);
+    }
+}
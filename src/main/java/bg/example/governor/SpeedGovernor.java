@@ -0,0 +1,132 @@
+package bg.example.governor;
+
+import bg.example.clock.FrameClock;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Tunes the instructions per frame of a clock to the running program. Registered as a frame listener,
+ * it watches every frame for sprites drawn, instructions skipped in delay timer waits and key waits,
+ * and adjusts the frame length after every window of frames:
+ * <ul>
+ *     <li>A program waiting for the delay timer paces itself. It gets more instructions when it hardly
+ *     waits, so it finishes its work in time, and fewer when it mostly waits</li>
+ *     <li>A program which never waits runs as fast as its instructions. It gets fewer when it draws
+ *     more sprites per frame than a game does, more when it draws rarely</li>
+ *     <li>Frames with a key wait, as on menus, tell nothing about the speed and are left out</li>
+ * </ul>
+ * Once the speed is unchanged for a number of windows it is reported as learned.
+ * Every method is called on the emulation thread
+ */
+public class SpeedGovernor implements Runnable {
+
+    // Every adjustment changes the frame length by an eighth
+    private static final int STEP_DIVISOR = 8;
+
+    private final FrameClock clock;
+    private final GovernorSettings settings;
+
+    private IntConsumer settledListener;
+
+    private int drawsInFrame;
+    private boolean keyWaitInFrame;
+
+    private int windowFrames;
+    private long windowDraws;
+    private long windowSkipped;
+    private long windowInstructions;
+
+    private int unchangedWindows;
+    private boolean settled;
+
+    public SpeedGovernor(FrameClock clock, GovernorSettings settings) {
+        this.clock = clock;
+        this.settings = settings;
+        this.settledListener = instructionsPerFrame -> { };
+
+        clock.setInstructionsPerFrame(settings.clamp(clock.getInstructionsPerFrame()));
+    }
+
+    /**
+     * @param listener called once with the instructions per frame when the speed settles
+     */
+    public void setSettledListener(IntConsumer listener) {
+        this.settledListener = listener;
+    }
+
+    public void recordDraw() {
+        drawsInFrame++;
+    }
+
+    public void recordKeyWait() {
+        keyWaitInFrame = true;
+    }
+
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * Ends a frame
+     */
+    @Override
+    public void run() {
+        if (!keyWaitInFrame) {
+            windowFrames++;
+            windowDraws += drawsInFrame;
+            windowSkipped += clock.getSkippedTicks();
+            windowInstructions += clock.getInstructionsPerFrame();
+        }
+
+        drawsInFrame = 0;
+        keyWaitInFrame = false;
+
+        if (windowFrames == settings.windowFrames()) {
+            adjust();
+
+            windowFrames = 0;
+            windowDraws = 0;
+            windowSkipped = 0;
+            windowInstructions = 0;
+        }
+    }
+
+    private void adjust() {
+        int current = clock.getInstructionsPerFrame();
+        int next = settings.clamp(current + direction() * Math.max(1, current / STEP_DIVISOR));
+
+        if (next != current) {
+            clock.setInstructionsPerFrame(next);
+            unchangedWindows = 0;
+            return;
+        }
+
+        if (++unchangedWindows == settings.settledWindows() && !settled) {
+            settled = true;
+            settledListener.accept(current);
+        }
+    }
+
+    /**
+     * @return 1 to add instructions, -1 to take some away, 0 to keep the speed
+     */
+    private int direction() {
+        if (windowSkipped > 0) {
+            double idleShare = (double) windowSkipped / windowInstructions;
+
+            if (idleShare < settings.minIdleShare()) {
+                return 1;
+            }
+
+            return idleShare > settings.maxIdleShare() ? -1 : 0;
+        }
+
+        double drawsPerFrame = (double) windowDraws / windowFrames;
+
+        if (drawsPerFrame > settings.maxDrawsPerFrame()) {
+            return -1;
+        }
+
+        return drawsPerFrame > 0 && drawsPerFrame < settings.minDrawsPerFrame() ? 1 : 0;
+    }
+}
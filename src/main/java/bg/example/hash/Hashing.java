@@ -0,0 +1,75 @@
+package bg.example.hash;
+
+/**
+ * Fast non cryptographic hashes of machine state
+ */
+public final class Hashing {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xBF58476D1CE4E5B9L;
+
+    private Hashing() { }
+
+    /**
+     * Hashes whole words, suitable for packed screen rows
+     */
+    public static long hash(long[] words) {
+        long hash = SEED;
+
+        for (long word : words) {
+            hash = mix(hash ^ word);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Hashes values which fit in a byte, suitable for memory cells.
+     * Eight values are packed into every mixed word
+     */
+    public static long hash(int[] bytes) {
+        long hash = SEED;
+        int i = 0;
+
+        for (; i + Long.BYTES <= bytes.length; i += Long.BYTES) {
+            long word = 0;
+
+            for (int j = 0; j < Long.BYTES; j++) {
+                word = (word << Byte.SIZE) | (bytes[i + j] & 0xFF);
+            }
+
+            hash = mix(hash ^ word);
+        }
+
+        for (; i < bytes.length; i++) {
+            hash = mix(hash ^ (bytes[i] & 0xFF));
+        }
+
+        return hash;
+    }
+
+    /**
+     * Hashes raw bytes, such as a program file, to the same value as {@link #hash(int[])} of the same bytes
+     */
+    public static long hash(byte[] bytes) {
+        int[] values = new int[bytes.length];
+
+        for (int i = 0; i < bytes.length; i++) {
+            values[i] = bytes[i] & 0xFF;
+        }
+
+        return hash(values);
+    }
+
+    /**
+     * Folds a value into a hash, suitable for chaining hashes of different parts of the state
+     */
+    public static long combine(long hash, long value) {
+        return mix(hash ^ value);
+    }
+
+    private static long mix(long value) {
+        value *= MULTIPLIER;
+        return value ^ (value >>> 31);
+    }
+}
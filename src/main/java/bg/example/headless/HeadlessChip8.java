@@ -0,0 +1,318 @@
+package bg.example.headless;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8Properties;
+import bg.example.chip.Chip8State;
+import bg.example.chip.ExecutionCore;
+import bg.example.chip.QuirkProfile;
+import bg.example.chip.Quirks;
+import bg.example.counter.FrameCounter;
+import bg.example.counter.SimpleCounter;
+import bg.example.display.Display;
+import bg.example.display.HeadlessDisplay;
+import bg.example.keyboard.Keyboard;
+import bg.example.loader.font.BasicFontLoader;
+import bg.example.memory.SimpleMemory;
+import bg.example.register.Register;
+import bg.example.register.SimpleRegister;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Deterministic instance without a window, advanced one emulated frame at a time.
+ * Timers count emulated frames and random numbers come from a seeded generator,
+ * so the same ROM, seed and input always produce the same state. A frame runs
+ * {@link Chip8#DEFAULT_INSTRUCTIONS_PER_FRAME} instructions by default and the timers change
+ * after its last instruction, the same as with the {@link bg.example.clock.FrameClock} of a window
+ */
+public class HeadlessChip8 implements ExecutionCore {
+
+    private final int[] memory;
+    private final Display display;
+    private final Keyboard keyboard;
+
+    private final FrameCounter delayCounter;
+    private final FrameCounter soundCounter;
+
+    private final SplitMixRandom random;
+
+    private final Chip8 chip;
+    private final int instructionsPerFrame;
+
+    private long frame;
+    private int instructionInFrame;
+    private long skippedInstructions;
+
+    private boolean waitingForKey;
+    private KeyCode keyWaitStart;
+    private KeyCode keyWaitPressed;
+
+    public HeadlessChip8(byte[] rom, long seed) {
+        this(rom, seed, Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME);
+    }
+
+    public HeadlessChip8(byte[] rom, long seed, int instructionsPerFrame) {
+        this(rom, seed, instructionsPerFrame, QuirkProfile.MODERN.quirks());
+    }
+
+    public HeadlessChip8(byte[] rom, long seed, int instructionsPerFrame, Quirks quirks) {
+        this(
+            rom,
+            seed,
+            instructionsPerFrame,
+            quirks,
+            new HeadlessDisplay(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]),
+            new Keyboard()
+        );
+    }
+
+    /**
+     * @param display display of {@link Chip8#DISPLAY_WIDTH} by {@link Chip8#DISPLAY_HEIGHT} pixels,
+     *                for example one streaming the screen
+     * @param keyboard keyboard which may also be fed by other sources of input
+     */
+    public HeadlessChip8(
+        byte[] rom,
+        long seed,
+        int instructionsPerFrame,
+        Quirks quirks,
+        Display display,
+        Keyboard keyboard
+    ) {
+        this.instructionsPerFrame = instructionsPerFrame;
+        this.display = display;
+        this.keyboard = keyboard;
+        this.random = new SplitMixRandom(seed);
+
+        memory = new int[Chip8.CHIP8_MEMORY_SIZE];
+
+        delayCounter = new FrameCounter(0);
+        soundCounter = new FrameCounter(0);
+
+        Register[] registers = new Register[Chip8.NORMAL_REGISTERS_COUNT];
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new SimpleRegister(Chip8.NORMAL_REGISTER_BITS);
+        }
+
+        chip = new Chip8(
+            new Chip8Properties(
+                new SimpleCounter(Chip8.FIRST_INSTRUCTION_OFFSET),
+                delayCounter,
+                soundCounter,
+                () -> { },
+                new SimpleMemory(memory),
+                mem -> {
+                    new BasicFontLoader().load(mem, Chip8.FONT_OFFSET);
+
+                    for (int i = 0; i < rom.length; i++) {
+                        mem.set(Chip8.FIRST_INSTRUCTION_OFFSET + i, rom[i] & 0xFF);
+                    }
+                },
+                display,
+                keyboard,
+                registers,
+                new SimpleRegister(Chip8.INDEX_REGISTER_BITS),
+                random,
+                quirks,
+                Chip8.DEFAULT_STACK_DEPTH
+            )
+        );
+    }
+
+    /**
+     * Runs the instructions of one frame and then decrements the timers. A delay loop waiting
+     * for the timer is skipped up to the last instruction of the frame, leaving the same state
+     */
+    public void runFrame() {
+        do {
+            skipDelayLoop();
+            step();
+        } while (instructionInFrame != 0);
+    }
+
+    /**
+     * Runs a single instruction, decrementing the timers if it was the last one of the frame.
+     * Waiting for a key takes one step without blocking, the wait ends after a newly pressed key is released
+     */
+    @Override
+    public void step() {
+        if (chip.isWaitingForKey()) {
+            waitForKey();
+        } else {
+            chip.runOneCycle();
+        }
+
+        if (++instructionInFrame < instructionsPerFrame) {
+            return;
+        }
+
+        instructionInFrame = 0;
+
+        delayCounter.tick();
+        soundCounter.tick();
+
+        frame++;
+    }
+
+    /**
+     * Saves the whole state, including the keyboard, so that {@link #restore(HeadlessState)}
+     * continues exactly the same way
+     */
+    public void save(HeadlessState state) {
+        chip.saveState(state.chip);
+
+        state.frame = frame;
+        state.instructionInFrame = instructionInFrame;
+        state.randomState = random.getState();
+
+        state.pressedKeys = 0;
+
+        for (int key = 0; key < Chip8.LEGAL_KEYS.size(); key++) {
+            if (keyboard.isPressed(Chip8.fromIntegerToKeyCode(key))) {
+                state.pressedKeys |= 1 << key;
+            }
+        }
+
+        state.lastPressedKey = keyboard.getLastPressedKey();
+
+        state.waitingForKey = waitingForKey;
+        state.keyWaitStart = keyWaitStart;
+        state.keyWaitPressed = keyWaitPressed;
+    }
+
+    /**
+     * Starts the random numbers over from a new seed, leaving the rest of the state as it is
+     */
+    public void reseed(long seed) {
+        random.setState(seed);
+    }
+
+    public void restore(HeadlessState state) {
+        chip.loadState(state.chip);
+
+        frame = state.frame;
+        instructionInFrame = state.instructionInFrame;
+        random.setState(state.randomState);
+
+        keyboard.clear();
+
+        for (int key = 0; key < Chip8.LEGAL_KEYS.size(); key++) {
+            if ((state.pressedKeys & 1 << key) != 0) {
+                keyboard.press(Chip8.fromIntegerToKeyCode(key));
+            }
+        }
+
+        keyboard.setLastPressedKey(state.lastPressedKey);
+
+        waitingForKey = state.waitingForKey;
+        keyWaitStart = state.keyWaitStart;
+        keyWaitPressed = state.keyWaitPressed;
+    }
+
+    /**
+     * Presses and releases keys so that exactly the given ones are held, in the order of their numbers
+     *
+     * @param keys bit mask of the keys to hold, bit N for key N
+     */
+    public void applyKeys(int keys) {
+        for (int key = 0; key < Chip8.LEGAL_KEYS.size(); key++) {
+            KeyCode code = Chip8.fromIntegerToKeyCode(key);
+            boolean pressed = (keys & 1 << key) != 0;
+
+            if (pressed && !keyboard.isPressed(code)) {
+                keyboard.press(code);
+            } else if (!pressed && keyboard.isPressed(code)) {
+                keyboard.release(code);
+            }
+        }
+    }
+
+    @Override
+    public void saveState(Chip8State state) {
+        chip.saveState(state);
+    }
+
+    @Override
+    public void saveRegisters(Chip8State state) {
+        chip.saveRegisters(state);
+    }
+
+    @Override
+    public boolean isWaitingForKey() {
+        return chip.isWaitingForKey();
+    }
+
+    @Override
+    public int getProgramCounter() {
+        return chip.getProgramCounter();
+    }
+
+    private void skipDelayLoop() {
+        int instructions = instructionsPerFrame - instructionInFrame - 1;
+
+        if (instructions <= 0 || !chip.isInDelayLoop()) {
+            return;
+        }
+
+        chip.skipDelayLoop(instructions);
+        instructionInFrame += instructions;
+        skippedInstructions += instructions;
+    }
+
+    private void waitForKey() {
+        KeyCode lastPressed = keyboard.getLastPressedKey();
+
+        if (!waitingForKey) {
+            waitingForKey = true;
+            keyWaitStart = lastPressed;
+            keyWaitPressed = null;
+            return;
+        }
+
+        if (keyWaitPressed == null) {
+            if (lastPressed == null || lastPressed == keyWaitStart || !Chip8.LEGAL_KEYS.contains(lastPressed)) {
+                return;
+            }
+
+            keyWaitPressed = lastPressed;
+        }
+
+        if (!keyboard.isPressed(keyWaitPressed)) {
+            waitingForKey = false;
+            chip.completeKeyWait(Chip8.fromKeyCodeToInteger(keyWaitPressed));
+        }
+    }
+
+    /**
+     * @return number of frames run so far
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return number of delay loop instructions skipped instead of run
+     */
+    public long getSkippedInstructions() {
+        return skippedInstructions;
+    }
+
+    public Chip8 getChip() {
+        return chip;
+    }
+
+    public Display getDisplay() {
+        return display;
+    }
+
+    public Keyboard getKeyboard() {
+        return keyboard;
+    }
+
+    /**
+     * @return the live memory of the instance
+     */
+    public int[] getMemory() {
+        return memory;
+    }
+}
@@ -0,0 +1,100 @@
+package bg.example.headless;
+
+import bg.example.chip.Chip8State;
+import bg.example.hash.Hashing;
+import javafx.scene.input.KeyCode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Everything needed to resume a {@link HeadlessChip8} exactly where it was saved,
+ * including the keyboard, the random generator and the position within the frame.
+ * Instances are meant to be allocated once and filled repeatedly
+ */
+public class HeadlessState {
+
+    final Chip8State chip;
+
+    long frame;
+    int instructionInFrame;
+    long randomState;
+
+    int pressedKeys;
+    KeyCode lastPressedKey;
+
+    boolean waitingForKey;
+    KeyCode keyWaitStart;
+    KeyCode keyWaitPressed;
+
+    public HeadlessState() {
+        chip = new Chip8State();
+    }
+
+    public Chip8State getChipState() {
+        return chip;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return number of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int getSerializedSize() {
+        return chip.getSerializedSize() + 2 * Long.BYTES + 5 * Integer.BYTES + 1;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        chip.writeTo(buffer);
+
+        buffer.putLong(frame);
+        buffer.putInt(instructionInFrame);
+        buffer.putLong(randomState);
+
+        buffer.putInt(pressedKeys);
+        buffer.putInt(ordinal(lastPressedKey));
+
+        buffer.put((byte) (waitingForKey ? 1 : 0));
+        buffer.putInt(ordinal(keyWaitStart));
+        buffer.putInt(ordinal(keyWaitPressed));
+    }
+
+    /**
+     * Hashes everything which decides how the machine continues for given keys. The frame number
+     * and the random generator are left out, so states reached by different inputs at different
+     * times count as the same
+     */
+    public long hash() {
+        long hash = Hashing.combine(chip.hash(), (long) instructionInFrame << 32 | pressedKeys);
+
+        hash = Hashing.combine(hash, ordinal(lastPressedKey));
+        hash = Hashing.combine(hash, waitingForKey ? 1 : 0);
+        hash = Hashing.combine(hash, (long) ordinal(keyWaitStart) << 32 | ordinal(keyWaitPressed) & 0xFFFFFFFFL);
+
+        return hash;
+    }
+
+    public void readFrom(ByteBuffer buffer) {
+        chip.readFrom(buffer);
+
+        frame = buffer.getLong();
+        instructionInFrame = buffer.getInt();
+        randomState = buffer.getLong();
+
+        pressedKeys = buffer.getInt();
+        lastPressedKey = keyCode(buffer.getInt());
+
+        waitingForKey = buffer.get() != 0;
+        keyWaitStart = keyCode(buffer.getInt());
+        keyWaitPressed = keyCode(buffer.getInt());
+    }
+
+    private static int ordinal(KeyCode key) {
+        return key == null ? -1 : key.ordinal();
+    }
+
+    private static KeyCode keyCode(int ordinal) {
+        return ordinal < 0 ? null : KeyCode.values()[ordinal];
+    }
+}
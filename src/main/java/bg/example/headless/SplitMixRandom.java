@@ -0,0 +1,45 @@
+package bg.example.headless;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * SplitMix64 generator whose state can be saved and restored. Produces the same
+ * numbers as {@link java.util.SplittableRandom} created with the same seed
+ */
+public class SplitMixRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SplitMixRandom(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        long z = state += GOLDEN_GAMMA;
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int nextInt() {
+        long z = state += GOLDEN_GAMMA;
+
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,53 @@
+package bg.example.input;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time from a key event to the first instruction which observes it, readable from any thread
+ */
+public class InputLatency {
+
+    private final LongAdder count;
+    private final LongAdder totalNanos;
+    private final LongAccumulator maxNanos;
+
+    public InputLatency() {
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return number of observed events
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getAverageNanos() {
+        long events = count.sum();
+        return events == 0 ? 0 : (double) totalNanos.sum() / events;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d events, average %.2f ms, max %.2f ms", getCount(), getAverageNanos() / 1e6, getMaxNanos() / 1e6);
+    }
+}
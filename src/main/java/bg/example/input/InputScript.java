@@ -0,0 +1,95 @@
+package bg.example.input;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scripted input compiled to the keys of every frame for a {@link ReplayInputSource}. Every line
+ * holds a frame and a key change, {@code 30 +5} presses key 5 at frame 30 and {@code 45 -5}
+ * releases it. Lines starting with {@code #} are comments
+ */
+public final class InputScript {
+
+    private record Change(int frame, int key, boolean press) { }
+
+    private InputScript() { }
+
+    public static int[] load(Path file) throws IOException {
+        return compile(Files.readAllLines(file));
+    }
+
+    /**
+     * @return key mask of every frame up to the last change
+     */
+    public static int[] compile(List<String> lines) {
+        List<Change> changes = new ArrayList<>();
+        int lineNumber = 0;
+
+        for (String line : lines) {
+            lineNumber++;
+            String[] parts = split(line);
+
+            if (parts == null) {
+                continue;
+            }
+
+            String change = parts[1];
+            int key = change.length() == 2 ? Character.digit(change.charAt(1), 16) : -1;
+
+            if (key < 0 || (change.charAt(0) != '+' && change.charAt(0) != '-')) {
+                throw new IllegalArgumentException("Invalid key change on line " + lineNumber + ": " + line);
+            }
+
+            changes.add(new Change(parseFrame(parts[0]), key, change.charAt(0) == '+'));
+        }
+
+        // Stable, so changes of the same frame apply in the order written
+        changes.sort(Comparator.comparingInt(Change::frame));
+
+        int frames = changes.isEmpty() ? 0 : changes.get(changes.size() - 1).frame() + 1;
+        int[] masks = new int[frames];
+        int mask = 0;
+        int next = 0;
+
+        for (int frame = 0; frame < frames; frame++) {
+            for (; next < changes.size() && changes.get(next).frame() == frame; next++) {
+                Change change = changes.get(next);
+                mask = change.press() ? mask | 1 << change.key() : mask & ~(1 << change.key());
+            }
+
+            masks[frame] = mask;
+        }
+
+        return masks;
+    }
+
+    private static String[] split(String line) {
+        String trimmed = line.trim();
+
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+
+        String[] parts = trimmed.split("\\s+");
+
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected a frame and a key change: " + line);
+        }
+
+        return parts;
+    }
+
+    private static int parseFrame(String frame) {
+        int value = Integer.parseInt(frame);
+
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative frame " + frame);
+        }
+
+        return value;
+    }
+}
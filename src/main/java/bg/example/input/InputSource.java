@@ -0,0 +1,18 @@
+package bg.example.input;
+
+/**
+ * Backend feeding key presses into one slot of the key state of an instance
+ */
+public interface InputSource extends AutoCloseable {
+
+    /**
+     * Starts delivering keys, called once when the source is added to an instance
+     */
+    void start(KeyInput input);
+
+    /**
+     * Stops delivering keys
+     */
+    @Override
+    default void close() { }
+}
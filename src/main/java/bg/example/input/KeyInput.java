@@ -0,0 +1,48 @@
+package bg.example.input;
+
+/**
+ * Slot of one input source in a {@link KeyState}, safe to use from any thread
+ */
+public final class KeyInput {
+
+    private final KeyState state;
+    private final int slot;
+
+    KeyInput(KeyState state, int slot) {
+        this.state = state;
+        this.slot = slot;
+    }
+
+    /**
+     * @param key key of the machine from 0 to F
+     */
+    public void press(int key) {
+        int bit = 1 << key;
+        state.update(slot, mask -> mask | bit);
+    }
+
+    public void release(int key) {
+        int bit = ~(1 << key);
+        state.update(slot, mask -> mask & bit);
+    }
+
+    /**
+     * Replaces every key of the source at once
+     *
+     * @param keys bit N for key N
+     */
+    public void set(int keys) {
+        state.update(slot, mask -> keys);
+    }
+
+    public void releaseAll() {
+        set(0);
+    }
+
+    /**
+     * @return keys held by this source
+     */
+    public int get() {
+        return state.get(slot);
+    }
+}
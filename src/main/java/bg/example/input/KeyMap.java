@@ -0,0 +1,100 @@
+package bg.example.input;
+
+import bg.example.chip.Chip8;
+import javafx.scene.input.KeyCode;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Host keys mapped to keys of the machine, compiled into an array indexed by the host key,
+ * so every event costs one array read instead of a map lookup
+ */
+public final class KeyMap {
+
+    public static final int UNMAPPED = -1;
+
+    /**
+     * Extension of the file next to a program holding its key map
+     */
+    public static final String FILE_EXTENSION = ".keys";
+
+    private static final KeyCode[] HOST_KEYS = KeyCode.values();
+
+    private final int[] keys;
+
+    private KeyMap(int[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Compiles a remapping of host keys to the key codes of the machine. Keys which are not
+     * remapped keep their meaning, so the digits and letters of the machine still work
+     */
+    public static KeyMap fromRemapping(Map<KeyCode, KeyCode> remappedKeys) {
+        int[] keys = new int[HOST_KEYS.length];
+
+        for (KeyCode hostKey : HOST_KEYS) {
+            KeyCode target = remappedKeys.getOrDefault(hostKey, hostKey);
+            keys[hostKey.ordinal()] = Chip8.LEGAL_KEYS.contains(target) ? Chip8.fromKeyCodeToInteger(target) : UNMAPPED;
+        }
+
+        return new KeyMap(keys);
+    }
+
+    /**
+     * Reads a map of host key names to keys of the machine in hexadecimal, one per line such as
+     * {@code Q=4}, on top of the given map. {@code none} unmaps a host key
+     */
+    public static KeyMap load(Path file, KeyMap base) throws IOException {
+        Properties entries = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(file)) {
+            entries.load(reader);
+        }
+
+        int[] keys = Arrays.copyOf(base.keys, base.keys.length);
+
+        for (String name : entries.stringPropertyNames()) {
+            KeyCode hostKey = KeyCode.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            String value = entries.getProperty(name).trim();
+
+            keys[hostKey.ordinal()] = value.equalsIgnoreCase("none") ? UNMAPPED : parseKey(value, file);
+        }
+
+        return new KeyMap(keys);
+    }
+
+    /**
+     * @return the map in the file next to the program named after it with {@link #FILE_EXTENSION},
+     *         or the base map if there is none
+     */
+    public static KeyMap forProgram(Path program, KeyMap base) throws IOException {
+        Path file = program.resolveSibling(program.getFileName() + FILE_EXTENSION);
+
+        return Files.isRegularFile(file) ? load(file, base) : base;
+    }
+
+    /**
+     * @return key of the machine from 0 to F, or {@link #UNMAPPED}
+     */
+    public int get(KeyCode hostKey) {
+        return keys[hostKey.ordinal()];
+    }
+
+    private static int parseKey(String value, Path file) {
+        int key = Integer.parseInt(value, 16);
+
+        if (key < 0 || key >= Chip8.LEGAL_KEYS.size()) {
+            throw new IllegalArgumentException("Key " + value + " out of range in " + file);
+        }
+
+        return key;
+    }
+}
@@ -0,0 +1,107 @@
+package bg.example.input;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Keys held by every input source of an instance, merged without locks. Every source owns one
+ * slot with its key mask, bit N for key N, so sources never contend with each other.
+ * Presses are also latched until the next {@link #sample()}, so a tap shorter than a frame
+ * is still seen by the machine
+ */
+public class KeyState {
+
+    public static final int MAX_SOURCES = 16;
+    public static final int NO_KEY = -1;
+
+    private static final int KEYS = 16;
+
+    private final AtomicIntegerArray masks;
+    private final AtomicInteger sources;
+    private final AtomicInteger latched;
+    private final AtomicInteger lastPressed;
+    private final AtomicLongArray pressNanos;
+
+    public KeyState() {
+        masks = new AtomicIntegerArray(MAX_SOURCES);
+        sources = new AtomicInteger();
+        latched = new AtomicInteger();
+        lastPressed = new AtomicInteger(NO_KEY);
+        pressNanos = new AtomicLongArray(KEYS);
+    }
+
+    /**
+     * @return the slot of a new source
+     */
+    public KeyInput open() {
+        int slot = sources.getAndIncrement();
+
+        if (slot >= MAX_SOURCES) {
+            sources.decrementAndGet();
+            throw new IllegalStateException("No more than " + MAX_SOURCES + " input sources");
+        }
+
+        return new KeyInput(this, slot);
+    }
+
+    /**
+     * @return keys held by any source right now
+     */
+    public int mask() {
+        int mask = 0;
+        int count = Math.min(sources.get(), MAX_SOURCES);
+
+        for (int slot = 0; slot < count; slot++) {
+            mask |= masks.get(slot);
+        }
+
+        return mask;
+    }
+
+    /**
+     * @return keys held now or pressed since the last sample, clearing the latch
+     */
+    public int sample() {
+        return mask() | latched.getAndSet(0);
+    }
+
+    /**
+     * @return key pressed last by any source, or {@link #NO_KEY}
+     */
+    public int getLastPressedKey() {
+        return lastPressed.get();
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the last press of the key
+     */
+    public long getPressNanos(int key) {
+        return pressNanos.get(key);
+    }
+
+    void update(int slot, IntUnaryOperator change) {
+        int previous = masks.getAndUpdate(slot, change);
+        int pressed = change.applyAsInt(previous) & ~previous;
+
+        if (pressed == 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        for (int keys = pressed; keys != 0; keys &= keys - 1) {
+            int key = Integer.numberOfTrailingZeros(keys);
+
+            pressNanos.set(key, now);
+            lastPressed.set(key);
+        }
+
+        latched.getAndAccumulate(pressed, (current, added) -> current | added);
+    }
+
+    int get(int slot) {
+        return masks.get(slot);
+    }
+}
@@ -0,0 +1,75 @@
+package bg.example.input;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Accepts one remote controller at a time, sending pairs of bytes as viewers of a
+ * {@link bg.example.stream.FrameStreamServer} do: 1 to press or 0 to release followed by the key
+ * from 0 to F. The keys of a controller are released when it disconnects
+ */
+public class NetworkInputSource implements InputSource {
+
+    private final ServerSocket serverSocket;
+
+    /**
+     * @param port port to listen on all interfaces, 0 for any free port
+     */
+    public NetworkInputSource(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void start(KeyInput input) {
+        var thread = new Thread(() -> accept(input), "network-input");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void accept(KeyInput input) {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                read(new DataInputStream(socket.getInputStream()), input);
+            } catch (IOException e) {
+                // Disconnected or closed
+            } finally {
+                input.releaseAll();
+            }
+        }
+    }
+
+    private static void read(DataInputStream stream, KeyInput input) throws IOException {
+        try {
+            while (true) {
+                boolean press = stream.readByte() != 0;
+                int key = stream.readByte() & 0xF;
+
+                if (press) {
+                    input.press(key);
+                } else {
+                    input.release(key);
+                }
+            }
+        } catch (EOFException e) {
+            // Disconnected
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package bg.example.input;
+
+import bg.example.clock.FrameClock;
+
+/**
+ * Holds recorded keys frame by frame, such as the inputs of an explored path or a compiled
+ * {@link InputScript}, releasing every key once the recording ends
+ */
+public class ReplayInputSource implements InputSource, Runnable {
+
+    private final FrameClock clock;
+    private final int[] frames;
+
+    private volatile KeyInput input;
+    private volatile boolean finished;
+    private long startFrame;
+
+    /**
+     * @param frames key mask of every frame, bit N for key N, the first one held right away
+     */
+    public ReplayInputSource(FrameClock clock, int[] frames) {
+        this.clock = clock;
+        this.frames = frames;
+    }
+
+    @Override
+    public void start(KeyInput input) {
+        startFrame = clock.getFrame();
+        this.input = input;
+
+        input.set(frames.length == 0 ? 0 : frames[0]);
+        clock.addFrameListener(this);
+    }
+
+    /**
+     * Ends a frame, holding the keys of the next one
+     */
+    @Override
+    public void run() {
+        KeyInput current = input;
+
+        if (current == null) {
+            return;
+        }
+
+        long index = clock.getFrame() - startFrame;
+
+        if (index < frames.length) {
+            current.set(frames[(int) index]);
+        } else {
+            current.releaseAll();
+            input = null;
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        KeyInput current = input;
+        input = null;
+
+        if (current != null) {
+            current.releaseAll();
+        }
+    }
+
+    /**
+     * @return whether every recorded frame was played
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
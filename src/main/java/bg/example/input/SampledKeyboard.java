@@ -0,0 +1,149 @@
+package bg.example.input;
+
+import bg.example.chip.Chip8;
+import bg.example.keyboard.KeyboardInformation;
+import javafx.scene.input.KeyCode;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keys of an instance merged from any number of {@link InputSource}s. Registered as a frame
+ * listener, it samples the merged key state once per frame, at the first key test of the frame,
+ * so every instruction of a frame sees the same keys and testing a key is a bit test.
+ * A key wait stalls the frame, so while waiting the live state is read instead.
+ * <p>
+ * The time from a press to the first instruction seeing it is recorded in an {@link InputLatency}.
+ * Key tests are made on the emulation thread, sources may be added from any thread
+ */
+public class SampledKeyboard implements KeyboardInformation, Runnable, AutoCloseable {
+
+    private final KeyState state;
+    private final InputLatency latency;
+    private final List<InputSource> sources;
+
+    private final long[] pendingNanos;
+
+    private boolean frameEnded;
+    private int sampled;
+
+    private boolean waitingForKey;
+    private long waitStartNanos;
+    private long observedPressNanos;
+
+    public SampledKeyboard() {
+        state = new KeyState();
+        latency = new InputLatency();
+        sources = new CopyOnWriteArrayList<>();
+        pendingNanos = new long[Chip8.LEGAL_KEYS.size()];
+        frameEnded = true;
+    }
+
+    /**
+     * Starts a source delivering keys into its own slot of the key state
+     *
+     * @return the slot of the source
+     */
+    public KeyInput addSource(InputSource source) {
+        KeyInput input = state.open();
+
+        sources.add(source);
+        source.start(input);
+
+        return input;
+    }
+
+    public KeyState getState() {
+        return state;
+    }
+
+    public InputLatency getLatency() {
+        return latency;
+    }
+
+    /**
+     * Ends a frame, the next key test samples the key state again
+     */
+    @Override
+    public void run() {
+        frameEnded = true;
+        waitingForKey = false;
+    }
+
+    @Override
+    public boolean isPressed(KeyCode key) {
+        int index = Chip8.fromKeyCodeToInteger(key);
+        int mask = waitingForKey ? state.mask() : sample();
+
+        if ((mask >>> index & 1) == 0) {
+            return false;
+        }
+
+        if (pendingNanos[index] != 0) {
+            latency.record(System.nanoTime() - pendingNanos[index]);
+            pendingNanos[index] = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Only asked by a key wait, which spins on it until a new key is pressed
+     */
+    @Override
+    public KeyCode getLastPressedKey() {
+        long now = System.nanoTime();
+
+        if (!waitingForKey) {
+            waitingForKey = true;
+            waitStartNanos = now;
+        }
+
+        int key = state.getLastPressedKey();
+
+        if (key == KeyState.NO_KEY) {
+            return null;
+        }
+
+        long pressNanos = state.getPressNanos(key);
+
+        if (pressNanos > waitStartNanos && pressNanos != observedPressNanos) {
+            latency.record(now - pressNanos);
+            observedPressNanos = pressNanos;
+        }
+
+        return Chip8.fromIntegerToKeyCode(key);
+    }
+
+    @Override
+    public void close() {
+        for (InputSource source : sources) {
+            source.close();
+        }
+
+        sources.clear();
+    }
+
+    private int sample() {
+        if (!frameEnded) {
+            return sampled;
+        }
+
+        int previous = sampled;
+
+        frameEnded = false;
+        sampled = state.sample();
+
+        for (int key = 0; key < pendingNanos.length; key++) {
+            int bit = 1 << key;
+
+            if ((sampled & bit) == 0) {
+                pendingNanos[key] = 0;
+            } else if ((previous & bit) == 0) {
+                pendingNanos[key] = state.getPressNanos(key);
+            }
+        }
+
+        return sampled;
+    }
+}
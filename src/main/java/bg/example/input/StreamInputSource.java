@@ -0,0 +1,90 @@
+package bg.example.input;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads keys as lines of text, such as from the standard input: {@code +5} presses key 5,
+ * {@code -5} releases it and {@code 5} taps it. Unknown lines are ignored
+ */
+public class StreamInputSource implements InputSource {
+
+    private final InputStream stream;
+    private final String name;
+
+    private Thread reader;
+
+    /**
+     * @param name name of the reading thread
+     */
+    public StreamInputSource(InputStream stream, String name) {
+        this.stream = stream;
+        this.name = name;
+    }
+
+    @Override
+    public void start(KeyInput input) {
+        reader = new Thread(() -> read(input), name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public void close() {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Applies one line to the keys of a source
+     *
+     * @return whether the line was understood
+     */
+    public static boolean apply(String line, KeyInput input) {
+        String command = line.trim();
+
+        if (command.isEmpty()) {
+            return false;
+        }
+
+        char action = command.charAt(0);
+        int key = Character.digit(command.charAt(command.length() - 1), 16);
+        int length = action == '+' || action == '-' ? 2 : 1;
+
+        if (key < 0 || command.length() != length) {
+            return false;
+        }
+
+        if (action == '+') {
+            input.press(key);
+        } else if (action == '-') {
+            input.release(key);
+        } else {
+            input.press(key);
+            input.release(key);
+        }
+
+        return true;
+    }
+
+    private void read(KeyInput input) {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = lines.readLine()) != null) {
+                apply(line, input);
+            }
+        } catch (IOException e) {
+            // Closed
+        } finally {
+            input.releaseAll();
+        }
+    }
+}
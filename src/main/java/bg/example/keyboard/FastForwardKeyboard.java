@@ -0,0 +1,67 @@
+package bg.example.keyboard;
+
+import bg.example.clock.FrameClock;
+import bg.example.input.KeyMap;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Keyboard reserving keys for controlling the speed. The fast forward key runs at the turbo speed
+ * while held, and the speed up and slow down keys double and halve the normal speed
+ */
+public class FastForwardKeyboard extends KeyboardProxy {
+
+    public static final KeyCode FAST_FORWARD_KEY = KeyCode.TAB;
+    public static final KeyCode SPEED_UP_KEY = KeyCode.PAGE_UP;
+    public static final KeyCode SLOW_DOWN_KEY = KeyCode.PAGE_DOWN;
+
+    private static final double MIN_SPEED = 0.125;
+    private static final double MAX_SPEED = 64;
+
+    private final FrameClock clock;
+    private final double turboSpeed;
+
+    private double normalSpeed;
+    private boolean fastForwarding;
+
+    /**
+     * @param turboSpeed speed while the fast forward key is held, may be infinite
+     */
+    public FastForwardKeyboard(KeyMap keyMap, FrameClock clock, double turboSpeed) {
+        super(keyMap);
+        this.clock = clock;
+        this.turboSpeed = turboSpeed;
+        this.normalSpeed = clock.getSpeed();
+    }
+
+    @Override
+    public void press(KeyCode key) {
+        if (key == FAST_FORWARD_KEY) {
+            fastForwarding = true;
+            clock.setSpeed(turboSpeed);
+        } else if (key == SPEED_UP_KEY) {
+            changeNormalSpeed(Math.min(normalSpeed * 2, MAX_SPEED));
+        } else if (key == SLOW_DOWN_KEY) {
+            changeNormalSpeed(Math.max(normalSpeed / 2, MIN_SPEED));
+        } else {
+            super.press(key);
+        }
+    }
+
+    @Override
+    public void release(KeyCode key) {
+        if (key == FAST_FORWARD_KEY) {
+            fastForwarding = false;
+            clock.setSpeed(normalSpeed);
+        } else if (key != SPEED_UP_KEY && key != SLOW_DOWN_KEY) {
+            super.release(key);
+        }
+    }
+
+    private void changeNormalSpeed(double speed) {
+        normalSpeed = speed;
+
+        if (!fastForwarding) {
+            clock.setSpeed(speed);
+        }
+    }
+}
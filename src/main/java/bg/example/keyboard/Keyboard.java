@@ -2,7 +2,7 @@ package bg.example.keyboard;
 
 import javafx.scene.input.KeyCode;
 
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Set;
 
 public class Keyboard implements KeyboardInformation {
@@ -11,7 +11,7 @@ public class Keyboard implements KeyboardInformation {
     private KeyCode lastPressed;
 
     public Keyboard() {
-        pressedKeys = new HashSet<>();
+        pressedKeys = EnumSet.noneOf(KeyCode.class);
     }
 
     @Override
@@ -33,6 +33,13 @@ public class Keyboard implements KeyboardInformation {
         pressedKeys.remove(key);
     }
 
+    /**
+     * Overrides the last pressed key, used when restoring a saved state
+     */
+    public void setLastPressedKey(KeyCode key) {
+        lastPressed = key;
+    }
+
     public void clear() {
         pressedKeys.clear();
     }
@@ -1,29 +1,73 @@
 package bg.example.keyboard;
 
+import bg.example.chip.Chip8;
+import bg.example.input.InputSource;
+import bg.example.input.KeyInput;
+import bg.example.input.KeyMap;
 import javafx.scene.input.KeyCode;
 
-import java.util.Map;
-
 /**
- * Class used for remapping of keys
+ * Class used for remapping of keys. As an {@link InputSource} it also delivers the remapped keys
+ * of the window into the key state of an instance
  */
-public class KeyboardProxy extends Keyboard {
+public class KeyboardProxy extends Keyboard implements InputSource {
+
+    private final KeyMap keyMap;
+
+    private volatile KeyInput input;
+
+    public KeyboardProxy(KeyMap keyMap) {
+        this.keyMap = keyMap;
+    }
 
-    private final Map<KeyCode, KeyCode> remappedKeys;
+    @Override
+    public void start(KeyInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public void close() {
+        KeyInput current = input;
+        input = null;
 
-    public KeyboardProxy(Map<KeyCode, KeyCode> remappedKeys) {
-        this.remappedKeys = remappedKeys;
+        if (current != null) {
+            current.releaseAll();
+        }
     }
 
     @Override
     public void press(KeyCode key) {
-        KeyCode newKey = remappedKeys.getOrDefault(key, key);
-        super.press(newKey);
+        int newKey = keyMap.get(key);
+
+        if (newKey == KeyMap.UNMAPPED) {
+            super.press(key);
+            return;
+        }
+
+        super.press(Chip8.fromIntegerToKeyCode(newKey));
+
+        KeyInput current = input;
+
+        if (current != null) {
+            current.press(newKey);
+        }
     }
 
     @Override
     public void release(KeyCode key) {
-        KeyCode newKey = remappedKeys.getOrDefault(key, key);
-        super.release(newKey);
+        int newKey = keyMap.get(key);
+
+        if (newKey == KeyMap.UNMAPPED) {
+            super.release(key);
+            return;
+        }
+
+        super.release(Chip8.fromIntegerToKeyCode(newKey));
+
+        KeyInput current = input;
+
+        if (current != null) {
+            current.release(newKey);
+        }
     }
 }
@@ -0,0 +1,43 @@
+package bg.example.memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Memory of one byte per cell in a buffer outside of the heap, for example a memory-mapped
+ * file which other processes read while the instance runs
+ */
+public class BufferMemory implements Memory {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer cells from position zero to the limit, addresses past it are rejected
+     */
+    public BufferMemory(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void set(int address, int value) {
+        buffer.put(address, (byte) value);
+    }
+
+    @Override
+    public int get(int address) {
+        return buffer.get(address) & 0xFF;
+    }
+
+    @Override
+    public void copyTo(int[] target) {
+        for (int address = 0; address < buffer.limit(); address++) {
+            target[address] = buffer.get(address) & 0xFF;
+        }
+    }
+
+    @Override
+    public void copyFrom(int[] source) {
+        for (int address = 0; address < buffer.limit(); address++) {
+            buffer.put(address, (byte) source[address]);
+        }
+    }
+}
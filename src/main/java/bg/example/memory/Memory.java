@@ -6,4 +6,18 @@ public interface Memory {
 
     int get(int address);
 
+    /**
+     * Copies the whole memory
+     *
+     * @param target destination at least as big as the memory
+     */
+    void copyTo(int[] target);
+
+    /**
+     * Replaces the whole memory
+     *
+     * @param source values at least as many as the memory size
+     */
+    void copyFrom(int[] source);
+
 }
@@ -17,4 +17,14 @@ public class SimpleMemory implements Memory {
     public int get(int address) {
         return memory[address];
     }
+
+    @Override
+    public void copyTo(int[] target) {
+        System.arraycopy(memory, 0, target, 0, memory.length);
+    }
+
+    @Override
+    public void copyFrom(int[] source) {
+        System.arraycopy(source, 0, memory, 0, memory.length);
+    }
 }
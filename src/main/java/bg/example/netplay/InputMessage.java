@@ -0,0 +1,9 @@
+package bg.example.netplay;
+
+/**
+ * Keys held by one player during one frame
+ *
+ * @param frame frame the input applies to
+ * @param keys bit mask of the pressed keys, bit N for key N
+ */
+public record InputMessage(long frame, int keys) { }
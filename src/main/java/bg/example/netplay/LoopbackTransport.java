@@ -0,0 +1,71 @@
+package bg.example.netplay;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process transport delivering messages after a simulated latency.
+ * Jitter never reorders messages
+ */
+public class LoopbackTransport implements Transport {
+
+    private record Delivery(long time, InputMessage message) { }
+
+    private final LongSupplier clock;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final SplittableRandom random;
+
+    private final ConcurrentLinkedQueue<Delivery> inbox;
+    private LoopbackTransport peer;
+    private long lastDeliveryTime;
+
+    private LoopbackTransport(LongSupplier clock, long latencyNanos, long jitterNanos, long seed) {
+        this.clock = clock;
+        this.latencyNanos = latencyNanos;
+        this.jitterNanos = jitterNanos;
+        this.random = new SplittableRandom(seed);
+        this.inbox = new ConcurrentLinkedQueue<>();
+        this.lastDeliveryTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * Creates two connected ends
+     *
+     * @param clock time source in nanoseconds, for example a manually advanced one in tests
+     * @param latencyNanos minimum time until a message is delivered
+     * @param jitterNanos maximum random time added to the latency
+     */
+    public static LoopbackTransport[] pair(LongSupplier clock, long latencyNanos, long jitterNanos, long seed) {
+        LoopbackTransport first = new LoopbackTransport(clock, latencyNanos, jitterNanos, seed);
+        LoopbackTransport second = new LoopbackTransport(clock, latencyNanos, jitterNanos, seed + 1);
+
+        first.peer = second;
+        second.peer = first;
+
+        return new LoopbackTransport[] {first, second};
+    }
+
+    @Override
+    public void send(InputMessage message) {
+        long jitter = jitterNanos > 0 ? random.nextLong(jitterNanos + 1) : 0;
+        long time = Math.max(clock.getAsLong() + latencyNanos + jitter, lastDeliveryTime);
+
+        lastDeliveryTime = time;
+        peer.inbox.add(new Delivery(time, message));
+    }
+
+    @Override
+    public InputMessage poll() {
+        Delivery next = inbox.peek();
+
+        if (next == null || next.time() > clock.getAsLong()) {
+            return null;
+        }
+
+        inbox.poll();
+
+        return next.message();
+    }
+}
@@ -0,0 +1,186 @@
+package bg.example.netplay;
+
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+
+/**
+ * One side of a two player session sharing a single keypad. Only the keys held in every frame
+ * are exchanged, each player's input is applied a few frames after it is given and the keypad
+ * sees the keys of both players combined.
+ * <p>
+ * Missing remote input is predicted to repeat the last received one. When the real input turns out
+ * different, the machine is restored to the state saved before that frame and re-simulated up to
+ * the present. A side never runs more than the rollback window ahead of the input it has received
+ */
+public class NetplaySession {
+
+    public static final int DEFAULT_INPUT_DELAY = 2;
+    public static final int DEFAULT_MAX_ROLLBACK = 10;
+
+    private static final long NO_ROLLBACK = Long.MAX_VALUE;
+
+    private final HeadlessChip8 machine;
+    private final Transport transport;
+    private final int inputDelay;
+    private final int maxRollback;
+
+    private final int[] localInputs;
+    private final int[] remoteInputs;
+    private final int[] usedRemoteInputs;
+    private final HeadlessState[] snapshots;
+
+    private long frame;
+    private long confirmedRemoteFrame;
+    private int lastRemoteKeys;
+    private long rollbackFrame;
+
+    private long rollbacks;
+    private long resimulatedFrames;
+    private long rollbackNanos;
+
+    public NetplaySession(HeadlessChip8 machine, Transport transport) {
+        this(machine, transport, DEFAULT_INPUT_DELAY, DEFAULT_MAX_ROLLBACK);
+    }
+
+    /**
+     * @param machine deterministic machine, started from the same ROM and seed by both players
+     * @param inputDelay number of frames between giving input and applying it
+     * @param maxRollback maximum number of frames simulated with predicted input
+     */
+    public NetplaySession(HeadlessChip8 machine, Transport transport, int inputDelay, int maxRollback) {
+        this.machine = machine;
+        this.transport = transport;
+        this.inputDelay = inputDelay;
+        this.maxRollback = maxRollback;
+
+        // Remote input may arrive for frames up to one window and both delays ahead
+        int capacity = 2 * (maxRollback + inputDelay) + 4;
+
+        localInputs = new int[capacity];
+        remoteInputs = new int[capacity];
+        usedRemoteInputs = new int[capacity];
+        snapshots = new HeadlessState[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            snapshots[i] = new HeadlessState();
+        }
+
+        // Nobody gives input for the frames before the delay
+        confirmedRemoteFrame = inputDelay - 1;
+        rollbackFrame = NO_ROLLBACK;
+    }
+
+    /**
+     * Runs the next frame, rolling back first if remote input contradicted a prediction.
+     * Called once per displayed frame
+     *
+     * @param localKeys bit mask of the keys the local player holds, bit N for key N
+     * @return false if the frame was not run because the other player is too far behind
+     */
+    public boolean advance(int localKeys) {
+        receive();
+
+        if (frame - confirmedRemoteFrame > maxRollback) {
+            return false;
+        }
+
+        long inputFrame = frame + inputDelay;
+
+        localInputs[slot(inputFrame)] = localKeys;
+        transport.send(new InputMessage(inputFrame, localKeys));
+
+        if (rollbackFrame < frame) {
+            rollback();
+        }
+
+        simulate(frame);
+        frame++;
+
+        return true;
+    }
+
+    /**
+     * @return the next frame to run
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return last frame for which the input of the other player is known
+     */
+    public long getConfirmedRemoteFrame() {
+        return confirmedRemoteFrame;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedFrames() {
+        return resimulatedFrames;
+    }
+
+    /**
+     * @return total time spent restoring and re-simulating
+     */
+    public long getRollbackNanos() {
+        return rollbackNanos;
+    }
+
+    public HeadlessChip8 getMachine() {
+        return machine;
+    }
+
+    private void receive() {
+        InputMessage message;
+
+        while ((message = transport.poll()) != null) {
+            if (message.frame() != confirmedRemoteFrame + 1) {
+                throw new IllegalStateException(
+                    "Expected input for frame " + (confirmedRemoteFrame + 1) + " but got " + message.frame()
+                );
+            }
+
+            int slot = slot(message.frame());
+
+            confirmedRemoteFrame = message.frame();
+            remoteInputs[slot] = message.keys();
+            lastRemoteKeys = message.keys();
+
+            if (message.frame() < frame && usedRemoteInputs[slot] != message.keys()) {
+                rollbackFrame = Math.min(rollbackFrame, message.frame());
+            }
+        }
+    }
+
+    private void rollback() {
+        long start = System.nanoTime();
+
+        machine.restore(snapshots[slot(rollbackFrame)]);
+
+        for (long f = rollbackFrame; f < frame; f++) {
+            simulate(f);
+            resimulatedFrames++;
+        }
+
+        rollbacks++;
+        rollbackNanos += System.nanoTime() - start;
+        rollbackFrame = NO_ROLLBACK;
+    }
+
+    private void simulate(long simulatedFrame) {
+        int slot = slot(simulatedFrame);
+        int remoteKeys = simulatedFrame <= confirmedRemoteFrame ? remoteInputs[slot] : lastRemoteKeys;
+
+        machine.save(snapshots[slot]);
+        usedRemoteInputs[slot] = remoteKeys;
+
+        machine.applyKeys(localInputs[slot] | remoteKeys);
+        machine.runFrame();
+    }
+
+    private int slot(long frameNumber) {
+        return (int) (frameNumber % localInputs.length);
+    }
+}
@@ -0,0 +1,74 @@
+package bg.example.netplay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transport over a TCP connection. Received messages are read by a daemon thread,
+ * so polling never blocks
+ */
+public class SocketTransport implements Transport {
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final ConcurrentLinkedQueue<InputMessage> inbox;
+
+    private volatile IOException failure;
+
+    public SocketTransport(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.inbox = new ConcurrentLinkedQueue<>();
+
+        socket.setTcpNoDelay(true);
+
+        var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        var reader = new Thread(() -> read(in), "netplay-reader");
+
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public void send(InputMessage message) {
+        try {
+            out.writeLong(message.frame());
+            out.writeShort(message.keys());
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputMessage poll() {
+        if (failure != null && inbox.isEmpty()) {
+            throw new UncheckedIOException(failure);
+        }
+
+        return inbox.poll();
+    }
+
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void read(DataInputStream in) {
+        try {
+            while (true) {
+                inbox.add(new InputMessage(in.readLong(), in.readUnsignedShort()));
+            }
+        } catch (EOFException e) {
+            failure = new EOFException("Connection closed by the other player");
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
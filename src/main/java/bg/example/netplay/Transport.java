@@ -0,0 +1,15 @@
+package bg.example.netplay;
+
+/**
+ * Reliable, ordered delivery of input messages to the other player
+ */
+public interface Transport {
+
+    void send(InputMessage message);
+
+    /**
+     * @return the next received message or null if none has arrived, never blocks
+     */
+    InputMessage poll();
+
+}
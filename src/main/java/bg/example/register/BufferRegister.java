@@ -0,0 +1,31 @@
+package bg.example.register;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Register kept as an int in a buffer outside of the heap, wrapping the same way as {@link SimpleRegister}
+ */
+public class BufferRegister implements Register {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int mask;
+
+    public BufferRegister(ByteBuffer buffer, int offset, int bits) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.mask = (1 << bits) - 1;
+    }
+
+    @Override
+    public int get() {
+        return buffer.getInt(offset);
+    }
+
+    @Override
+    public boolean set(int value) {
+        buffer.putInt(offset, value & mask);
+
+        return value > mask || value < 0;
+    }
+}
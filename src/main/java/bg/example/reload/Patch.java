@@ -0,0 +1,17 @@
+package bg.example.reload;
+
+/**
+ * Run of changed bytes written into memory by a reload
+ *
+ * @param address memory address of the first byte
+ * @param values new values of the bytes
+ */
+public record Patch(int address, int[] values) {
+
+    /**
+     * @return address after the last patched byte
+     */
+    public int end() {
+        return address + values.length;
+    }
+}
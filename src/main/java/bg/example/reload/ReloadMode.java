@@ -0,0 +1,17 @@
+package bg.example.reload;
+
+/**
+ * What an instance does after its program changed
+ */
+public enum ReloadMode {
+
+    /**
+     * Keeps running from its current state with the changed bytes patched into memory
+     */
+    CONTINUE,
+
+    /**
+     * Goes back to the state at load, with the changed bytes patched in
+     */
+    RESTART
+}
@@ -0,0 +1,49 @@
+package bg.example.reload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the bytes of a program which changed between two versions
+ */
+public final class RomDiff {
+
+    private RomDiff() { }
+
+    /**
+     * Compares two versions loaded at the same offset. Bytes past the end of a shorter
+     * new version become zero, as in memory freshly loaded with it
+     *
+     * @param size number of bytes which fit in memory from the offset, longer versions are cut off
+     * @return one patch per run of changed bytes, in address order
+     */
+    public static List<Patch> diff(byte[] previous, byte[] current, int offset, int size) {
+        List<Patch> patches = new ArrayList<>();
+        int length = Math.min(Math.max(previous.length, current.length), size);
+
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            boolean changed = i < length && valueAt(previous, i) != valueAt(current, i);
+
+            if (changed && start < 0) {
+                start = i;
+            } else if (!changed && start >= 0) {
+                int[] values = new int[i - start];
+
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = valueAt(current, start + j);
+                }
+
+                patches.add(new Patch(offset + start, values));
+                start = -1;
+            }
+        }
+
+        return patches;
+    }
+
+    private static int valueAt(byte[] rom, int index) {
+        return index < rom.length ? rom[index] & 0xFF : 0;
+    }
+}
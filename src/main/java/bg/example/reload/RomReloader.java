@@ -0,0 +1,199 @@
+package bg.example.reload;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8State;
+import bg.example.memory.Memory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Watches the file of a loaded program and patches the bytes which changed into the memory of the
+ * running instance. Only changed bytes are written, so data the program wrote over unchanged parts
+ * of itself survives a reload. The instance either continues from its current state or restarts
+ * from a snapshot taken when the reloader was created.
+ * <p>
+ * The file is read on a watcher thread, the patch is applied through an executor which runs it
+ * between two instructions of the instance, for example a {@link bg.example.debug.Debugger}.
+ * The file is read once it stopped changing, versions arriving faster than they are applied
+ * are merged into one
+ */
+public class RomReloader implements AutoCloseable {
+
+    /**
+     * Quiet time after the last change of the file before it is read, so that a file
+     * being written is not read half way
+     */
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path rom;
+    private final Chip8 chip;
+    private final Memory memory;
+    private final int offset;
+    private final ReloadMode mode;
+    private final Executor executor;
+
+    private final Chip8State snapshot;
+    private final byte[] original;
+    private final AtomicReference<byte[]> pending;
+    private final List<Consumer<List<Patch>>> listeners;
+
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    private byte[] loaded;
+    private long reloads;
+
+    /**
+     * Must be created right after the program was loaded, before the instance runs
+     *
+     * @param chip instance the program was loaded into, its own memory is patched
+     * @param executor runs the patch on the thread of the instance
+     */
+    public RomReloader(Path rom, Chip8 chip, ReloadMode mode, Executor executor) throws IOException {
+        this.rom = rom.toAbsolutePath();
+        this.chip = chip;
+        this.memory = chip.getMemory();
+        this.offset = Chip8.FIRST_INSTRUCTION_OFFSET;
+        this.mode = mode;
+        this.executor = executor;
+
+        snapshot = new Chip8State();
+        chip.saveState(snapshot);
+
+        original = Files.readAllBytes(this.rom);
+        loaded = original;
+        pending = new AtomicReference<>();
+        listeners = new CopyOnWriteArrayList<>();
+
+        watchService = this.rom.getFileSystem().newWatchService();
+        this.rom.getParent().register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY
+        );
+
+        watcher = new Thread(this::watch, "rom-reloader");
+        watcher.setDaemon(true);
+    }
+
+    public void start() {
+        watcher.start();
+    }
+
+    /**
+     * @param listener called on the thread of the instance with the patches of every reload,
+     *                 for example to drop what was decoded or analyzed from the patched ranges
+     */
+    public void addListener(Consumer<List<Patch>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return number of reloads applied so far
+     */
+    public long getReloads() {
+        return reloads;
+    }
+
+    /**
+     * Queues a new version of the program, the same as a change of the file
+     */
+    public void reload(byte[] bytes) {
+        if (pending.getAndSet(bytes) == null) {
+            executor.execute(this::apply);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watcher.interrupt();
+    }
+
+    /**
+     * Runs on the thread of the instance
+     */
+    private void apply() {
+        byte[] bytes = pending.getAndSet(null);
+
+        if (bytes == null) {
+            return;
+        }
+
+        int size = Chip8.CHIP8_MEMORY_SIZE - offset;
+        List<Patch> patches;
+
+        if (mode == ReloadMode.RESTART) {
+            chip.loadState(snapshot);
+            patches = RomDiff.diff(original, bytes, offset, size);
+        } else {
+            patches = RomDiff.diff(loaded, bytes, offset, size);
+        }
+
+        for (Patch patch : patches) {
+            for (int i = 0; i < patch.values().length; i++) {
+                memory.set(patch.address() + i, patch.values()[i]);
+            }
+        }
+
+        loaded = bytes;
+        reloads++;
+
+        for (Consumer<List<Patch>> listener : listeners) {
+            listener.accept(patches);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!changed(watchService.take())) {
+                    continue;
+                }
+
+                WatchKey key;
+
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+
+                read();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.context() instanceof Path name && rom.getFileName().equals(name);
+        }
+
+        key.reset();
+
+        return changed;
+    }
+
+    private void read() {
+        try {
+            reload(Files.readAllBytes(rom));
+        } catch (IOException e) {
+            // The file is being replaced, the next event reads it again
+        }
+    }
+}
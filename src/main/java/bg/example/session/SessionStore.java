@@ -0,0 +1,470 @@
+package bg.example.session;
+
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a session on disk so that it survives a crash or a reboot. Every change of the held keys is
+ * appended to a memory-mapped journal together with the number of completed frames, and a full
+ * checkpoint is written every few frames. On restart the latest checkpoint is restored and the
+ * journal is replayed from it up to the last frame made durable. Once a checkpoint is durable the
+ * journal is replaced by one starting at its frame, so the journal stays as small as the changes
+ * between two checkpoints.
+ * <p>
+ * All file work happens on a writer thread. The emulation thread only queues key changes and
+ * copies the state for checkpoints, skipping a checkpoint if the previous one is still being written.
+ * The journal is forced to disk once per batch of completed frames
+ */
+public class SessionStore implements AutoCloseable {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 600;
+
+    private static final String JOURNAL_FILE = "journal.bin";
+    private static final String JOURNAL_TEMPORARY_FILE = "journal.tmp";
+    private static final String CHECKPOINT_FILE = "checkpoint.bin";
+    private static final String CHECKPOINT_TEMPORARY_FILE = "checkpoint.tmp";
+
+    private static final int JOURNAL_MAGIC = 0x43384A4E;
+    private static final int HEADER_SIZE = 24;
+    private static final int LAST_FRAME_OFFSET = 8;
+    private static final int FIRST_FRAME_OFFSET = 16;
+    private static final int RECORD_SIZE = 16;
+    private static final int INITIAL_JOURNAL_SIZE = 64 * 1024;
+
+    private static final long IDLE_PARK_NANOS = 100_000_000;
+
+    private record KeyChange(long frame, int keys) { }
+
+    private final Path directory;
+    private final int checkpointInterval;
+
+    private final ConcurrentLinkedQueue<KeyChange> keyChanges;
+    private final AtomicReference<HeadlessState> spareCheckpoint;
+    private final AtomicReference<HeadlessState> pendingCheckpoint;
+
+    private HeadlessChip8 machine;
+    private int lastKeys;
+
+    private volatile long completedFrame;
+    private volatile long durableFrame;
+    private volatile boolean running;
+    private volatile IOException failure;
+    private Thread writer;
+
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    private int journalPosition;
+
+    public SessionStore(Path directory) throws IOException {
+        this(directory, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param directory directory holding the files of a single session, created if missing
+     * @param checkpointInterval number of frames between full checkpoints
+     */
+    public SessionStore(Path directory, int checkpointInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.checkpointInterval = checkpointInterval;
+        this.journalChannel = openJournal();
+
+        keyChanges = new ConcurrentLinkedQueue<>();
+        spareCheckpoint = new AtomicReference<>(new HeadlessState());
+        pendingCheckpoint = new AtomicReference<>();
+    }
+
+    /**
+     * Brings a freshly created machine to the last durable frame of the stored session
+     * and starts journaling it. A new session starts at frame 0
+     *
+     * @param machine machine created from the same ROM and seed as the stored session
+     * @return the frame the session resumes at
+     * @throws IOException also if the journal starts after frame 0 and its checkpoint is damaged
+     */
+    public long resume(HeadlessChip8 machine) throws IOException {
+        this.machine = machine;
+
+        long checkpointFrame = restoreCheckpoint(machine);
+
+        mapJournal(Math.max(journalChannel.size(), INITIAL_JOURNAL_SIZE));
+
+        boolean hasJournal = journal.getInt(0) == JOURNAL_MAGIC;
+        long lastFrame = hasJournal ? journal.getLong(LAST_FRAME_OFFSET) : 0;
+        long firstFrame = hasJournal ? journal.getLong(FIRST_FRAME_OFFSET) : 0;
+
+        if (checkpointFrame < firstFrame) {
+            throw new IOException(
+                "The journal starts at frame " + firstFrame + " but the checkpoint is at frame " + checkpointFrame
+            );
+        }
+
+        long target = Math.max(lastFrame, checkpointFrame);
+        List<KeyChange> changes = readKeyChanges(target);
+
+        replay(machine, changes, checkpointFrame, target);
+
+        journal.putInt(0, JOURNAL_MAGIC);
+        journal.putLong(LAST_FRAME_OFFSET, target);
+        journal.force();
+
+        completedFrame = target;
+        durableFrame = target;
+        running = true;
+
+        writer = new Thread(this::write, "session-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        return target;
+    }
+
+    /**
+     * Runs one frame with the given keys held. Never waits for the disk
+     *
+     * @param keys bit mask of the held keys, bit N for key N
+     */
+    public void runFrame(int keys) {
+        long frame = machine.getFrame();
+
+        if (keys != lastKeys) {
+            keyChanges.add(new KeyChange(frame, keys));
+            lastKeys = keys;
+        }
+
+        machine.applyKeys(keys);
+        machine.runFrame();
+
+        completedFrame = frame + 1;
+
+        if (completedFrame % checkpointInterval == 0) {
+            offerCheckpoint();
+        }
+
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * @return number of frames which would be restored after a crash now
+     */
+    public long getDurableFrame() {
+        return durableFrame;
+    }
+
+    /**
+     * @return the error which stopped the writer thread, if any
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Makes every completed frame durable with a last checkpoint and stops the writer thread.
+     * Called by the thread running the frames
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            // Taken before stopping, the last pass of the writer still finds it
+            HeadlessState last = new HeadlessState();
+
+            machine.save(last);
+            pendingCheckpoint.set(last);
+        }
+
+        running = false;
+
+        if (writer != null) {
+            LockSupport.unpark(writer);
+
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (journalChannel != null) {
+            journalChannel.close();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void offerCheckpoint() {
+        HeadlessState state = spareCheckpoint.getAndSet(null);
+
+        if (state == null) {
+            return;
+        }
+
+        machine.save(state);
+        pendingCheckpoint.set(state);
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                boolean stopping = !running;
+                long frame = completedFrame;
+
+                KeyChange change;
+
+                while ((change = keyChanges.poll()) != null) {
+                    append(change);
+                }
+
+                if (frame != durableFrame) {
+                    journal.putLong(LAST_FRAME_OFFSET, frame);
+                    journal.force();
+                    durableFrame = frame;
+                }
+
+                HeadlessState checkpoint = pendingCheckpoint.getAndSet(null);
+
+                if (checkpoint != null) {
+                    writeCheckpoint(checkpoint);
+
+                    // Key changes queued before the checkpoint was taken belong before it
+                    while ((change = keyChanges.poll()) != null) {
+                        append(change);
+                    }
+
+                    compactJournal(checkpoint.getFrame());
+                    spareCheckpoint.set(checkpoint);
+                }
+
+                if (stopping) {
+                    return;
+                }
+
+                if (frame == completedFrame && keyChanges.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            failure = e instanceof UncheckedIOException unchecked ? unchecked.getCause() : (IOException) e;
+        }
+    }
+
+    private void append(KeyChange change) throws IOException {
+        if (journalPosition + RECORD_SIZE > journal.capacity()) {
+            journal.force();
+            mapJournal(journal.capacity() * 2L);
+        }
+
+        putRecord(journal, journalPosition, change.frame(), change.keys());
+        journalPosition += RECORD_SIZE;
+    }
+
+    /**
+     * Replaces the journal by one holding only what a resume from the durable checkpoint replays,
+     * the keys held at its frame and the changes after it. The new journal is forced to disk and
+     * moved over the old one, so a crash leaves either of them complete
+     */
+    private void compactJournal(long checkpointFrame) throws IOException {
+        int position = HEADER_SIZE;
+        int keys = 0;
+
+        while (position < journalPosition && journal.getLong(position) <= checkpointFrame) {
+            keys = journal.getInt(position + Long.BYTES);
+            position += RECORD_SIZE;
+        }
+
+        int kept = journalPosition - position;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE + kept);
+
+        buffer.putInt(0, JOURNAL_MAGIC);
+        buffer.putLong(LAST_FRAME_OFFSET, durableFrame);
+        buffer.putLong(FIRST_FRAME_OFFSET, checkpointFrame);
+        putRecord(buffer, HEADER_SIZE, checkpointFrame, keys);
+        buffer.put(HEADER_SIZE + RECORD_SIZE, journal, position, kept);
+
+        Path temporary = directory.resolve(JOURNAL_TEMPORARY_FILE);
+
+        try (FileChannel channel = FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE
+        )) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(
+            temporary,
+            directory.resolve(JOURNAL_FILE),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING
+        );
+
+        journalChannel.close();
+        journalChannel = openJournal();
+        mapJournal(Math.max(INITIAL_JOURNAL_SIZE, buffer.capacity() * 2L));
+        journalPosition = buffer.capacity();
+    }
+
+    private void writeCheckpoint(HeadlessState state) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(state.getSerializedSize() + Long.BYTES);
+
+        state.writeTo(buffer);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path temporary = directory.resolve(CHECKPOINT_TEMPORARY_FILE);
+
+        try (FileChannel channel = FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE
+        )) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(
+            temporary,
+            directory.resolve(CHECKPOINT_FILE),
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING
+        );
+    }
+
+    /**
+     * @return frame of the restored checkpoint or 0 if there is no valid one
+     */
+    private long restoreCheckpoint(HeadlessChip8 machine) throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        if (buffer.capacity() < Long.BYTES) {
+            return 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.capacity() - Long.BYTES);
+
+        if (crc.getValue() != buffer.getLong(buffer.capacity() - Long.BYTES)) {
+            return 0;
+        }
+
+        HeadlessState state = new HeadlessState();
+
+        state.readFrom(buffer);
+        machine.restore(state);
+
+        return state.getFrame();
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(
+            directory.resolve(JOURNAL_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+    }
+
+    private void mapJournal(long size) throws IOException {
+        journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Reads the valid records before the target frame and erases everything after them,
+     * so that stale records are never mistaken for new ones
+     */
+    private List<KeyChange> readKeyChanges(long target) {
+        List<KeyChange> changes = new ArrayList<>();
+
+        journalPosition = HEADER_SIZE;
+
+        while (isValidRecord(journalPosition)) {
+            long frame = journal.getLong(journalPosition);
+
+            if (frame >= target) {
+                break;
+            }
+
+            changes.add(new KeyChange(frame, journal.getInt(journalPosition + Long.BYTES)));
+            journalPosition += RECORD_SIZE;
+        }
+
+        for (int position = journalPosition; isValidRecord(position); position += RECORD_SIZE) {
+            journal.putLong(position, 0);
+            journal.putLong(position + Long.BYTES, 0);
+        }
+
+        return changes;
+    }
+
+    private boolean isValidRecord(int position) {
+        if (position + RECORD_SIZE > journal.capacity()) {
+            return false;
+        }
+
+        long frame = journal.getLong(position);
+        int keys = journal.getInt(position + Long.BYTES);
+
+        return journal.getInt(position + Long.BYTES + Integer.BYTES) == check(frame, keys);
+    }
+
+    private void replay(HeadlessChip8 machine, List<KeyChange> changes, long from, long to) {
+        int keys = 0;
+        int next = 0;
+
+        for (long frame = from; frame < to; frame++) {
+            while (next < changes.size() && changes.get(next).frame() <= frame) {
+                keys = changes.get(next++).keys();
+            }
+
+            machine.applyKeys(keys);
+            machine.runFrame();
+        }
+
+        // Every change read is before the target, the last one is still held
+        lastKeys = changes.isEmpty() ? 0 : changes.get(changes.size() - 1).keys();
+    }
+
+    private static void putRecord(ByteBuffer buffer, int position, long frame, int keys) {
+        buffer.putLong(position, frame);
+        buffer.putInt(position + Long.BYTES, keys);
+        buffer.putInt(position + Long.BYTES + Integer.BYTES, check(frame, keys));
+    }
+
+    private static int check(long frame, int keys) {
+        return (int) frame ^ (int) (frame >>> 32) ^ keys ^ JOURNAL_MAGIC;
+    }
+}
@@ -0,0 +1,188 @@
+package bg.example.shared;
+
+import bg.example.chip.Chip8;
+import bg.example.counter.BufferCounter;
+import bg.example.display.BufferDisplay;
+import bg.example.display.Display;
+import bg.example.memory.BufferMemory;
+import bg.example.memory.Memory;
+import bg.example.register.BufferRegister;
+import bg.example.register.Register;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory, registers, timers and screen of an instance in one buffer outside of the heap, either
+ * allocated directly or mapped from a file. Parts built from it are handed to {@link Chip8} in place of
+ * the heap ones, so the garbage collector never scans the state and other processes mapping the same
+ * file read it live without copies. Readers are not synchronized with the instance and may see a
+ * state in the middle of an instruction.
+ * <p>
+ * The layout is fixed and big-endian: a header of magic and version, then the program counter,
+ * index register, delay and sound timer and registers V0 to VF as ints, the screen as one long
+ * per row with the leftmost pixel in the most significant bit, and last the memory as one byte per cell
+ */
+public class SharedMachineState implements AutoCloseable {
+
+    public static final int MAGIC = 0x43385353;
+    public static final int VERSION = 1;
+
+    public static final int PROGRAM_COUNTER_OFFSET = 8;
+    public static final int INDEX_REGISTER_OFFSET = 12;
+    public static final int DELAY_TIMER_OFFSET = 16;
+    public static final int SOUND_TIMER_OFFSET = 20;
+    public static final int REGISTERS_OFFSET = 24;
+    public static final int SCREEN_OFFSET = REGISTERS_OFFSET + Chip8.NORMAL_REGISTERS_COUNT * Integer.BYTES;
+    public static final int MEMORY_OFFSET = SCREEN_OFFSET + Chip8.DISPLAY_HEIGHT * Long.BYTES;
+    public static final int SIZE = MEMORY_OFFSET + Chip8.CHIP8_MEMORY_SIZE;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private SharedMachineState(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a file for an instance to write, creating or overwriting it
+     */
+    public static SharedMachineState create(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+
+        return initialize(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+    }
+
+    /**
+     * Allocates the state outside of the heap without a file, for instances only this process reads
+     */
+    public static SharedMachineState allocate() {
+        return initialize(null, ByteBuffer.allocateDirect(SIZE));
+    }
+
+    /**
+     * Maps the file of a running instance for reading
+     */
+    public static SharedMachineState open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        if (channel.size() < SIZE) {
+            channel.close();
+            throw new IOException("Not a machine state file: " + file);
+        }
+
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, SIZE);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            channel.close();
+            throw new IOException("Not a machine state file: " + file);
+        }
+
+        return new SharedMachineState(channel, buffer);
+    }
+
+    private static SharedMachineState initialize(FileChannel channel, ByteBuffer buffer) {
+        for (int offset = 0; offset < SIZE; offset++) {
+            buffer.put(offset, (byte) 0);
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(Integer.BYTES, VERSION);
+
+        return new SharedMachineState(channel, buffer);
+    }
+
+    public Memory memory() {
+        return new BufferMemory(buffer.slice(MEMORY_OFFSET, Chip8.CHIP8_MEMORY_SIZE));
+    }
+
+    public Register[] registers() {
+        Register[] registers = new Register[Chip8.NORMAL_REGISTERS_COUNT];
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new BufferRegister(buffer, REGISTERS_OFFSET + i * Integer.BYTES, Chip8.NORMAL_REGISTER_BITS);
+        }
+
+        return registers;
+    }
+
+    public Register indexRegister() {
+        return new BufferRegister(buffer, INDEX_REGISTER_OFFSET, Chip8.INDEX_REGISTER_BITS);
+    }
+
+    public BufferCounter programCounter() {
+        return new BufferCounter(buffer, PROGRAM_COUNTER_OFFSET, Chip8.FIRST_INSTRUCTION_OFFSET);
+    }
+
+    /**
+     * @return timer which the owner ticks once per frame
+     */
+    public BufferCounter delayTimer() {
+        return new BufferCounter(buffer, DELAY_TIMER_OFFSET, 0);
+    }
+
+    /**
+     * @return timer which the owner ticks once per frame
+     */
+    public BufferCounter soundTimer() {
+        return new BufferCounter(buffer, SOUND_TIMER_OFFSET, 0);
+    }
+
+    /**
+     * @param display receives every change as well, null for none
+     */
+    public Display display(Display display) {
+        return new BufferDisplay(
+            buffer.slice(SCREEN_OFFSET, Chip8.DISPLAY_HEIGHT * Long.BYTES),
+            Chip8.DISPLAY_HEIGHT,
+            display
+        );
+    }
+
+    public int getProgramCounter() {
+        return buffer.getInt(PROGRAM_COUNTER_OFFSET);
+    }
+
+    public int getIndexRegister() {
+        return buffer.getInt(INDEX_REGISTER_OFFSET);
+    }
+
+    public int getDelayTimer() {
+        return buffer.getInt(DELAY_TIMER_OFFSET);
+    }
+
+    public int getSoundTimer() {
+        return buffer.getInt(SOUND_TIMER_OFFSET);
+    }
+
+    public int getRegister(int index) {
+        return buffer.getInt(REGISTERS_OFFSET + index * Integer.BYTES);
+    }
+
+    public int getMemory(int address) {
+        return buffer.get(MEMORY_OFFSET + address) & 0xFF;
+    }
+
+    public long getScreenRow(int y) {
+        return buffer.getLong(SCREEN_OFFSET + y * Long.BYTES);
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until the buffer is garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package bg.example.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Wire format of streamed frames. Every message starts with a type byte, a sequence number
+ * and the length of the payload. The payload is a run-length encoding of the XOR of two screens,
+ * packed one word per row, made of repeated groups holding the number of unchanged rows,
+ * the number of changed rows and then one XOR word per changed row.
+ * A delta is applied over the previous screen and a keyframe over a blank screen
+ */
+public final class FrameCodec {
+
+    public static final byte KEYFRAME = 0;
+    public static final byte DELTA = 1;
+
+    public static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES + Short.BYTES;
+
+    private FrameCodec() { }
+
+    /**
+     * @param previous screen the receiver already has, blank for keyframes
+     * @param current screen to send
+     * @return read-only buffer holding the whole message, ready to be written
+     */
+    public static ByteBuffer encode(byte type, int sequence, long[] previous, long[] current) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + maxPayloadSize(current.length));
+
+        buffer.put(type);
+        buffer.putInt(sequence);
+        buffer.putShort((short) 0);
+
+        int y = 0;
+
+        while (y < current.length) {
+            int unchanged = 0;
+
+            while (y < current.length && previous[y] == current[y]) {
+                unchanged++;
+                y++;
+            }
+
+            if (y == current.length) {
+                break;
+            }
+
+            int start = y;
+
+            while (y < current.length && previous[y] != current[y]) {
+                y++;
+            }
+
+            buffer.put((byte) unchanged);
+            buffer.put((byte) (y - start));
+
+            for (int row = start; row < y; row++) {
+                buffer.putLong(previous[row] ^ current[row]);
+            }
+        }
+
+        buffer.putShort(HEADER_SIZE - Short.BYTES, (short) (buffer.position() - HEADER_SIZE));
+
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Applies the next complete message of the buffer to the screen.
+     * An incomplete message is left in the buffer
+     *
+     * @param rows screen of the receiver, one word per row
+     * @return sequence number of the applied message or -1 if no complete message was available
+     */
+    public static int decode(ByteBuffer buffer, long[] rows) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+
+        int start = buffer.position();
+        byte type = buffer.get(start);
+        int sequence = buffer.getInt(start + Byte.BYTES);
+        int length = Short.toUnsignedInt(buffer.getShort(start + Byte.BYTES + Integer.BYTES));
+
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return -1;
+        }
+
+        if (type == KEYFRAME) {
+            Arrays.fill(rows, 0);
+        }
+
+        buffer.position(start + HEADER_SIZE);
+
+        int end = start + HEADER_SIZE + length;
+        int y = 0;
+
+        while (buffer.position() < end) {
+            y += Byte.toUnsignedInt(buffer.get());
+            int changed = Byte.toUnsignedInt(buffer.get());
+
+            for (int i = 0; i < changed; i++, y++) {
+                rows[y] ^= buffer.getLong();
+            }
+        }
+
+        return sequence;
+    }
+
+    private static int maxPayloadSize(int rows) {
+        return rows * (Long.BYTES + 2 * Byte.BYTES);
+    }
+}
@@ -0,0 +1,298 @@
+package bg.example.stream;
+
+import bg.example.chip.Chip8;
+import bg.example.keyboard.Keyboard;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking server sending the frames of one instance to any number of viewers.
+ * Every message is encoded once and the same buffer is shared by all viewers, and nothing is
+ * encoded while no viewer is connected. A new viewer first receives a keyframe of the latest frame,
+ * and a viewer falling too far behind has its backlog replaced by one. The keyframe is only encoded
+ * when a viewer needs it.
+ * <p>
+ * Viewers may send input as pairs of bytes, 1 to press or 0 to release followed by the key from 0 to F
+ */
+public class FrameStreamServer implements Runnable {
+
+    public static final int MAX_QUEUED_MESSAGES = 64;
+
+    private static final int INPUT_MESSAGE_SIZE = 2;
+    private static final int INPUT_BUFFER_SIZE = 64;
+
+    private final Keyboard keyboard;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    private final List<Viewer> viewers;
+
+    // Latest frame, its keyframe is encoded on first use
+    private long[] frame;
+    private long[] blank;
+    private int frameSequence;
+    private ByteBuffer keyframe;
+
+    private static class Viewer {
+
+        private final SocketChannel channel;
+        private final ArrayDeque<ByteBuffer> queue;
+        private final ByteBuffer input;
+
+        private Viewer(SocketChannel channel) {
+            this.channel = channel;
+            this.queue = new ArrayDeque<>();
+            this.input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * @param keyboard receives the input of all viewers
+     * @param port port to listen on all interfaces, 0 for any free port
+     */
+    public FrameStreamServer(Keyboard keyboard, int port) throws IOException {
+        this.keyboard = keyboard;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.viewers = new ArrayList<>();
+        this.frame = new long[0];
+        this.blank = frame;
+
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getViewerCount() {
+        synchronized (viewers) {
+            return viewers.size();
+        }
+    }
+
+    /**
+     * Queues a frame for every viewer. Called by the renderer thread and never blocks on the network
+     *
+     * @param sequence number of the frame, one more than the previous one
+     * @param previous the frame published before, all zero for the first one
+     * @param current the frame, valid only during the call
+     */
+    public void publish(int sequence, long[] previous, long[] current) {
+        synchronized (viewers) {
+            if (frame.length != current.length) {
+                frame = new long[current.length];
+                blank = new long[current.length];
+            }
+
+            System.arraycopy(current, 0, frame, 0, current.length);
+            frameSequence = sequence;
+            keyframe = null;
+
+            if (viewers.isEmpty()) {
+                return;
+            }
+
+            ByteBuffer delta = FrameCodec.encode(FrameCodec.DELTA, sequence, previous, current);
+
+            for (Viewer viewer : viewers) {
+                synchronized (viewer.queue) {
+                    if (viewer.queue.size() < MAX_QUEUED_MESSAGES) {
+                        viewer.queue.add(delta.duplicate());
+                    } else {
+                        resynchronize(viewer, keyframe());
+                    }
+                }
+            }
+        }
+
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                selector.select();
+
+                if (!serverChannel.isOpen()) {
+                    return;
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    handle(key);
+                }
+
+                selector.selectedKeys().clear();
+                updateInterest();
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        serverChannel.close();
+        selector.wakeup();
+
+        synchronized (viewers) {
+            for (Viewer viewer : viewers) {
+                viewer.channel.close();
+            }
+
+            viewers.clear();
+        }
+
+        selector.close();
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        Viewer viewer = (Viewer) key.attachment();
+
+        try {
+            if (key.isReadable()) {
+                read(viewer);
+            }
+
+            if (key.isValid() && key.isWritable()) {
+                write(viewer);
+            }
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+
+        Viewer viewer = new Viewer(channel);
+
+        synchronized (viewers) {
+            viewer.queue.add(keyframe().duplicate());
+            viewers.add(viewer);
+        }
+
+        channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, viewer);
+    }
+
+    private void read(Viewer viewer) throws IOException {
+        if (viewer.channel.read(viewer.input) < 0) {
+            disconnect(viewer);
+            return;
+        }
+
+        viewer.input.flip();
+
+        while (viewer.input.remaining() >= INPUT_MESSAGE_SIZE) {
+            boolean press = viewer.input.get() != 0;
+            int key = viewer.input.get() & 0xF;
+
+            if (press) {
+                keyboard.press(Chip8.fromIntegerToKeyCode(key));
+            } else {
+                keyboard.release(Chip8.fromIntegerToKeyCode(key));
+            }
+        }
+
+        viewer.input.compact();
+    }
+
+    private void write(Viewer viewer) throws IOException {
+        synchronized (viewer.queue) {
+            while (!viewer.queue.isEmpty()) {
+                ByteBuffer head = viewer.queue.peek();
+
+                viewer.channel.write(head);
+
+                if (head.hasRemaining()) {
+                    return;
+                }
+
+                viewer.queue.poll();
+            }
+        }
+    }
+
+    private void updateInterest() {
+        synchronized (viewers) {
+            for (Viewer viewer : viewers) {
+                SelectionKey key = viewer.channel.keyFor(selector);
+
+                if (key == null || !key.isValid()) {
+                    continue;
+                }
+
+                boolean pending;
+
+                synchronized (viewer.queue) {
+                    pending = !viewer.queue.isEmpty();
+                }
+
+                key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    private void disconnect(Viewer viewer) throws IOException {
+        synchronized (viewers) {
+            viewers.remove(viewer);
+        }
+
+        viewer.channel.close();
+    }
+
+    /**
+     * @return message holding the latest frame, called while holding the lock of the viewers
+     */
+    private ByteBuffer keyframe() {
+        if (keyframe == null) {
+            keyframe = FrameCodec.encode(FrameCodec.KEYFRAME, frameSequence, blank, frame);
+        }
+
+        return keyframe;
+    }
+
+    /**
+     * Drops every queued message which has not started being written and queues the keyframe instead
+     */
+    private static void resynchronize(Viewer viewer, ByteBuffer keyframe) {
+        ByteBuffer head = viewer.queue.peek();
+        boolean headStarted = head != null && head.position() > 0;
+
+        viewer.queue.clear();
+
+        if (headStarted) {
+            viewer.queue.add(head);
+        }
+
+        viewer.queue.add(keyframe.duplicate());
+    }
+}
@@ -0,0 +1,14 @@
+package bg.example.supervisor;
+
+/**
+ * Limits applied to one supervised instance
+ *
+ * @param instructionsPerSlice instructions run before the worker moves on to the next instance
+ * @param cpuNanosPerSecond time the instance may run within every second, after which it waits
+ *                          for the next second
+ * @param maxRestarts restarts after faults before the instance is quarantined
+ */
+public record Budget(int instructionsPerSlice, long cpuNanosPerSecond, int maxRestarts) {
+
+    public static final Budget DEFAULT = new Budget(1_000, 50_000_000, 3);
+}
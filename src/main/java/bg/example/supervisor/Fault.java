@@ -0,0 +1,20 @@
+package bg.example.supervisor;
+
+/**
+ * Failure of a supervised instance
+ *
+ * @param instance name of the instance
+ * @param address address of the instruction which failed, or of the next one for a stall
+ * @param instruction the instruction at the address, -1 if the address is outside of memory
+ * @param cause the thrown exception, null for a stall
+ */
+public record Fault(String instance, FaultKind kind, int address, int instruction, Throwable cause) {
+
+    @Override
+    public String toString() {
+        String instructionText = instruction < 0 ? "----" : String.format("%04X", instruction);
+
+        return String.format("%s: %s at %03X (%s)", instance, kind, address, instructionText)
+            + (cause == null ? "" : ": " + cause);
+    }
+}
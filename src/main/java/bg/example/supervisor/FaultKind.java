@@ -0,0 +1,66 @@
+package bg.example.supervisor;
+
+import bg.example.chip.MemoryFault;
+import bg.example.chip.StackFault;
+import bg.example.chip.UnknownInstructionFault;
+
+/**
+ * Cause of a supervised instance stopping
+ */
+public enum FaultKind {
+
+    /**
+     * An instruction with no implementation
+     */
+    UNKNOWN_INSTRUCTION,
+
+    /**
+     * A read or write outside of memory
+     */
+    MEMORY_ACCESS,
+
+    STACK_OVERFLOW,
+
+    STACK_UNDERFLOW,
+
+    /**
+     * Any other exception thrown by an instruction
+     */
+    CRASH,
+
+    /**
+     * No instruction completed within a watchdog period
+     */
+    STALLED;
+
+    /**
+     * @param e exception thrown by an instruction of any core
+     */
+    public static FaultKind of(Throwable e) {
+        if (e instanceof StackFault stackFault) {
+            return stackFault.getKind() == StackFault.Kind.OVERFLOW
+                ? STACK_OVERFLOW
+                : STACK_UNDERFLOW;
+        }
+
+        if (e instanceof UnknownInstructionFault) {
+            return UNKNOWN_INSTRUCTION;
+        }
+
+        if (e instanceof MemoryFault) {
+            return MEMORY_ACCESS;
+        }
+
+        // The opcode tables of Chip8 have no entry for the instruction
+        if (e instanceof NullPointerException) {
+            return UNKNOWN_INSTRUCTION;
+        }
+
+        // Chip8 indexes its memory array directly
+        if (e instanceof IndexOutOfBoundsException) {
+            return MEMORY_ACCESS;
+        }
+
+        return CRASH;
+    }
+}
@@ -0,0 +1,200 @@
+package bg.example.supervisor;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8State;
+import bg.example.chip.ExecutionCore;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Instance run by a {@link Supervisor}, always on the same worker thread. Its core is replaced
+ * with a new one after a fault until the restarts of the budget are used up
+ */
+public class SupervisedInstance {
+
+    public enum State {
+        RUNNING,
+
+        /**
+         * Used its time of the current second
+         */
+        THROTTLED,
+
+        /**
+         * Faulted more often than it may restart, never runs again
+         */
+        QUARANTINED
+    }
+
+    private static final long BUDGET_WINDOW_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final Supplier<? extends ExecutionCore> factory;
+    private final Budget budget;
+
+    private volatile ExecutionCore core;
+    private volatile State state;
+    private volatile boolean stalled;
+
+    private volatile long instructions;
+    private volatile long cpuNanos;
+    private volatile int restarts;
+    private volatile Fault lastFault;
+
+    private long windowStart;
+    private long windowNanos;
+
+    private long watchedInstructions;
+
+    private Chip8State faultState;
+
+    SupervisedInstance(String name, Supplier<? extends ExecutionCore> factory, Budget budget) {
+        this.name = name;
+        this.factory = factory;
+        this.budget = budget;
+
+        core = factory.get();
+        state = State.RUNNING;
+        watchedInstructions = -1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return whether the watchdog found no progress and none was made since
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
+    /**
+     * @return instructions completed by all cores of the instance
+     */
+    public long getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return time spent running the instance, measured per slice on its worker
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public Fault getLastFault() {
+        return lastFault;
+    }
+
+    /**
+     * Runs one slice of instructions unless the instance is out of budget
+     *
+     * @return whether any instruction ran
+     */
+    boolean runSlice(Consumer<Fault> faultListener) {
+        if (state == State.QUARANTINED) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+
+        if (start - windowStart >= BUDGET_WINDOW_NANOS) {
+            windowStart = start;
+            windowNanos = 0;
+
+            if (state == State.THROTTLED) {
+                state = State.RUNNING;
+            }
+        }
+
+        if (state == State.THROTTLED) {
+            return false;
+        }
+
+        ExecutionCore current = core;
+        int address = 0;
+        int count = 0;
+
+        try {
+            for (; count < budget.instructionsPerSlice(); count++) {
+                address = current.getProgramCounter();
+                current.step();
+            }
+        } catch (RuntimeException e) {
+            fault(FaultKind.of(e), address, e, faultListener);
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        instructions += count;
+        cpuNanos += elapsed;
+        windowNanos += elapsed;
+        stalled = false;
+
+        if (windowNanos >= budget.cpuNanosPerSecond() && state == State.RUNNING) {
+            state = State.THROTTLED;
+        }
+
+        return true;
+    }
+
+    /**
+     * Called by the watchdog once per period
+     */
+    void checkProgress(Consumer<Fault> faultListener) {
+        long seen = instructions;
+
+        if (state != State.RUNNING || seen != watchedInstructions) {
+            watchedInstructions = seen;
+            return;
+        }
+
+        if (!stalled) {
+            stalled = true;
+
+            Fault fault = new Fault(name, FaultKind.STALLED, core.getProgramCounter(), -1, null);
+
+            lastFault = fault;
+            faultListener.accept(fault);
+        }
+    }
+
+    private void fault(FaultKind kind, int address, RuntimeException cause, Consumer<Fault> faultListener) {
+        Fault fault = new Fault(name, kind, address, instructionAt(address), cause);
+
+        lastFault = fault;
+        faultListener.accept(fault);
+
+        if (restarts < budget.maxRestarts()) {
+            restarts++;
+            core = factory.get();
+        } else {
+            state = State.QUARANTINED;
+        }
+    }
+
+    private int instructionAt(int address) {
+        if (address < 0 || address + 1 >= Chip8.CHIP8_MEMORY_SIZE) {
+            return -1;
+        }
+
+        // Only allocated once the instance faults
+        if (faultState == null) {
+            faultState = new Chip8State();
+        }
+
+        core.saveState(faultState);
+
+        return faultState.getMemory(address) << Chip8.BYTE_SIZE | faultState.getMemory(address + 1);
+    }
+}
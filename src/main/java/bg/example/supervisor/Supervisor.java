@@ -0,0 +1,158 @@
+package bg.example.supervisor;
+
+import bg.example.chip.ExecutionCore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs many instances on a few worker threads, a slice of instructions at a time in turn, so that
+ * no instance can take the CPU of its neighbours. An instance which uses up its time of the current
+ * second waits for the next one. Exceptions thrown by an instruction are classified with the address
+ * and the instruction, then the instance is restarted or quarantined. A watchdog thread reports
+ * instances which stopped completing instructions.
+ * <p>
+ * The only work per instruction is reading the program counter for the fault report, everything
+ * else happens once per slice
+ */
+public class Supervisor implements AutoCloseable {
+
+    public static final long DEFAULT_WATCHDOG_NANOS = 1_000_000_000L;
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final List<List<SupervisedInstance>> partitions;
+    private final List<Thread> workers;
+    private final Thread watchdog;
+    private final long watchdogNanos;
+    private final Consumer<Fault> faultListener;
+
+    private volatile boolean running;
+    private int nextPartition;
+
+    public Supervisor(int workerCount, Consumer<Fault> faultListener) {
+        this(workerCount, DEFAULT_WATCHDOG_NANOS, faultListener);
+    }
+
+    /**
+     * @param watchdogNanos period after which an instance without progress is reported as stalled
+     * @param faultListener called from the worker or watchdog thread for every fault
+     */
+    public Supervisor(int workerCount, long watchdogNanos, Consumer<Fault> faultListener) {
+        this.watchdogNanos = watchdogNanos;
+        this.faultListener = faultListener;
+
+        partitions = new ArrayList<>(workerCount);
+        workers = new ArrayList<>(workerCount);
+
+        for (int i = 0; i < workerCount; i++) {
+            List<SupervisedInstance> partition = new CopyOnWriteArrayList<>();
+
+            partitions.add(partition);
+
+            Thread worker = new Thread(() -> work(partition), "supervisor-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+
+        watchdog = new Thread(this::watch, "supervisor-watchdog");
+        watchdog.setDaemon(true);
+    }
+
+    /**
+     * Adds an instance to the next worker in turn, it runs once the supervisor is started
+     *
+     * @param factory creates the core at the start and after every restart
+     */
+    public synchronized SupervisedInstance add(String name, Supplier<? extends ExecutionCore> factory, Budget budget) {
+        SupervisedInstance instance = new SupervisedInstance(name, factory, budget);
+
+        partitions.get(nextPartition).add(instance);
+        nextPartition = (nextPartition + 1) % partitions.size();
+
+        return instance;
+    }
+
+    public List<SupervisedInstance> getInstances() {
+        List<SupervisedInstance> instances = new ArrayList<>();
+
+        for (List<SupervisedInstance> partition : partitions) {
+            instances.addAll(partition);
+        }
+
+        return instances;
+    }
+
+    public void start() {
+        running = true;
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+
+        watchdog.start();
+    }
+
+    /**
+     * Stops the workers after their current slices. A worker stuck in an instruction is
+     * waited for at most one watchdog period and then left behind
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        LockSupport.unpark(watchdog);
+
+        try {
+            for (Thread worker : workers) {
+                LockSupport.unpark(worker);
+                worker.join(Math.max(1, watchdogNanos / 1_000_000));
+            }
+
+            watchdog.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work(List<SupervisedInstance> partition) {
+        while (running) {
+            boolean ran = false;
+
+            for (SupervisedInstance instance : partition) {
+                ran |= instance.runSlice(faultListener);
+            }
+
+            // Everything is throttled, quarantined or there is nothing to run yet
+            if (!ran) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void watch() {
+        long nextCheck = System.nanoTime() + watchdogNanos;
+
+        while (running) {
+            long remaining = nextCheck - System.nanoTime();
+
+            // Checking early would report instances which simply have not had their turn yet
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                continue;
+            }
+
+            nextCheck += watchdogNanos;
+
+            for (List<SupervisedInstance> partition : partitions) {
+                for (SupervisedInstance instance : partition) {
+                    instance.checkProgress(faultListener);
+                }
+            }
+        }
+    }
+}
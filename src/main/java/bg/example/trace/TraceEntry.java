@@ -0,0 +1,33 @@
+package bg.example.trace;
+
+/**
+ * Single executed instruction read back from a trace
+ *
+ * @param sequence number of instructions traced before this one
+ * @param register register written by the instruction, {@link TraceLog#INDEX_REGISTER} for I
+ *                 or {@link TraceLog#NO_REGISTER}
+ * @param value new value of the register
+ */
+public record TraceEntry(long sequence, int address, int instruction, int register, int value) {
+
+    static TraceEntry decode(long sequence, long entry) {
+        return new TraceEntry(
+            sequence,
+            (int) (entry >>> 32) & 0xFFFF,
+            (int) (entry >>> 48) & 0xFFFF,
+            (int) (entry >>> 24) & 0xFF,
+            (int) entry & 0xFFFFFF
+        );
+    }
+
+    @Override
+    public String toString() {
+        String written = register == TraceLog.NO_REGISTER
+            ? ""
+            : register == TraceLog.INDEX_REGISTER
+                ? String.format("  I=%03X", value)
+                : String.format("  V%X=%02X", register, value);
+
+        return String.format("%d  %03X  %04X%s", sequence, address, instruction, written);
+    }
+}
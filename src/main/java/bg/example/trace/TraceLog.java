@@ -0,0 +1,175 @@
+package bg.example.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Ring of executed instructions in a memory-mapped file. Every entry is a single long holding the
+ * address, the instruction and the register it wrote together with the new value. Entries are
+ * grouped into blocks and every completed block gets an index of the addresses, instructions and
+ * register values in it, so {@link TraceReader} only scans the blocks which may match.
+ * <p>
+ * A log belongs to the thread running its instance and is never locked. Appending writes into the
+ * mapped file and a few bitsets and allocates nothing
+ */
+public class TraceLog implements AutoCloseable {
+
+    public static final int NO_REGISTER = 0xFF;
+    public static final int INDEX_REGISTER = 0x10;
+
+    public static final long DEFAULT_CAPACITY = 1 << 22;
+
+    static final int MAGIC = 0x43385452;
+    static final int HEADER_SIZE = 32;
+    static final int BLOCK_ENTRIES_OFFSET = 4;
+    static final int BLOCK_COUNT_OFFSET = 8;
+    static final int WRITTEN_OFFSET = 16;
+
+    static final int BLOCK_ENTRIES = 4096;
+
+    // Bitset of every address, then filters of hashed instructions and hashed register values
+    static final int ADDRESS_WORDS = 64;
+    static final int HASH_WORDS = 32;
+    static final int HASH_BITS = 11;
+    static final int INDEX_WORDS = ADDRESS_WORDS + 2 * HASH_WORDS;
+    static final int INDEX_SIZE = INDEX_WORDS * Long.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int blockCount;
+    private final int capacity;
+    private final int indexOffset;
+
+    private final long[] index;
+
+    private long written;
+    private int position;
+    private int inBlock;
+
+    public TraceLog(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of entries kept, rounded up to whole blocks
+     */
+    public TraceLog(Path file, long capacity) throws IOException {
+        blockCount = (int) Math.max(1, (capacity + BLOCK_ENTRIES - 1) / BLOCK_ENTRIES);
+        this.capacity = blockCount * BLOCK_ENTRIES;
+
+        long size = HEADER_SIZE + (long) this.capacity * Long.BYTES + (long) blockCount * INDEX_SIZE;
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Trace of " + capacity + " entries does not fit in a single mapping");
+        }
+
+        indexOffset = HEADER_SIZE + this.capacity * Long.BYTES;
+
+        channel = FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE
+        );
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(BLOCK_ENTRIES_OFFSET, BLOCK_ENTRIES);
+        buffer.putInt(BLOCK_COUNT_OFFSET, blockCount);
+        buffer.putLong(WRITTEN_OFFSET, 0);
+
+        index = new long[INDEX_WORDS];
+    }
+
+    /**
+     * @param address address of the instruction
+     * @param instruction the executed instruction
+     * @param register register written by it, {@link #INDEX_REGISTER} for I or {@link #NO_REGISTER}
+     * @param value new value of the register
+     */
+    public void append(int address, int instruction, int register, int value) {
+        buffer.putLong(HEADER_SIZE + position * Long.BYTES, encode(address, instruction, register, value));
+
+        index[(address >>> 6) & (ADDRESS_WORDS - 1)] |= 1L << address;
+
+        int instructionBit = hash(instruction);
+        index[ADDRESS_WORDS + (instructionBit >>> 6)] |= 1L << instructionBit;
+
+        if (register != NO_REGISTER) {
+            int valueBit = hash(register << 16 | value);
+            index[ADDRESS_WORDS + HASH_WORDS + (valueBit >>> 6)] |= 1L << valueBit;
+        }
+
+        written++;
+
+        if (++position == capacity) {
+            position = 0;
+        }
+
+        if (++inBlock == BLOCK_ENTRIES) {
+            writeIndex();
+            inBlock = 0;
+        }
+    }
+
+    /**
+     * @return number of entries appended so far, including the overwritten ones
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Writes the index of the current partial block so every entry can be queried
+     */
+    public void flush() {
+        if (inBlock > 0) {
+            writeIndex();
+        }
+
+        buffer.putLong(WRITTEN_OFFSET, written);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        buffer.force();
+        channel.close();
+    }
+
+    private void writeIndex() {
+        int block = (int) ((written - 1) / BLOCK_ENTRIES % blockCount);
+        int offset = indexOffset + block * INDEX_SIZE;
+
+        for (int i = 0; i < INDEX_WORDS; i++) {
+            buffer.putLong(offset + i * Long.BYTES, index[i]);
+        }
+
+        // A partial block keeps collecting into the same index until it is complete
+        if (inBlock == BLOCK_ENTRIES) {
+            Arrays.fill(index, 0);
+        }
+
+        buffer.putLong(WRITTEN_OFFSET, written);
+    }
+
+    static long encode(int address, int instruction, int register, int value) {
+        return (long) (instruction & 0xFFFF) << 48
+            | (long) (address & 0xFFFF) << 32
+            | (long) (register & 0xFF) << 24
+            | value & 0xFFFFFF;
+    }
+
+    static int hash(int key) {
+        return (key * 0x9E3779B1) >>> (Integer.SIZE - HASH_BITS);
+    }
+}
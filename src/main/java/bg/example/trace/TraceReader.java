@@ -0,0 +1,158 @@
+package bg.example.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Offline queries over a file written by {@link TraceLog}. Searches look at the index of every
+ * block first and only scan the entries of blocks which may contain a match.
+ * <p>
+ * Only whole blocks are kept: the oldest block whose slot is being overwritten is left out
+ */
+public class TraceReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private final int blockEntries;
+    private final int blockCount;
+    private final int capacity;
+    private final int indexOffset;
+
+    private final long first;
+    private final long end;
+
+    private long scannedBlocks;
+
+    public TraceReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        if (buffer.getInt(0) != TraceLog.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a trace");
+        }
+
+        blockEntries = buffer.getInt(TraceLog.BLOCK_ENTRIES_OFFSET);
+        blockCount = buffer.getInt(TraceLog.BLOCK_COUNT_OFFSET);
+        capacity = blockEntries * blockCount;
+        indexOffset = TraceLog.HEADER_SIZE + capacity * Long.BYTES;
+
+        end = buffer.getLong(TraceLog.WRITTEN_OFFSET);
+
+        long blocks = (end + blockEntries - 1) / blockEntries;
+
+        first = Math.max(0, blocks - blockCount) * blockEntries;
+    }
+
+    /**
+     * @return sequence number of the oldest entry still in the trace
+     */
+    public long getFirstSequence() {
+        return first;
+    }
+
+    /**
+     * @return sequence number after the newest entry
+     */
+    public long getEndSequence() {
+        return end;
+    }
+
+    public TraceEntry get(long sequence) {
+        if (sequence < first || sequence >= end) {
+            throw new IndexOutOfBoundsException("Entry " + sequence + " is not in [" + first + ", " + end + ")");
+        }
+
+        return TraceEntry.decode(sequence, entryAt(sequence));
+    }
+
+    /**
+     * @param limit maximum number of entries to return, oldest first
+     */
+    public List<TraceEntry> findByAddress(int address, int limit) {
+        int word = (address >>> 6) & (TraceLog.ADDRESS_WORDS - 1);
+
+        return find(
+            word,
+            1L << address,
+            entry -> ((int) (entry >>> 32) & 0xFFFF) == address,
+            limit
+        );
+    }
+
+    public List<TraceEntry> findByInstruction(int instruction, int limit) {
+        int bit = TraceLog.hash(instruction);
+
+        return find(
+            TraceLog.ADDRESS_WORDS + (bit >>> 6),
+            1L << bit,
+            entry -> ((int) (entry >>> 48) & 0xFFFF) == instruction,
+            limit
+        );
+    }
+
+    /**
+     * @param register register from 0 to F or {@link TraceLog#INDEX_REGISTER}
+     * @return entries which wrote the value to the register
+     */
+    public List<TraceEntry> findByRegisterValue(int register, int value, int limit) {
+        int bit = TraceLog.hash(register << 16 | value);
+
+        return find(
+            TraceLog.ADDRESS_WORDS + TraceLog.HASH_WORDS + (bit >>> 6),
+            1L << bit,
+            entry -> ((int) (entry >>> 24) & 0xFF) == register && ((int) entry & 0xFFFFFF) == value,
+            limit
+        );
+    }
+
+    /**
+     * @return number of blocks whose entries were scanned by the searches so far
+     */
+    public long getScannedBlocks() {
+        return scannedBlocks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<TraceEntry> find(int indexWord, long indexBit, LongPredicate matches, int limit) {
+        List<TraceEntry> found = new ArrayList<>();
+
+        for (long blockStart = first; blockStart < end && found.size() < limit; blockStart += blockEntries) {
+            int block = (int) (blockStart / blockEntries % blockCount);
+            long word = buffer.getLong(indexOffset + (block * TraceLog.INDEX_WORDS + indexWord) * Long.BYTES);
+
+            if ((word & indexBit) == 0) {
+                continue;
+            }
+
+            scannedBlocks++;
+
+            long blockEnd = Math.min(blockStart + blockEntries, end);
+
+            for (long sequence = blockStart; sequence < blockEnd && found.size() < limit; sequence++) {
+                long entry = entryAt(sequence);
+
+                if (matches.test(entry)) {
+                    found.add(TraceEntry.decode(sequence, entry));
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private long entryAt(long sequence) {
+        return buffer.getLong(TraceLog.HEADER_SIZE + (int) (sequence % capacity) * Long.BYTES);
+    }
+}
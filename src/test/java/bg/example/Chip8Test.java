@@ -1,12 +1,169 @@
 package bg.example;
 
+import bg.example.harness.Checkpoint;
+import bg.example.harness.GoldenHarness;
+import bg.example.harness.RomCase;
+import javafx.scene.input.KeyCode;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static bg.example.Roms.rom;
 
 public class Chip8Test {
 
-    @Test
-    public void t() {
-        Assertions.assertEquals(1, 1);
+    /**
+     * Draws the font digits 0 to F followed by the decimal digits of 156
+     */
+    private static final byte[] FONT_ROM = rom(
+        0x6000, // 200: V0 = 0          digit
+        0x6100, // 202: V1 = 0          x
+        0x6200, // 204: V2 = 0          y
+        0xF029, // 206: I = font(V0)
+        0xD125, // 208: draw V1, V2, 5
+        0x7001, // 20A: V0 += 1
+        0x7108, // 20C: V1 += 8
+        0x3140, // 20E: skip if V1 == 64
+        0x1218, // 210: jump 218
+        0x6100, // 212: V1 = 0
+        0x7206, // 214: V2 += 6
+        0x1218, // 216: jump 218
+        0x3010, // 218: skip if V0 == 16
+        0x1206, // 21A: jump 206
+        0x639C, // 21C: V3 = 156
+        0xA300, // 21E: I = 300
+        0xF333, // 220: BCD V3
+        0xF265, // 222: load V0..V2
+        0x6418, // 224: V4 = 24
+        0x6500, // 226: V5 = 0
+        0xF029, // 228: I = font(V0)
+        0xD545, // 22A: draw V5, V4, 5
+        0x7508, // 22C: V5 += 8
+        0xF129, // 22E: I = font(V1)
+        0xD545, // 230: draw V5, V4, 5
+        0x7508, // 232: V5 += 8
+        0xF229, // 234: I = font(V2)
+        0xD545, // 236: draw V5, V4, 5
+        0x1238  // 238: jump 238
+    );
+
+    /**
+     * Shows a digit which is incremented every ten frames of the delay timer
+     */
+    private static final byte[] TIMER_ROM = rom(
+        0x6000, // 200: V0 = 0
+        0x6C0F, // 202: VC = F
+        0x00E0, // 204: clear
+        0xF029, // 206: I = font(V0)
+        0x6A1C, // 208: VA = 28
+        0x6B0D, // 20A: VB = 13
+        0xDAB5, // 20C: draw VA, VB, 5
+        0x610A, // 20E: V1 = 10
+        0xF115, // 210: delay = V1
+        0xF118, // 212: sound = V1
+        0xF107, // 214: V1 = delay
+        0x3100, // 216: skip if V1 == 0
+        0x1214, // 218: jump 214
+        0x7001, // 21A: V0 += 1
+        0x80C2, // 21C: V0 &= VC
+        0x1204  // 21E: jump 204
+    );
+
+    /**
+     * Shows the digit of every pressed key at the position of the key
+     */
+    private static final byte[] KEYS_ROM = rom(
+        0x00E0, // 200: clear
+        0x6000, // 202: V0 = 0          key
+        0x6100, // 204: V1 = 0          x
+        0x6200, // 206: V2 = 0          y
+        0xE09E, // 208: skip if V0 is pressed
+        0x1210, // 20A: jump 210
+        0xF029, // 20C: I = font(V0)
+        0xD125, // 20E: draw V1, V2, 5
+        0x7001, // 210: V0 += 1
+        0x7108, // 212: V1 += 8
+        0x3140, // 214: skip if V1 == 64
+        0x121C, // 216: jump 21C
+        0x6100, // 218: V1 = 0
+        0x7206, // 21A: V2 += 6
+        0x3010, // 21C: skip if V0 == 16
+        0x1208, // 21E: jump 208
+        0x6303, // 220: V3 = 3
+        0xF315, // 222: delay = V3
+        0xF307, // 224: V3 = delay
+        0x3300, // 226: skip if V3 == 0
+        0x1224, // 228: jump 224
+        0x1200  // 22A: jump 200
+    );
+
+    /**
+     * Flips random pixels
+     */
+    private static final byte[] RANDOM_ROM = rom(
+        0xA20A, // 200: I = 20A
+        0xC03F, // 202: V0 = random & 3F
+        0xC11F, // 204: V1 = random & 1F
+        0xD011, // 206: draw V0, V1, 1
+        0x1202, // 208: jump 202
+        0x8000  // 20A: sprite
+    );
+
+    /**
+     * Runs arithmetic, logical and shift instructions and stores the registers in memory
+     */
+    private static final byte[] ARITHMETIC_ROM = rom(
+        0x6001, // 200: V0 = 1
+        0x6103, // 202: V1 = 3
+        0x8014, // 204: V0 += V1
+        0x8106, // 206: V1 = V0 >> 1
+        0x820E, // 208: V2 = V0 << 1
+        0x8315, // 20A: V3 -= V1
+        0x8407, // 20C: V4 = V0 - V4
+        0x8513, // 20E: V5 ^= V1
+        0x7601, // 210: V6 += 1
+        0xA300, // 212: I = 300
+        0xF61E, // 214: I += V6
+        0xF555, // 216: store V0..V5
+        0x1204  // 218: jump 204
+    );
+
+    private static final List<RomCase> CASES = List.of(
+        new RomCase("font", FONT_ROM, 0)
+            .checkAt(1, 5, 10, 30),
+        new RomCase("timer", TIMER_ROM, 0)
+            .checkAt(1, 11, 25, 60, 200),
+        new RomCase("keys", KEYS_ROM, 0)
+            .press(5, KeyCode.DIGIT1)
+            .press(10, KeyCode.A)
+            .release(20, KeyCode.DIGIT1)
+            .press(25, KeyCode.F)
+            .release(40, KeyCode.A)
+            .release(40, KeyCode.F)
+            .checkAt(4, 8, 15, 30, 45),
+        new RomCase("random", RANDOM_ROM, 42)
+            .checkAt(1, 10, 100),
+        new RomCase("arithmetic", ARITHMETIC_ROM, 0)
+            .checkAt(1, 10, 100, 500)
+    );
+
+    @TestFactory
+    public Stream<DynamicTest> romsMatchGoldenState() {
+        GoldenHarness harness = new GoldenHarness();
+        Map<RomCase, List<Checkpoint>> results = harness.runAll(CASES);
+
+        return results.entrySet()
+                      .stream()
+                      .map(entry -> DynamicTest.dynamicTest(
+                          entry.getKey().name(),
+                          () -> {
+                              List<String> failures = harness.verify(entry.getKey(), entry.getValue());
+                              Assertions.assertTrue(failures.isEmpty(), String.join("\n", failures));
+                          }
+                      ));
     }
 }
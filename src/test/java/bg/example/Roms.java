@@ -0,0 +1,23 @@
+package bg.example;
+
+/**
+ * Programs for tests, written as instructions
+ */
+public final class Roms {
+
+    private Roms() { }
+
+    /**
+     * @return the instructions as bytes of a program, most significant byte first
+     */
+    public static byte[] rom(int... instructions) {
+        byte[] rom = new byte[instructions.length * 2];
+
+        for (int i = 0; i < instructions.length; i++) {
+            rom[i * 2] = (byte) (instructions[i] >>> Byte.SIZE);
+            rom[i * 2 + 1] = (byte) instructions[i];
+        }
+
+        return rom;
+    }
+}
@@ -0,0 +1,39 @@
+package bg.example.analysis;
+
+import bg.example.Roms;
+import bg.example.loader.rom.BasicROMLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Run with the benchmark profile, timings depend on the machine
+ */
+public class RomAnalyzerBenchmark {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void fullRomIsAnalyzedWellUnderAMillisecond() throws IOException {
+        int[] instructions = RomAnalyzerTest.fullRom();
+        Path file = Files.write(directory.resolve("full.ch8"), Roms.rom(instructions));
+        RomAnalyzer analyzer = new RomAnalyzer(new BasicROMLoader());
+        long best = Long.MAX_VALUE;
+
+        for (int i = 0; i < 200; i++) {
+            long start = System.nanoTime();
+            RomAnalysis analysis = analyzer.analyze(file);
+
+            best = Math.min(best, System.nanoTime() - start);
+            Assertions.assertTrue(analysis.isInstruction(0x200 + (instructions.length - 1) * 2));
+        }
+
+        System.out.println("Full rom analyzed in " + best + " ns");
+        Assertions.assertTrue(best < 1_000_000, "Took " + best + " ns");
+    }
+}
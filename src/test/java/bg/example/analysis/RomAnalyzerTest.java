@@ -0,0 +1,203 @@
+package bg.example.analysis;
+
+import bg.example.Roms;
+import bg.example.loader.rom.BasicROMLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class RomAnalyzerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void controlFlowGraphFollowsJumpsCallsAndSkips() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0x2208, // 200: CALL 208
+            0x3001, // 202: SE V0, 01
+            0x1202, // 204: JP 202
+            0x120C, // 206: JP 20C
+            0x6001, // 208: LD V0, 01
+            0x00EE, // 20A: RET
+            0x120C, // 20C: JP 20C
+            0xFFFF  // 20E: data
+        ));
+
+        List<BasicBlock> blocks = analysis.getBlocks();
+
+        Assertions.assertEquals(6, blocks.size());
+        assertBlock(blocks.get(0), 0x200, 0x202, 0x208, 0x202);
+        assertBlock(blocks.get(1), 0x202, 0x204, 0x204, 0x206);
+        assertBlock(blocks.get(2), 0x204, 0x206, 0x202);
+        assertBlock(blocks.get(3), 0x206, 0x208, 0x20C);
+        assertBlock(blocks.get(4), 0x208, 0x20C);
+        assertBlock(blocks.get(5), 0x20C, 0x20E, 0x20C);
+
+        Assertions.assertEquals(
+            List.of(new Region(0x200, 0x20E, Region.Kind.CODE), new Region(0x20E, 0x210, Region.Kind.DATA)),
+            analysis.getRegions()
+        );
+        Assertions.assertTrue(analysis.isCodeImmutable());
+    }
+
+    @Test
+    public void unreachableBytesAreData() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0x1206, // 200: JP 206
+            0x6001, // 202: never run
+            0x6002, // 204: never run
+            0xA20A, // 206: LD I, 20A
+            0x1208  // 208: JP 208
+        ));
+
+        Assertions.assertFalse(analysis.isCode(0x202));
+        Assertions.assertFalse(analysis.isInstruction(0x204));
+        Assertions.assertTrue(analysis.isInstruction(0x206));
+        Assertions.assertEquals(3, analysis.getRegions().size());
+        Assertions.assertEquals(new Region(0x202, 0x206, Region.Kind.DATA), analysis.getRegions().get(1));
+    }
+
+    @Test
+    public void storesOverCodeAreFound() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0xA20C, // 200: LD I, 20C
+            0x2210, // 202: CALL 210
+            0xF155, // 204: LD [I], V1 (I unknown after the call)
+            0xA300, // 206: LD I, 300
+            0xF033, // 208: LD B, V0 (data)
+            0x120A, // 20A: JP 20A
+            0xF155, // 20C: never run
+            0x0000, // 20E: data
+            0xA20A, // 210: LD I, 20A
+            0xF155, // 212: LD [I], V1 over 20A
+            0x00EE  // 214: RET
+        ));
+
+        Assertions.assertEquals(
+            List.of(new SelfModifyingStore(0x212, 0xF155, 0x20A, 2)),
+            analysis.getSelfModifyingStores()
+        );
+        Assertions.assertEquals(List.of(0x204), analysis.getUnresolvedStores());
+        Assertions.assertFalse(analysis.isCodeImmutable());
+    }
+
+    @Test
+    public void indexKnownOnlyWhenAllPathsAgree() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0xA300, // 200: LD I, 300
+            0x3000, // 202: SE V0, 00
+            0xA200, // 204: LD I, 200
+            0xF033, // 206: LD B, V0 with I 300 or 200
+            0xA300, // 208: LD I, 300
+            0x3000, // 20A: SE V0, 00
+            0x6000, // 20C: LD V0, 00
+            0xF033, // 20E: LD B, V0 with I 300
+            0x1210  // 210: JP 210
+        ));
+
+        Assertions.assertEquals(List.of(0x206), analysis.getUnresolvedStores());
+        Assertions.assertTrue(analysis.getSelfModifyingStores().isEmpty());
+    }
+
+    @Test
+    public void bytesAfterIndirectJumpBaseAreUnknown() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0x6002, // 200: LD V0, 02
+            0xB206, // 202: JP V0, 206
+            0xFFFF, // 204: data
+            0x120A, // 206: JP 20A, first entry of the table
+            0x120C, // 208: JP 20C, second entry
+            0x120A, // 20A: JP 20A
+            0x120C  // 20C: JP 20C
+        ));
+
+        Assertions.assertEquals(List.of(0x202), analysis.getIndirectJumps());
+        Assertions.assertTrue(analysis.isInstruction(0x206));
+        Assertions.assertFalse(analysis.isCode(0x204));
+        Assertions.assertFalse(analysis.isUnknown(0x204));
+        Assertions.assertFalse(analysis.isCode(0x208));
+        Assertions.assertTrue(analysis.isUnknown(0x208));
+        Assertions.assertFalse(analysis.isUnknown(0x20A));
+        Assertions.assertEquals(
+            List.of(
+                new Region(0x200, 0x204, Region.Kind.CODE),
+                new Region(0x204, 0x206, Region.Kind.DATA),
+                new Region(0x206, 0x208, Region.Kind.CODE),
+                new Region(0x208, 0x20A, Region.Kind.UNKNOWN),
+                new Region(0x20A, 0x20C, Region.Kind.CODE),
+                new Region(0x20C, 0x20E, Region.Kind.UNKNOWN)
+            ),
+            analysis.getRegions()
+        );
+    }
+
+    @Test
+    public void storesOverUnknownBytesMayModifyCode() throws IOException {
+        RomAnalysis analysis = analyze(romFile(
+            0xA20A, // 200: LD I, 20A
+            0xF055, // 202: LD [I], V0
+            0xB208, // 204: JP V0, 208
+            0x0000, // 206: data
+            0x1208, // 208: JP 208
+            0x1208  // 20A: entry reached with V0 = 2
+        ));
+
+        Assertions.assertEquals(
+            List.of(new SelfModifyingStore(0x202, 0xF055, 0x20A, 1)),
+            analysis.getSelfModifyingStores()
+        );
+        Assertions.assertFalse(analysis.isCodeImmutable());
+    }
+
+    @Test
+    public void fullRomIsFollowedToItsEnd() throws IOException {
+        int[] instructions = fullRom();
+        RomAnalysis analysis = analyze(romFile(instructions));
+
+        for (int i = 0; i < instructions.length; i++) {
+            Assertions.assertTrue(analysis.isInstruction(0x200 + i * 2), "instruction " + i);
+        }
+    }
+
+    /**
+     * @return instructions filling the whole memory, all reachable by skips, calls and falling through
+     */
+    static int[] fullRom() {
+        int[] instructions = new int[1792];
+
+        for (int i = 0; i < instructions.length; i++) {
+            int address = 0x200 + i * 2;
+
+            instructions[i] = switch (i % 4) {
+                case 0 -> 0x3000 | (i & 0xFF);
+                case 1 -> 0x6000 | (i & 0xFF);
+                case 2 -> 0xA000 | (0x200 + (i * 37) % 0xE00);
+                default -> i % 16 == 3 ? 0x2000 | address + 2 : 0xF033;
+            };
+        }
+
+        instructions[instructions.length - 1] = 0x1000 | (0x200 + (instructions.length - 1) * 2);
+
+        return instructions;
+    }
+
+    private RomAnalysis analyze(Path rom) throws IOException {
+        return new RomAnalyzer(new BasicROMLoader()).analyze(rom);
+    }
+
+    private static void assertBlock(BasicBlock block, int start, int end, int... successors) {
+        Assertions.assertEquals(start, block.start(), "start");
+        Assertions.assertEquals(end, block.end(), "end of block at " + Integer.toHexString(start));
+        Assertions.assertArrayEquals(successors, block.successors(), "successors of " + Integer.toHexString(start));
+    }
+
+    private Path romFile(int... instructions) throws IOException {
+        return Files.write(directory.resolve("rom-" + instructions.length + ".ch8"), Roms.rom(instructions));
+    }
+}
@@ -0,0 +1,201 @@
+package bg.example.capture;
+
+import bg.example.chip.Chip8;
+import bg.example.display.DisplayPipeline;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CaptureDisplayTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void gifHoldsScaledFrames() throws Exception {
+        Path file = directory.resolve("capture.gif");
+        CaptureDisplay capture = newCapture(new GifEncoder(file, 3, 2), 16);
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+
+        rows[0] = 1L << 63;
+        capture.render(rows, 1);
+        Thread.sleep(40);
+
+        rows[31] = 1;
+        capture.render(rows, 2);
+
+        CaptureDisplay.Report report = capture.close();
+
+        Assertions.assertEquals(new CaptureDisplay.Report(2, 2, 0), report);
+
+        List<BufferedImage> images = readGif(file);
+
+        Assertions.assertEquals(2, images.size());
+        Assertions.assertEquals(64 * 3, images.get(0).getWidth());
+        Assertions.assertEquals(32 * 2, images.get(0).getHeight());
+
+        Assertions.assertTrue(isBlack(images.get(0), 2, 1));
+        Assertions.assertFalse(isBlack(images.get(0), 3, 0));
+        Assertions.assertFalse(isBlack(images.get(0), 64 * 3 - 1, 32 * 2 - 1));
+        Assertions.assertTrue(isBlack(images.get(1), 64 * 3 - 1, 32 * 2 - 1));
+    }
+
+    @Test
+    public void rawFramesAreIndexed() throws Exception {
+        Path frames = directory.resolve("frames.raw");
+        Path index = directory.resolve("frames.idx");
+        CaptureDisplay capture = newCapture(new RawFrameEncoder(frames, index), 16);
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+
+        for (int x = 0; x < 10; x++) {
+            rows[3] |= 1L << 63 - x;
+            capture.render(rows, 2 * x);
+            capture.render(rows, 2 * x + 1);
+        }
+
+        Assertions.assertEquals(10, capture.close().encoded());
+
+        try (var in = new DataInputStream(Files.newInputStream(frames))) {
+            Assertions.assertEquals(64, in.readInt());
+            Assertions.assertEquals(32, in.readInt());
+
+            in.skipNBytes(9L * 32 * Long.BYTES + 3 * Long.BYTES);
+            Assertions.assertEquals(0xFFC0L << 48, in.readLong());
+        }
+
+        Assertions.assertEquals(10L * 2 * Long.BYTES, Files.size(index));
+    }
+
+    @Test
+    public void slowEncoderDropsFramesInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        FrameEncoder blocked = new FrameEncoder() {
+            @Override
+            public void start(int width, int height) { }
+
+            @Override
+            public void encode(long[] rows, long nanos) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void finish() { }
+        };
+
+        CaptureDisplay capture = newCapture(blocked, 8);
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+
+        for (int i = 0; i < 100; i++) {
+            rows[0] ^= 1L << 63 - i % 64;
+            capture.render(rows, i);
+        }
+
+        Assertions.assertTrue(capture.getDroppedFrames() >= 100 - 9);
+
+        release.countDown();
+
+        CaptureDisplay.Report report = capture.close();
+
+        Assertions.assertEquals(100, report.captured() + report.dropped());
+        Assertions.assertEquals(report.captured(), report.encoded());
+    }
+
+    @Test
+    public void onlyPublishedFramesAreCapturedIncludingClearedScreens() throws Exception {
+        BlockingQueue<long[]> encoded = new LinkedBlockingQueue<>();
+
+        FrameEncoder recording = new FrameEncoder() {
+            @Override
+            public void start(int width, int height) { }
+
+            @Override
+            public void encode(long[] rows, long nanos) {
+                encoded.add(rows.clone());
+            }
+
+            @Override
+            public void finish() { }
+        };
+
+        DisplayPipeline pipeline = new DisplayPipeline(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]);
+        CaptureDisplay capture = newCapture(recording, 16);
+
+        pipeline.addRenderer("capture", capture);
+
+        try {
+            pipeline.publish();
+
+            Assertions.assertEquals(0, nextFrame(encoded)[0]);
+
+            // Two sprites drawn within one frame
+            pipeline.flipPixel(0, 0);
+            pipeline.update();
+            pipeline.flipPixel(1, 0);
+            pipeline.update();
+            pipeline.publish();
+
+            Assertions.assertEquals(0b11L << 62, nextFrame(encoded)[0]);
+
+            pipeline.clear();
+            pipeline.publish();
+
+            Assertions.assertEquals(0, nextFrame(encoded)[0]);
+        } finally {
+            pipeline.close();
+        }
+
+        Assertions.assertEquals(3, capture.close().encoded());
+        Assertions.assertTrue(encoded.isEmpty());
+    }
+
+    private static CaptureDisplay newCapture(FrameEncoder encoder, int ringSize) throws IOException {
+        return new CaptureDisplay(encoder, Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT, ringSize);
+    }
+
+    private static long[] nextFrame(BlockingQueue<long[]> frames) throws InterruptedException {
+        long[] rows = frames.poll(5, TimeUnit.SECONDS);
+
+        Assertions.assertNotNull(rows, "No frame was captured");
+
+        return rows;
+    }
+
+    private static boolean isBlack(BufferedImage image, int x, int y) {
+        return (image.getRGB(x, y) & 0xFFFFFF) == 0;
+    }
+
+    private static List<BufferedImage> readGif(Path file) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        List<BufferedImage> images = new ArrayList<>();
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            reader.setInput(in);
+
+            for (int i = 0; i < reader.getNumImages(true); i++) {
+                images.add(reader.read(i));
+            }
+        }
+
+        return images;
+    }
+}
@@ -0,0 +1,35 @@
+package bg.example.chip;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static bg.example.Roms.rom;
+
+/**
+ * Run with the benchmark profile, timings depend on the machine
+ */
+public class BatchChip8Benchmark {
+
+    // Draws the digit of a random value at a random position, waits for a key every 64 draws
+    private static final byte[] RANDOM_DIGITS = rom(
+        0xC00F, 0xC13F, 0xC21F, 0xF029, 0xD125, 0x7301, 0x333F, 0x1200, 0xF40A, 0x6300, 0x1200
+    );
+
+    @Test
+    public void tenThousandLanesRunQuickly() {
+        int lanes = 10_000;
+        BatchChip8 batch = new BatchChip8(lanes, 10, QuirkProfile.MODERN.quirks());
+
+        batch.load(RANDOM_DIGITS, 1);
+        batch.runFrames(10, ForkJoinPool.commonPool());
+
+        long start = System.nanoTime();
+        batch.runFrames(60, ForkJoinPool.commonPool());
+        double instructionsPerSecond = lanes * 60 * 10 * 1e9 / (System.nanoTime() - start);
+
+        System.out.println((long) instructionsPerSecond + " instructions/s");
+        Assertions.assertTrue(instructionsPerSecond > 10_000_000, instructionsPerSecond + " instructions/s");
+    }
+}
@@ -0,0 +1,115 @@
+package bg.example.chip;
+
+import bg.example.fuzz.DifferentialFuzzer;
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static bg.example.Roms.rom;
+
+public class BatchChip8Test {
+
+    // Draws the digit of a random value at a random position, waits for a key every 64 draws
+    private static final byte[] RANDOM_DIGITS = rom(
+        0xC00F, 0xC13F, 0xC21F, 0xF029, 0xD125, 0x7301, 0x333F, 0x1200, 0xF40A, 0x6300, 0x1200
+    );
+
+    @Test
+    public void lanesMatchHeadlessInstancesForEveryQuirkProfile() {
+        for (QuirkProfile profile : QuirkProfile.values()) {
+            Quirks quirks = profile.quirks();
+            DifferentialFuzzer fuzzer = new DifferentialFuzzer(
+                (program, seed) -> new HeadlessChip8(program, seed, 10, quirks),
+                (program, seed) -> {
+                    BatchChip8 batch = new BatchChip8(1, 10, quirks);
+                    batch.load(0, program, seed);
+                    return batch.lane(0);
+                }
+            );
+
+            DifferentialFuzzer.Report report = fuzzer.fuzz(2_000, profile.ordinal(), 4);
+
+            Assertions.assertTrue(report.divergences().isEmpty(), profile + ": " + report.divergences());
+        }
+    }
+
+    @Test
+    public void parallelFramesMatchSeparateInstances() {
+        int lanes = 300;
+        BatchChip8 batch = new BatchChip8(lanes, 10, QuirkProfile.MODERN.quirks());
+        HeadlessChip8[] machines = new HeadlessChip8[lanes];
+
+        batch.load(RANDOM_DIGITS, 1);
+
+        for (int lane = 0; lane < lanes; lane++) {
+            machines[lane] = new HeadlessChip8(RANDOM_DIGITS, 1 + lane);
+        }
+
+        for (int frame = 0; frame < 100; frame++) {
+            for (int lane = 0; lane < lanes; lane++) {
+                int keys = (frame + lane) % 7 == 0 ? 1 << lane % 16 : 0;
+
+                batch.setKeys(lane, keys);
+                machines[lane].applyKeys(keys);
+                machines[lane].runFrame();
+            }
+
+            batch.runFrames(1, ForkJoinPool.commonPool());
+        }
+
+        Chip8State expected = new Chip8State();
+        Chip8State actual = new Chip8State();
+
+        for (int lane = 0; lane < lanes; lane++) {
+            machines[lane].saveState(expected);
+            batch.lane(lane).saveState(actual);
+
+            Assertions.assertNull(expected.findDifference(actual), "lane " + lane);
+        }
+    }
+
+    @Test
+    public void faultStopsOnlyItsLane() {
+        BatchChip8 batch = new BatchChip8(2, 10, QuirkProfile.MODERN.quirks());
+
+        // V0 += 1 forever
+        batch.load(0, rom(0x7001, 0x1200), 1);
+        // Returns without a call
+        batch.load(1, rom(0x00EE), 1);
+
+        batch.runFrames(3);
+
+        StackFault fault = Assertions.assertInstanceOf(StackFault.class, batch.getFault(1));
+
+        Assertions.assertEquals(StackFault.Kind.UNDERFLOW, fault.getKind());
+        Assertions.assertEquals(0x200, batch.getProgramCounter(1));
+        Assertions.assertNull(batch.getFault(0));
+        Assertions.assertEquals(15, batch.getRegister(0, 0));
+    }
+
+    @Test
+    public void partitionsOfManyLanesRunLikeOneSequence() {
+        int lanes = 10_000;
+        BatchChip8 parallel = new BatchChip8(lanes, 10, QuirkProfile.MODERN.quirks());
+        BatchChip8 sequential = new BatchChip8(lanes, 10, QuirkProfile.MODERN.quirks());
+
+        parallel.load(RANDOM_DIGITS, 1);
+        sequential.load(RANDOM_DIGITS, 1);
+
+        parallel.runFrames(20, ForkJoinPool.commonPool());
+        sequential.runFrames(20);
+
+        Chip8State expected = new Chip8State();
+        Chip8State actual = new Chip8State();
+
+        for (int lane = 0; lane < lanes; lane += 37) {
+            sequential.lane(lane).saveState(expected);
+            parallel.lane(lane).saveState(actual);
+
+            Assertions.assertNull(parallel.getFault(lane), "lane " + lane);
+            Assertions.assertNull(expected.findDifference(actual), "lane " + lane);
+        }
+    }
+}
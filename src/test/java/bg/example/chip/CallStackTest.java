@@ -0,0 +1,121 @@
+package bg.example.chip;
+
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static bg.example.Roms.rom;
+
+public class CallStackTest {
+
+    @Test
+    public void runawayRecursionHaltsAtTheCall() {
+        // Calls itself forever
+        HeadlessChip8 machine = new HeadlessChip8(rom(0x2200), 1);
+        Chip8 chip = machine.getChip();
+
+        for (int i = 0; i < Chip8.DEFAULT_STACK_DEPTH; i++) {
+            machine.step();
+        }
+
+        StackFault fault = Assertions.assertThrows(StackFault.class, machine::step);
+
+        Assertions.assertEquals(StackFault.Kind.OVERFLOW, fault.getKind());
+        Assertions.assertEquals(0x200, fault.getAddress());
+        Assertions.assertEquals(0x2200, fault.getInstruction());
+        Assertions.assertEquals(0x200, chip.getProgramCounter());
+        Assertions.assertEquals(Chip8.DEFAULT_STACK_DEPTH, chip.getStackSize());
+    }
+
+    @Test
+    public void reportedUnderflowSkipsTheReturn() {
+        // Returns without a call, then V0 = 01
+        HeadlessChip8 machine = new HeadlessChip8(rom(0x00EE, 0x6001), 1);
+        List<StackFault> faults = new ArrayList<>();
+
+        machine.getChip().setStackFaultPolicy(StackFaultPolicy.REPORT);
+        machine.getChip().setStackFaultListener(faults::add);
+
+        machine.step();
+        machine.step();
+
+        Assertions.assertEquals(1, faults.size());
+        Assertions.assertEquals(StackFault.Kind.UNDERFLOW, faults.get(0).getKind());
+
+        Chip8State state = new Chip8State();
+        machine.saveState(state);
+
+        Assertions.assertEquals(0x01, state.getRegister(0));
+        Assertions.assertEquals(0x204, state.getProgramCounter());
+    }
+
+    @Test
+    public void resetRestartsTheProgram() {
+        // V0 += 1, then 202 calls itself forever
+        HeadlessChip8 machine = new HeadlessChip8(rom(0x7001, 0x2202), 1);
+        Chip8 chip = machine.getChip();
+
+        chip.setStackFaultPolicy(StackFaultPolicy.RESET);
+
+        for (int i = 0; i < 1 + Chip8.DEFAULT_STACK_DEPTH + 1; i++) {
+            machine.step();
+        }
+
+        Chip8State state = new Chip8State();
+        machine.saveState(state);
+
+        Assertions.assertEquals(0, state.getRegister(0));
+        Assertions.assertEquals(0x200, state.getProgramCounter());
+        Assertions.assertEquals(0, state.getStackSize());
+        Assertions.assertEquals(0x70, state.getMemory(0x200));
+    }
+
+    @Test
+    public void stackSurvivesSnapshots() {
+        // Calls 204, which calls 206, which loops
+        HeadlessChip8 machine = new HeadlessChip8(rom(0x2204, 0x0000, 0x2206, 0x1206), 1);
+        Chip8State state = new Chip8State();
+
+        machine.step();
+        machine.step();
+        machine.saveState(state);
+
+        Assertions.assertEquals(2, state.getStackSize());
+        Assertions.assertEquals(0x202, state.getStackEntry(0));
+        Assertions.assertEquals(0x206, state.getStackEntry(1));
+
+        HeadlessChip8 copy = new HeadlessChip8(rom(), 1);
+        copy.getChip().loadState(state);
+
+        Assertions.assertEquals(2, copy.getChip().getStackSize());
+        Assertions.assertEquals(0x206, copy.getChip().getStackEntry(1));
+    }
+
+    @Test
+    public void stateWithDeeperStackIsRejectedWithoutChanges() {
+        // V0 = 07, then loops
+        HeadlessChip8 machine = new HeadlessChip8(rom(0x6007, 0x1202), 1);
+        Chip8State before = new Chip8State();
+        Chip8State deep = new Chip8State();
+
+        machine.step();
+        machine.saveState(before);
+
+        deep.registers[0] = 0x42;
+        deep.programCounter = 0x300;
+
+        for (int i = 0; i <= Chip8.DEFAULT_STACK_DEPTH; i++) {
+            deep.pushStackEntry(0x202);
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> machine.getChip().loadState(deep));
+
+        Chip8State after = new Chip8State();
+        machine.saveState(after);
+
+        Assertions.assertNull(before.findDifference(after));
+    }
+}
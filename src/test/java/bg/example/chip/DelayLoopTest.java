@@ -0,0 +1,105 @@
+package bg.example.chip;
+
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static bg.example.Roms.rom;
+
+public class DelayLoopTest {
+
+    private static final int INSTRUCTIONS_PER_FRAME = 15;
+
+    @Test
+    public void skippedLoopsLeaveTheSameState() {
+        byte[] rom = rom(
+            0x6A1E, // 200: VA = 1E
+            0xFA15, // 202: DT = VA
+            0xFB07, // 204: VB = DT
+            0x3B00, // 206: skip if VB == 00
+            0x1204, // 208: jump 204
+            0x7001, // 20A: V0 += 1
+            0x6A07, // 20C: VA = 07
+            0xFA15, // 20E: DT = VA
+            0xFC07, // 210: VC = DT
+            0x3C03, // 212: skip if VC == 03
+            0x1210, // 214: jump 210
+            0x1200  // 216: jump 200
+        );
+
+        HeadlessChip8 skipping = new HeadlessChip8(rom, 1, INSTRUCTIONS_PER_FRAME);
+        HeadlessChip8 stepping = new HeadlessChip8(rom, 1, INSTRUCTIONS_PER_FRAME);
+
+        Chip8State expected = new Chip8State();
+        Chip8State actual = new Chip8State();
+
+        for (int frame = 0; frame < 300; frame++) {
+            skipping.runFrame();
+
+            for (int i = 0; i < INSTRUCTIONS_PER_FRAME; i++) {
+                stepping.step();
+            }
+
+            stepping.saveState(expected);
+            skipping.saveState(actual);
+
+            assertSameState(expected, actual, frame);
+        }
+
+        Assertions.assertTrue(skipping.getSkippedInstructions() > 0);
+        Assertions.assertTrue(actual.getRegister(0) > 0);
+    }
+
+    @Test
+    public void idleInstanceSkipsMostInstructions() {
+        byte[] rom = rom(
+            0x60FF, // 200: V0 = FF
+            0xF015, // 202: DT = V0
+            0xF107, // 204: V1 = DT
+            0x3100, // 206: skip if V1 == 00
+            0x1204, // 208: jump 204
+            0x1200  // 20A: jump 200
+        );
+
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1, INSTRUCTIONS_PER_FRAME);
+        int frames = 600;
+
+        for (int frame = 0; frame < frames; frame++) {
+            machine.runFrame();
+        }
+
+        long instructions = (long) frames * INSTRUCTIONS_PER_FRAME;
+
+        Assertions.assertTrue(
+            machine.getSkippedInstructions() >= instructions * 9 / 10,
+            machine.getSkippedInstructions() + " of " + instructions + " skipped"
+        );
+    }
+
+    @Test
+    public void loopWhichExitsThisPassIsNotSkipped() {
+        // DT stays 0, so the loop exits on its first pass
+        byte[] rom = rom(0xF107, 0x3100, 0x1200, 0x6205, 0x1206);
+
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1, INSTRUCTIONS_PER_FRAME);
+
+        Assertions.assertFalse(machine.getChip().isInDelayLoop());
+
+        machine.runFrame();
+
+        Assertions.assertEquals(0, machine.getSkippedInstructions());
+        Assertions.assertEquals(0x208, machine.getChip().getProgramCounter());
+    }
+
+    private static void assertSameState(Chip8State expected, Chip8State actual, int frame) {
+        for (int i = 0; i < Chip8.NORMAL_REGISTERS_COUNT; i++) {
+            Assertions.assertEquals(expected.getRegister(i), actual.getRegister(i), "V" + i + " in frame " + frame);
+        }
+
+        Assertions.assertEquals(expected.getProgramCounter(), actual.getProgramCounter(), "PC in frame " + frame);
+        Assertions.assertEquals(expected.getIndexRegister(), actual.getIndexRegister(), "I in frame " + frame);
+        Assertions.assertEquals(expected.getDelayTimer(), actual.getDelayTimer(), "DT in frame " + frame);
+        Assertions.assertEquals(expected.getSoundTimer(), actual.getSoundTimer(), "ST in frame " + frame);
+        Assertions.assertEquals(expected.getStackSize(), actual.getStackSize(), "stack in frame " + frame);
+    }
+}
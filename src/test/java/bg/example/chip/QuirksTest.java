@@ -0,0 +1,71 @@
+package bg.example.chip;
+
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static bg.example.Roms.rom;
+
+public class QuirksTest {
+
+    @Test
+    public void shiftSourceDependsOnProfile() {
+        // V0 = 01, V1 = 04, V0 >>= ?
+        byte[] rom = rom(0x6001, 0x6104, 0x8016);
+
+        Assertions.assertEquals(0x02, run(rom, 3, QuirkProfile.COSMAC_VIP).getRegister(0));
+        Assertions.assertEquals(0x00, run(rom, 3, QuirkProfile.SUPER_CHIP).getRegister(0));
+        Assertions.assertEquals(0x01, run(rom, 3, QuirkProfile.SUPER_CHIP).getRegister(0xF));
+    }
+
+    @Test
+    public void loadStoreIndexDependsOnProfile() {
+        // I = 300, store V0..V2
+        byte[] rom = rom(0xA300, 0xF255);
+
+        Assertions.assertEquals(0x303, run(rom, 2, QuirkProfile.COSMAC_VIP).getIndexRegister());
+        Assertions.assertEquals(0x300, run(rom, 2, QuirkProfile.MODERN).getIndexRegister());
+    }
+
+    @Test
+    public void jumpOffsetRegisterDependsOnProfile() {
+        // V0 = 02, V3 = 04, jump to 300 plus V0 or V3
+        byte[] rom = rom(0x6002, 0x6304, 0xB300);
+
+        Assertions.assertEquals(0x302, run(rom, 3, QuirkProfile.COSMAC_VIP).getProgramCounter());
+        Assertions.assertEquals(0x304, run(rom, 3, QuirkProfile.CHIP_48).getProgramCounter());
+    }
+
+    @Test
+    public void wrappingSpritesAppearAtOppositeEdge() {
+        // V0 = 3C, V1 = 1F, I = font of 0, draw 5 rows
+        byte[] rom = rom(0x603C, 0x611F, 0xA000, 0xD015);
+        Quirks wrapping = new Quirks(true, false, false, true, true);
+
+        Assertions.assertEquals(0, runWith(rom, 4, QuirkProfile.MODERN.quirks()).getScreenRow(0));
+        Assertions.assertNotEquals(0, runWith(rom, 4, wrapping).getScreenRow(0));
+    }
+
+    @Test
+    public void profilesAreFoundByName() {
+        Assertions.assertEquals(QuirkProfile.SUPER_CHIP, QuirkProfile.fromName("super-chip"));
+        Assertions.assertEquals(QuirkProfile.COSMAC_VIP, QuirkProfile.fromName(" cosmac_vip "));
+    }
+
+    private static Chip8State run(byte[] rom, int steps, QuirkProfile profile) {
+        return runWith(rom, steps, profile.quirks());
+    }
+
+    private static Chip8State runWith(byte[] rom, int steps, Quirks quirks) {
+        HeadlessChip8 chip = new HeadlessChip8(rom, 0, Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME, quirks);
+
+        for (int i = 0; i < steps; i++) {
+            chip.step();
+        }
+
+        Chip8State state = new Chip8State();
+        chip.saveState(state);
+
+        return state;
+    }
+}
@@ -0,0 +1,200 @@
+package bg.example.clock;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8Properties;
+import bg.example.chip.Chip8State;
+import bg.example.chip.QuirkProfile;
+import bg.example.counter.FrameCounter;
+import bg.example.counter.SimpleCounter;
+import bg.example.display.HeadlessDisplay;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.SplitMixRandom;
+import bg.example.keyboard.Keyboard;
+import bg.example.loader.font.BasicFontLoader;
+import bg.example.memory.SimpleMemory;
+import bg.example.register.Register;
+import bg.example.register.SimpleRegister;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static bg.example.Roms.rom;
+
+public class FrameClockTest {
+
+    @Test
+    public void timersCountEmulatedFrames() {
+        FrameClock clock = new FrameClock(10);
+        FrameCounter timer = new FrameCounter(30);
+
+        clock.addFrameListener(timer::tick);
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+
+        tick(clock, 10 * 20 + 9);
+
+        Assertions.assertEquals(20, clock.getFrame());
+        Assertions.assertEquals(10, timer.get());
+    }
+
+    @Test
+    public void unthrottledClockDoesNotSleep() {
+        FrameClock clock = new FrameClock(10);
+
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+
+        long start = System.nanoTime();
+        tick(clock, 10 * 600);
+
+        Assertions.assertTrue(System.nanoTime() - start < 500_000_000L);
+    }
+
+    @Test
+    public void speedScalesFrameDuration() {
+        FrameClock clock = new FrameClock(1);
+
+        clock.setSpeed(4);
+        tick(clock, 1);
+
+        long start = System.nanoTime();
+        tick(clock, 24);
+        long elapsed = System.nanoTime() - start;
+
+        // 24 frames at four times the speed take about 100 ms
+        Assertions.assertTrue(elapsed >= 90_000_000L, elapsed + " ns");
+
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+        tick(clock, 1);
+
+        start = System.nanoTime();
+        tick(clock, 240);
+
+        Assertions.assertTrue(System.nanoTime() - start < 90_000_000L);
+    }
+
+    @Test
+    public void skippedTicksStopBeforeFrameEnd() {
+        FrameClock clock = new FrameClock(10);
+        FrameCounter timer = new FrameCounter(30);
+
+        clock.addFrameListener(timer::tick);
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+
+        tick(clock, 3);
+
+        Assertions.assertEquals(6, clock.getIdleTicks());
+
+        clock.skip(clock.getIdleTicks());
+
+        Assertions.assertEquals(0, clock.getIdleTicks());
+        Assertions.assertEquals(30, timer.get());
+
+        tick(clock, 1);
+
+        Assertions.assertEquals(1, clock.getFrame());
+        Assertions.assertEquals(29, timer.get());
+    }
+
+    @Test
+    public void frameLengthChangesAtNextFrame() {
+        FrameClock clock = new FrameClock(10);
+        int[] skipped = new int[1];
+
+        clock.addFrameListener(() -> skipped[0] = clock.getSkippedTicks());
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+
+        tick(clock, 4);
+        clock.setInstructionsPerFrame(5);
+
+        Assertions.assertEquals(10, clock.getInstructionsPerFrame());
+
+        clock.skip(clock.getIdleTicks());
+        tick(clock, 1);
+
+        Assertions.assertEquals(1, clock.getFrame());
+        Assertions.assertEquals(5, skipped[0]);
+        Assertions.assertEquals(0, clock.getSkippedTicks());
+        Assertions.assertEquals(5, clock.getInstructionsPerFrame());
+
+        tick(clock, 5);
+
+        Assertions.assertEquals(2, clock.getFrame());
+        Assertions.assertEquals(0, skipped[0]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> clock.setInstructionsPerFrame(0));
+    }
+
+    @Test
+    public void timersChangeAtTheSameInstructionAsInTheHeadlessInstance() {
+        // Sets the delay timer to 2, then reads it into V1 to VE, one register per instruction
+        byte[] program = rom(
+            0x6002, 0xF015,
+            0xF107, 0xF207, 0xF307, 0xF407, 0xF507, 0xF607, 0xF707,
+            0xF807, 0xF907, 0xFA07, 0xFB07, 0xFC07, 0xFD07, 0xFE07,
+            0x1220
+        );
+        FrameClock clock = new FrameClock();
+        FrameCounter delayTimer = new FrameCounter(0);
+        Chip8 chip = chip(program, clock, delayTimer);
+        HeadlessChip8 headless = new HeadlessChip8(program, 1);
+
+        clock.addFrameListener(delayTimer::tick);
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+
+        for (int i = 0; i < 2 * Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME; i++) {
+            chip.runOneCycle();
+        }
+
+        headless.runFrame();
+        headless.runFrame();
+
+        Chip8State expected = new Chip8State();
+        Chip8State actual = new Chip8State();
+
+        headless.saveState(expected);
+        chip.saveState(actual);
+
+        // The last instruction of the first frame still reads 2, the first one of the next frame 1
+        Assertions.assertEquals(2, actual.getRegister(0xD));
+        Assertions.assertEquals(1, actual.getRegister(0xE));
+
+        for (int i = 0; i < Chip8.NORMAL_REGISTERS_COUNT; i++) {
+            Assertions.assertEquals(expected.getRegister(i), actual.getRegister(i), "V" + Integer.toHexString(i));
+        }
+    }
+
+    private static Chip8 chip(byte[] program, Clock clock, FrameCounter delayTimer) {
+        Register[] registers = new Register[Chip8.NORMAL_REGISTERS_COUNT];
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new SimpleRegister(Chip8.NORMAL_REGISTER_BITS);
+        }
+
+        return new Chip8(
+            new Chip8Properties(
+                new SimpleCounter(Chip8.FIRST_INSTRUCTION_OFFSET),
+                delayTimer,
+                new FrameCounter(0),
+                clock,
+                new SimpleMemory(new int[Chip8.CHIP8_MEMORY_SIZE]),
+                memory -> {
+                    new BasicFontLoader().load(memory, Chip8.FONT_OFFSET);
+
+                    for (int i = 0; i < program.length; i++) {
+                        memory.set(Chip8.FIRST_INSTRUCTION_OFFSET + i, program[i] & 0xFF);
+                    }
+                },
+                new HeadlessDisplay(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]),
+                new Keyboard(),
+                registers,
+                new SimpleRegister(Chip8.INDEX_REGISTER_BITS),
+                new SplitMixRandom(1),
+                QuirkProfile.MODERN.quirks(),
+                Chip8.DEFAULT_STACK_DEPTH
+            )
+        );
+    }
+
+    private static void tick(FrameClock clock, int times) {
+        for (int i = 0; i < times; i++) {
+            clock.tick();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package bg.example.config;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8State;
+import bg.example.chip.QuirkProfile;
+import bg.example.chip.Quirks;
+import bg.example.debug.WatchedMemory;
+import bg.example.display.DisplayPipeline;
+import bg.example.display.FrameBuffer;
+import bg.example.display.WindowDisplay;
+import bg.example.reload.ReloadMode;
+import bg.example.input.SampledKeyboard;
+import bg.example.keyboard.FastForwardKeyboard;
+import bg.example.reload.RomReloader;
+import javafx.scene.input.KeyCode;
+import javafx.stage.Stage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static bg.example.Roms.rom;
+
+public class ProjectConfigTest {
+
+    // V0 = 1, then adds 1 to V0 forever
+    private static final byte[] PROGRAM = rom(0x6001, 0x7001, 0x1202);
+
+    // Adds 2 instead
+    private static final byte[] CHANGED = rom(0x6001, 0x7002, 0x1202);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reloaderPatchesTheMemoryOfTheInstance() throws IOException {
+        Path file = directory.resolve("program.ch8");
+        Files.write(file, PROGRAM);
+
+        try (var ctx = context(file)) {
+            Chip8 chip = ctx.getBean(Chip8.class);
+            WatchedMemory memory = ctx.getBean(WatchedMemory.class);
+
+            Assertions.assertSame(memory, chip.getMemory());
+            Assertions.assertEquals(0x01, memory.get(0x203));
+
+            try (RomReloader reloader = new RomReloader(file, chip, ReloadMode.CONTINUE, Runnable::run)) {
+                reloader.reload(CHANGED);
+            }
+
+            Assertions.assertEquals(0x02, memory.get(0x203));
+
+            for (int i = 0; i < 3; i++) {
+                chip.runOneCycle();
+            }
+
+            Chip8State state = new Chip8State();
+            chip.saveState(state);
+
+            Assertions.assertEquals(3, state.getRegister(0));
+        }
+    }
+
+    @Test
+    public void renderersRunUntilTheContextCloses() throws IOException, InterruptedException {
+        Path file = directory.resolve("program.ch8");
+        Files.write(file, PROGRAM);
+
+        BlockingQueue<Long> frames = new LinkedBlockingQueue<>();
+        Thread renderer;
+
+        try (var ctx = context(file)) {
+            DisplayPipeline pipeline = ctx.getBean(DisplayPipeline.class);
+
+            pipeline.addRenderer("test-renderer", (rows, frame) -> frames.add(frame));
+            pipeline.publish();
+
+            Assertions.assertNotNull(frames.poll(5, TimeUnit.SECONDS), "No frame was rendered");
+
+            renderer = findThread("test-renderer");
+
+            Assertions.assertTrue(renderer.isAlive());
+        }
+
+        renderer.join(5000);
+
+        Assertions.assertFalse(renderer.isAlive());
+    }
+
+    @Test
+    public void screenIsShownWhileWaitingForAKey() throws Exception {
+        Path file = directory.resolve("wait.ch8");
+
+        // Draws the digit 0, then waits for a key before the frame ends
+        Files.write(file, rom(0x6000, 0xF029, 0xD005, 0xF10A, 0x1208));
+
+        try (var ctx = context(file)) {
+            Chip8 chip = ctx.getBean(Chip8.class);
+            FrameBuffer frames = ctx.getBean(DisplayPipeline.class).subscribe();
+            Thread emulation = new Thread(() -> {
+                for (int i = 0; i < 4; i++) {
+                    chip.runOneCycle();
+                }
+            });
+
+            emulation.setDaemon(true);
+            emulation.start();
+
+            long deadline = System.nanoTime() + 5_000_000_000L;
+
+            while (!frames.acquire()) {
+                Assertions.assertTrue(System.nanoTime() < deadline, "Screen was not published");
+                Thread.sleep(1);
+            }
+
+            Assertions.assertNotEquals(0, frames.front()[0]);
+            Assertions.assertTrue(emulation.isAlive());
+
+            FastForwardKeyboard keyboard = ctx.getBean(FastForwardKeyboard.class);
+
+            keyboard.press(KeyCode.X);
+            keyboard.release(KeyCode.X);
+            emulation.join(5000);
+
+            Assertions.assertFalse(emulation.isAlive());
+        }
+    }
+
+    @Test
+    public void windowKeysReachTheInstanceUntilTheContextCloses() throws IOException {
+        Path file = directory.resolve("program.ch8");
+        Files.write(file, PROGRAM);
+
+        SampledKeyboard sampledKeyboard;
+        FastForwardKeyboard keyboard;
+
+        try (var ctx = context(file)) {
+            sampledKeyboard = ctx.getBean(SampledKeyboard.class);
+            keyboard = ctx.getBean(FastForwardKeyboard.class);
+
+            // Remapped from the window key to the key of the instance
+            keyboard.press(KeyCode.Q);
+
+            Assertions.assertTrue(sampledKeyboard.isPressed(KeyCode.DIGIT4));
+            Assertions.assertEquals(1 << 0x4, sampledKeyboard.getState().mask());
+        }
+
+        Assertions.assertEquals(0, sampledKeyboard.getState().mask());
+
+        keyboard.press(KeyCode.W);
+
+        Assertions.assertEquals(0, sampledKeyboard.getState().mask());
+    }
+
+    private static Thread findThread(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().equals(name))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    /**
+     * @return the application context with the window replaced, which needs a running JavaFX toolkit
+     */
+    private static AnnotationConfigApplicationContext context(Path program) {
+        var ctx = new AnnotationConfigApplicationContext();
+
+        ctx.registerBean("stage", Stage.class, () -> null);
+        ctx.registerBean("windowDisplay", WindowDisplay.class, () -> null);
+        ctx.registerBean("programLocation", String.class, program::toString);
+        ctx.registerBean("quirks", Quirks.class, QuirkProfile.MODERN::quirks);
+        ctx.register(ProjectConfig.class);
+        ctx.refresh();
+
+        return ctx;
+    }
+}
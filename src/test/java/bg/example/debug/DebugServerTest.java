@@ -0,0 +1,99 @@
+package bg.example.debug;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DebugServerTest {
+
+    @Test
+    public void commandsAreAnsweredAndPausesAnnounced() throws IOException {
+        Debugger debugger = DebuggerTest.debugger(DebuggerTest.PROGRAM);
+        DebugServer server = new DebugServer(debugger, 0);
+        Thread thread = new Thread(server, "debug-server");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(5000);
+
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            var out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+
+            Assertions.assertEquals(List.of(), send(out, in, "break 208"));
+            Assertions.assertEquals(List.of("error: not paused"), send(out, in, "regs"));
+
+            DebuggerTest.start(debugger);
+
+            Assertions.assertEquals("paused: breakpoint at 208", in.readLine());
+
+            Assertions.assertEquals(
+                List.of(
+                    "V0=05 V1=00 V2=00 V3=00 V4=00 V5=00 V6=00 V7=00 "
+                        + "V8=00 V9=00 VA=00 VB=00 VC=00 VD=00 VE=00 VF=00",
+                    "PC=208 I=000 DT=00 ST=00"
+                ),
+                send(out, in, "regs")
+            );
+            Assertions.assertEquals(List.of("#0 204"), send(out, in, "stack"));
+            Assertions.assertEquals(
+                List.of("208  6203  LD V2, 03", "20A  A300  LD I, 300"),
+                send(out, in, "dis 208 2")
+            );
+            Assertions.assertEquals(List.of("200  60 05 22 08"), send(out, in, "mem 200 4"));
+
+            Assertions.assertEquals(List.of(), send(out, in, "step"));
+            Assertions.assertEquals("paused: step at 20a", in.readLine());
+
+            Assertions.assertEquals(List.of(), send(out, in, "when V1 2"));
+            Assertions.assertEquals(List.of(), send(out, in, "continue"));
+            Assertions.assertEquals("paused: V1 = 2 at 206", in.readLine());
+
+            Assertions.assertEquals(List.of("error: unknown command jump"), send(out, in, "jump 200"));
+            Assertions.assertEquals(List.of("error: expected a register but got VG"), send(out, in, "when VG"));
+            Assertions.assertEquals(List.of("error: break expects 1 argument(s)"), send(out, in, "break"));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void instructionsAreDisassembled() {
+        Assertions.assertEquals("CLS", Disassembler.disassemble(0x00E0));
+        Assertions.assertEquals("CALL 2A0", Disassembler.disassemble(0x22A0));
+        Assertions.assertEquals("SUBN V1, V2", Disassembler.disassemble(0x8127));
+        Assertions.assertEquals("JP V0, 300", Disassembler.disassemble(0xB300));
+        Assertions.assertEquals("LD VA, K", Disassembler.disassemble(0xFA0A));
+        Assertions.assertEquals("DW 5121", Disassembler.disassemble(0x5121));
+        Assertions.assertEquals("DW E1FF", Disassembler.disassemble(0xE1FF));
+    }
+
+    /**
+     * @return output of the command up to its "ok", or the error line
+     */
+    private static List<String> send(PrintWriter out, BufferedReader in, String command) throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        out.println(command);
+
+        for (String line = in.readLine(); !line.equals("ok"); line = in.readLine()) {
+            lines.add(line);
+
+            if (line.startsWith("error: ")) {
+                break;
+            }
+        }
+
+        return lines;
+    }
+}
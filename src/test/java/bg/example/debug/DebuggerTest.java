@@ -0,0 +1,388 @@
+package bg.example.debug;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8Properties;
+import bg.example.chip.Chip8State;
+import bg.example.chip.QuirkProfile;
+import bg.example.clock.Clock;
+import bg.example.counter.FrameCounter;
+import bg.example.counter.SimpleCounter;
+import bg.example.display.HeadlessDisplay;
+import bg.example.headless.SplitMixRandom;
+import bg.example.keyboard.Keyboard;
+import bg.example.loader.font.BasicFontLoader;
+import bg.example.memory.SimpleMemory;
+import bg.example.register.Register;
+import bg.example.register.SimpleRegister;
+import bg.example.reload.ReloadMode;
+import bg.example.reload.RomReloader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static bg.example.Roms.rom;
+
+public class DebuggerTest {
+
+    static final byte[] PROGRAM = rom(
+        0x6005, // 200: V0 = 05
+        0x2208, // 202: call 208
+        0x7101, // 204: V1 += 1
+        0x1204, // 206: jump 204
+        0x6203, // 208: V2 = 03
+        0xA300, // 20A: I = 300
+        0xF055, // 20C: store V0 at 300
+        0x00EE  // 20E: return
+    );
+
+    private final BlockingQueue<String> pauses = new LinkedBlockingQueue<>();
+    private final Chip8State state = new Chip8State();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void breakpointPausesBeforeTheInstruction() throws InterruptedException {
+        Debugger debugger = debugger(PROGRAM);
+
+        debugger.getBreakpoints().add(0x204);
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertEquals("breakpoint at 204", nextPause());
+        Assertions.assertTrue(debugger.isPaused());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0x204, state.getProgramCounter());
+        Assertions.assertEquals(0x03, state.getRegister(2));
+        Assertions.assertEquals(0x00, state.getRegister(1));
+
+        // The loop passes the breakpoint again
+        debugger.resume();
+
+        Assertions.assertEquals("breakpoint at 204", nextPause());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0x01, state.getRegister(1));
+    }
+
+    @Test
+    public void stepRunsOneInstructionAndStepOverRunsTheWholeCall() throws InterruptedException {
+        Debugger debugger = debugger(PROGRAM);
+
+        debugger.getBreakpoints().add(0x200);
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertEquals("breakpoint at 200", nextPause());
+
+        debugger.step();
+
+        Assertions.assertEquals("step at 202", nextPause());
+
+        debugger.stepOver();
+
+        Assertions.assertEquals("step over at 204", nextPause());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0, state.getStackSize());
+        Assertions.assertEquals(0x03, state.getRegister(2));
+        // The temporary breakpoint of the step over is gone
+        Assertions.assertFalse(debugger.getBreakpoints().contains(0x204));
+
+        debugger.step();
+
+        Assertions.assertEquals("step at 206", nextPause());
+    }
+
+    @Test
+    public void stepOverWithoutCallIsAStep() throws InterruptedException {
+        Debugger debugger = debugger(PROGRAM);
+
+        debugger.getBreakpoints().add(0x208);
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertEquals("breakpoint at 208", nextPause());
+
+        debugger.stepOver();
+
+        Assertions.assertEquals("step at 20a", nextPause());
+    }
+
+    @Test
+    public void watchpointPausesAfterTheWrite() throws InterruptedException {
+        Debugger debugger = debugger(PROGRAM);
+
+        debugger.getWatchpoints().add(0x300);
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertEquals("write to 300 at 20e", nextPause());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0x05, state.getMemory(0x300));
+    }
+
+    @Test
+    public void registerConditionPausesOnTheValue() throws InterruptedException {
+        Debugger debugger = debugger(PROGRAM);
+
+        debugger.addCondition(new Debugger.RegisterCondition(1, 3));
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertEquals("V1 = 3 at 206", nextPause());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0x03, state.getRegister(1));
+    }
+
+    @Test
+    public void tasksRunOnTheEmulationThread() throws Exception {
+        Debugger debugger = debugger(PROGRAM);
+        CompletableFuture<String> thread = new CompletableFuture<>();
+
+        start(debugger);
+        debugger.execute(() -> thread.complete(Thread.currentThread().getName()));
+
+        Assertions.assertEquals("debugger", thread.get(5, TimeUnit.SECONDS));
+
+        debugger.pause();
+        debugger.setOnPause(pauses::add);
+
+        // The pause may have been taken before the listener was set
+        while (!debugger.isPaused()) {
+            Thread.sleep(1);
+        }
+
+        // While paused the task runs right away
+        String[] caller = new String[1];
+        debugger.execute(() -> caller[0] = Thread.currentThread().getName());
+
+        Assertions.assertEquals(Thread.currentThread().getName(), caller[0]);
+    }
+
+    @Test
+    public void pausesAndReloadsAreHandledWhileWaitingForAKey() throws IOException, InterruptedException {
+        // Waits for a key into V1 again and again
+        byte[] program = rom(0xF10A, 0x1200);
+        Path file = directory.resolve("wait.ch8");
+        Files.write(file, program);
+
+        WatchedMemory memory = watchedMemory();
+        Chip8 chip = chip(memory, program);
+        Debugger debugger = new Debugger(chip, memory);
+        CountDownLatch waiting = new CountDownLatch(1);
+
+        chip.addKeyWaitListener(waiting::countDown);
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+        debugger.pause();
+
+        Assertions.assertEquals("pause at 200", nextPause());
+
+        debugger.addCondition(new Debugger.RegisterCondition(1, 5));
+        debugger.resume();
+
+        try (RomReloader reloader = new RomReloader(file, chip, ReloadMode.CONTINUE, debugger)) {
+            // V1 = 5 in place of the wait
+            reloader.reload(rom(0x6105, 0x1200));
+
+            Assertions.assertEquals("V1 = 5 at 202", nextPause());
+            Assertions.assertEquals(1, reloader.getReloads());
+        }
+    }
+
+    @Test
+    public void keyWaitEndsWhenThePressedKeyIsReleased() throws InterruptedException {
+        // Waits for a key into V1, then V2 = 1
+        byte[] program = rom(0xF10A, 0x6201, 0x1204);
+        WatchedMemory memory = watchedMemory();
+        Chip8 chip = chip(memory, program);
+        Debugger debugger = new Debugger(chip, memory);
+        Keyboard keyboard = (Keyboard) chip.getKeyboardInformation();
+        CountDownLatch waiting = new CountDownLatch(1);
+
+        chip.addKeyWaitListener(waiting::countDown);
+        debugger.addCondition(new Debugger.RegisterCondition(2, 1));
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        Assertions.assertTrue(waiting.await(5, TimeUnit.SECONDS));
+
+        keyboard.press(Chip8.fromIntegerToKeyCode(0x7));
+        keyboard.release(Chip8.fromIntegerToKeyCode(0x7));
+
+        Assertions.assertEquals("V2 = 1 at 204", nextPause());
+
+        debugger.saveState(state);
+
+        Assertions.assertEquals(0x7, state.getRegister(1));
+    }
+
+    @Test
+    public void delayLoopIsFastForwardedUnlessABreakpointIsInIt() throws InterruptedException {
+        // Sets the delay timer, which this clock never decrements, and waits for it in a loop
+        byte[] program = rom(0x6005, 0xF015, 0xF107, 0x3100, 0x1204);
+        AtomicLong skipped = new AtomicLong();
+        Clock clock = new Clock() {
+            @Override
+            public void tick() { }
+
+            @Override
+            public int getIdleTicks() {
+                return 100;
+            }
+
+            @Override
+            public void skip(int ticks) {
+                skipped.addAndGet(ticks);
+            }
+        };
+
+        WatchedMemory memory = watchedMemory();
+        Debugger debugger = new Debugger(chip(memory, program, clock), memory);
+
+        debugger.setOnPause(pauses::add);
+        start(debugger);
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        while (skipped.get() == 0) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Delay loop was not skipped");
+            Thread.sleep(1);
+        }
+
+        debugger.getBreakpoints().add(0x206);
+
+        Assertions.assertEquals("breakpoint at 206", nextPause());
+
+        long skippedBefore = skipped.get();
+
+        debugger.resume();
+
+        Assertions.assertEquals("breakpoint at 206", nextPause());
+        Assertions.assertEquals(skippedBefore, skipped.get());
+    }
+
+    @Test
+    public void addressSetHoldsEveryAddress() {
+        AddressSet addresses = new AddressSet();
+
+        addresses.add(0x000);
+        addresses.add(0x03F);
+        addresses.add(0x040);
+        addresses.add(Chip8.CHIP8_MEMORY_SIZE - 1);
+
+        Assertions.assertTrue(addresses.contains(0x000));
+        Assertions.assertTrue(addresses.contains(0x03F));
+        Assertions.assertTrue(addresses.contains(0x040));
+        Assertions.assertTrue(addresses.contains(Chip8.CHIP8_MEMORY_SIZE - 1));
+        Assertions.assertFalse(addresses.contains(0x041));
+        Assertions.assertFalse(addresses.contains(Chip8.CHIP8_MEMORY_SIZE));
+
+        addresses.add(0x040);
+        addresses.remove(0x03F);
+        addresses.remove(0x03F);
+
+        Assertions.assertFalse(addresses.contains(0x03F));
+        Assertions.assertTrue(addresses.contains(0x040));
+        Assertions.assertFalse(addresses.isEmpty());
+
+        addresses.clear();
+
+        Assertions.assertFalse(addresses.contains(0x000));
+        Assertions.assertTrue(addresses.isEmpty());
+
+        addresses.add(0x123);
+        addresses.remove(0x123);
+
+        Assertions.assertTrue(addresses.isEmpty());
+    }
+
+    /**
+     * @return debugger of an instance running the program, with its memory watched
+     */
+    static Debugger debugger(byte[] program) {
+        WatchedMemory memory = watchedMemory();
+
+        return new Debugger(chip(memory, program), memory);
+    }
+
+    private static WatchedMemory watchedMemory() {
+        return new WatchedMemory(new SimpleMemory(new int[Chip8.CHIP8_MEMORY_SIZE]));
+    }
+
+    private static Chip8 chip(WatchedMemory memory, byte[] program) {
+        return chip(memory, program, () -> { });
+    }
+
+    private static Chip8 chip(WatchedMemory memory, byte[] program, Clock clock) {
+        Register[] registers = new Register[Chip8.NORMAL_REGISTERS_COUNT];
+
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new SimpleRegister(Chip8.NORMAL_REGISTER_BITS);
+        }
+
+        return new Chip8(
+            new Chip8Properties(
+                new SimpleCounter(Chip8.FIRST_INSTRUCTION_OFFSET),
+                new FrameCounter(0),
+                new FrameCounter(0),
+                clock,
+                memory,
+                mem -> {
+                    new BasicFontLoader().load(mem, Chip8.FONT_OFFSET);
+
+                    for (int i = 0; i < program.length; i++) {
+                        mem.set(Chip8.FIRST_INSTRUCTION_OFFSET + i, program[i] & 0xFF);
+                    }
+                },
+                new HeadlessDisplay(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]),
+                new Keyboard(),
+                registers,
+                new SimpleRegister(Chip8.INDEX_REGISTER_BITS),
+                new SplitMixRandom(1),
+                QuirkProfile.MODERN.quirks(),
+                Chip8.DEFAULT_STACK_DEPTH
+            )
+        );
+    }
+
+    /**
+     * Runs the debugger on a daemon thread, which is left paused or running after the test
+     */
+    static void start(Debugger debugger) {
+        Thread thread = new Thread(debugger, "debugger");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private String nextPause() throws InterruptedException {
+        String reason = pauses.poll(5, TimeUnit.SECONDS);
+
+        Assertions.assertNotNull(reason, "Did not pause");
+
+        return reason;
+    }
+}
@@ -0,0 +1,74 @@
+package bg.example.display;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class ConsoleDisplayTest {
+
+    private static class CountingStream extends ByteArrayOutputStream {
+
+        private int writes;
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            writes++;
+            super.write(bytes, offset, length);
+        }
+
+        private String take() {
+            String text = toString(StandardCharsets.UTF_8);
+            reset();
+            return text;
+        }
+    }
+
+    @Test
+    public void firstFrameDrawsEveryCellInOneWrite() {
+        CountingStream out = new CountingStream();
+        ConsoleDisplay display = new ConsoleDisplay(64, out);
+
+        long[] rows = new long[32];
+        rows[0] = 1L << 63;
+        rows[1] = 1L << 62;
+
+        display.render(rows, 1);
+
+        String text = out.take();
+
+        Assertions.assertEquals(1, out.writes);
+        Assertions.assertTrue(text.startsWith("\u001B[?25l\u001B[2J\u001B[1;1H▀▄"));
+        Assertions.assertEquals(64 * 16, text.codePoints().filter(c -> c == ' ' || c >= 0x2580).count());
+    }
+
+    @Test
+    public void onlyChangedCellsAreWritten() {
+        CountingStream out = new CountingStream();
+        ConsoleDisplay display = new ConsoleDisplay(64, out);
+        long[] rows = new long[32];
+
+        display.render(rows, 1);
+        out.take();
+
+        display.render(rows, 2);
+
+        Assertions.assertEquals("", out.take());
+        Assertions.assertEquals(1, out.writes);
+
+        rows[5] = 1L << 53 | 1L << 52;
+        rows[4] = 1L << 53;
+
+        display.render(rows, 3);
+
+        Assertions.assertEquals("\u001B[3;11H█▄", out.take());
+
+        rows[31] = 1;
+
+        display.render(rows, 4);
+
+        Assertions.assertEquals("\u001B[16;64H▄", out.take());
+        Assertions.assertEquals(3, out.writes);
+    }
+}
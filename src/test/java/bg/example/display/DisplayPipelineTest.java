@@ -0,0 +1,86 @@
+package bg.example.display;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DisplayPipelineTest {
+
+    @Test
+    public void framesArePublishedOnlyAtFrameBoundaries() {
+        DisplayPipeline pipeline = new DisplayPipeline(new boolean[4][8]);
+        FrameBuffer frames = pipeline.subscribe();
+
+        pipeline.flipPixel(0, 0);
+        pipeline.update();
+
+        Assertions.assertFalse(frames.acquire());
+
+        pipeline.publish();
+
+        Assertions.assertTrue(frames.acquire());
+        Assertions.assertEquals(1L << 63, frames.front()[0]);
+        Assertions.assertFalse(frames.acquire());
+
+        pipeline.publish();
+
+        Assertions.assertFalse(frames.acquire(), "Unchanged frames are not published again");
+    }
+
+    @Test
+    public void consumerGetsNewestFrameAndSkipsOlderOnes() {
+        DisplayPipeline pipeline = new DisplayPipeline(new boolean[4][8]);
+        FrameBuffer frames = pipeline.subscribe();
+
+        for (int x = 0; x < 5; x++) {
+            pipeline.flipPixel(x, 1);
+            pipeline.update();
+            pipeline.publish();
+        }
+
+        Assertions.assertTrue(frames.acquire());
+        Assertions.assertEquals(5, frames.frontSequence());
+        Assertions.assertEquals(0xF8L << 56, frames.front()[1]);
+    }
+
+    @Test
+    public void slowRendererDoesNotSlowDownEmulator() throws InterruptedException {
+        DisplayPipeline pipeline = new DisplayPipeline(new boolean[4][8]);
+        CountDownLatch lastFrameRendered = new CountDownLatch(1);
+        AtomicLong rendered = new AtomicLong();
+
+        pipeline.addRenderer("slow", (rows, frame) -> {
+            rendered.incrementAndGet();
+            sleep(20);
+
+            if (frame == 1_000) {
+                lastFrameRendered.countDown();
+            }
+        });
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 1_000; i++) {
+            pipeline.flipPixel(i % 8, i % 4);
+            pipeline.update();
+            pipeline.publish();
+        }
+
+        Assertions.assertTrue(System.nanoTime() - start < 200_000_000L);
+        Assertions.assertTrue(lastFrameRendered.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(rendered.get() < 100, rendered.get() + " frames rendered");
+
+        pipeline.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
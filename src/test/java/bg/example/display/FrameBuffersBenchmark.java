@@ -0,0 +1,56 @@
+package bg.example.display;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+/**
+ * Run with the benchmark profile, timings depend on the machine
+ */
+public class FrameBuffersBenchmark {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+
+    @Test
+    public void packedOperationsBeatPixelLoops() {
+        SplittableRandom random = new SplittableRandom(4);
+        long[] first = FrameBuffersTest.randomScreen(random);
+        long[] second = FrameBuffersTest.randomScreen(random);
+        long[] difference = new long[HEIGHT];
+
+        boolean[][] firstPixels = new boolean[HEIGHT][WIDTH];
+        boolean[][] secondPixels = new boolean[HEIGHT][WIDTH];
+
+        new HeadlessDisplay(firstPixels).restoreRows(first);
+        new HeadlessDisplay(secondPixels).restoreRows(second);
+
+        long sink = 0;
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+
+            for (int i = 0; i < 20_000; i++) {
+                sink += FrameBuffers.xor(first, 0, second, 0, difference, 0, HEIGHT);
+                sink += FrameBuffers.hash(difference);
+            }
+
+            long packed = System.nanoTime() - start;
+            start = System.nanoTime();
+
+            for (int i = 0; i < 20_000; i++) {
+                sink += FrameBuffersTest.countDifferingPixels(firstPixels, secondPixels);
+            }
+
+            long pixels = System.nanoTime() - start;
+
+            if (round == 2) {
+                System.out.println(packed + " ns packed, " + pixels + " ns per pixel");
+                Assertions.assertTrue(packed * 4 < pixels, packed + " ns packed, " + pixels + " ns per pixel");
+            }
+        }
+
+        Assertions.assertNotEquals(0, sink);
+    }
+}
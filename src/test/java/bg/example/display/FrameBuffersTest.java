@@ -0,0 +1,141 @@
+package bg.example.display;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class FrameBuffersTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+
+    @Test
+    public void differencesAndCountsMatchPixels() {
+        SplittableRandom random = new SplittableRandom(1);
+        long[] first = randomScreen(random);
+        long[] second = randomScreen(random);
+        long[] difference = new long[HEIGHT];
+
+        int differing = 0;
+        int on = 0;
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                differing += isOn(first, x, y) != isOn(second, x, y) ? 1 : 0;
+                on += isOn(first, x, y) ? 1 : 0;
+            }
+        }
+
+        Assertions.assertEquals(differing, FrameBuffers.xor(first, 0, second, 0, difference, 0, HEIGHT));
+        Assertions.assertEquals(differing, FrameBuffers.countDifferences(first, 0, second, 0, HEIGHT));
+        Assertions.assertEquals(differing, FrameBuffers.countPixels(difference, 0, HEIGHT));
+        Assertions.assertEquals(on, FrameBuffers.countPixels(first, 0, HEIGHT));
+
+        Assertions.assertFalse(FrameBuffers.equals(first, 0, second, 0, HEIGHT));
+        Assertions.assertTrue(FrameBuffers.equals(first, 0, first.clone(), 0, HEIGHT));
+    }
+
+    @Test
+    public void scrollsMovePixels() {
+        SplittableRandom random = new SplittableRandom(2);
+        long[] screen = randomScreen(random);
+
+        long[] down = screen.clone();
+        FrameBuffers.scrollDown(down, 0, HEIGHT, 4);
+
+        long[] up = screen.clone();
+        FrameBuffers.scrollUp(up, 0, HEIGHT, 4);
+
+        long[] right = screen.clone();
+        FrameBuffers.scrollRight(right, 0, HEIGHT, 4, 60);
+
+        long[] left = screen.clone();
+        FrameBuffers.scrollLeft(left, 0, HEIGHT, 4);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                Assertions.assertEquals(y >= 4 && isOn(screen, x, y - 4), isOn(down, x, y));
+                Assertions.assertEquals(y < HEIGHT - 4 && isOn(screen, x, y + 4), isOn(up, x, y));
+                Assertions.assertEquals(x >= 4 && x < 60 && isOn(screen, x - 4, y), isOn(right, x, y));
+                Assertions.assertEquals(x < WIDTH - 4 && isOn(screen, x + 4, y), isOn(left, x, y));
+            }
+        }
+    }
+
+    @Test
+    public void slicesOfSlabAreIndependent() {
+        SplittableRandom random = new SplittableRandom(3);
+        long[] slab = new long[HEIGHT * 3];
+        long[] screen = randomScreen(random);
+
+        System.arraycopy(screen, 0, slab, HEIGHT, HEIGHT);
+        System.arraycopy(screen, 0, slab, HEIGHT * 2, HEIGHT);
+
+        Assertions.assertEquals(FrameBuffers.hash(screen), FrameBuffers.hash(slab, HEIGHT, HEIGHT));
+
+        FrameBuffers.clear(slab, HEIGHT, HEIGHT);
+
+        Assertions.assertEquals(0, FrameBuffers.countPixels(slab, 0, HEIGHT * 2));
+        Assertions.assertTrue(FrameBuffers.equals(screen, 0, slab, HEIGHT * 2, HEIGHT));
+    }
+
+    @Test
+    public void hashSeesEveryRow() {
+        long[] screen = new long[HEIGHT];
+        long empty = FrameBuffers.hash(screen);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            screen[y] = 1;
+            Assertions.assertNotEquals(empty, FrameBuffers.hash(screen), "row " + y);
+            screen[y] = 0;
+        }
+    }
+
+    @Test
+    public void packedCountsMatchPixelLoops() {
+        SplittableRandom random = new SplittableRandom(4);
+        long[] first = randomScreen(random);
+        long[] second = randomScreen(random);
+        long[] difference = new long[HEIGHT];
+
+        boolean[][] firstPixels = new boolean[HEIGHT][WIDTH];
+        boolean[][] secondPixels = new boolean[HEIGHT][WIDTH];
+
+        new HeadlessDisplay(firstPixels).restoreRows(first);
+        new HeadlessDisplay(secondPixels).restoreRows(second);
+
+        Assertions.assertEquals(
+            countDifferingPixels(firstPixels, secondPixels),
+            FrameBuffers.xor(first, 0, second, 0, difference, 0, HEIGHT)
+        );
+    }
+
+    static int countDifferingPixels(boolean[][] first, boolean[][] second) {
+        int count = 0;
+
+        for (int y = 0; y < first.length; y++) {
+            for (int x = 0; x < first[y].length; x++) {
+                if (first[y][x] != second[y][x]) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    static long[] randomScreen(SplittableRandom random) {
+        long[] screen = new long[HEIGHT];
+
+        for (int y = 0; y < HEIGHT; y++) {
+            screen[y] = random.nextLong();
+        }
+
+        return screen;
+    }
+
+    private static boolean isOn(long[] screen, int x, int y) {
+        return (screen[y] & 1L << (Long.SIZE - 1 - x)) != 0;
+    }
+}
@@ -0,0 +1,127 @@
+package bg.example.display;
+
+import bg.example.chip.QuirkProfile;
+import bg.example.headless.HeadlessChip8;
+import bg.example.keyboard.Keyboard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static bg.example.Roms.rom;
+
+public class TileGridTest {
+
+    private static final int PIXEL_SIZE = 2;
+
+    @Test
+    public void tilesAreCompositedAtTheirPlace() {
+        TileGrid grid = new TileGrid(2, 2, 64, 32, PIXEL_SIZE);
+        TileDisplay first = grid.createTile();
+        TileDisplay second = grid.createTile();
+        TileDisplay fourth;
+
+        grid.createTile();
+        fourth = grid.createTile();
+
+        Assertions.assertEquals(256, grid.getWidth());
+        Assertions.assertEquals(128, grid.getHeight());
+        Assertions.assertFalse(grid.composite());
+
+        first.flipPixel(0, 0);
+        first.update();
+        second.flipPixel(63, 31);
+        second.update();
+        fourth.flipPixel(1, 2);
+        fourth.update();
+
+        Assertions.assertTrue(grid.composite());
+        Assertions.assertEquals(0, grid.getChangedTop());
+        Assertions.assertEquals((32 + 3) * PIXEL_SIZE, grid.getChangedBottom());
+
+        assertPixel(grid, 0, 0, true);
+        assertPixel(grid, 1, 0, false);
+        assertPixel(grid, 64 + 63, 31, true);
+        assertPixel(grid, 64 + 1, 32 + 2, true);
+        assertPixel(grid, 1, 2, false);
+
+        // Tiles without a new frame are not composited again
+        Assertions.assertFalse(grid.composite());
+    }
+
+    @Test
+    public void onlyChangedRowsAreReported() {
+        TileGrid grid = new TileGrid(1, 2, 64, 32, PIXEL_SIZE);
+
+        grid.createTile();
+        TileDisplay lower = grid.createTile();
+
+        lower.flipPixel(5, 10);
+        lower.update();
+
+        Assertions.assertTrue(grid.composite());
+        Assertions.assertEquals((32 + 10) * PIXEL_SIZE, grid.getChangedTop());
+        Assertions.assertEquals((32 + 11) * PIXEL_SIZE, grid.getChangedBottom());
+
+        // An update without changes redraws nothing
+        lower.update();
+
+        Assertions.assertFalse(grid.composite());
+    }
+
+    @Test
+    public void clearedScreenIsShownWithoutAnotherDraw() {
+        TileGrid grid = new TileGrid(1, 1, 64, 32, PIXEL_SIZE);
+
+        // Draws the digit 0 at 0, 0, then clears the screen and stops
+        HeadlessChip8 machine = new HeadlessChip8(
+            rom(0x6000, 0xF029, 0xD005, 0x00E0, 0x1208),
+            1,
+            3,
+            QuirkProfile.MODERN.quirks(),
+            grid.createTile(),
+            new Keyboard()
+        );
+
+        machine.runFrame();
+
+        Assertions.assertTrue(grid.composite());
+        Assertions.assertTrue(countOn(grid) > 0);
+
+        machine.runFrame();
+
+        Assertions.assertTrue(grid.composite());
+        Assertions.assertEquals(0, countOn(grid));
+    }
+
+    @Test
+    public void tilesBeyondTheGridAreRejected() {
+        TileGrid grid = new TileGrid(1, 1, 64, 32, PIXEL_SIZE);
+
+        grid.createTile();
+
+        Assertions.assertThrows(IllegalStateException.class, grid::createTile);
+    }
+
+    private static void assertPixel(TileGrid grid, int x, int y, boolean on) {
+        int color = on ? TileGrid.ON_COLOR : TileGrid.OFF_COLOR;
+
+        for (int dy = 0; dy < PIXEL_SIZE; dy++) {
+            for (int dx = 0; dx < PIXEL_SIZE; dx++) {
+                int index = (y * PIXEL_SIZE + dy) * grid.getWidth() + x * PIXEL_SIZE + dx;
+
+                Assertions.assertEquals(color, grid.getPixels()[index], "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    private static int countOn(TileGrid grid) {
+        int count = 0;
+
+        for (int pixel : grid.getPixels()) {
+            if (pixel == TileGrid.ON_COLOR) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
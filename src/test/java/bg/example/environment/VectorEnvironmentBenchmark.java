@@ -0,0 +1,44 @@
+package bg.example.environment;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static bg.example.Roms.rom;
+
+/**
+ * Run with the benchmark profile, timings depend on the machine
+ */
+public class VectorEnvironmentBenchmark {
+
+    // I = 300, then every frame of four instructions adds one to memory 300
+    private static final byte[] COUNTER = rom(0xA300, 0xF065, 0x7001, 0xF055, 0x1202);
+
+    @Test
+    public void stepsHundredsOfThousandsOfFramesPerSecond() {
+        VectorEnvironment environment = new VectorEnvironment(
+            COUNTER,
+            64,
+            1,
+            new EpisodeSpec(new int[] { 0x300 }, 0x300, 0xFF, 100)
+        );
+        int[] actions = new int[64];
+
+        for (int i = 0; i < 2_000; i++) {
+            actions[i % 64] = i & 0xFFFF;
+            environment.step(actions);
+        }
+
+        long start = System.nanoTime();
+        long frames = environment.getFrames();
+
+        for (int i = 0; i < 10_000; i++) {
+            actions[i % 64] = i & 0xFFFF;
+            environment.step(actions);
+        }
+
+        double framesPerSecond = (environment.getFrames() - frames) * 1e9 / (System.nanoTime() - start);
+
+        System.out.println((long) framesPerSecond + " frames/s");
+        Assertions.assertTrue(framesPerSecond > 200_000, framesPerSecond + " frames/s");
+    }
+}
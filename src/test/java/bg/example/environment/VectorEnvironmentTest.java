@@ -0,0 +1,151 @@
+package bg.example.environment;
+
+import bg.example.chip.QuirkProfile;
+import bg.example.chip.Quirks;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static bg.example.Roms.rom;
+
+public class VectorEnvironmentTest {
+
+    // I = 300, then every frame of four instructions adds one to memory 300
+    private static final byte[] COUNTER = rom(0xA300, 0xF065, 0x7001, 0xF055, 0x1202);
+
+    private static final EpisodeSpec COUNT_TO_FIVE = new EpisodeSpec(new int[] { 0x300 }, 0x300, 5, 1_000);
+
+    @Test
+    public void actionsReachTheirInstance() {
+        // Draws the digit 0 while key 0 is held
+        byte[] rom = rom(0x6000, 0xF029, 0xE0A1, 0xD005, 0x1208);
+        VectorEnvironment environment = new VectorEnvironment(
+            rom,
+            2,
+            1,
+            new EpisodeSpec(new int[0], EpisodeSpec.NO_ADDRESS, 0, 1_000)
+        );
+
+        environment.step(new int[] { 1, 0 });
+
+        long[] observations = environment.getObservations();
+
+        // The sprite lands one pixel to the right of its X coordinate, as on every display
+        Assertions.assertEquals(0xF0L << 55, observations[0]);
+        Assertions.assertEquals(0x90L << 55, observations[1]);
+        Assertions.assertEquals(0, observations[VectorEnvironment.OBSERVATION_WORDS]);
+    }
+
+    @Test
+    public void rewardsFollowTheScoreAndEpisodesReset() {
+        VectorEnvironment environment = new VectorEnvironment(COUNTER, 3, 1, 4, quirks(), COUNT_TO_FIVE);
+        int[] actions = new int[3];
+
+        for (int step = 1; step <= 4; step++) {
+            environment.step(actions);
+
+            Assertions.assertEquals(1, environment.getRewards()[0]);
+            Assertions.assertFalse(environment.getTerminated()[0]);
+            Assertions.assertEquals(step, environment.getMachine(0).getMemory()[0x300]);
+        }
+
+        environment.step(actions);
+
+        Assertions.assertTrue(environment.getTerminated()[2]);
+        Assertions.assertEquals(3, environment.getEpisodes());
+        Assertions.assertEquals(0, environment.getMachine(2).getMemory()[0x300]);
+        Assertions.assertEquals(0, environment.getMachine(2).getFrame());
+
+        environment.step(actions);
+
+        Assertions.assertFalse(environment.getTerminated()[2]);
+        Assertions.assertEquals(1, environment.getRewards()[2]);
+    }
+
+    @Test
+    public void frameLimitTruncates() {
+        VectorEnvironment environment = new VectorEnvironment(
+            COUNTER,
+            1,
+            1,
+            4,
+            quirks(),
+            new EpisodeSpec(new int[] { 0x300 }, EpisodeSpec.NO_ADDRESS, 0, 3)
+        );
+        int[] actions = new int[1];
+
+        environment.step(actions);
+        environment.step(actions);
+        Assertions.assertFalse(environment.getTruncated()[0]);
+
+        environment.step(actions);
+        Assertions.assertTrue(environment.getTruncated()[0]);
+        Assertions.assertFalse(environment.getTerminated()[0]);
+    }
+
+    @Test
+    public void crashEndsTheEpisode() {
+        // Returns without a call
+        VectorEnvironment environment = new VectorEnvironment(rom(0x00EE), 1, 1, COUNT_TO_FIVE);
+
+        environment.step(new int[1]);
+
+        Assertions.assertTrue(environment.getTerminated()[0]);
+        Assertions.assertEquals(0x200, environment.getMachine(0).getProgramCounter());
+    }
+
+    @Test
+    public void everyEpisodeDrawsOtherRandomNumbers() {
+        // Stores a random byte at 300, then loops
+        byte[] rom = rom(0xC0FF, 0xA300, 0xF055, 0x1206);
+        EpisodeSpec twoFrames = new EpisodeSpec(new int[0], EpisodeSpec.NO_ADDRESS, 0, 2);
+
+        long[] first = randomBytesOfEpisodes(new VectorEnvironment(rom, 1, 7, twoFrames), 8);
+        long[] second = randomBytesOfEpisodes(new VectorEnvironment(rom, 1, 7, twoFrames), 8);
+
+        Assertions.assertArrayEquals(first, second);
+        Assertions.assertTrue(Arrays.stream(first).distinct().count() > 1, Arrays.toString(first));
+    }
+
+    @Test
+    public void everyStepRunsOneFrameOfEveryInstance() {
+        VectorEnvironment environment = new VectorEnvironment(
+            COUNTER,
+            64,
+            1,
+            4,
+            quirks(),
+            new EpisodeSpec(new int[] { 0x300 }, 0x300, 0xFF, 100)
+        );
+        int[] actions = new int[64];
+
+        for (int i = 0; i < 1_000; i++) {
+            actions[i % 64] = i & 0xFFFF;
+            environment.step(actions);
+        }
+
+        Assertions.assertEquals(64L * 1_000, environment.getFrames());
+        // Every instance is cut off after 100 frames, before its counter is done
+        Assertions.assertEquals(64L * 10, environment.getEpisodes());
+    }
+
+    private static long[] randomBytesOfEpisodes(VectorEnvironment environment, int episodes) {
+        long[] values = new long[episodes];
+        int[] actions = new int[1];
+
+        for (int episode = 0; episode < episodes; episode++) {
+            environment.step(actions);
+            values[episode] = environment.getMachine(0).getMemory()[0x300];
+
+            // Ends the episode at the frame limit
+            environment.step(actions);
+        }
+
+        return values;
+    }
+
+    private static Quirks quirks() {
+        return QuirkProfile.MODERN.quirks();
+    }
+}
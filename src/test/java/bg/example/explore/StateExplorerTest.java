@@ -0,0 +1,158 @@
+package bg.example.explore;
+
+import bg.example.chip.StackFault;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static bg.example.Roms.rom;
+
+public class StateExplorerTest {
+
+    // Waits for a key, returns without a call when it was key 5 and waits again otherwise
+    private static final byte[] CRASH_ON_KEY_5 = rom(0xF00A, 0x3005, 0x1200, 0x00EE);
+
+    @Test
+    public void findsCrashAndReplaysIt() {
+        StateExplorer explorer = new StateExplorer(() -> new HeadlessChip8(CRASH_ON_KEY_5, 1), 4, 10_000);
+
+        StateExplorer.Report report = explorer.explore(start(CRASH_ON_KEY_5), state -> false, ForkJoinPool.commonPool());
+
+        List<Finding> crashes = report.findings()
+                                      .stream()
+                                      .filter(finding -> finding.kind() == Finding.Kind.CRASH)
+                                      .toList();
+
+        Assertions.assertFalse(crashes.isEmpty());
+        Assertions.assertTrue(report.complete());
+
+        for (Finding crash : crashes) {
+            Assertions.assertInstanceOf(StackFault.class, crash.cause());
+            Assertions.assertThrows(StackFault.class, () -> replay(CRASH_ON_KEY_5, crash.inputs()));
+        }
+    }
+
+    @Test
+    public void visitedStatesAreNotExploredAgain() {
+        // Loops forever, only the held and the last pressed key change the state
+        byte[] rom = rom(0x1200);
+        StateExplorer explorer = new StateExplorer(() -> new HeadlessChip8(rom, 1), 5, 10_000);
+
+        StateExplorer.Report report = explorer.explore(start(rom), state -> false, ForkJoinPool.commonPool());
+
+        long states = 1 + 2 * (StateExplorer.BRANCHES - 1);
+
+        Assertions.assertEquals(states, report.visited());
+        Assertions.assertEquals(StateExplorer.BRANCHES * states, report.forks());
+        Assertions.assertTrue(report.findings().isEmpty());
+    }
+
+    @Test
+    public void goalStopsTheBranch() {
+        // V0 += 1 every frame, the goal is V0 = 3
+        byte[] rom = rom(0x7001, 0x1200);
+        StateExplorer explorer = new StateExplorer(() -> new HeadlessChip8(rom, 1, 2), 6, 100_000);
+
+        StateExplorer.Report report = explorer.explore(
+            start(rom),
+            state -> state.getChipState().getRegister(0) == 3,
+            ForkJoinPool.commonPool()
+        );
+
+        Assertions.assertFalse(report.findings().isEmpty());
+
+        for (Finding goal : report.findings()) {
+            Assertions.assertEquals(Finding.Kind.GOAL, goal.kind());
+            Assertions.assertEquals(3, goal.inputs().length);
+        }
+    }
+
+    @Test
+    public void stateReachedByALongerPathFirstIsStillExploredToTheMaximumDepth() {
+        // After a first frame setting V2 = 1, every frame adds 1 to V0 while key 0 is held
+        // and 3 while key 1 is held
+        byte[] rom = rom(
+            0x6201, // 200: V2 = 1
+            0x6100, // 202: V1 = 0
+            0x6100, // 204: V1 = 0
+            0x6100, // 206: V1 = 0
+            0x120A, // 208: jump 20A
+            0xE19E, // 20A: skip if key V1 is held
+            0x1210, // 20C: jump 210
+            0x7001, // 20E: V0 += 1
+            0xE29E, // 210: skip if key V2 is held
+            0x1216, // 212: jump 216
+            0x7003, // 214: V0 += 3
+            0x120A  // 216: jump 20A
+        );
+        StateExplorer explorer = new StateExplorer(() -> new HeadlessChip8(rom, 1, 5), 4, 100_000);
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1, 5);
+        HeadlessState start = new HeadlessState();
+        ForkJoinPool pool = new ForkJoinPool(1);
+
+        machine.runFrame();
+        machine.save(start);
+
+        // V0 = 6 holding key 1 is reached by keys 1, 1 and by keys 0, 0, 0, 1, which goes first
+        // on one thread. V0 = 12 is only reached from it by keys 1, 1, 1, 1
+        try {
+            StateExplorer.Report report = explorer.explore(
+                start,
+                state -> state.getChipState().getRegister(0) == 12,
+                pool
+            );
+
+            Assertions.assertTrue(report.complete());
+            Assertions.assertEquals(1, report.findings().size());
+            Assertions.assertArrayEquals(new int[] {0b10, 0b10, 0b10, 0b10}, report.findings().get(0).inputs());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void stateLimitTruncates() {
+        byte[] rom = rom(0x7001, 0x1200);
+        StateExplorer explorer = new StateExplorer(() -> new HeadlessChip8(rom, 1), 10, 100);
+
+        StateExplorer.Report report = explorer.explore(start(rom), state -> false, ForkJoinPool.commonPool());
+
+        Assertions.assertFalse(report.complete());
+        Assertions.assertEquals(100, report.visited());
+    }
+
+    @Test
+    public void visitedSetIsSafeAcrossThreads() {
+        VisitedSet set = new VisitedSet(100_000);
+
+        long added = LongStream.range(0, 400_000)
+                               .parallel()
+                               .filter(i -> set.add(i % 100_000 * 0x9E3779B97F4A7C15L))
+                               .count();
+
+        Assertions.assertEquals(100_000, added);
+        Assertions.assertEquals(100_000, set.size());
+        Assertions.assertTrue(set.contains(0));
+        Assertions.assertFalse(set.contains(100_000 * 0x9E3779B97F4A7C15L));
+    }
+
+    private static HeadlessState start(byte[] rom) {
+        HeadlessState state = new HeadlessState();
+        new HeadlessChip8(rom, 1).save(state);
+        return state;
+    }
+
+    private static void replay(byte[] rom, int[] inputs) {
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1);
+
+        for (int keys : inputs) {
+            machine.applyKeys(keys);
+            machine.runFrame();
+        }
+    }
+}
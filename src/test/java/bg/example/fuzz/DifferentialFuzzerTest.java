@@ -0,0 +1,41 @@
+package bg.example.fuzz;
+
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DifferentialFuzzerTest {
+
+    @Test
+    public void identicalCoresNeverDiverge() {
+        DifferentialFuzzer fuzzer = new DifferentialFuzzer(HeadlessChip8::new, HeadlessChip8::new);
+
+        DifferentialFuzzer.Report report = fuzzer.fuzz(2_000, 1, 4);
+
+        Assertions.assertEquals(2_000, report.programs());
+        Assertions.assertTrue(report.divergences().isEmpty(), report.divergences().toString());
+    }
+
+    @Test
+    public void divergingCoresAreReducedToSmallProgram() {
+        DifferentialFuzzer fuzzer = new DifferentialFuzzer(
+            (program, seed) -> new HeadlessChip8(program, seed, 10),
+            (program, seed) -> new HeadlessChip8(program, seed, 11)
+        );
+
+        DifferentialFuzzer.Report report = fuzzer.fuzz(2_000, 1, 4);
+
+        Assertions.assertFalse(report.divergences().isEmpty());
+
+        for (Divergence divergence : report.divergences()) {
+            Assertions.assertTrue(
+                divergence.program().length <= 8,
+                "Not reduced: " + divergence
+            );
+            Assertions.assertTrue(
+                fuzzer.check(divergence.program(), divergence.seed()).isPresent(),
+                "Reduced program does not diverge: " + divergence
+            );
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package bg.example.governor;
+
+import bg.example.clock.FrameClock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+public class SpeedGovernorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void mostlyWaitingProgramLosesInstructions() {
+        FrameClock clock = clock(20);
+        SpeedGovernor governor = new SpeedGovernor(clock, GovernorSettings.DEFAULT);
+        List<Integer> learned = new ArrayList<>();
+
+        governor.setSettledListener(learned::add);
+        clock.addFrameListener(governor);
+
+        // Works for 6 instructions of every frame, then waits for the delay timer
+        for (int frame = 0; frame < 600; frame++) {
+            tick(clock, 6);
+            clock.skip(clock.getIdleTicks());
+            tick(clock, 1);
+        }
+
+        // 7 of 14 instructions waiting is the most allowed
+        Assertions.assertEquals(14, clock.getInstructionsPerFrame());
+        Assertions.assertTrue(governor.isSettled());
+        Assertions.assertEquals(List.of(14), learned);
+    }
+
+    @Test
+    public void hardlyWaitingProgramGainsInstructions() {
+        FrameClock clock = clock(25);
+        SpeedGovernor governor = new SpeedGovernor(clock, GovernorSettings.DEFAULT);
+
+        clock.addFrameListener(governor);
+
+        // Every frame waits for a single instruction
+        for (int frame = 0; frame < 600; frame++) {
+            tick(clock, clock.getInstructionsPerFrame() - 2);
+            clock.skip(clock.getIdleTicks());
+            tick(clock, 1);
+        }
+
+        Assertions.assertEquals(GovernorSettings.DEFAULT.maxInstructionsPerFrame(), clock.getInstructionsPerFrame());
+    }
+
+    @Test
+    public void frequentDrawingSlowsDown() {
+        FrameClock clock = clock(30);
+        SpeedGovernor governor = new SpeedGovernor(clock, GovernorSettings.DEFAULT);
+
+        clock.addFrameListener(governor);
+
+        for (int frame = 0; frame < 600; frame++) {
+            for (int i = 0; i < clock.getInstructionsPerFrame(); i++) {
+                governor.recordDraw();
+                clock.tick();
+            }
+        }
+
+        // Every instruction draws, so the frame shrinks to the most draws per frame allowed
+        Assertions.assertEquals((int) GovernorSettings.DEFAULT.maxDrawsPerFrame(), clock.getInstructionsPerFrame());
+    }
+
+    @Test
+    public void keyWaitFramesAreIgnored() {
+        FrameClock clock = clock(30);
+        SpeedGovernor governor = new SpeedGovernor(clock, GovernorSettings.DEFAULT);
+
+        clock.addFrameListener(governor);
+
+        for (int frame = 0; frame < 600; frame++) {
+            governor.recordKeyWait();
+
+            for (int i = 0; i < 30; i++) {
+                governor.recordDraw();
+                clock.tick();
+            }
+        }
+
+        Assertions.assertEquals(30, clock.getInstructionsPerFrame());
+        Assertions.assertFalse(governor.isSettled());
+    }
+
+    @Test
+    public void cacheKeepsSpeedsAcrossLaunches() throws IOException {
+        Path file = directory.resolve("cache").resolve("speeds.properties");
+
+        SpeedCache cache = SpeedCache.open(file);
+
+        Assertions.assertEquals(OptionalInt.empty(), cache.get(42));
+
+        cache.put(42, 12);
+        cache.put(-7, 25);
+        cache.save();
+
+        SpeedCache reopened = SpeedCache.open(file);
+
+        Assertions.assertEquals(OptionalInt.of(12), reopened.get(42));
+        Assertions.assertEquals(OptionalInt.of(25), reopened.get(-7));
+        Assertions.assertEquals(OptionalInt.empty(), reopened.get(43));
+    }
+
+    private static FrameClock clock(int instructionsPerFrame) {
+        FrameClock clock = new FrameClock(instructionsPerFrame);
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+        return clock;
+    }
+
+    private static void tick(FrameClock clock, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            clock.tick();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bg.example.harness;
+
+import bg.example.chip.Chip8;
+
+import java.util.HexFormat;
+
+/**
+ * State of a ROM run at a single frame
+ *
+ * @param frame number of frames run before the state was taken
+ * @param frameHash hash of the packed screen rows
+ * @param memoryHash hash of the whole memory
+ * @param rows screen packed as one word per row
+ */
+public record Checkpoint(int frame, long frameHash, long memoryHash, long[] rows) {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    public boolean matches(Checkpoint other) {
+        return frame == other.frame
+            && frameHash == other.frameHash
+            && memoryHash == other.memoryHash;
+    }
+
+    public String toLine() {
+        StringBuilder line = new StringBuilder();
+
+        line.append(frame)
+            .append(' ')
+            .append(HEX.toHexDigits(frameHash))
+            .append(' ')
+            .append(HEX.toHexDigits(memoryHash))
+            .append(' ');
+
+        for (long row : rows) {
+            line.append(HEX.toHexDigits(row));
+        }
+
+        return line.toString();
+    }
+
+    public static Checkpoint fromLine(String line) {
+        String[] parts = line.trim().split(" ");
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+
+        for (int i = 0; i < rows.length; i++) {
+            int start = i * Long.BYTES * 2;
+            rows[i] = HexFormat.fromHexDigitsToLong(parts[3], start, start + Long.BYTES * 2);
+        }
+
+        return new Checkpoint(
+            Integer.parseInt(parts[0]),
+            HexFormat.fromHexDigitsToLong(parts[1]),
+            HexFormat.fromHexDigitsToLong(parts[2]),
+            rows
+        );
+    }
+}
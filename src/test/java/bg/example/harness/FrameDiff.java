@@ -0,0 +1,73 @@
+package bg.example.harness;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the expected frame, the actual frame and their difference side by side
+ */
+public final class FrameDiff {
+
+    private static final int PIXEL_SIZE = 4;
+    private static final int GAP = 2;
+
+    private static final int ON_COLOR = 0x000000;
+    private static final int OFF_COLOR = 0xFFFFFF;
+    private static final int DIFF_COLOR = 0xFF0000;
+    private static final int GAP_COLOR = 0x808080;
+
+    private FrameDiff() { }
+
+    public static void write(Path file, long[] expected, long[] actual, int width) {
+        int panelWidth = width * PIXEL_SIZE;
+        int height = expected.length * PIXEL_SIZE;
+
+        BufferedImage image = new BufferedImage(
+            panelWidth * 3 + GAP * 2,
+            height,
+            BufferedImage.TYPE_INT_RGB
+        );
+
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, GAP_COLOR);
+            }
+        }
+
+        for (int y = 0; y < expected.length; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean expectedOn = isOn(expected[y], x);
+                boolean actualOn = isOn(actual[y], x);
+
+                int diffColor = expectedOn != actualOn ? DIFF_COLOR : (actualOn ? ON_COLOR : OFF_COLOR);
+
+                fill(image, x, y, 0, expectedOn ? ON_COLOR : OFF_COLOR);
+                fill(image, x, y, panelWidth + GAP, actualOn ? ON_COLOR : OFF_COLOR);
+                fill(image, x, y, (panelWidth + GAP) * 2, diffColor);
+            }
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            ImageIO.write(image, "png", file.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isOn(long row, int x) {
+        return (row & (1L << (Long.SIZE - 1 - x))) != 0;
+    }
+
+    private static void fill(BufferedImage image, int x, int y, int offset, int color) {
+        for (int dy = 0; dy < PIXEL_SIZE; dy++) {
+            for (int dx = 0; dx < PIXEL_SIZE; dx++) {
+                image.setRGB(offset + x * PIXEL_SIZE + dx, y * PIXEL_SIZE + dy, color);
+            }
+        }
+    }
+}
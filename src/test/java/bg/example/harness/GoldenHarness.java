@@ -0,0 +1,193 @@
+package bg.example.harness;
+
+import bg.example.chip.Chip8;
+import bg.example.hash.Hashing;
+import bg.example.headless.HeadlessChip8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs ROMs headless with scripted input and compares their state at chosen frames
+ * with stored golden values. Golden files are rewritten instead of compared when the
+ * {@value #RECORD_PROPERTY} system property is set
+ */
+public class GoldenHarness {
+
+    public static final String RECORD_PROPERTY = "golden.record";
+
+    private static final String GOLDEN_RESOURCE_DIRECTORY = "/golden/";
+    private static final Path GOLDEN_SOURCE_DIRECTORY = Path.of("src", "test", "resources", "golden");
+    private static final Path DIFF_DIRECTORY = Path.of("target", "golden-diff");
+
+    private final boolean recording;
+
+    public GoldenHarness() {
+        this.recording = Boolean.getBoolean(RECORD_PROPERTY);
+    }
+
+    /**
+     * Runs all cases in parallel
+     *
+     * @return the checkpoints of every case, in the order of the cases
+     */
+    public Map<RomCase, List<Checkpoint>> runAll(List<RomCase> cases) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors()
+        );
+
+        try {
+            Map<RomCase, Future<List<Checkpoint>>> futures = new LinkedHashMap<>();
+
+            for (RomCase romCase : cases) {
+                futures.put(romCase, executor.submit(() -> run(romCase)));
+            }
+
+            Map<RomCase, List<Checkpoint>> results = new LinkedHashMap<>();
+
+            for (var entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public List<Checkpoint> run(RomCase romCase) {
+        HeadlessChip8 machine = new HeadlessChip8(romCase.rom(), romCase.seed());
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+
+        for (int frame = 0; frame < romCase.lastFrame(); frame++) {
+            for (RomCase.KeyEvent event : romCase.script()) {
+                if (event.frame() != frame) {
+                    continue;
+                }
+
+                if (event.pressed()) {
+                    machine.getKeyboard().press(event.key());
+                } else {
+                    machine.getKeyboard().release(event.key());
+                }
+            }
+
+            machine.runFrame();
+
+            if (romCase.checkpoints().contains(frame + 1)) {
+                machine.getDisplay().copyRows(rows);
+
+                checkpoints.add(
+                    new Checkpoint(
+                        frame + 1,
+                        Hashing.hash(rows),
+                        Hashing.hash(machine.getMemory()),
+                        rows.clone()
+                    )
+                );
+            }
+        }
+
+        return checkpoints;
+    }
+
+    /**
+     * Compares the checkpoints with the golden ones, writing a PNG diff for each mismatch
+     *
+     * @return a description of every mismatch
+     */
+    public List<String> verify(RomCase romCase, List<Checkpoint> actual) {
+        if (recording) {
+            record(romCase, actual);
+            return List.of();
+        }
+
+        List<Checkpoint> expected = readGolden(romCase);
+        List<String> failures = new ArrayList<>();
+
+        if (expected.size() != actual.size()) {
+            failures.add(
+                romCase.name() + ": expected " + expected.size() + " checkpoints but got " + actual.size()
+            );
+            return failures;
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            Checkpoint want = expected.get(i);
+            Checkpoint got = actual.get(i);
+
+            if (want.matches(got)) {
+                continue;
+            }
+
+            Path diff = DIFF_DIRECTORY.resolve(romCase.name() + "-" + got.frame() + ".png");
+            FrameDiff.write(diff, want.rows(), got.rows(), Chip8.DISPLAY_WIDTH);
+
+            failures.add(
+                romCase.name() + " differs at frame " + got.frame()
+                    + (want.frameHash() != got.frameHash() ? " (screen)" : "")
+                    + (want.memoryHash() != got.memoryHash() ? " (memory)" : "")
+                    + ", see " + diff.toAbsolutePath()
+            );
+        }
+
+        return failures;
+    }
+
+    private List<Checkpoint> readGolden(RomCase romCase) {
+        String resource = GOLDEN_RESOURCE_DIRECTORY + romCase.name() + ".golden";
+
+        try (InputStream in = GoldenHarness.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException(
+                    "Missing " + resource + ", run the tests with -D" + RECORD_PROPERTY + "=true to create it"
+                );
+            }
+
+            var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+            return reader.lines()
+                         .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                         .map(Checkpoint::fromLine)
+                         .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void record(RomCase romCase, List<Checkpoint> checkpoints) {
+        List<String> lines = new ArrayList<>();
+        lines.add("# frame screen-hash memory-hash screen-rows");
+
+        for (Checkpoint checkpoint : checkpoints) {
+            lines.add(checkpoint.toLine());
+        }
+
+        try {
+            Files.createDirectories(GOLDEN_SOURCE_DIRECTORY);
+            Files.write(GOLDEN_SOURCE_DIRECTORY.resolve(romCase.name() + ".golden"), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
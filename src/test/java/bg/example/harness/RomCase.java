@@ -0,0 +1,79 @@
+package bg.example.harness;
+
+import javafx.scene.input.KeyCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * ROM run by the golden harness together with its scripted input
+ * and the frames at which its state is checked
+ */
+public class RomCase {
+
+    public record KeyEvent(int frame, KeyCode key, boolean pressed) { }
+
+    private final String name;
+    private final byte[] rom;
+    private final long seed;
+
+    private final List<KeyEvent> script;
+    private final SortedSet<Integer> checkpoints;
+
+    public RomCase(String name, byte[] rom, long seed) {
+        this.name = name;
+        this.rom = rom;
+        this.seed = seed;
+
+        script = new ArrayList<>();
+        checkpoints = new TreeSet<>();
+    }
+
+    public RomCase press(int frame, KeyCode key) {
+        script.add(new KeyEvent(frame, key, true));
+        return this;
+    }
+
+    public RomCase release(int frame, KeyCode key) {
+        script.add(new KeyEvent(frame, key, false));
+        return this;
+    }
+
+    public RomCase checkAt(int... frames) {
+        for (int frame : frames) {
+            checkpoints.add(frame);
+        }
+        return this;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public byte[] rom() {
+        return rom;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public List<KeyEvent> script() {
+        return script;
+    }
+
+    public SortedSet<Integer> checkpoints() {
+        return checkpoints;
+    }
+
+    public int lastFrame() {
+        return checkpoints.isEmpty() ? 0 : checkpoints.last();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,202 @@
+package bg.example.input;
+
+import bg.example.clock.FrameClock;
+import javafx.scene.input.KeyCode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class SampledKeyboardTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void keyMapKeepsUnmappedKeysAndLoadsProgramOverrides() throws IOException {
+        KeyMap base = KeyMap.fromRemapping(Map.of(KeyCode.Q, KeyCode.DIGIT4, KeyCode.DIGIT4, KeyCode.C));
+
+        Assertions.assertEquals(0x4, base.get(KeyCode.Q));
+        Assertions.assertEquals(0xC, base.get(KeyCode.DIGIT4));
+        Assertions.assertEquals(0x5, base.get(KeyCode.DIGIT5));
+        Assertions.assertEquals(KeyMap.UNMAPPED, base.get(KeyCode.SPACE));
+
+        Path program = directory.resolve("game.ch8");
+        Files.write(program, new byte[2]);
+
+        Assertions.assertSame(base, KeyMap.forProgram(program, base));
+
+        Files.writeString(directory.resolve("game.ch8.keys"), "space=5\nq=none\nUP = a\n");
+        KeyMap loaded = KeyMap.forProgram(program, base);
+
+        Assertions.assertEquals(0x5, loaded.get(KeyCode.SPACE));
+        Assertions.assertEquals(0xA, loaded.get(KeyCode.UP));
+        Assertions.assertEquals(KeyMap.UNMAPPED, loaded.get(KeyCode.Q));
+        Assertions.assertEquals(0xC, loaded.get(KeyCode.DIGIT4));
+    }
+
+    @Test
+    public void sourcesAreMergedAndSampledOncePerFrame() {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        KeyInput first = keyboard.addSource(input -> { });
+        KeyInput second = keyboard.addSource(input -> { });
+
+        first.press(0x1);
+        second.press(0x1);
+        second.press(0xF);
+
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT1));
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.F));
+
+        // Changes within a frame are seen from the next one
+        second.release(0xF);
+        first.press(0x2);
+
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.F));
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.DIGIT2));
+
+        keyboard.run();
+
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.F));
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT2));
+
+        // Still held by the other source
+        second.release(0x1);
+        keyboard.run();
+
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT1));
+    }
+
+    @Test
+    public void tapWithinFrameIsSeenForOneFrame() {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        KeyInput input = keyboard.addSource(source -> { });
+
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.A));
+
+        input.press(0xA);
+        input.release(0xA);
+        keyboard.run();
+
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.A));
+
+        keyboard.run();
+
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.A));
+    }
+
+    @Test
+    public void latencyIsMeasuredAtFirstObservation() throws InterruptedException {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        KeyInput input = keyboard.addSource(source -> { });
+
+        input.press(0x3);
+        Thread.sleep(20);
+        keyboard.run();
+
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.DIGIT4));
+        Assertions.assertEquals(0, keyboard.getLatency().getCount());
+
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT3));
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT3));
+
+        Assertions.assertEquals(1, keyboard.getLatency().getCount());
+        Assertions.assertTrue(keyboard.getLatency().getMaxNanos() >= 20_000_000L);
+    }
+
+    @Test
+    public void keyWaitReadsLiveState() {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        KeyInput input = keyboard.addSource(source -> { });
+
+        Assertions.assertNull(keyboard.getLastPressedKey());
+
+        // Pressed and held while the frame is stalled by the wait
+        input.press(0x7);
+
+        Assertions.assertEquals(KeyCode.DIGIT7, keyboard.getLastPressedKey());
+        Assertions.assertTrue(keyboard.isPressed(KeyCode.DIGIT7));
+        Assertions.assertEquals(1, keyboard.getLatency().getCount());
+
+        input.release(0x7);
+
+        Assertions.assertFalse(keyboard.isPressed(KeyCode.DIGIT7));
+    }
+
+    @Test
+    public void streamLinesPressReleaseAndTap() {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        KeyInput input = keyboard.getState().open();
+
+        Assertions.assertTrue(StreamInputSource.apply("+5", input));
+        Assertions.assertTrue(StreamInputSource.apply(" +b ", input));
+        Assertions.assertTrue(StreamInputSource.apply("-5", input));
+        Assertions.assertFalse(StreamInputSource.apply("press 5", input));
+        Assertions.assertEquals(1 << 0xB, input.get());
+
+        Assertions.assertTrue(StreamInputSource.apply("c", input));
+        Assertions.assertEquals(1 << 0xB, input.get());
+        // Released presses stay latched until sampled
+        Assertions.assertEquals(1 << 0x5 | 1 << 0xB | 1 << 0xC, keyboard.getState().sample());
+        Assertions.assertEquals(1 << 0xB, keyboard.getState().sample());
+    }
+
+    @Test
+    public void streamSourceReleasesKeysAtEnd() throws InterruptedException {
+        SampledKeyboard keyboard = new SampledKeyboard();
+        byte[] lines = "+1\n+2\n".getBytes(StandardCharsets.UTF_8);
+        KeyInput input = keyboard.addSource(new StreamInputSource(new ByteArrayInputStream(lines), "test-input"));
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        while (keyboard.getState().getLastPressedKey() != 0x2 || input.get() != 0) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Stream was not read");
+            Thread.sleep(1);
+        }
+
+        Assertions.assertEquals(0b110, keyboard.getState().sample());
+    }
+
+    @Test
+    public void scriptIsReplayedFrameByFrame() {
+        int[] frames = InputScript.compile(List.of(
+            "# jump then move right",
+            "3 -1",
+            "1 +1",
+            "2 +6",
+            "4 -6"
+        ));
+
+        Assertions.assertArrayEquals(new int[] {0, 0b10, 0b1000010, 0b1000000, 0}, frames);
+
+        FrameClock clock = new FrameClock(2);
+        SampledKeyboard keyboard = new SampledKeyboard();
+
+        clock.setSpeed(Double.POSITIVE_INFINITY);
+        clock.addFrameListener(keyboard);
+
+        ReplayInputSource replay = new ReplayInputSource(clock, frames);
+        keyboard.addSource(replay);
+
+        boolean[] held = new boolean[frames.length];
+
+        for (int frame = 0; frame < frames.length; frame++) {
+            held[frame] = keyboard.isPressed(KeyCode.DIGIT1);
+            Assertions.assertEquals((frames[frame] & 0b1000000) != 0, keyboard.isPressed(KeyCode.DIGIT6));
+
+            clock.tick();
+            clock.tick();
+        }
+
+        Assertions.assertArrayEquals(new boolean[] {false, true, true, false, false}, held);
+        Assertions.assertTrue(replay.isFinished());
+        Assertions.assertEquals(0, keyboard.getState().mask());
+    }
+}
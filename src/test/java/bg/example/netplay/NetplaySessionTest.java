@@ -0,0 +1,137 @@
+package bg.example.netplay;
+
+import bg.example.chip.Chip8State;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.HeadlessState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static bg.example.Roms.rom;
+
+public class NetplaySessionTest {
+
+    private static final long FRAME_NANOS = 16_666_667;
+    private static final int SCRIPTED_FRAMES = 300;
+    private static final int TOTAL_FRAMES = 400;
+
+    // Counts frames in which the key in V2 is held, cycling V2 through all keys,
+    // and draws a random sprite offset by the count
+    private static final byte[] ROM = rom(
+        0x6200, 0x6500,
+        0xE2A1, 0x7301, 0x7201, 0x4210, 0x6200,
+        0xC40F, 0x8434, 0xA300, 0xF41E, 0xD555,
+        0x1204
+    );
+
+    private long now;
+
+    @Test
+    public void rolledBackSessionsMatchSessionsWithoutLatency() {
+        HeadlessState expected = new HeadlessState();
+        HeadlessState actual = new HeadlessState();
+
+        NetplaySession[] reference = play(0, 0);
+        NetplaySession[] delayed = play(80_000_000, 30_000_000);
+
+        reference[0].getMachine().save(expected);
+
+        Assertions.assertNotEquals(0, expected.getChipState().getRegister(3), "Input had no effect");
+        Assertions.assertEquals(0, reference[0].getRollbacks());
+        Assertions.assertTrue(delayed[0].getRollbacks() > 0);
+        Assertions.assertTrue(delayed[1].getRollbacks() > 0);
+
+        for (NetplaySession session : delayed) {
+            session.getMachine().save(actual);
+
+            Assertions.assertEquals(TOTAL_FRAMES, actual.getFrame());
+            Assertions.assertNull(expected.getChipState().findDifference(actual.getChipState()));
+        }
+    }
+
+    @Test
+    public void resimulatingTenFramesTakesUnderOneMillisecond() {
+        HeadlessChip8 machine = new HeadlessChip8(ROM, 7);
+        HeadlessState snapshot = new HeadlessState();
+        Chip8State first = new Chip8State();
+        Chip8State second = new Chip8State();
+
+        machine.save(snapshot);
+
+        int rounds = 2_000;
+        long start = 0;
+
+        for (int round = 0; round < 2 * rounds; round++) {
+            if (round == rounds) {
+                start = System.nanoTime();
+            }
+
+            machine.restore(snapshot);
+
+            for (int frame = 0; frame < 10; frame++) {
+                machine.runFrame();
+            }
+        }
+
+        long nanosPerRollback = (System.nanoTime() - start) / rounds;
+
+        Assertions.assertTrue(nanosPerRollback < 1_000_000, nanosPerRollback + " ns per rollback");
+
+        machine.saveState(first);
+        machine.restore(snapshot);
+
+        for (int frame = 0; frame < 10; frame++) {
+            machine.runFrame();
+        }
+
+        machine.saveState(second);
+
+        Assertions.assertNull(first.findDifference(second));
+    }
+
+    private NetplaySession[] play(long latencyNanos, long jitterNanos) {
+        now = 0;
+
+        LoopbackTransport[] transports = LoopbackTransport.pair(() -> now, latencyNanos, jitterNanos, 3);
+        NetplaySession[] sessions = new NetplaySession[2];
+        int[][] scripts = new int[2][];
+
+        for (int player = 0; player < 2; player++) {
+            sessions[player] = new NetplaySession(new HeadlessChip8(ROM, 7), transports[player]);
+            scripts[player] = script(player);
+        }
+
+        while (sessions[0].getFrame() < TOTAL_FRAMES || sessions[1].getFrame() < TOTAL_FRAMES) {
+            now += FRAME_NANOS;
+
+            for (int player = 0; player < 2; player++) {
+                NetplaySession session = sessions[player];
+
+                if (session.getFrame() < TOTAL_FRAMES) {
+                    session.advance(scripts[player][(int) session.getFrame() + NetplaySession.DEFAULT_INPUT_DELAY]);
+                }
+            }
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Random keys held for a few frames at a time, then nothing so that the end is predicted correctly
+     */
+    private static int[] script(int player) {
+        SplittableRandom random = new SplittableRandom(player);
+        int[] keys = new int[TOTAL_FRAMES + NetplaySession.DEFAULT_INPUT_DELAY];
+
+        for (int frame = 0; frame < SCRIPTED_FRAMES; frame += 5) {
+            int held = random.nextInt(1 << 16) & random.nextInt(1 << 16);
+
+            for (int i = frame; i < frame + 5; i++) {
+                keys[i] = held;
+            }
+        }
+
+        return keys;
+    }
+}
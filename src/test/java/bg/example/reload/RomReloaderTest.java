@@ -0,0 +1,134 @@
+package bg.example.reload;
+
+import bg.example.chip.Chip8State;
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static bg.example.Roms.rom;
+
+public class RomReloaderTest {
+
+    // V0 = 1, then adds 1 to V0 forever
+    private static final byte[] PROGRAM = rom(0x6001, 0x7001, 0x1202);
+
+    // Adds 2 instead
+    private static final byte[] CHANGED = rom(0x6001, 0x7002, 0x1202);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void diffKeepsOnlyChangedRuns() {
+        byte[] previous = {1, 2, 3, 4, 5, 6};
+        byte[] current = {1, 9, 9, 4, 5, 7, 8};
+
+        List<Patch> patches = RomDiff.diff(previous, current, 0x200, 0xE00);
+
+        Assertions.assertEquals(2, patches.size());
+        Assertions.assertEquals(0x201, patches.get(0).address());
+        Assertions.assertArrayEquals(new int[] {9, 9}, patches.get(0).values());
+        Assertions.assertEquals(0x205, patches.get(1).address());
+        Assertions.assertArrayEquals(new int[] {7, 8}, patches.get(1).values());
+
+        List<Patch> shorter = RomDiff.diff(previous, new byte[] {1, 2, 3}, 0x200, 0xE00);
+
+        Assertions.assertEquals(1, shorter.size());
+        Assertions.assertEquals(0x203, shorter.get(0).address());
+        Assertions.assertArrayEquals(new int[] {0, 0, 0}, shorter.get(0).values());
+
+        Assertions.assertTrue(RomDiff.diff(previous, previous.clone(), 0x200, 0xE00).isEmpty());
+    }
+
+    @Test
+    public void changedFileIsPatchedIntoRunningInstance() throws IOException, InterruptedException {
+        Path file = directory.resolve("program.ch8");
+        Files.write(file, PROGRAM);
+
+        HeadlessChip8 machine = new HeadlessChip8(PROGRAM, 1);
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+        try (RomReloader reloader = new RomReloader(
+            file,
+            machine.getChip(),
+            ReloadMode.CONTINUE,
+            tasks::add
+        )) {
+            List<List<Patch>> reloads = new ArrayList<>();
+            reloader.addListener(reloads::add);
+            reloader.start();
+
+            for (int i = 0; i < 5; i++) {
+                machine.step();
+            }
+
+            Assertions.assertEquals(3, register(machine, 0));
+
+            Files.write(file, CHANGED);
+
+            Runnable task = tasks.poll(30, TimeUnit.SECONDS);
+            Assertions.assertNotNull(task, "No reload was scheduled");
+            task.run();
+
+            Assertions.assertEquals(1, reloader.getReloads());
+            Assertions.assertEquals(List.of(0x203), reloads.get(0).stream().map(Patch::address).toList());
+
+            // The register survives, the next addition uses the new code
+            machine.step();
+            machine.step();
+
+            Assertions.assertEquals(5, register(machine, 0));
+            Assertions.assertEquals(0x02, machine.getMemory()[0x203]);
+        }
+    }
+
+    @Test
+    public void restartReturnsToLoadedStateWithNewCode() throws IOException {
+        Path file = directory.resolve("program.ch8");
+        Files.write(file, PROGRAM);
+
+        HeadlessChip8 machine = new HeadlessChip8(PROGRAM, 1);
+        BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+        try (RomReloader reloader = new RomReloader(
+            file,
+            machine.getChip(),
+            ReloadMode.RESTART,
+            tasks::add
+        )) {
+            for (int i = 0; i < 7; i++) {
+                machine.step();
+            }
+
+            reloader.reload(CHANGED);
+            reloader.reload(CHANGED);
+
+            // Reloads queued before the instance ran them are merged
+            Assertions.assertEquals(1, tasks.size());
+            tasks.poll().run();
+
+            Assertions.assertEquals(0x200, machine.getProgramCounter());
+
+            machine.step();
+            machine.step();
+
+            Assertions.assertEquals(3, register(machine, 0));
+        }
+    }
+
+    private static int register(HeadlessChip8 machine, int index) {
+        Chip8State state = new Chip8State();
+        machine.saveRegisters(state);
+        return state.getRegister(index);
+    }
+}
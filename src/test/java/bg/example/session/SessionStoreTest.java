@@ -0,0 +1,149 @@
+package bg.example.session;
+
+import bg.example.chip.Chip8State;
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static bg.example.Roms.rom;
+
+public class SessionStoreTest {
+
+    // Counts frames in which the key in V2 is held, cycling V2 through all keys,
+    // and draws a random sprite offset by the count
+    private static final byte[] ROM = rom(
+        0x6200, 0x6500,
+        0xE2A1, 0x7301, 0x7201, 0x4210, 0x6200,
+        0xC40F, 0x8434, 0xA300, 0xF41E, 0xD555,
+        0x1204
+    );
+
+    private static final long SEED = 11;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void restartResumesAtLastDurableFrame() throws Exception {
+        int[] keys = script(1_000);
+
+        runSession(keys, 0, 250);
+        runSession(keys, 250, 730);
+
+        HeadlessChip8 resumed = new HeadlessChip8(ROM, SEED);
+
+        try (SessionStore store = new SessionStore(directory, 100)) {
+            Assertions.assertEquals(730, store.resume(resumed));
+        }
+
+        assertSameState(reference(keys, 730), resumed);
+    }
+
+    @Test
+    public void journalAloneIsEnoughWithoutCheckpoint() throws Exception {
+        int[] keys = script(200);
+
+        runSession(keys, 0, 150);
+
+        HeadlessChip8 resumed = new HeadlessChip8(ROM, SEED);
+
+        try (SessionStore store = new SessionStore(directory, 1_000)) {
+            Assertions.assertEquals(150, store.resume(resumed));
+        }
+
+        assertSameState(reference(keys, 150), resumed);
+        Assertions.assertNotEquals(0, stateOf(resumed).getRegister(3), "Input had no effect");
+    }
+
+    @Test
+    public void journalOfALongSessionStaysBounded() throws Exception {
+        // A change of the keys every frame, which is 16 bytes of journal per frame
+        int[] keys = new int[20_000];
+
+        for (int frame = 0; frame < keys.length; frame++) {
+            keys[frame] = frame % 2 == 0 ? 1 << 3 : 1 << 7;
+        }
+
+        runSession(keys, 0, 10_000);
+        runSession(keys, 10_000, 20_000);
+
+        // The size of a fresh journal, without compaction it would be five times that
+        Assertions.assertTrue(Files.size(directory.resolve("journal.bin")) <= 64 * 1024);
+
+        HeadlessChip8 resumed = new HeadlessChip8(ROM, SEED);
+
+        try (SessionStore store = new SessionStore(directory, 100)) {
+            Assertions.assertEquals(20_000, store.resume(resumed));
+        }
+
+        assertSameState(reference(keys, 20_000), resumed);
+    }
+
+    @Test
+    public void compactedJournalNeedsItsCheckpoint() throws Exception {
+        int[] keys = script(300);
+
+        runSession(keys, 0, 300);
+
+        Files.write(directory.resolve("checkpoint.bin"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+        try (SessionStore store = new SessionStore(directory, 100)) {
+            Assertions.assertThrows(IOException.class, () -> store.resume(new HeadlessChip8(ROM, SEED)));
+        }
+    }
+
+    private void runSession(int[] keys, long expectedStart, long end) throws IOException {
+        HeadlessChip8 machine = new HeadlessChip8(ROM, SEED);
+
+        try (SessionStore store = new SessionStore(directory, 100)) {
+            Assertions.assertEquals(expectedStart, store.resume(machine));
+
+            for (long frame = expectedStart; frame < end; frame++) {
+                store.runFrame(keys[(int) frame]);
+            }
+        }
+    }
+
+    private static HeadlessChip8 reference(int[] keys, int frames) {
+        HeadlessChip8 machine = new HeadlessChip8(ROM, SEED);
+
+        for (int frame = 0; frame < frames; frame++) {
+            machine.applyKeys(keys[frame]);
+            machine.runFrame();
+        }
+
+        return machine;
+    }
+
+    private static void assertSameState(HeadlessChip8 expected, HeadlessChip8 actual) {
+        Assertions.assertEquals(expected.getFrame(), actual.getFrame());
+        Assertions.assertNull(stateOf(expected).findDifference(stateOf(actual)));
+    }
+
+    private static Chip8State stateOf(HeadlessChip8 machine) {
+        Chip8State state = new Chip8State();
+        machine.saveState(state);
+        return state;
+    }
+
+    private static int[] script(int frames) {
+        SplittableRandom random = new SplittableRandom(5);
+        int[] keys = new int[frames];
+
+        for (int frame = 0; frame < frames; frame += 7) {
+            int held = random.nextInt(1 << 16) & random.nextInt(1 << 16);
+
+            for (int i = frame; i < Math.min(frame + 7, frames); i++) {
+                keys[i] = held;
+            }
+        }
+
+        return keys;
+    }
+}
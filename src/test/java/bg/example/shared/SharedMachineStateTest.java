@@ -0,0 +1,131 @@
+package bg.example.shared;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.Chip8Properties;
+import bg.example.chip.Chip8State;
+import bg.example.chip.QuirkProfile;
+import bg.example.counter.BufferCounter;
+import bg.example.headless.HeadlessChip8;
+import bg.example.headless.SplitMixRandom;
+import bg.example.keyboard.Keyboard;
+import bg.example.loader.font.BasicFontLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static bg.example.Roms.rom;
+
+public class SharedMachineStateTest {
+
+    // V0 = 42, stores its digits at 300, draws the digit 2, delay = 5, then loops
+    private static final byte[] PROGRAM = rom(0x6042, 0xA300, 0xF033, 0xF029, 0xD015, 0x6105, 0xF115, 0x120E);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void otherMappingReadsLiveState() throws IOException {
+        Path file = directory.resolve("machine.state");
+
+        try (SharedMachineState state = SharedMachineState.create(file);
+             SharedMachineState reader = SharedMachineState.open(file)) {
+            BufferCounter delayTimer = state.delayTimer();
+            Chip8 chip = chip(state, delayTimer);
+
+            for (int i = 0; i < 8; i++) {
+                chip.runOneCycle();
+            }
+
+            delayTimer.tick();
+
+            Assertions.assertEquals(0x20E, reader.getProgramCounter());
+            Assertions.assertEquals(0x42, reader.getRegister(0));
+            Assertions.assertEquals(0x05, reader.getRegister(1));
+            Assertions.assertEquals(0x02, reader.getIndexRegister());
+            Assertions.assertEquals(4, reader.getDelayTimer());
+
+            Assertions.assertEquals(0, reader.getMemory(0x300));
+            Assertions.assertEquals(6, reader.getMemory(0x301));
+            Assertions.assertEquals(6, reader.getMemory(0x302));
+            Assertions.assertEquals(0x60, reader.getMemory(0x200));
+
+            HeadlessChip8 expected = new HeadlessChip8(PROGRAM, 1);
+
+            for (int i = 0; i < 8; i++) {
+                expected.step();
+            }
+
+            Chip8State expectedState = new Chip8State();
+            expected.saveState(expectedState);
+
+            for (int y = 0; y < Chip8.DISPLAY_HEIGHT; y++) {
+                Assertions.assertEquals(expectedState.getScreenRow(y), reader.getScreenRow(y), "row " + y);
+            }
+
+            Assertions.assertNotEquals(0, reader.getScreenRow(0));
+        }
+    }
+
+    @Test
+    public void snapshotsWorkOnSharedState() {
+        SharedMachineState state = SharedMachineState.allocate();
+        Chip8 chip = chip(state, state.delayTimer());
+        Chip8State saved = new Chip8State();
+
+        for (int i = 0; i < 5; i++) {
+            chip.runOneCycle();
+        }
+
+        chip.saveState(saved);
+
+        for (int i = 0; i < 3; i++) {
+            chip.runOneCycle();
+        }
+
+        chip.loadState(saved);
+
+        Chip8State restored = new Chip8State();
+        chip.saveState(restored);
+
+        Assertions.assertNull(saved.findDifference(restored));
+        Assertions.assertEquals(0x20A, state.getProgramCounter());
+    }
+
+    @Test
+    public void otherFilesAreRejected() throws IOException {
+        Path file = directory.resolve("other");
+        Files.write(file, new byte[SharedMachineState.SIZE]);
+
+        Assertions.assertThrows(IOException.class, () -> SharedMachineState.open(file));
+    }
+
+    private static Chip8 chip(SharedMachineState state, BufferCounter delayTimer) {
+        return new Chip8(
+            new Chip8Properties(
+                state.programCounter(),
+                delayTimer,
+                state.soundTimer(),
+                () -> { },
+                state.memory(),
+                memory -> {
+                    new BasicFontLoader().load(memory, Chip8.FONT_OFFSET);
+
+                    for (int i = 0; i < PROGRAM.length; i++) {
+                        memory.set(Chip8.FIRST_INSTRUCTION_OFFSET + i, PROGRAM[i] & 0xFF);
+                    }
+                },
+                state.display(null),
+                new Keyboard(),
+                state.registers(),
+                state.indexRegister(),
+                new SplitMixRandom(1),
+                QuirkProfile.MODERN.quirks(),
+                Chip8.DEFAULT_STACK_DEPTH
+            )
+        );
+    }
+}
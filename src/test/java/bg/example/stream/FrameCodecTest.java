@@ -0,0 +1,30 @@
+package bg.example.stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class FrameCodecTest {
+
+    @Test
+    public void codecRoundTrips() {
+        long[] previous = {0, 1, 2, 3, 4, 5};
+        long[] current = {0, 7, 2, 3, -1, 5};
+        long[] rows = previous.clone();
+
+        ByteBuffer delta = FrameCodec.encode(FrameCodec.DELTA, 9, previous, current);
+        ByteBuffer keyframe = FrameCodec.encode(FrameCodec.KEYFRAME, 9, new long[6], current);
+
+        Assertions.assertEquals(9, FrameCodec.decode(delta.duplicate(), rows));
+        Assertions.assertArrayEquals(current, rows);
+
+        Arrays.fill(rows, 42);
+        Assertions.assertEquals(9, FrameCodec.decode(keyframe.duplicate(), rows));
+        Assertions.assertArrayEquals(current, rows);
+
+        Assertions.assertEquals(-1, FrameCodec.decode(delta.duplicate().limit(delta.limit() - 1), rows));
+        Assertions.assertEquals(FrameCodec.HEADER_SIZE, FrameCodec.encode(FrameCodec.DELTA, 1, current, current).remaining());
+    }
+}
@@ -0,0 +1,205 @@
+package bg.example.stream;
+
+import bg.example.chip.Chip8;
+import bg.example.chip.QuirkProfile;
+import bg.example.display.DisplayPipeline;
+import bg.example.display.StreamingDisplay;
+import bg.example.headless.HeadlessChip8;
+import bg.example.keyboard.Keyboard;
+import javafx.scene.input.KeyCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static bg.example.Roms.rom;
+
+public class FrameStreamServerTest {
+
+    private static final int VIEWERS = 20;
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    // Draws the sixteen font characters in a row and then loops forever
+    private static final byte[] ROM = rom(
+        0x6000, 0x6100, 0x6200,
+        0xF229, 0xD015, 0x7005, 0x7201, 0x3210, 0x1206,
+        0x1212
+    );
+
+    private FrameStreamServer server;
+    private DisplayPipeline pipeline;
+    private List<SocketChannel> channels;
+
+    @BeforeEach
+    public void start() {
+        channels = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void stop() throws IOException {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+
+        pipeline.close();
+        server.close();
+    }
+
+    @Test
+    public void viewersReceiveEveryFrameAndIdleInstanceSendsNothing() throws Exception {
+        HeadlessChip8 machine = startMachine(VIEWERS);
+
+        runFrames(machine, 50);
+
+        long[] expected = new long[Chip8.DISPLAY_HEIGHT];
+        machine.getDisplay().copyRows(expected);
+
+        Assertions.assertNotEquals(0, Arrays.stream(expected).reduce(0, (a, b) -> a | b));
+
+        for (SocketChannel channel : channels) {
+            long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+            waitFor(() -> {
+                readInto(channel, buffer, rows);
+                return Arrays.equals(expected, rows);
+            });
+        }
+
+        runFrames(machine, 50);
+
+        Thread.sleep(100);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        for (SocketChannel channel : channels) {
+            Assertions.assertEquals(0, channel.read(buffer));
+        }
+    }
+
+    @Test
+    public void lateViewerStartsFromKeyframe() throws Exception {
+        HeadlessChip8 machine = startMachine(VIEWERS);
+
+        runFrames(machine, 50);
+
+        assertLateViewerSeesTheScreen(machine);
+    }
+
+    @Test
+    public void framesPublishedWithoutViewersAreNotLost() throws Exception {
+        HeadlessChip8 machine = startMachine(0);
+
+        runFrames(machine, 50);
+
+        assertLateViewerSeesTheScreen(machine);
+    }
+
+    @Test
+    public void inputReachesKeyboard() throws Exception {
+        HeadlessChip8 machine = startMachine(VIEWERS);
+
+        channels.get(0).write(ByteBuffer.wrap(new byte[] {1, 0x5, 1, 0xA, 0, 0x5}));
+
+        waitFor(() -> machine.getKeyboard().isPressed(KeyCode.A));
+
+        Assertions.assertFalse(machine.getKeyboard().isPressed(KeyCode.DIGIT5));
+    }
+
+    private void assertLateViewerSeesTheScreen(HeadlessChip8 machine) throws Exception {
+        SocketChannel late = connect();
+        long[] expected = new long[Chip8.DISPLAY_HEIGHT];
+        long[] rows = new long[Chip8.DISPLAY_HEIGHT];
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        machine.getDisplay().copyRows(expected);
+
+        waitFor(() -> {
+            readInto(late, buffer, rows);
+            return Arrays.equals(expected, rows);
+        });
+    }
+
+    /**
+     * @return machine drawing into a pipeline which streams its frames to the viewers
+     */
+    private HeadlessChip8 startMachine(int viewers) throws Exception {
+        Keyboard keyboard = new Keyboard();
+
+        server = new FrameStreamServer(keyboard, 0);
+        pipeline = new DisplayPipeline(new boolean[Chip8.DISPLAY_HEIGHT][Chip8.DISPLAY_WIDTH]);
+
+        Thread thread = new Thread(server);
+        thread.setDaemon(true);
+        thread.start();
+
+        pipeline.addRenderer("stream", new StreamingDisplay(server, Chip8.DISPLAY_HEIGHT));
+
+        HeadlessChip8 machine = new HeadlessChip8(
+            ROM,
+            0,
+            Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME,
+            QuirkProfile.MODERN.quirks(),
+            pipeline,
+            keyboard
+        );
+
+        for (int i = 0; i < viewers; i++) {
+            connect();
+        }
+
+        waitFor(() -> server.getViewerCount() == viewers);
+
+        return machine;
+    }
+
+    private void runFrames(HeadlessChip8 machine, int frames) {
+        for (int i = 0; i < frames; i++) {
+            machine.runFrame();
+            pipeline.publish();
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+
+        channel.configureBlocking(false);
+        channels.add(channel);
+
+        return channel;
+    }
+
+    private static void readInto(SocketChannel channel, ByteBuffer buffer, long[] rows) {
+        try {
+            channel.read(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        buffer.flip();
+
+        while (FrameCodec.decode(buffer, rows) >= 0) {
+            // Applies every complete message
+        }
+
+        buffer.compact();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+}
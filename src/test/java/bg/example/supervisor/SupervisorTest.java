@@ -0,0 +1,201 @@
+package bg.example.supervisor;
+
+import bg.example.chip.BatchChip8;
+import bg.example.chip.Chip8State;
+import bg.example.chip.ExecutionCore;
+import bg.example.chip.QuirkProfile;
+import bg.example.headless.HeadlessChip8;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static bg.example.Roms.rom;
+
+public class SupervisorTest {
+
+    @Test
+    public void faultsAreClassifiedWithContext() throws InterruptedException {
+        List<Fault> faults = new CopyOnWriteArrayList<>();
+        Budget budget = new Budget(100, Long.MAX_VALUE, 0);
+
+        try (Supervisor supervisor = new Supervisor(2, faults::add)) {
+            // 8XY8 has no implementation
+            supervisor.add("unknown", () -> new HeadlessChip8(rom(0x6001, 0x8018), 1), budget);
+            // I = FFF, store V0 and V1 past the end of memory
+            supervisor.add("memory", () -> new HeadlessChip8(rom(0xAFFF, 0xF155), 1), budget);
+            // Calls itself forever
+            supervisor.add("recursion", () -> new HeadlessChip8(rom(0x2200), 1), budget);
+            // Returns without a call
+            supervisor.add("return", () -> new HeadlessChip8(rom(0x00EE), 1), budget);
+
+            supervisor.start();
+            awaitQuarantine(supervisor);
+        }
+
+        Assertions.assertEquals(4, faults.size(), faults.toString());
+
+        assertFault(find(faults, "unknown"), FaultKind.UNKNOWN_INSTRUCTION, 0x202, 0x8018);
+        assertFault(find(faults, "memory"), FaultKind.MEMORY_ACCESS, 0x202, 0xF155);
+        assertFault(find(faults, "recursion"), FaultKind.STACK_OVERFLOW, 0x200, 0x2200);
+        assertFault(find(faults, "return"), FaultKind.STACK_UNDERFLOW, 0x200, 0x00EE);
+    }
+
+    @Test
+    public void faultsOfBatchLanesAreClassified() throws InterruptedException {
+        List<Fault> faults = new CopyOnWriteArrayList<>();
+        Budget budget = new Budget(100, Long.MAX_VALUE, 0);
+
+        try (Supervisor supervisor = new Supervisor(1, faults::add)) {
+            supervisor.add("unknown", () -> batchLane(rom(0x6001, 0x8018)), budget);
+            supervisor.add("memory", () -> batchLane(rom(0xAFFF, 0xF155)), budget);
+
+            supervisor.start();
+            awaitQuarantine(supervisor);
+        }
+
+        assertFault(find(faults, "unknown"), FaultKind.UNKNOWN_INSTRUCTION, 0x202, 0x8018);
+        assertFault(find(faults, "memory"), FaultKind.MEMORY_ACCESS, 0x202, 0xF155);
+    }
+
+    @Test
+    public void faultingInstanceIsRestartedThenQuarantined() throws InterruptedException {
+        List<Fault> faults = new CopyOnWriteArrayList<>();
+
+        try (Supervisor supervisor = new Supervisor(1, faults::add)) {
+            SupervisedInstance faulty = supervisor.add(
+                "faulty",
+                () -> new HeadlessChip8(rom(0x00EE), 1),
+                new Budget(100, Long.MAX_VALUE, 3)
+            );
+            SupervisedInstance healthy = supervisor.add(
+                "healthy",
+                () -> new HeadlessChip8(rom(0x7001, 0x1200), 1),
+                new Budget(100, Long.MAX_VALUE, 3)
+            );
+
+            supervisor.start();
+            awaitQuarantine(supervisor);
+
+            Assertions.assertEquals(3, faulty.getRestarts());
+            Assertions.assertEquals(4, faults.size());
+
+            long before = healthy.getInstructions();
+            Thread.sleep(20);
+
+            Assertions.assertEquals(SupervisedInstance.State.RUNNING, healthy.getState());
+            Assertions.assertTrue(healthy.getInstructions() > before);
+        }
+    }
+
+    @Test
+    public void hotLoopIsThrottledToItsBudget() throws InterruptedException {
+        try (Supervisor supervisor = new Supervisor(1, fault -> { })) {
+            SupervisedInstance hog = supervisor.add(
+                "hog",
+                () -> new HeadlessChip8(rom(0x1200), 1),
+                new Budget(1_000, 20_000_000, 0)
+            );
+
+            supervisor.start();
+            Thread.sleep(300);
+
+            // One slice may finish past the budget
+            Assertions.assertTrue(hog.getCpuNanos() < 40_000_000, hog.getCpuNanos() + " ns");
+            Assertions.assertEquals(SupervisedInstance.State.THROTTLED, hog.getState());
+        }
+    }
+
+    @Test
+    public void watchdogReportsStuckInstance() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch reported = new CountDownLatch(1);
+        List<Fault> faults = new CopyOnWriteArrayList<>();
+
+        try (Supervisor supervisor = new Supervisor(1, 50_000_000, fault -> {
+            faults.add(fault);
+            reported.countDown();
+        })) {
+            SupervisedInstance stuck = supervisor.add("stuck", () -> new BlockingCore(release), Budget.DEFAULT);
+
+            supervisor.start();
+
+            Assertions.assertTrue(reported.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(FaultKind.STALLED, faults.get(0).kind());
+            Assertions.assertTrue(stuck.isStalled());
+
+            release.countDown();
+        }
+    }
+
+    private static void awaitQuarantine(Supervisor supervisor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (System.nanoTime() < deadline) {
+            boolean done = supervisor.getInstances()
+                                     .stream()
+                                     .filter(instance -> !instance.getName().equals("healthy"))
+                                     .allMatch(instance -> instance.getState() == SupervisedInstance.State.QUARANTINED);
+
+            if (done) {
+                return;
+            }
+
+            Thread.sleep(1);
+        }
+
+        Assertions.fail("Instances were not quarantined");
+    }
+
+    private static ExecutionCore batchLane(byte[] program) {
+        BatchChip8 batch = new BatchChip8(1, 10, QuirkProfile.MODERN.quirks());
+
+        batch.load(0, program, 1);
+
+        return batch.lane(0);
+    }
+
+    private static Fault find(List<Fault> faults, String instance) {
+        return faults.stream()
+                     .filter(fault -> fault.instance().equals(instance))
+                     .findFirst()
+                     .orElseThrow();
+    }
+
+    private static void assertFault(Fault fault, FaultKind kind, int address, int instruction) {
+        Assertions.assertEquals(kind, fault.kind(), fault.toString());
+        Assertions.assertEquals(address, fault.address(), fault.toString());
+        Assertions.assertEquals(instruction, fault.instruction(), fault.toString());
+    }
+
+    private record BlockingCore(CountDownLatch release) implements ExecutionCore {
+
+        @Override
+        public void step() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void saveState(Chip8State state) { }
+
+        @Override
+        public void saveRegisters(Chip8State state) { }
+
+        @Override
+        public boolean isWaitingForKey() {
+            return false;
+        }
+
+        @Override
+        public int getProgramCounter() {
+            return 0x200;
+        }
+    }
+}
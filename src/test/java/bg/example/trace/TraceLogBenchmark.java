@@ -0,0 +1,40 @@
+package bg.example.trace;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Run with the benchmark profile, timings depend on the machine
+ */
+public class TraceLogBenchmark {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void appendingKeepsUpWithFastInterpreters() throws IOException {
+        int entries = 10_000_000;
+        long best = Long.MAX_VALUE;
+
+        try (TraceLog log = new TraceLog(directory.resolve("trace.bin"), 1 << 20)) {
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+
+                for (int i = 0; i < entries; i++) {
+                    log.append(0x200 + (i & 0x3FE), 0x7001 + (i & 0xF00), i & 0xF, i & 0xFF);
+                }
+
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+
+        double entriesPerSecond = entries * 1e9 / best;
+
+        System.out.println((long) entriesPerSecond + " trace entries per second");
+        Assertions.assertTrue(entriesPerSecond > 50e6, (long) entriesPerSecond + " entries per second");
+    }
+}
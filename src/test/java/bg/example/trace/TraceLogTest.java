@@ -0,0 +1,154 @@
+package bg.example.trace;
+
+import bg.example.chip.QuirkProfile;
+import bg.example.headless.HeadlessChip8;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import static bg.example.Roms.rom;
+
+public class TraceLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void executedInstructionsAreTraced() throws IOException {
+        // V0 = 05, I = 300, then V0 += 1 forever
+        byte[] rom = rom(0x6005, 0xA300, 0x7001, 0x1202);
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1, 10);
+        Path file = directory.resolve("trace.bin");
+
+        try (TraceLog log = new TraceLog(file, 1024)) {
+            machine.getChip().setTraceLog(log);
+
+            for (int frame = 0; frame < 3; frame++) {
+                machine.runFrame();
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            Assertions.assertEquals(0, reader.getFirstSequence());
+            Assertions.assertEquals(30, reader.getEndSequence());
+
+            Assertions.assertEquals(new TraceEntry(0, 0x200, 0x6005, 0, 0x05), reader.get(0));
+            Assertions.assertEquals(new TraceEntry(1, 0x202, 0xA300, TraceLog.INDEX_REGISTER, 0x300), reader.get(1));
+            Assertions.assertEquals(new TraceEntry(3, 0x206, 0x1202, TraceLog.NO_REGISTER, 0), reader.get(3));
+
+            Assertions.assertEquals(
+                List.of(new TraceEntry(5, 0x204, 0x7001, 0, 0x07)),
+                reader.findByRegisterValue(0, 0x07, 10)
+            );
+            Assertions.assertEquals(10, reader.findByAddress(0x202, 100).size());
+            Assertions.assertEquals(9, reader.findByInstruction(0x1202, 100).size());
+        }
+    }
+
+    @Test
+    public void writesToTheIndexRegisterAreTraced() throws IOException {
+        // V0 = 07, I = sprite of V0, I = 300, store V0, load V0
+        byte[] rom = rom(0x6007, 0xF029, 0xA300, 0xF055, 0xF065);
+        HeadlessChip8 machine = new HeadlessChip8(rom, 1, 10, QuirkProfile.COSMAC_VIP.quirks());
+        Path file = directory.resolve("trace.bin");
+
+        try (TraceLog log = new TraceLog(file, 1024)) {
+            machine.getChip().setTraceLog(log);
+
+            for (int i = 0; i < 5; i++) {
+                machine.step();
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            Assertions.assertEquals(new TraceEntry(1, 0x202, 0xF029, TraceLog.INDEX_REGISTER, 0x07), reader.get(1));
+            Assertions.assertEquals(new TraceEntry(3, 0x206, 0xF055, TraceLog.INDEX_REGISTER, 0x301), reader.get(3));
+            Assertions.assertEquals(new TraceEntry(4, 0x208, 0xF065, TraceLog.INDEX_REGISTER, 0x302), reader.get(4));
+        }
+    }
+
+    @Test
+    public void searchesScanOnlyMatchingBlocks() throws IOException {
+        Path file = directory.resolve("trace.bin");
+        int entries = 20 * TraceLog.BLOCK_ENTRIES;
+        long needle = 7L * TraceLog.BLOCK_ENTRIES + 123;
+
+        try (TraceLog log = new TraceLog(file, entries)) {
+            for (long sequence = 0; sequence < entries; sequence++) {
+                if (sequence == needle) {
+                    log.append(0x2AA, 0x6A42, 0xA, 0x42);
+                } else {
+                    log.append(0x300, 0x7001, 0, (int) sequence & 0xFF);
+                }
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            Assertions.assertEquals(
+                List.of(new TraceEntry(needle, 0x2AA, 0x6A42, 0xA, 0x42)),
+                reader.findByAddress(0x2AA, 10)
+            );
+            Assertions.assertEquals(1, reader.getScannedBlocks());
+
+            Assertions.assertEquals(1, reader.findByInstruction(0x6A42, 10).size());
+            Assertions.assertEquals(1, reader.findByRegisterValue(0xA, 0x42, 10).size());
+            Assertions.assertTrue(reader.getScannedBlocks() < 10, reader.getScannedBlocks() + " blocks scanned");
+        }
+    }
+
+    @Test
+    public void ringKeepsNewestWholeBlocks() throws IOException {
+        Path file = directory.resolve("trace.bin");
+        long entries = 5L * TraceLog.BLOCK_ENTRIES + TraceLog.BLOCK_ENTRIES / 2;
+
+        try (TraceLog log = new TraceLog(file, 2 * TraceLog.BLOCK_ENTRIES)) {
+            for (long sequence = 0; sequence < entries; sequence++) {
+                log.append(0x200, 0x6000, 0, (int) sequence & 0xFFFFFF);
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            Assertions.assertEquals(4L * TraceLog.BLOCK_ENTRIES, reader.getFirstSequence());
+            Assertions.assertEquals(entries, reader.getEndSequence());
+
+            for (long sequence = reader.getFirstSequence(); sequence < entries; sequence += 1000) {
+                Assertions.assertEquals((int) sequence, reader.get(sequence).value());
+            }
+
+            List<TraceEntry> found = reader.findByRegisterValue(0, (int) entries - 1, 10);
+
+            Assertions.assertEquals(1, found.size());
+            Assertions.assertEquals(entries - 1, found.get(0).sequence());
+        }
+    }
+
+    @Test
+    public void appendingDoesNotAllocate() throws IOException {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int entries = 3 * TraceLog.BLOCK_ENTRIES;
+
+        try (TraceLog log = new TraceLog(directory.resolve("trace.bin"), TraceLog.BLOCK_ENTRIES)) {
+            append(log, entries);
+
+            long before = threads.getCurrentThreadAllocatedBytes();
+            append(log, entries);
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+            Assertions.assertEquals(2L * entries, log.getWritten());
+            // Leaves room for the allocations of the measurement itself
+            Assertions.assertTrue(allocated < 1024, allocated + " bytes allocated");
+        }
+    }
+
+    private static void append(TraceLog log, int entries) {
+        for (int i = 0; i < entries; i++) {
+            log.append(0x200 + (i & 0x3FE), 0x7001 + (i & 0xF00), i & 0xF, i & 0xFF);
+        }
+    }
+}